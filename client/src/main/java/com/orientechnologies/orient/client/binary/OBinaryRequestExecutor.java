@@ -105,6 +105,8 @@ public interface OBinaryRequestExecutor {
 
   OBinaryResponse executeQueryNextPage(OQueryNextPageRequest request);
 
+  OBinaryResponse executeQueryNextPages(OQueryNextPagesRequest request);
+
   OBinaryResponse executeBeginTransaction(OBeginTransactionRequest request);
 
   OBinaryResponse executeCommit37(OCommit37Request request);
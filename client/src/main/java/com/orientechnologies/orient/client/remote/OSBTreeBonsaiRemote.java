@@ -35,6 +35,8 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
 
 /**
  * Implementation of {@link OSBTreeBonsai} for remote storage.
@@ -95,6 +97,16 @@ public class OSBTreeBonsaiRemote<K, V> implements OSBTreeBonsai<K, V> {
     throw new UnsupportedOperationException("Not implemented yet");
   }
 
+  @Override
+  public void putAll(SortedMap<K, V> entries) {
+    throw new UnsupportedOperationException("Not implemented yet");
+  }
+
+  @Override
+  public void removeAll(SortedSet<K> keys) {
+    throw new UnsupportedOperationException("Not implemented yet");
+  }
+
   @Override
   public void clear() throws IOException {
     throw new UnsupportedOperationException("Not implemented yet");
@@ -203,6 +215,11 @@ public class OSBTreeBonsaiRemote<K, V> implements OSBTreeBonsai<K, V> {
     return response.getRealSize();
   }
 
+  @Override
+  public void applyChanges(SortedMap<K, Change> changes) {
+    throw new UnsupportedOperationException("Not implemented yet");
+  }
+
   @Override
   public OBinarySerializer<K> getKeySerializer() {
     return keySerializer;
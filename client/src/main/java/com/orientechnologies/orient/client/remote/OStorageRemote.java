@@ -993,6 +993,11 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
     if (recordsPerPage <= 0) {
       recordsPerPage = 100;
     }
+    int prefetchPages = OGlobalConfiguration.QUERY_REMOTE_RESULTSET_PREFETCH_PAGES.getValueAsInteger();
+    if (prefetchPages > 1) {
+      fetchNextPages(database, rs, recordsPerPage, prefetchPages);
+      return;
+    }
     OQueryNextPageRequest request = new OQueryNextPageRequest(rs.getQueryId(), recordsPerPage);
     OQueryResponse response = networkOperation(request, "Error on fetching next page for statment: " + rs.getQueryId());
 
@@ -1003,6 +1008,20 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy, O
     }
   }
 
+  /**
+   * fetches a window of pages in a single round trip. The whole window is read before the records are handed to the result set
+   */
+  private void fetchNextPages(ODatabaseDocumentRemote database, ORemoteResultSet rs, int recordsPerPage, int pages) {
+    OQueryNextPagesRequest request = new OQueryNextPagesRequest(rs.getQueryId(), recordsPerPage, pages);
+    OQueryPagesResponse response = networkOperation(request, "Error on fetching next pages for statment: " + rs.getQueryId());
+
+    rs.fetched(response.getRecords(), response.isHasNextPage(), Optional.empty(), response.getQueryStats());
+    if (!response.isHasNextPage()) {
+      unstickToSession();
+      database.queryClosed(response.getQueryId());
+    }
+  }
+
   public List<ORecordOperation> commit(final OTransactionInternal iTx) {
     unstickToSession();
     OCommit38Request request = new OCommit38Request(iTx.getId(), true, iTx.isUsingLog(), iTx.getRecordOperations(),
@@ -0,0 +1,98 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.client.remote.message;
+
+import com.orientechnologies.orient.client.binary.OBinaryRequestExecutor;
+import com.orientechnologies.orient.client.remote.OBinaryRequest;
+import com.orientechnologies.orient.client.remote.OBinaryResponse;
+import com.orientechnologies.orient.client.remote.OStorageRemoteSession;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelDataInput;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelDataOutput;
+
+import java.io.IOException;
+
+/**
+ * Asks the server the next pages of a query. The server sends back up to the requested number of pages (the credits of the client,
+ * capped by {@link com.orientechnologies.orient.core.config.OGlobalConfiguration#QUERY_REMOTE_RESULTSET_MAX_PREFETCH_PAGES}),
+ * producing each page while the previous ones are transferred, and then waits for the next request: the client controls how many
+ * records are in flight.
+ */
+public final class OQueryNextPagesRequest implements OBinaryRequest<OQueryPagesResponse> {
+
+  private String queryId;
+  private int    recordsPerPage;
+  private int    pages;
+
+  public OQueryNextPagesRequest(String queryId, int recordsPerPage, int pages) {
+    this.queryId = queryId;
+    this.recordsPerPage = recordsPerPage;
+    this.pages = pages;
+  }
+
+  public OQueryNextPagesRequest() {
+  }
+
+  @Override
+  public void write(OChannelDataOutput network, OStorageRemoteSession session) throws IOException {
+    network.writeString(queryId);
+    network.writeInt(recordsPerPage);
+    network.writeInt(pages);
+  }
+
+  public void read(OChannelDataInput channel, int protocolVersion, ORecordSerializer serializer) throws IOException {
+    this.queryId = channel.readString();
+    this.recordsPerPage = channel.readInt();
+    this.pages = channel.readInt();
+  }
+
+  @Override
+  public byte getCommand() {
+    return OChannelBinaryProtocol.REQUEST_QUERY_NEXT_PAGES;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Stream remote query pages";
+  }
+
+  @Override
+  public OQueryPagesResponse createResponse() {
+    return new OQueryPagesResponse();
+  }
+
+  @Override
+  public OBinaryResponse execute(OBinaryRequestExecutor executor) {
+    return executor.executeQueryNextPages(this);
+  }
+
+  public String getQueryId() {
+    return queryId;
+  }
+
+  public int getRecordsPerPage() {
+    return recordsPerPage;
+  }
+
+  public int getPages() {
+    return pages;
+  }
+}
@@ -0,0 +1,25 @@
+package com.orientechnologies.orient.client.remote.message;
+
+import com.orientechnologies.orient.core.sql.executor.OResultInternal;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Produces, on the server, the pages of a query that are streamed back for a {@link OQueryNextPagesRequest}. The pages are
+ * produced one at a time while the response is written, so only the page being written is kept in memory.
+ */
+public interface OQueryPageWindow {
+
+  /**
+   * @return the next page of the window, null if the window is complete
+   */
+  List<OResultInternal> nextPage();
+
+  /**
+   * @return true if the query has more records after the pages of the window. Valid after the end of the window
+   */
+  boolean hasNextPage();
+
+  Map<String, Long> getQueryStats();
+}
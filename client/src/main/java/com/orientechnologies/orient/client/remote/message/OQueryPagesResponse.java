@@ -0,0 +1,110 @@
+package com.orientechnologies.orient.client.remote.message;
+
+import com.orientechnologies.orient.client.remote.OBinaryResponse;
+import com.orientechnologies.orient.client.remote.OStorageRemoteSession;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultInternal;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelDataInput;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelDataOutput;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The pages of a query sent back for a {@link OQueryNextPagesRequest}. The server flushes each page as soon as it is written, so
+ * that the transfer of a page overlaps the production of the next one; the client reads the whole window before handing the
+ * records to the result set.
+ */
+public class OQueryPagesResponse implements OBinaryResponse {
+
+  private String                      queryId;
+  private OQueryPageWindow            window;
+  private List<OResultInternal>       records;
+  private boolean                     hasNextPage;
+  private Map<String, Long>           queryStats;
+
+  public OQueryPagesResponse(String queryId, OQueryPageWindow window) {
+    this.queryId = queryId;
+    this.window = window;
+  }
+
+  public OQueryPagesResponse() {
+  }
+
+  @Override
+  public void write(OChannelDataOutput channel, int protocolVersion, ORecordSerializer serializer) throws IOException {
+    channel.writeString(queryId);
+    List<OResultInternal> page;
+    while ((page = window.nextPage()) != null) {
+      channel.writeBoolean(true);
+      channel.writeInt(page.size());
+      for (OResult res : page) {
+        OMessageHelper.writeResult(res, channel, serializer);
+      }
+      channel.getDataOutput().flush();
+    }
+    channel.writeBoolean(false);
+    channel.writeBoolean(window.hasNextPage());
+    writeQueryStats(window.getQueryStats(), channel);
+  }
+
+  @Override
+  public void read(OChannelDataInput network, OStorageRemoteSession session) throws IOException {
+    queryId = network.readString();
+    records = new ArrayList<>();
+    while (network.readBoolean()) {
+      int size = network.readInt();
+      while (size-- > 0) {
+        records.add(OMessageHelper.readResult(network));
+      }
+    }
+    hasNextPage = network.readBoolean();
+    queryStats = readQueryStats(network);
+  }
+
+  private void writeQueryStats(Map<String, Long> queryStats, OChannelDataOutput channel) throws IOException {
+    if (queryStats == null) {
+      channel.writeInt(0);
+      return;
+    }
+    channel.writeInt(queryStats.size());
+    for (Map.Entry<String, Long> entry : queryStats.entrySet()) {
+      channel.writeString(entry.getKey());
+      channel.writeLong(entry.getValue());
+    }
+  }
+
+  private Map<String, Long> readQueryStats(OChannelDataInput channel) throws IOException {
+    Map<String, Long> result = new HashMap<>();
+    int size = channel.readInt();
+    for (int i = 0; i < size; i++) {
+      String key = channel.readString();
+      Long val = channel.readLong();
+      result.put(key, val);
+    }
+    return result;
+  }
+
+  public String getQueryId() {
+    return queryId;
+  }
+
+  /**
+   * @return the records of all the pages of the window
+   */
+  public List<OResultInternal> getRecords() {
+    return records;
+  }
+
+  public boolean isHasNextPage() {
+    return hasNextPage;
+  }
+
+  public Map<String, Long> getQueryStats() {
+    return queryStats;
+  }
+}
@@ -7,6 +7,8 @@ import com.orientechnologies.orient.core.sql.executor.OResult;
 import com.orientechnologies.orient.core.sql.executor.OResultInternal;
 import com.orientechnologies.orient.core.sql.executor.OResultSet;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -18,7 +20,7 @@ public class ORemoteResultSet implements OResultSet {
 
   private final ODatabaseDocumentRemote  db;
   private final String                   queryId;
-  private       List<OResultInternal>    currentPage;
+  private       Deque<OResultInternal>   currentPage;
   private       Optional<OExecutionPlan> executionPlan;
   private       Map<String, Long>        queryStats;
   private       boolean                  hasNextPage;
@@ -27,7 +29,7 @@ public class ORemoteResultSet implements OResultSet {
       Optional<OExecutionPlan> executionPlan, Map<String, Long> queryStats, boolean hasNextPage) {
     this.db = db;
     this.queryId = queryId;
-    this.currentPage = currentPage;
+    this.currentPage = new ArrayDeque<>(currentPage);
     this.executionPlan = executionPlan;
     this.queryStats = queryStats;
     this.hasNextPage = hasNextPage;
@@ -64,7 +66,7 @@ public class ORemoteResultSet implements OResultSet {
     if (currentPage.isEmpty()) {
       throw new IllegalStateException();
     }
-    OResultInternal internal = currentPage.remove(0);
+    OResultInternal internal = currentPage.poll();
 
     if (internal.isRecord() && db.getTransaction().isActive()) {
       ORecord record = db.getTransaction().getRecord(internal.getRecord().get().getIdentity());
@@ -108,7 +110,7 @@ public class ORemoteResultSet implements OResultSet {
 
   public void fetched(List<OResultInternal> result, boolean hasNextPage, Optional<OExecutionPlan> executionPlan,
       Map<String, Long> queryStats) {
-    this.currentPage = result;
+    this.currentPage = new ArrayDeque<>(result);
     this.hasNextPage = hasNextPage;
 
     if (queryStats != null) {
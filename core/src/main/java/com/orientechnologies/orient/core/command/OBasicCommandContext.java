@@ -63,6 +63,8 @@ public class OBasicCommandContext implements OCommandContext {
   protected AtomicLong  resultsProcessed = new AtomicLong(0);
   protected Set<Object> uniqueResult     = new HashSet<Object>();
 
+  private OCommandMemoryTracker memoryTracker;
+
   public OBasicCommandContext() {
   }
 
@@ -326,6 +328,47 @@ public class OBasicCommandContext implements OCommandContext {
     return true;
   }
 
+  @Override
+  public void reserveMemory(long bytes) {
+    if (parent != null) {
+      parent.reserveMemory(bytes);
+    } else {
+      getMemoryTracker().reserve(bytes);
+    }
+  }
+
+  @Override
+  public boolean tryReserveMemory(long bytes) {
+    if (parent != null) {
+      return parent.tryReserveMemory(bytes);
+    }
+    return getMemoryTracker().tryReserve(bytes);
+  }
+
+  @Override
+  public void releaseMemory(long bytes) {
+    if (parent != null) {
+      parent.releaseMemory(bytes);
+    } else if (memoryTracker != null) {
+      memoryTracker.release(bytes);
+    }
+  }
+
+  @Override
+  public long getUsedMemory() {
+    if (parent != null) {
+      return parent.getUsedMemory();
+    }
+    return memoryTracker == null ? 0 : memoryTracker.getUsed();
+  }
+
+  private synchronized OCommandMemoryTracker getMemoryTracker() {
+    if (memoryTracker == null) {
+      memoryTracker = new OCommandMemoryTracker(this, getDatabase());
+    }
+    return memoryTracker;
+  }
+
   @Override
   public OCommandContext copy() {
     final OBasicCommandContext copy = new OBasicCommandContext();
@@ -98,4 +98,46 @@ public interface OCommandContext {
   void declareScriptVariable(String varName);
 
   boolean isScriptVariableDeclared(String varName);
+
+  /**
+   * Reserves memory for data buffered during the execution of the command (eg. records to be sorted). The memory is accounted to
+   * the root context of the command, see {@link OCommandMemoryTracker}.
+   *
+   * @param bytes the estimated number of bytes
+   *
+   * @throws com.orientechnologies.orient.core.exception.OCommandExecutionException if a memory budget is exceeded
+   */
+  default void reserveMemory(long bytes) {
+    OCommandContext parent = getParent();
+    if (parent != null) {
+      parent.reserveMemory(bytes);
+    }
+  }
+
+  /**
+   * Same as {@link #reserveMemory(long)}, but returns false instead of throwing an exception if a memory budget is exceeded, so
+   * that the caller can free memory (eg. spilling data to disk) and try again.
+   */
+  default boolean tryReserveMemory(long bytes) {
+    OCommandContext parent = getParent();
+    return parent == null || parent.tryReserveMemory(bytes);
+  }
+
+  /**
+   * Releases memory reserved with {@link #reserveMemory(long)} or {@link #tryReserveMemory(long)}
+   */
+  default void releaseMemory(long bytes) {
+    OCommandContext parent = getParent();
+    if (parent != null) {
+      parent.releaseMemory(bytes);
+    }
+  }
+
+  /**
+   * @return the memory currently reserved by the command, in bytes
+   */
+  default long getUsedMemory() {
+    OCommandContext parent = getParent();
+    return parent == null ? 0 : parent.getUsedMemory();
+  }
 }
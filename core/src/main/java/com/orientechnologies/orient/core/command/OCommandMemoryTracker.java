@@ -0,0 +1,363 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.command;
+
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfiler.METRIC_TYPE;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.record.ORecordAbstract;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accounts the memory used by a command to buffer data (eg. records to be sorted or grouped) and enforces the memory budgets
+ * defined by {@link OGlobalConfiguration#QUERY_MEMORY_MAX_PER_QUERY}, {@link OGlobalConfiguration#QUERY_MEMORY_MAX_PER_SESSION} and
+ * {@link OGlobalConfiguration#QUERY_MEMORY_MAX_GLOBAL}.
+ * <p>
+ * A tracker is owned by the root {@link OCommandContext} of a command, execution steps reserve and release memory through the
+ * context (see {@link OCommandContext#reserveMemory(long)}). The usage of the single command is tracked exactly, while session and
+ * global counters are updated in chunks of {@link #CHUNK_SIZE} bytes, to avoid contention between concurrent commands. If a
+ * context is garbage collected without releasing its memory (eg. a result set that is never closed), its reservation is returned
+ * to the session and global counters the next time a chunk is reserved.
+ * <p>
+ * The sizes are estimations, see {@link #estimateSize(Object)}.
+ */
+public class OCommandMemoryTracker {
+
+  public static final long CHUNK_SIZE = 256 * 1024;
+
+  private static final    AtomicLong                 GLOBAL_USAGE    = new AtomicLong();
+  private static final    Map<ODatabase, AtomicLong> SESSION_USAGE   = Collections.synchronizedMap(new WeakHashMap<>());
+  private static final    Set<OwnerReference>        RUNNING         = ConcurrentHashMap.newKeySet();
+  private static final    ReferenceQueue<Object>     COLLECTED       = new ReferenceQueue<>();
+  private static volatile boolean                    hooksRegistered = false;
+
+  private final OwnerReference ownerReference;
+  private final AtomicLong     sessionUsage;
+  private final String         databaseName;
+  private final String         threadName = Thread.currentThread().getName();
+  private final Date           startTime  = new Date();
+
+  private long used     = 0;
+  private long peak     = 0;
+  private long reserved = 0;
+
+  /**
+   * @param owner    the context that owns the tracker
+   * @param database the current database, null if not available
+   */
+  public OCommandMemoryTracker(OCommandContext owner, ODatabase database) {
+    this.ownerReference = new OwnerReference(owner, this);
+    this.databaseName = database == null ? null : database.getName();
+    if (database == null) {
+      this.sessionUsage = null;
+    } else {
+      synchronized (SESSION_USAGE) {
+        this.sessionUsage = SESSION_USAGE.computeIfAbsent(database, x -> new AtomicLong());
+      }
+    }
+  }
+
+  /**
+   * Reserves memory for the command
+   *
+   * @param bytes the estimated number of bytes
+   *
+   * @return false if the reservation would exceed a memory budget (in this case nothing is reserved)
+   */
+  public synchronized boolean tryReserve(long bytes) {
+    if (bytes <= 0) {
+      return true;
+    }
+    return doReserve(bytes) == null;
+  }
+
+  /**
+   * Reserves memory for the command
+   *
+   * @param bytes the estimated number of bytes
+   *
+   * @throws OCommandExecutionException if the reservation would exceed a memory budget
+   */
+  public synchronized void reserve(long bytes) {
+    if (bytes <= 0) {
+      return;
+    }
+    OGlobalConfiguration exceeded = doReserve(bytes);
+    if (exceeded != null) {
+      throw new OCommandExecutionException(
+          "Memory limit exceeded: the query requires more than " + exceeded.getValueAsLong() + " bytes (" + exceeded.getKey()
+              + "). Please reduce the number of records that have to be sorted, grouped or buffered, or increase the limit");
+    }
+  }
+
+  /**
+   * Releases memory previously reserved with {@link #reserve(long)} or {@link #tryReserve(long)}
+   */
+  public synchronized void release(long bytes) {
+    if (bytes <= 0) {
+      return;
+    }
+    used = Math.max(0, used - bytes);
+    long needed = roundToChunk(used);
+    if (reserved - needed >= 2 * CHUNK_SIZE || (used == 0 && reserved > 0)) {
+      returnShared(reserved - needed);
+    }
+  }
+
+  /**
+   * releases all the memory reserved by the command
+   */
+  public synchronized void releaseAll() {
+    used = 0;
+    if (reserved > 0) {
+      returnShared(reserved);
+    }
+  }
+
+  public synchronized long getUsed() {
+    return used;
+  }
+
+  public synchronized long getPeak() {
+    return peak;
+  }
+
+  private OGlobalConfiguration doReserve(long bytes) {
+    long maxPerQuery = OGlobalConfiguration.QUERY_MEMORY_MAX_PER_QUERY.getValueAsLong();
+    if (maxPerQuery > 0 && used + bytes > maxPerQuery) {
+      return OGlobalConfiguration.QUERY_MEMORY_MAX_PER_QUERY;
+    }
+    if (used + bytes > reserved) {
+      OGlobalConfiguration exceeded = reserveShared(roundToChunk(used + bytes) - reserved);
+      if (exceeded != null) {
+        return exceeded;
+      }
+    }
+    used += bytes;
+    peak = Math.max(peak, used);
+    return null;
+  }
+
+  private OGlobalConfiguration reserveShared(long bytes) {
+    purgeCollected();
+
+    long maxGlobal = OGlobalConfiguration.QUERY_MEMORY_MAX_GLOBAL.getValueAsLong();
+    if (!add(GLOBAL_USAGE, bytes, maxGlobal)) {
+      return OGlobalConfiguration.QUERY_MEMORY_MAX_GLOBAL;
+    }
+    if (sessionUsage != null) {
+      long maxPerSession = OGlobalConfiguration.QUERY_MEMORY_MAX_PER_SESSION.getValueAsLong();
+      if (!add(sessionUsage, bytes, maxPerSession)) {
+        GLOBAL_USAGE.addAndGet(-bytes);
+        return OGlobalConfiguration.QUERY_MEMORY_MAX_PER_SESSION;
+      }
+    }
+    if (reserved == 0) {
+      registerProfilerHooks();
+      RUNNING.add(ownerReference);
+    }
+    reserved += bytes;
+    return null;
+  }
+
+  private void returnShared(long bytes) {
+    GLOBAL_USAGE.addAndGet(-bytes);
+    if (sessionUsage != null) {
+      sessionUsage.addAndGet(-bytes);
+    }
+    reserved -= bytes;
+    if (reserved == 0) {
+      RUNNING.remove(ownerReference);
+    }
+  }
+
+  private static boolean add(AtomicLong counter, long bytes, long max) {
+    while (true) {
+      long current = counter.get();
+      if (max > 0 && current + bytes > max) {
+        return false;
+      }
+      if (counter.compareAndSet(current, current + bytes)) {
+        return true;
+      }
+    }
+  }
+
+  private static long roundToChunk(long bytes) {
+    return ((bytes + CHUNK_SIZE - 1) / CHUNK_SIZE) * CHUNK_SIZE;
+  }
+
+  private static void purgeCollected() {
+    OwnerReference ref;
+    while ((ref = (OwnerReference) COLLECTED.poll()) != null) {
+      ref.tracker.releaseAll();
+    }
+  }
+
+  /**
+   * @return the memory currently reserved by all the commands, in bytes
+   */
+  public static long getGlobalUsage() {
+    return GLOBAL_USAGE.get();
+  }
+
+  /**
+   * @return the commands that currently hold memory reservations, with database, thread, start time, current and peak usage
+   */
+  public static List<Map<String, Object>> getRunningCommands() {
+    List<Map<String, Object>> result = new ArrayList<>();
+    for (OwnerReference ref : RUNNING) {
+      OCommandMemoryTracker tracker = ref.tracker;
+      Map<String, Object> item = new LinkedHashMap<>();
+      item.put("database", tracker.databaseName);
+      item.put("thread", tracker.threadName);
+      item.put("startTime", tracker.startTime);
+      item.put("usedMemory", tracker.getUsed());
+      item.put("peakMemory", tracker.getPeak());
+      result.add(item);
+    }
+    return result;
+  }
+
+  private static void registerProfilerHooks() {
+    if (hooksRegistered) {
+      return;
+    }
+    synchronized (RUNNING) {
+      if (hooksRegistered) {
+        return;
+      }
+      hooksRegistered = true;
+      Orient.instance().getProfiler()
+          .registerHookValue("process.runtime.queryMemory.used", "Memory reserved by running queries to buffer data",
+              METRIC_TYPE.SIZE, new OProfilerHookValue() {
+                @Override
+                public Object getValue() {
+                  return getGlobalUsage();
+                }
+              });
+      Orient.instance().getProfiler()
+          .registerHookValue("process.runtime.queryMemory.queries", "Memory used by each running query", METRIC_TYPE.TEXT,
+              new OProfilerHookValue() {
+                @Override
+                public Object getValue() {
+                  StringBuilder builder = new StringBuilder();
+                  for (Map<String, Object> item : getRunningCommands()) {
+                    if (builder.length() > 0) {
+                      builder.append(',');
+                    }
+                    builder.append(item.get("database")).append('/').append(item.get("thread")).append('=')
+                        .append(item.get("usedMemory"));
+                  }
+                  return builder.toString();
+                }
+              });
+    }
+  }
+
+  /**
+   * Estimates the memory used by a value buffered during the execution of a query. Records are estimated by their serialized size,
+   * without loading them if they are not loaded yet.
+   *
+   * @param value the value (an {@link OResult}, a record, a collection, a map or a simple value)
+   *
+   * @return the estimated size, in bytes
+   */
+  public static long estimateSize(Object value) {
+    return estimateSize(value, 0);
+  }
+
+  private static long estimateSize(Object value, int depth) {
+    if (value == null) {
+      return 8;
+    }
+    if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+      return 24;
+    }
+    if (value instanceof String) {
+      return 48 + 2L * ((String) value).length();
+    }
+    if (value instanceof byte[]) {
+      return 24 + ((byte[]) value).length;
+    }
+    if (depth > 3) {
+      return 64;
+    }
+    if (value instanceof OResult) {
+      OResult result = (OResult) value;
+      if (result.isElement()) {
+        return 64 + estimateSize(result.getElement().get(), depth + 1);
+      }
+      long size = 64;
+      for (String property : result.getPropertyNames()) {
+        size += 48 + estimateSize(result.getProperty(property), depth + 1);
+      }
+      return size;
+    }
+    if (value instanceof OIdentifiable) {
+      if (value instanceof ORecordAbstract) {
+        return 256 + 2L * Math.max(0, ((ORecordAbstract) value).getSize());
+      }
+      return 40;
+    }
+    if (value instanceof Collection) {
+      long size = 48;
+      for (Object item : (Collection) value) {
+        size += 8 + estimateSize(item, depth + 1);
+      }
+      return size;
+    }
+    if (value instanceof Map) {
+      long size = 64;
+      for (Map.Entry entry : ((Map<?, ?>) value).entrySet()) {
+        size += 48 + estimateSize(entry.getKey(), depth + 1) + estimateSize(entry.getValue(), depth + 1);
+      }
+      return size;
+    }
+    return 64;
+  }
+
+  private static class OwnerReference extends WeakReference<Object> {
+    private final OCommandMemoryTracker tracker;
+
+    OwnerReference(Object owner, OCommandMemoryTracker tracker) {
+      super(owner, COLLECTED);
+      this.tracker = tracker;
+    }
+  }
+}
@@ -496,6 +496,11 @@ public enum OGlobalConfiguration { // ENVIRONMENT
   RID_BAG_EMBEDDED_DEFAULT_SIZE("ridBag.embeddedDefaultSize", "Size of embedded RidBag array, when created (empty)", Integer.class,
       4),
 
+  RID_BAG_EMBEDDED_COMPACT_FORMAT("ridBag.embeddedCompactFormat",
+      "Serialize the embedded RidBags sorted and grouped by cluster, with the positions stored as deltas, and decode them only when they are"
+          + " accessed. The order of the RIDs is not preserved. Records written in this format cannot be read by releases before 3.1",
+      Boolean.class, false),
+
   RID_BAG_EMBEDDED_TO_SBTREEBONSAI_THRESHOLD("ridBag.embeddedToSbtreeBonsaiThreshold",
       "Amount of values after which a LINKBAG implementation will use sbtree as values container. Set to -1 to always use an sbtree",
       Integer.class, 40, true),
@@ -694,6 +699,15 @@ public enum OGlobalConfiguration { // ENVIRONMENT
       "The size of a remote ResultSet page, ie. the number of records"
           + "that are fetched together during remote query execution. This has to be set on the client.", Integer.class, 1000),
 
+  QUERY_REMOTE_RESULTSET_PREFETCH_PAGES("query.remoteResultSet.prefetchPages",
+      "The number of pages of a remote ResultSet that the client fetches in a single round trip. The server writes each page"
+          + " while it produces the next one and never produces more pages than requested, so the client bounds the records in flight."
+          + " Set to 1 to fetch a page per request, as required by servers older than 3.1. This has to be set on the client.", Integer.class, 1),
+
+  QUERY_REMOTE_RESULTSET_MAX_PREFETCH_PAGES("query.remoteResultSet.maxPrefetchPages",
+      "The maximum number of pages of a remote ResultSet that the server sends for a single request, whatever the number of pages"
+          + " the client asks for. This has to be set on the server.", Integer.class, 16),
+
   QUERY_REMOTE_SEND_EXECUTION_PLAN("query.remoteResultSet.sendExecutionPlan",
       "Send the execution plan details or not. False by default", Boolean.class, false),
 
@@ -710,6 +724,83 @@ public enum OGlobalConfiguration { // ENVIRONMENT
       "Pages to prefetch during scan. Setting this value higher makes scans faster, because it reduces the number of I/O operations, though it consumes more memory. (Use 0 to disable)",
       Integer.class, 20),
 
+  QUERY_PARALLEL_MODIFICATION_WORKERS("query.parallelModification.workers",
+      "Number of worker sessions that execute UPDATE and DELETE statements issued outside a transaction. The matching records are partitioned by cluster"
+          + " among the workers, that modify them in transactions of 'query.parallelModification.batchSize' records. Set to 0 or 1 to modify the records in the current session",
+      Integer.class, 0),
+
+  QUERY_PARALLEL_MODIFICATION_BATCH_SIZE("query.parallelModification.batchSize",
+      "Number of records modified in each transaction by the workers of a parallel UPDATE or DELETE", Integer.class, 1000),
+
+  QUERY_PARALLEL_MODIFICATION_MAX_RETRIES("query.parallelModification.maxRetries",
+      "Number of times a batch of a parallel UPDATE or DELETE is retried when its transaction fails for a concurrent modification",
+      Integer.class, 10),
+
+  QUERY_TRAVERSE_PARALLELISM("query.traverse.parallelism",
+      "Number of worker sessions that expand the levels of a breadth-first TRAVERSE issued outside a transaction: the records of each level are"
+          + " split among the workers, that load them in batch and evaluate the traversed fields. Set to 0 or 1 to traverse in the current session",
+      Integer.class, 0),
+
+  QUERY_INDEXED_ADJACENCY_THRESHOLD("query.indexedAdjacency.threshold",
+      "Number of edges of a class above which MATCH traversals and OVertex.getEdgesByProperty() seek the matching edges of a vertex in an"
+          + " index of the edge class, on (out|in, <property>) or on (out, in), instead of scanning all its edges. Set to -1 to always scan",
+      Integer.class, 1000),
+
+  QUERY_MATCH_COST_BASED("query.match.costBased",
+      "Plan MATCH statements with a cost model based on the degree statistics collected by analyzeGraph(): the planner chooses the"
+          + " starting alias, the order and the direction of the traversals and the aliases to materialize. Without statistics, or if"
+          + " disabled, the planner starts from the alias with the smallest estimated number of records", Boolean.class, true),
+
+  QUERY_MATCH_MATERIALIZATION_LIMIT("query.match.materializationLimit",
+      "Maximum estimated number of records of a MATCH alias that the cost-based planner fetches in advance, to restrict the"
+          + " traversals that reach the alias", Integer.class, 10000),
+
+  GRAPH_PROJECTION_BUILD_PARALLELISM("graph.projection.buildParallelism",
+      "Number of worker sessions that scan the vertex and edge clusters when an in-memory graph projection is built or refreshed",
+      Integer.class, Runtime.getRuntime().availableProcessors()),
+
+  GRAPH_PROJECTION_ALLOW_STALE("graph.projection.allowStale",
+      "Allow the graph functions to use an in-memory graph projection that is stale, ie. built before the last changes of its"
+          + " classes: a warning is logged and the graph algorithms report it in their summary. If false, using a stale projection"
+          + " fails until it is refreshed", Boolean.class, true, true),
+
+  GRAPH_ALGORITHMS_PARALLELISM("graph.algorithms.parallelism",
+      "Number of threads that run the graph algorithms (pageRank(), connectedComponents(), labelPropagation(), triangleCount(),"
+          + " degreeCentrality()) on a graph projection", Integer.class, Runtime.getRuntime().availableProcessors()),
+
+  GRAPH_ALGORITHMS_WRITE_BATCH_SIZE("graph.algorithms.writeBatchSize",
+      "Number of vertices updated in each transaction when the result of a graph algorithm is written back as a vertex property",
+      Integer.class, 1000),
+
+  GRAPH_BULK_LOAD_PARALLELISM("graph.bulkLoad.parallelism",
+      "Number of worker sessions that write vertices, edges and adjacency lists during a graph bulk load", Integer.class,
+      Runtime.getRuntime().availableProcessors()),
+
+  GRAPH_BULK_LOAD_BATCH_SIZE("graph.bulkLoad.batchSize",
+      "Number of records written by a worker session in each batch of a graph bulk load", Integer.class, 1000),
+
+  GRAPH_BULK_LOAD_SORT_BUFFER_SIZE("graph.bulkLoad.sortBufferSize",
+      "Number of adjacency entries (24 bytes each) kept in memory during a graph bulk load before a sorted run is written to disk",
+      Integer.class, 4 * 1024 * 1024),
+
+  QUERY_INSERT_SELECT_BATCH_SIZE("query.insertSelect.batchSize",
+      "Number of records inserted in each transaction by an INSERT ... FROM SELECT issued outside a transaction. The selected records are streamed"
+          + " to the target and the statement returns only the count of the inserted records. Set to 0 to insert all the records in a single transaction",
+      Integer.class, 0),
+
+  QUERY_INSERT_SELECT_WRITERS("query.insertSelect.writers",
+      "Number of worker sessions that save the batches of a streaming INSERT ... FROM SELECT (see 'query.insertSelect.batchSize')."
+          + " Set to 1 to save the records in the current session", Integer.class, 1),
+
+  QUERY_INSERT_SELECT_DEFER_INDEXES("query.insertSelect.deferIndexes",
+      "Drop the non unique indexes of the target class before a streaming INSERT ... FROM SELECT and rebuild them in bulk at the end, instead of"
+          + " updating them at each insert. The indexes are not available to other queries during the insert", Boolean.class, false),
+
+  QUERY_FETCH_BATCH_SIZE("query.fetchBatchSize",
+      "Number of records that queries load together when they fetch records by RID, eg. from an index. The records of a batch are read from the storage"
+          + " sorted by cluster and position, sharing the accesses to the same pages. Set to 1 to load the records one by one",
+      Integer.class, 100),
+
   QUERY_SCAN_BATCH_SIZE("query.scanBatchSize",
       "Scan clusters in blocks of records. This setting reduces the lock time on the cluster during scans."
           + " A high value mean a faster execution, but also a lower concurrency level. Set to 0 to disable batch scanning. Disabling batch scanning is suggested for read-only databases only",
@@ -728,11 +819,87 @@ public enum OGlobalConfiguration { // ENVIRONMENT
           + "This setting is intended as a safety measure against excessive resource consumption from a single query (eg. prevent OutOfMemory)",
       Long.class, 500_000),
 
+  QUERY_MEMORY_MAX_PER_QUERY("query.memory.maxPerQuery",
+      "Maximum estimated memory (in bytes) that a single query can use to buffer data (eg. for ORDER BY, GROUP BY, DISTINCT and "
+          + "LET). If exceeded, ORDER BY spills sorted runs to disk, other operations fail with an OCommandExecutionException. "
+          + "Zero means no limit", Long.class, 0, true),
+
+  QUERY_MEMORY_MAX_PER_SESSION("query.memory.maxPerSession",
+      "Maximum estimated memory (in bytes) that the queries of a single database session can use to buffer data. Zero means no "
+          + "limit", Long.class, 0, true),
+
+  QUERY_MEMORY_MAX_GLOBAL("query.memory.maxGlobal",
+      "Maximum estimated memory (in bytes) that all the running queries can use to buffer data. Zero means no limit", Long.class, 0,
+      true),
+
+  QUERY_HASH_JOIN_ENABLED("query.hashJoin.enabled",
+      "Allow the query planner to execute correlated LET subqueries (eg. LET $a = (SELECT FROM B WHERE b = $parent.$current.a)) "
+          + "as hash joins, instead of re-executing the subquery for each record", Boolean.class, true),
+
+  QUERY_HASH_JOIN_MIN_PROBE_ROWS("query.hashJoin.minProbeRows",
+      "Number of records for which a correlated LET subquery is executed with nested loops before switching to a hash join. "
+          + "Small values favour the hash join, big values favour subqueries that are fast to execute (eg. index lookups)",
+      Integer.class, 100),
+
+  QUERY_HASH_JOIN_MAX_IN_MEMORY_ROWS("query.hashJoin.maxInMemoryRows",
+      "Maximum number of records kept in heap by the build side of a hash join. If exceeded, the build side is partitioned "
+          + "and spilled to temporary files. Negative number means no limit", Long.class, 100_000),
+
+  QUERY_INDEX_INTERSECTION_ENABLED("query.indexIntersection.enabled",
+      "Allow the query planner to combine the RIDs returned by multiple indexes before fetching the records, intersecting them "
+          + "for AND conditions (eg. WHERE a = ? AND b = ?, with an index on a and one on b) and merging them for OR conditions",
+      Boolean.class, true),
+
+  QUERY_INDEX_INTERSECTION_MAX_INDEXES("query.indexIntersection.maxIndexes",
+      "Maximum number of indexes intersected to evaluate a single AND condition", Integer.class, 3),
+
+  QUERY_COMPILED_EXPRESSIONS("query.compiledExpressions",
+      "Evaluate WHERE conditions and projections of cached execution plans with specialized evaluators, instead of interpreting "
+          + "the statement syntax tree for each record", Boolean.class, true),
+
+  QUERY_RESULT_CACHE_SIZE("query.resultCache.size",
+      "Number of query results kept in the result cache of the SQL executor. Cached results are invalidated when records of the "
+          + "clusters read by the query are changed. Zero means cache disabled", Integer.class, 0),
+
+  QUERY_RESULT_CACHE_MAX_ROWS("query.resultCache.maxRows",
+      "Maximum number of records of a query result that can be stored in the query result cache", Integer.class, 1000),
+
+  QUERY_SLOW_LOG_THRESHOLD("query.slowLog.threshold",
+      "Execution time (in milliseconds) over which a statement is recorded in the slow query log. -1 means disabled", Long.class,
+      -1, true),
+
+  QUERY_SLOW_LOG_SAMPLING_RATE("query.slowLog.samplingRate",
+      "Fraction (between 0 and 1) of the statements that are recorded in the slow query log regardless of their execution time, "
+          + "with detailed execution statistics. 0 means disabled", Float.class, 0f, true),
+
+  QUERY_SLOW_LOG_PARAMETER_VALUES("query.slowLog.parameterValues",
+      "Write the values of the statement parameters in the slow query log records, instead of their types only. The values can "
+          + "contain sensitive data", Boolean.class, false, true),
+
+  QUERY_SLOW_LOG_BUFFER_SIZE("query.slowLog.bufferSize",
+      "Number of slow query log records kept in memory for each database", Integer.class, 100),
+
+  QUERY_SLOW_LOG_STORE_IN_CLASS("query.slowLog.storeInClass",
+      "Save slow query log records as documents of the OSlowQuery class", Boolean.class, false, true),
+
+  QUERY_SLOW_LOG_FILE("query.slowLog.file",
+      "Path of the file where slow query log records are written, one JSON document per line. It can contain the %g pattern for "
+          + "the number of the rotated file (see java.util.logging.FileHandler). Empty means no file", String.class, ""),
+
+  QUERY_SLOW_LOG_FILE_LIMIT("query.slowLog.file.limit",
+      "Size in bytes over which the slow query log file is rotated", Long.class, 10 * 1024 * 1024),
+
+  QUERY_SLOW_LOG_FILE_COUNT("query.slowLog.file.count", "Number of rotated slow query log files to keep", Integer.class, 5),
+
   QUERY_LIVE_SUPPORT("query.live.support", "Enable/Disable the support of live query. (Use false to disable)", Boolean.class, true),
 
   STATEMENT_CACHE_SIZE("statement.cacheSize", "Number of parsed SQL statements kept in cache. Zero means cache disabled",
       Integer.class, 100),
 
+  STATEMENT_CACHE_NORMALIZE_LITERALS("statement.cacheNormalizeLiterals",
+      "Share the parsed SQL statements that differ only for integer and string literals, replacing the literals with input "
+          + "parameters when they are parsed", Boolean.class, true, true),
+
   // GRAPH
   SQL_GRAPH_CONSISTENCY_MODE("sql.graphConsistencyMode",
       "Consistency mode for graphs. It can be 'tx' (default), 'notx_sync_repair' and 'notx_async_repair'. "
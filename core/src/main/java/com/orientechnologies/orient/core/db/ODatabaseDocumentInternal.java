@@ -45,6 +45,8 @@ import com.orientechnologies.orient.core.tx.OTransaction;
 import com.orientechnologies.orient.core.tx.OTransactionAbstract;
 import com.orientechnologies.orient.core.tx.OTransactionInternal;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
@@ -121,6 +123,22 @@ public interface ODatabaseDocumentInternal extends ODatabaseSession, ODatabaseIn
       final boolean ignoreCache, final boolean iUpdateCache, final boolean loadTombstones,
       final OStorage.LOCKING_STRATEGY lockingStrategy, RecordReader recordReader);
 
+  /**
+   * Loads several records, eg. the records returned by an index lookup. Implementations can read the records from the storage in a
+   * single batch, sorted by their physical position.
+   *
+   * @param rids the RIDs of the records
+   *
+   * @return the records, in the same order of the RIDs, null for the records that do not exist
+   */
+  default List<ORecord> loadRecords(List<? extends ORID> rids) {
+    final List<ORecord> result = new ArrayList<>(rids.size());
+    for (ORID rid : rids) {
+      result.add(load(rid));
+    }
+    return result;
+  }
+
   void executeDeleteRecord(OIdentifiable record, final int iVersion, final boolean iRequired, final OPERATION_MODE iMode,
       boolean prohibitTombstones);
 
@@ -15,8 +15,11 @@ import com.orientechnologies.orient.core.metadata.sequence.OSequenceLibraryImpl;
 import com.orientechnologies.orient.core.query.live.OLiveQueryHook;
 import com.orientechnologies.orient.core.query.live.OLiveQueryHookV2;
 import com.orientechnologies.orient.core.schedule.OSchedulerImpl;
+import com.orientechnologies.orient.core.sql.functions.graph.OGraphProjectionManager;
 import com.orientechnologies.orient.core.sql.executor.OQueryStats;
+import com.orientechnologies.orient.core.sql.executor.OSlowQueryLog;
 import com.orientechnologies.orient.core.sql.parser.OExecutionPlanCache;
+import com.orientechnologies.orient.core.sql.parser.OQueryResultCache;
 import com.orientechnologies.orient.core.sql.parser.OStatementCache;
 import com.orientechnologies.orient.core.storage.OStorage;
 
@@ -39,7 +42,10 @@ public abstract class OSharedContext extends OListenerManger<OMetadataUpdateList
   protected OCommandCache                  commandCache;
   protected OStatementCache                statementCache;
   protected OExecutionPlanCache            executionPlanCache;
+  protected OQueryResultCache              queryResultCache;
+  protected OSlowQueryLog                  slowQueryLog;
   protected OQueryStats                    queryStats;
+  protected OGraphProjectionManager        graphProjectionManager;
   protected volatile boolean loaded = false;
 
   public OSharedContext() {
@@ -90,10 +96,22 @@ public abstract class OSharedContext extends OListenerManger<OMetadataUpdateList
     return executionPlanCache;
   }
 
+  public OQueryResultCache getQueryResultCache() {
+    return queryResultCache;
+  }
+
+  public OSlowQueryLog getSlowQueryLog() {
+    return slowQueryLog;
+  }
+
   public OQueryStats getQueryStats() {
     return queryStats;
   }
 
+  public OGraphProjectionManager getGraphProjectionManager() {
+    return graphProjectionManager;
+  }
+
   public abstract void load(ODatabaseDocumentInternal oDatabaseDocumentInternal);
 
   public abstract void reload(ODatabaseDocumentInternal database);
@@ -4,6 +4,7 @@ import com.orientechnologies.orient.core.cache.OCommandCacheSoftRefs;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.viewmanager.ViewManager;
 import com.orientechnologies.orient.core.index.OIndexException;
+import com.orientechnologies.orient.core.index.ODeferredIndexes;
 import com.orientechnologies.orient.core.index.OIndexFactory;
 import com.orientechnologies.orient.core.index.OIndexManagerShared;
 import com.orientechnologies.orient.core.index.OIndexes;
@@ -16,7 +17,10 @@ import com.orientechnologies.orient.core.query.live.OLiveQueryHookV2;
 import com.orientechnologies.orient.core.schedule.OSchedulerImpl;
 import com.orientechnologies.orient.core.security.OSecurityManager;
 import com.orientechnologies.orient.core.sql.executor.OQueryStats;
+import com.orientechnologies.orient.core.sql.executor.OSlowQueryLog;
+import com.orientechnologies.orient.core.sql.functions.graph.OGraphProjectionManager;
 import com.orientechnologies.orient.core.sql.parser.OExecutionPlanCache;
+import com.orientechnologies.orient.core.sql.parser.OQueryResultCache;
 import com.orientechnologies.orient.core.sql.parser.OStatementCache;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
@@ -52,7 +56,16 @@ public class OSharedContextEmbedded extends OSharedContext {
         storage.getConfiguration().getContextConfiguration().getValueAsInteger(OGlobalConfiguration.STATEMENT_CACHE_SIZE));
     this.registerListener(executionPlanCache);
 
+    queryResultCache = new OQueryResultCache();
+    this.registerListener(queryResultCache);
+
+    slowQueryLog = new OSlowQueryLog();
+
     queryStats = new OQueryStats();
+
+    graphProjectionManager = new OGraphProjectionManager();
+    this.registerListener(graphProjectionManager);
+
     activeDistributedQueries = new HashMap<>();
     ((OAbstractPaginatedStorage) storage).setStorageConfigurationUpdateListener(update -> {
       for (OMetadataUpdateListener listener : browseListeners()) {
@@ -79,6 +92,7 @@ public class OSharedContextEmbedded extends OSharedContext {
         schema.onPostIndexManagement();
         viewManager.load();
         loaded = true;
+        ODeferredIndexes.recover(database);
       }
     } finally {
       PROFILER
@@ -99,6 +113,9 @@ public class OSharedContextEmbedded extends OSharedContext {
     commandCache.shutdown();
     statementCache.clear();
     executionPlanCache.invalidate();
+    queryResultCache.invalidate();
+    slowQueryLog.clear();
+    graphProjectionManager.close();
     liveQueryOps.close();
     liveQueryOpsV2.close();
     activeDistributedQueries.values().forEach(x -> x.close());
@@ -0,0 +1,34 @@
+package com.orientechnologies.orient.core.db.document;
+
+import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+import java.util.Map;
+
+/**
+ * Returns the records already read in batch from the storage, delegating to another reader the records that are not in the
+ * batch. Each record of the batch is returned only once.
+ *
+ * @Internal
+ */
+public final class BatchRecordReader implements RecordReader {
+  private final Map<ORID, ORawBuffer> records;
+  private final RecordReader          fallback;
+
+  public BatchRecordReader(Map<ORID, ORawBuffer> records, RecordReader fallback) {
+    this.records = records;
+    this.fallback = fallback;
+  }
+
+  @Override
+  public ORawBuffer readRecord(OStorage storage, ORecordId rid, String fetchPlan, boolean ignoreCache, final int recordVersion)
+      throws ORecordNotFoundException {
+    if (records.containsKey(rid)) {
+      return records.remove(rid);
+    }
+    return fallback.readRecord(storage, rid, fetchPlan, ignoreCache, recordVersion);
+  }
+}
@@ -66,6 +66,7 @@ import com.orientechnologies.orient.core.sql.OSQLEngine;
 import com.orientechnologies.orient.core.sql.executor.*;
 import com.orientechnologies.orient.core.sql.parser.OLocalResultSet;
 import com.orientechnologies.orient.core.sql.parser.OLocalResultSetLifecycleDecorator;
+import com.orientechnologies.orient.core.sql.parser.OQueryResultCache;
 import com.orientechnologies.orient.core.sql.parser.OStatement;
 import com.orientechnologies.orient.core.storage.OBasicTransaction;
 import com.orientechnologies.orient.core.storage.ORawBuffer;
@@ -516,7 +517,7 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
     if (!statement.isIdempotent()) {
       throw new OCommandExecutionException("Cannot execute query on non idempotent statement: " + query);
     }
-    OResultSet original = statement.execute(this, args, true);
+    OResultSet original = OSlowQueryLog.execute(this, query, args, () -> statement.execute(this, args, true));
     OLocalResultSetLifecycleDecorator result = new OLocalResultSetLifecycleDecorator(original);
     this.queryStarted(result.getQueryId(), result);
     result.addLifecycleListener(this);
@@ -532,7 +533,7 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
     if (!statement.isIdempotent()) {
       throw new OCommandExecutionException("Cannot execute query on non idempotent statement: " + query);
     }
-    OResultSet original = statement.execute(this, args, true);
+    OResultSet original = OSlowQueryLog.execute(this, query, args, () -> statement.execute(this, args, true));
     OLocalResultSetLifecycleDecorator result = new OLocalResultSetLifecycleDecorator(original);
     this.queryStarted(result.getQueryId(), result);
     result.addLifecycleListener(this);
@@ -545,7 +546,7 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
     checkIfActive();
 
     OStatement statement = OSQLEngine.parse(query, this);
-    OResultSet original = statement.execute(this, args, true);
+    OResultSet original = OSlowQueryLog.execute(this, query, args, () -> statement.execute(this, args, true));
     OLocalResultSetLifecycleDecorator result;
     if (!statement.isIdempotent()) {
       //fetch all, close and detach
@@ -569,7 +570,7 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
     checkIfActive();
 
     OStatement statement = OSQLEngine.parse(query, this);
-    OResultSet original = statement.execute(this, args, true);
+    OResultSet original = OSlowQueryLog.execute(this, query, args, () -> statement.execute(this, args, true));
     OLocalResultSetLifecycleDecorator result;
     if (!statement.isIdempotent()) {
       //fetch all, close and detach
@@ -762,16 +763,19 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
           microTransaction.commit();
           OLiveQueryHook.notifyForTxChanges(this);
           OLiveQueryHookV2.notifyForTxChanges(this);
+          getSharedContext().getViewManager().notifyForTxChanges(this);
         } catch (Exception e) {
           microTransaction.rollbackAfterFailedCommit();
           OLiveQueryHook.removePendingDatabaseOps(this);
           OLiveQueryHookV2.removePendingDatabaseOps(this);
+          getSharedContext().getViewManager().removePendingDatabaseOps(this);
           throw e;
         }
       } else {
         microTransaction.rollback();
         OLiveQueryHook.removePendingDatabaseOps(this);
         OLiveQueryHookV2.removePendingDatabaseOps(this);
+        getSharedContext().getViewManager().removePendingDatabaseOps(this);
       }
     } finally {
       if (!microTransaction.isActive())
@@ -1060,6 +1064,7 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
 
   @Override
   public boolean beforeReadOperations(OIdentifiable identifiable) {
+    OQueryResultCache.trackRecord(identifiable);
     if (identifiable instanceof ODocument) {
       ODocument doc = (ODocument) identifiable;
       OImmutableClass clazz = ODocumentInternal.getImmutableSchemaClass(this, doc);
@@ -1098,6 +1103,7 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
     super.afterCommitOperations();
     OLiveQueryHook.notifyForTxChanges(this);
     OLiveQueryHookV2.notifyForTxChanges(this);
+    getSharedContext().getViewManager().notifyForTxChanges(this);
   }
 
   @Override
@@ -1105,6 +1111,7 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
     super.afterRollbackOperations();
     OLiveQueryHook.removePendingDatabaseOps(this);
     OLiveQueryHookV2.removePendingDatabaseOps(this);
+    getSharedContext().getViewManager().removePendingDatabaseOps(this);
   }
 
   @Override
@@ -1187,6 +1194,46 @@ public class ODatabaseDocumentEmbedded extends ODatabaseDocumentAbstract impleme
     return view;
   }
 
+  /**
+   * Outside transactions the records that are not in the local cache are read from the storage in a single batch (see {@link
+   * OAbstractPaginatedStorage#readRecords(Collection)}), then they are loaded one by one as in {@link #load(ORID)}, with the
+   * same security checks and hooks.
+   */
+  @Override
+  public List<ORecord> loadRecords(List<? extends ORID> rids) {
+    checkOpenness();
+    checkIfActive();
+
+    final OStorage storage = getStorage();
+    if (rids.size() < 2 || getTransaction().isActive() || (microTransaction != null && microTransaction.isActive())
+        || !(storage instanceof OAbstractPaginatedStorage)) {
+      return super.loadRecords(rids);
+    }
+
+    final OLocalRecordCache localCache = getLocalCache();
+    final List<ORID> toRead = new ArrayList<>(rids.size());
+    for (ORID rid : rids) {
+      if (rid.isPersistent() && localCache.findRecord(rid) == null) {
+        toRead.add(rid);
+      }
+    }
+
+    final Map<ORID, ORawBuffer> records =
+        toRead.size() > 1 ? ((OAbstractPaginatedStorage) storage).readRecords(toRead) : new HashMap<>();
+    final RecordReader recordReader = new BatchRecordReader(records, new SimpleRecordReader(isPrefetchRecords()));
+
+    final List<ORecord> result = new ArrayList<>(rids.size());
+    for (ORID rid : rids) {
+      if (rid.isNew()) {
+        result.add(null);
+      } else {
+        result.add(executeReadRecord((ORecordId) rid, null, -1, null, false, true, false, OStorage.LOCKING_STRATEGY.NONE,
+            recordReader));
+      }
+    }
+    return result;
+  }
+
   /**
    * This method is internal, it can be subject to signature change or be removed, do not use.
    *
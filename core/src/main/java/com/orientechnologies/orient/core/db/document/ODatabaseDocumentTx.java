@@ -619,6 +619,12 @@ public class ODatabaseDocumentTx implements ODatabaseDocumentInternal {
     return internal.load(iRecordId, iFetchPlan, iIgnoreCache);
   }
 
+  @Override
+  public List<ORecord> loadRecords(List<? extends ORID> rids) {
+    checkOpenness();
+    return internal.loadRecords(rids);
+  }
+
   @Override
   public <RET extends ORecord> RET save(ORecord iObject) {
     checkOpenness();
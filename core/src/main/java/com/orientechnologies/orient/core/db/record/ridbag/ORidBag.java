@@ -474,9 +474,11 @@ public class ORidBag implements OStringBuilderSerializable, Iterable<OIdentifiab
    * @param pointer new collection pointer
    */
   private void replaceWithSBTree(OBonsaiCollectionPointer pointer) {
+    final int size = delegate.size();
     delegate.requestDelete();
     final OSBTreeRidBag treeBag = new OSBTreeRidBag();
     treeBag.setCollectionPointer(pointer);
+    treeBag.setSize(size);
     treeBag.setOwner(delegate.getOwner());
     treeBag.setTracker(delegate.getTracker());
     delegate = treeBag;
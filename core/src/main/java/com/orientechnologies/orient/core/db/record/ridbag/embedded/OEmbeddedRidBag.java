@@ -35,6 +35,7 @@ import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.OSimpleMultiValueTracker;
 import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.OCompactRidBagSerializer;
 import com.orientechnologies.orient.core.storage.ridbag.sbtree.Change;
 
 import java.util.*;
@@ -45,6 +46,11 @@ public class OEmbeddedRidBag implements ORidBagDelegate {
   private Object[] entries       = OCommonConst.EMPTY_OBJECT_ARRAY;
   private int      entriesLength = 0;
 
+  /**
+   * entries read in the compact format and not decoded yet, see {@link OCompactRidBagSerializer}
+   */
+  private byte[] encodedEntries;
+
   private boolean convertToRecord = true;
   private int     size            = 0;
 
@@ -65,9 +71,43 @@ public class OEmbeddedRidBag implements ORidBagDelegate {
   }
 
   public Object[] getEntries() {
+    decodeEntries();
     return entries;
   }
 
+  /**
+   * Sets the content of the RidBag read in the compact format, that is decoded on the first access to the entries. The size has
+   * to be set separately.
+   *
+   * @param encodedEntries the encoded entries, as returned by {@link OCompactRidBagSerializer#read}
+   */
+  public void setEncodedEntries(byte[] encodedEntries) {
+    this.encodedEntries = encodedEntries;
+  }
+
+  /**
+   * @return the entries in the compact format if they have not been decoded (so they have not been changed) since they were
+   * read, null otherwise
+   */
+  public byte[] getEncodedEntries() {
+    return encodedEntries;
+  }
+
+  private void decodeEntries() {
+    if (encodedEntries == null) {
+      return;
+    }
+    final byte[] encoded = encodedEntries;
+    encodedEntries = null;
+    OCompactRidBagSerializer.decode(encoded, rid -> {
+      OIdentifiable identifiable = null;
+      if (rid.isTemporary())
+        identifiable = rid.getRecord();
+
+      addInternal(identifiable == null ? rid : identifiable);
+    });
+  }
+
   private final class EntriesIterator implements Iterator<OIdentifiable>, OResettable, OSizeable {
     private final boolean convertToRecord;
     private       int     currentIndex = -1;
@@ -75,6 +115,7 @@ public class OEmbeddedRidBag implements ORidBagDelegate {
     private       boolean currentRemoved;
 
     private EntriesIterator(boolean convertToRecord) {
+      decodeEntries();
       reset();
       this.convertToRecord = convertToRecord;
     }
@@ -195,6 +236,7 @@ public class OEmbeddedRidBag implements ORidBagDelegate {
     if (identifiable == null)
       return false;
 
+    decodeEntries();
     for (int i = 0; i < entriesLength; i++) {
       if (identifiable.equals(entries[i]))
         return true;
@@ -210,6 +252,9 @@ public class OEmbeddedRidBag implements ORidBagDelegate {
           + " if you want to use it in other document create new rid bag instance and copy content of current one.");
     }
     if (this.owner != null) {
+      // the entries are tracked by the new owner only. When the owner is set for the first time (as the bag is read) the entries
+      // can stay encoded: they are tracked by the owner when they are decoded
+      decodeEntries();
       for (int i = 0; i < entriesLength; i++) {
         final Object entry = entries[i];
         if (entry instanceof OIdentifiable) {
@@ -249,6 +294,7 @@ public class OEmbeddedRidBag implements ORidBagDelegate {
   }
 
   public OEmbeddedRidBag copy() {
+    decodeEntries();
     final OEmbeddedRidBag copy = new OEmbeddedRidBag();
     copy.contentWasChanged = contentWasChanged;
     copy.entries = entries;
@@ -309,6 +355,7 @@ public class OEmbeddedRidBag implements ORidBagDelegate {
 
   @Override
   public void convertLinks2Records() {
+    decodeEntries();
     for (int i = 0; i < entriesLength; i++) {
       final Object entry = entries[i];
 
@@ -328,6 +375,7 @@ public class OEmbeddedRidBag implements ORidBagDelegate {
 
   @Override
   public boolean convertRecords2Links() {
+    decodeEntries();
     for (int i = 0; i < entriesLength; i++) {
       final Object entry = entries[i];
 
@@ -432,6 +480,7 @@ public class OEmbeddedRidBag implements ORidBagDelegate {
 
   @Override
   public int serialize(byte[] stream, int offset, UUID ownerUuid) {
+    decodeEntries();
     OIntegerSerializer.INSTANCE.serializeLiteral(size, stream, offset);
     offset += OIntegerSerializer.INT_SIZE;
     ODatabaseDocumentInternal db = ODatabaseRecordThreadLocal.instance().getIfDefined();
@@ -501,6 +550,7 @@ public class OEmbeddedRidBag implements ORidBagDelegate {
   }
 
   public void addEntry(final OIdentifiable identifiable) {
+    decodeEntries();
     if (entries.length == entriesLength) {
       if (entriesLength == 0) {
         final int cfgValue = OGlobalConfiguration.RID_BAG_EMBEDDED_TO_SBTREEBONSAI_THRESHOLD.getValueAsInteger();
@@ -516,6 +566,7 @@ public class OEmbeddedRidBag implements ORidBagDelegate {
   }
 
   private boolean removeEntry(OIdentifiable identifiable) {
+    decodeEntries();
     int i = 0;
     for (; i < entriesLength; i++) {
       final Object entry = entries[i];
@@ -0,0 +1,450 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.db.tool;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * External sort of the adjacency entries produced by a graph bulk load. An entry is a (vertex, field, target) triple, where the
+ * vertex and the target are RIDs packed in a long (see {@link OGraphBulkLoader}) and the field is the index of a connection field
+ * (eg. out_Knows). The entries are collected in a memory buffer; every time the buffer is full it is sorted by vertex and field and
+ * written to a temporary file, while a second buffer collects the next entries. At the end the sorted runs are merged, at most
+ * {@link #MERGE_FAN_IN} at a time, so that the entries of each vertex are read together, grouped by field.
+ */
+final class OAdjacencySorter implements Closeable {
+  static final int ENTRY_SIZE = 3;
+
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+  private static final int IO_BUFFER_SIZE           = 64 * 1024;
+
+  /**
+   * the maximum number of runs merged together, each needs an open file and an I/O buffer
+   */
+  static final int MERGE_FAN_IN = 64;
+
+  /**
+   * A cursor on the sorted entries
+   */
+  interface Cursor extends Closeable {
+    /**
+     * Moves to the next entry
+     *
+     * @return false if there are no more entries
+     */
+    boolean next() throws IOException;
+
+    long vertex();
+
+    int field();
+
+    long target();
+  }
+
+  private final File       directory;
+  private final int        capacity;
+  private final List<File> runs  = new ArrayList<>();
+  private       long[]     buffer;
+  /**
+   * the buffer that is not collecting entries, null while it is written to disk
+   */
+  private       long[]     spare;
+  private       int        size  = 0;
+  private       long       total = 0;
+
+  /**
+   * @param directory  the directory of the temporary files
+   * @param bufferSize the number of entries kept in memory, split in two buffers
+   */
+  OAdjacencySorter(File directory, int bufferSize) {
+    this.directory = directory;
+    this.capacity = Math.max(1, Math.min(bufferSize, Integer.MAX_VALUE / ENTRY_SIZE - 1) / 2);
+    this.buffer = new long[capacity * ENTRY_SIZE];
+    this.spare = new long[capacity * ENTRY_SIZE];
+  }
+
+  /**
+   * Adds entries, it can be called concurrently. A full buffer is sorted and written to disk without holding the lock, so that the
+   * other threads can go on adding entries to the second buffer.
+   *
+   * @param entries the entries, {@link #ENTRY_SIZE} longs each
+   * @param count   the number of entries
+   */
+  void add(long[] entries, int count) throws IOException {
+    int offset = 0;
+    while (offset < count) {
+      long[] full = null;
+      int fullSize = 0;
+      synchronized (this) {
+        if (size == capacity) {
+          awaitSpare();
+          full = buffer;
+          fullSize = size;
+          buffer = spare;
+          spare = null;
+          size = 0;
+        }
+        int n = Math.min(count - offset, capacity - size);
+        System.arraycopy(entries, offset * ENTRY_SIZE, buffer, size * ENTRY_SIZE, n * ENTRY_SIZE);
+        size += n;
+        offset += n;
+        total += n;
+      }
+      if (full != null) {
+        spill(full, fullSize);
+      }
+    }
+  }
+
+  /**
+   * @return the number of entries added
+   */
+  synchronized long getSize() {
+    return total;
+  }
+
+  /**
+   * @return the number of sorted runs written to disk
+   */
+  synchronized int getRuns() {
+    return runs.size();
+  }
+
+  /**
+   * Sorts the entries added so far. No entries can be added after this call.
+   *
+   * @return a cursor on the entries, in order of vertex and field
+   */
+  synchronized Cursor sort() throws IOException {
+    awaitSpare();
+    if (runs.isEmpty()) {
+      sort(buffer, 0, size - 1);
+      return new BufferCursor(buffer, size);
+    }
+    if (size > 0) {
+      runs.add(write(buffer, size));
+      size = 0;
+    }
+    while (runs.size() > MERGE_FAN_IN) {
+      List<File> merged = new ArrayList<>();
+      try {
+        for (int i = 0; i < runs.size(); i += MERGE_FAN_IN) {
+          List<File> group = runs.subList(i, Math.min(i + MERGE_FAN_IN, runs.size()));
+          merged.add(group.size() == 1 ? group.get(0) : merge(group));
+        }
+      } catch (IOException | RuntimeException e) {
+        // deleted by close()
+        runs.addAll(merged);
+        throw e;
+      }
+      runs.clear();
+      runs.addAll(merged);
+    }
+    return open(runs);
+  }
+
+  /**
+   * Deletes the temporary files
+   */
+  @Override
+  public synchronized void close() {
+    for (File run : runs) {
+      delete(run);
+    }
+    runs.clear();
+  }
+
+  /**
+   * waits for the second buffer to be written to disk
+   */
+  private void awaitSpare() throws IOException {
+    while (spare == null) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the adjacency entries to be written to disk");
+      }
+    }
+  }
+
+  /**
+   * sorts a full buffer and writes it to disk, then gives it back as the second buffer
+   */
+  private void spill(long[] full, int fullSize) throws IOException {
+    File file = null;
+    try {
+      sort(full, 0, fullSize - 1);
+      file = write(full, fullSize);
+    } finally {
+      synchronized (this) {
+        if (file != null) {
+          runs.add(file);
+        }
+        spare = full;
+        notifyAll();
+      }
+    }
+  }
+
+  private File write(long[] entries, int count) throws IOException {
+    File file = File.createTempFile("adjacency", ".run", directory);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), IO_BUFFER_SIZE))) {
+      for (int i = 0; i < count * ENTRY_SIZE; i++) {
+        out.writeLong(entries[i]);
+      }
+    } catch (IOException | RuntimeException e) {
+      delete(file);
+      throw e;
+    }
+    return file;
+  }
+
+  /**
+   * merges sorted runs in a new run, deleting them
+   */
+  private File merge(List<File> group) throws IOException {
+    File file = File.createTempFile("adjacency", ".run", directory);
+    try (MergeCursor cursor = open(group);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), IO_BUFFER_SIZE))) {
+      while (cursor.next()) {
+        out.writeLong(cursor.vertex());
+        out.writeLong(cursor.field());
+        out.writeLong(cursor.target());
+      }
+    } catch (IOException | RuntimeException e) {
+      delete(file);
+      throw e;
+    }
+    for (File run : group) {
+      delete(run);
+    }
+    return file;
+  }
+
+  private static MergeCursor open(List<File> files) throws IOException {
+    MergeCursor cursor = new MergeCursor();
+    try {
+      for (File run : files) {
+        cursor.add(new RunReader(run));
+      }
+    } catch (IOException | RuntimeException e) {
+      cursor.close();
+      throw e;
+    }
+    return cursor;
+  }
+
+  private static void delete(File file) {
+    if (!file.delete()) {
+      file.deleteOnExit();
+    }
+  }
+
+  /**
+   * Sorts the entries from low to high (inclusive) by vertex and field: a quicksort on the triples, recursing on the smaller
+   * partition, with an insertion sort for the short ranges.
+   */
+  static void sort(long[] entries, int low, int high) {
+    while (high - low > INSERTION_SORT_THRESHOLD) {
+      int mid = (low + high) >>> 1;
+      if (compare(entries, mid, entries[low * ENTRY_SIZE], entries[low * ENTRY_SIZE + 1]) < 0) {
+        swap(entries, low, mid);
+      }
+      if (compare(entries, high, entries[low * ENTRY_SIZE], entries[low * ENTRY_SIZE + 1]) < 0) {
+        swap(entries, low, high);
+      }
+      if (compare(entries, high, entries[mid * ENTRY_SIZE], entries[mid * ENTRY_SIZE + 1]) < 0) {
+        swap(entries, mid, high);
+      }
+      long pivotVertex = entries[mid * ENTRY_SIZE];
+      long pivotField = entries[mid * ENTRY_SIZE + 1];
+
+      int i = low;
+      int j = high;
+      while (i <= j) {
+        while (compare(entries, i, pivotVertex, pivotField) < 0) {
+          i++;
+        }
+        while (compare(entries, j, pivotVertex, pivotField) > 0) {
+          j--;
+        }
+        if (i <= j) {
+          swap(entries, i++, j--);
+        }
+      }
+      if (j - low < high - i) {
+        sort(entries, low, j);
+        low = i;
+      } else {
+        sort(entries, i, high);
+        high = j;
+      }
+    }
+
+    for (int i = low + 1; i <= high; i++) {
+      long vertex = entries[i * ENTRY_SIZE];
+      long field = entries[i * ENTRY_SIZE + 1];
+      long target = entries[i * ENTRY_SIZE + 2];
+      int j = i - 1;
+      while (j >= low && compare(entries, j, vertex, field) > 0) {
+        System.arraycopy(entries, j * ENTRY_SIZE, entries, (j + 1) * ENTRY_SIZE, ENTRY_SIZE);
+        j--;
+      }
+      entries[(j + 1) * ENTRY_SIZE] = vertex;
+      entries[(j + 1) * ENTRY_SIZE + 1] = field;
+      entries[(j + 1) * ENTRY_SIZE + 2] = target;
+    }
+  }
+
+  private static int compare(long[] entries, int index, long vertex, long field) {
+    int result = Long.compare(entries[index * ENTRY_SIZE], vertex);
+    return result != 0 ? result : Long.compare(entries[index * ENTRY_SIZE + 1], field);
+  }
+
+  private static void swap(long[] entries, int i, int j) {
+    for (int k = 0; k < ENTRY_SIZE; k++) {
+      long tmp = entries[i * ENTRY_SIZE + k];
+      entries[i * ENTRY_SIZE + k] = entries[j * ENTRY_SIZE + k];
+      entries[j * ENTRY_SIZE + k] = tmp;
+    }
+  }
+
+  private static final class BufferCursor implements Cursor {
+    private final long[] entries;
+    private final int    size;
+    private       int    current = -1;
+
+    private BufferCursor(long[] entries, int size) {
+      this.entries = entries;
+      this.size = size;
+    }
+
+    @Override
+    public boolean next() {
+      return current < size && ++current < size;
+    }
+
+    @Override
+    public long vertex() {
+      return entries[current * ENTRY_SIZE];
+    }
+
+    @Override
+    public int field() {
+      return (int) entries[current * ENTRY_SIZE + 1];
+    }
+
+    @Override
+    public long target() {
+      return entries[current * ENTRY_SIZE + 2];
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static final class RunReader implements Closeable {
+    private final DataInputStream in;
+    private       long            remaining;
+    private       long            vertex;
+    private       long            field;
+    private       long            target;
+
+    private RunReader(File file) throws IOException {
+      this.remaining = file.length() / (8 * ENTRY_SIZE);
+      this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), IO_BUFFER_SIZE));
+    }
+
+    private boolean advance() throws IOException {
+      if (remaining == 0) {
+        return false;
+      }
+      vertex = in.readLong();
+      field = in.readLong();
+      target = in.readLong();
+      remaining--;
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  private static final class MergeCursor implements Cursor {
+    private final List<RunReader>          readers = new ArrayList<>();
+    private final PriorityQueue<RunReader> queue   = new PriorityQueue<>((a, b) -> {
+      int result = Long.compare(a.vertex, b.vertex);
+      return result != 0 ? result : Long.compare(a.field, b.field);
+    });
+    private       RunReader                current;
+
+    private void add(RunReader reader) throws IOException {
+      readers.add(reader);
+      if (reader.advance()) {
+        queue.add(reader);
+      }
+    }
+
+    @Override
+    public boolean next() throws IOException {
+      if (current != null && current.advance()) {
+        queue.add(current);
+      }
+      current = queue.poll();
+      return current != null;
+    }
+
+    @Override
+    public long vertex() {
+      return current.vertex;
+    }
+
+    @Override
+    public int field() {
+      return (int) current.field;
+    }
+
+    @Override
+    public long target() {
+      return current.target;
+    }
+
+    @Override
+    public void close() throws IOException {
+      IOException error = null;
+      for (RunReader reader : readers) {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          error = e;
+        }
+      }
+      if (error != null) {
+        throw error;
+      }
+    }
+  }
+}
@@ -0,0 +1,842 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.db.tool;
+
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.common.thread.OThreadPoolExecutorWithLogging;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.ODatabaseSession;
+import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
+import com.orientechnologies.orient.core.exception.ODatabaseException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.ODeferredIndexes;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.record.impl.OVertexDelegate;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bulk loader of graphs on the multi-model API. It loads vertices and edges of multiple classes, identified by external keys
+ * (strings or integer numbers, unique in each vertex class), starting from an empty or existing database. Compared to a load made
+ * of newVertex()/newEdge() calls:
+ * <ul>
+ * <li>vertices and edges are written out of transaction, in batches, by a pool of worker sessions</li>
+ * <li>each vertex is updated only once with all its edges: the adjacency entries (the out_*&#47;in_* ridbags) are collected in an
+ * external sort, made of sorted runs on disk that are merged at the end, and written vertex by vertex</li>
+ * <li>the indexes of the loaded classes are dropped when the load begins and rebuilt when it ends. Their configuration is saved in
+ * the storage, so that they are rebuilt when the database is opened again if the process stops in the middle of the load</li>
+ * </ul>
+ * <p>
+ * The load is made of four phases, that have to be executed in this order and from a single thread:
+ * <ul>
+ * <li>begin(): creates the vertex and edge classes, if they do not exist, and drops their indexes</li>
+ * <li>create the vertices</li>
+ * <li>create the edges: vertices cannot be created after the first edge</li>
+ * <li>end(): writes the adjacency of the vertices and rebuilds the indexes</li>
+ * </ul>
+ * <p>
+ * If the load fails, abort() (or close()) stops the workers and rebuilds the dropped indexes.
+ * <p>
+ * Typical usage: <code>
+ *   try (OGraphBulkLoader loader = new OGraphBulkLoader(db)) {
+ *     loader.addVertexClass("Person");
+ *     loader.addVertexClass("City");
+ *     loader.addEdgeClass("Knows");
+ *     loader.addEdgeClass("LivesIn");
+ *     loader.begin();
+ * <p>
+ *     loader.createVertex("Person", 1L, personProps);
+ *     loader.createVertex("City", "Rome", cityProps);
+ *     ...
+ *     loader.createEdge("LivesIn", "Person", 1L, "City", "Rome", null);
+ *     ...
+ *     loader.end();
+ *   }
+ * </code>
+ * <p>
+ * The records are written with the massive insert intent (no hooks, no validation), so the database should not be used by other
+ * clients during the load; unique indexes are checked only when they are rebuilt. Edges without properties are created as
+ * lightweight edges if the database is configured to use them.
+ */
+public class OGraphBulkLoader implements AutoCloseable {
+  public static final String DEFAULT_KEY_PROPERTY = "uid";
+
+  private static final long PENDING = -1;
+
+  private enum Phase {
+    NEW, VERTICES, EDGES, ENDED
+  }
+
+  private interface WorkerTask {
+    void execute(ODatabaseDocumentInternal session) throws IOException;
+  }
+
+  private final ODatabaseDocumentInternal db;
+  private final Map<String, String>       vertexClasses = new LinkedHashMap<>();
+  private final Map<String, String>       edgeClasses   = new LinkedHashMap<>();
+  private final Map<String, VertexKeys>   keys          = new HashMap<>();
+  private final Map<String, Integer>      edgeFields    = new HashMap<>();
+  private final List<String>              fieldNames    = new ArrayList<>();
+  private final List<ODocument>           indexes       = new ArrayList<>();
+
+  private String keyProperty    = DEFAULT_KEY_PROPERTY;
+  private int    parallelism    = OGlobalConfiguration.GRAPH_BULK_LOAD_PARALLELISM.getValueAsInteger();
+  private int    batchSize      = OGlobalConfiguration.GRAPH_BULK_LOAD_BATCH_SIZE.getValueAsInteger();
+  private int    sortBufferSize = OGlobalConfiguration.GRAPH_BULK_LOAD_SORT_BUFFER_SIZE.getValueAsInteger();
+  private File   tempDirectory  = new File(System.getProperty("java.io.tmpdir"));
+
+  private final ConcurrentLinkedQueue<ODatabaseDocumentInternal> sessions = new ConcurrentLinkedQueue<>();
+  private final AtomicReference<Throwable>                       error    = new AtomicReference<>();
+  private       Semaphore                                        permits;
+  private       ExecutorService                                  executor;
+  private       OAdjacencySorter                                 sorter;
+  private       Phase                                            phase    = Phase.NEW;
+  private       boolean                                          lightweightEdges;
+
+  private List<PendingVertex> vertexBatch = new ArrayList<>();
+  private List<PendingEdge>   edgeBatch   = new ArrayList<>();
+  private long[]              lightweightEntries;
+  private int                 lightweightSize;
+  private long                vertexCount;
+  private long                edgeCount;
+
+  public OGraphBulkLoader(ODatabaseSession db) {
+    this.db = (ODatabaseDocumentInternal) db;
+  }
+
+  /**
+   * Adds a vertex class to the load. Call it before begin().
+   *
+   * @param className the class name, the class is created as a subclass of V if it does not exist
+   */
+  public void addVertexClass(String className) {
+    checkPhase(Phase.NEW);
+    vertexClasses.put(className.toLowerCase(Locale.ENGLISH), className);
+  }
+
+  /**
+   * Adds an edge class to the load. Call it before begin().
+   *
+   * @param className the class name, the class is created as a subclass of E if it does not exist
+   */
+  public void addEdgeClass(String className) {
+    checkPhase(Phase.NEW);
+    edgeClasses.put(className.toLowerCase(Locale.ENGLISH), className);
+  }
+
+  /**
+   * Creates the classes that do not exist, drops the indexes of the classes and starts the worker sessions. Call this once, before
+   * creating vertices and edges.
+   */
+  public void begin() {
+    checkPhase(Phase.NEW);
+    if (vertexClasses.isEmpty()) {
+      throw new IllegalStateException("No vertex classes were added to the bulk load");
+    }
+
+    OSchema schema = db.getMetadata().getSchema();
+    List<OClass> classes = new ArrayList<>();
+    for (String name : vertexClasses.values()) {
+      OClass clazz = schema.getClass(name);
+      if (clazz == null) {
+        clazz = db.createVertexClass(name);
+      } else if (!clazz.isVertexType()) {
+        throw new IllegalArgumentException("Class " + name + " is not a vertex class");
+      }
+      keys.put(name.toLowerCase(Locale.ENGLISH), new VertexKeys(clazz.getName()));
+      classes.add(clazz);
+    }
+    for (String name : edgeClasses.values()) {
+      OClass clazz = schema.getClass(name);
+      if (clazz == null) {
+        clazz = db.createEdgeClass(name);
+      } else if (!clazz.isEdgeType()) {
+        throw new IllegalArgumentException("Class " + name + " is not an edge class");
+      }
+      edgeFields.put(name.toLowerCase(Locale.ENGLISH), fieldNames.size());
+      fieldNames.add(OVertexDelegate.getConnectionFieldName(ODirection.OUT, clazz.getName(), true));
+      fieldNames.add(OVertexDelegate.getConnectionFieldName(ODirection.IN, clazz.getName(), true));
+      classes.add(clazz);
+    }
+    deferIndexes(classes);
+
+    try {
+      lightweightEdges = db.isUseLightweightEdges();
+      lightweightEntries = new long[Math.max(1, batchSize) * 2 * OAdjacencySorter.ENTRY_SIZE];
+      sorter = new OAdjacencySorter(tempDirectory, sortBufferSize);
+      int workers = Math.max(1, parallelism);
+      permits = new Semaphore(workers);
+      executor = new OThreadPoolExecutorWithLogging(workers, workers, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+        Thread thread = new Thread(r, "OrientDB graph bulk load worker");
+        thread.setDaemon(true);
+        return thread;
+      });
+      for (int i = 0; i < workers; i++) {
+        ODatabaseDocumentInternal session = db.copy();
+        session.activateOnCurrentThread();
+        session.declareIntent(new OIntentMassiveInsert());
+        sessions.add(session);
+      }
+      db.activateOnCurrentThread();
+    } catch (RuntimeException | Error e) {
+      abort();
+      throw e;
+    }
+    phase = Phase.VERTICES;
+  }
+
+  /**
+   * Creates a new vertex. Vertices are written in batches, by the worker sessions.
+   *
+   * @param className  the vertex class
+   * @param key        the key of the vertex, a string or an integer number, unique in the class
+   * @param properties the vertex properties, or null
+   */
+  public void createVertex(String className, Object key, Map<String, Object> properties) {
+    if (phase == Phase.EDGES) {
+      throw new IllegalStateException("Cannot create vertices after the first edge");
+    }
+    checkPhase(Phase.VERTICES);
+    VertexKeys classKeys = getKeys(className);
+    Object normalizedKey = normalizeKey(key);
+    classKeys.reserve(normalizedKey);
+
+    vertexBatch.add(new PendingVertex(classKeys, normalizedKey, properties));
+    vertexCount++;
+    if (vertexBatch.size() >= batchSize) {
+      flushVertices();
+    }
+  }
+
+  /**
+   * Creates a new edge between two vertices, that must have already been created by this load. Edges are written in batches, by
+   * the worker sessions; the connections of the vertices are written by end().
+   *
+   * @param className  the edge class
+   * @param fromClass  the class of the vertex that is the starting point of the edge
+   * @param fromKey    the key of the vertex that is the starting point of the edge
+   * @param toClass    the class of the vertex that is the end point of the edge
+   * @param toKey      the key of the vertex that is the end point of the edge
+   * @param properties the edge properties, or null
+   */
+  public void createEdge(String className, String fromClass, Object fromKey, String toClass, Object toKey,
+      Map<String, Object> properties) {
+    if (phase == Phase.VERTICES) {
+      flushVertices();
+      waitForWorkers();
+      phase = Phase.EDGES;
+    }
+    checkPhase(Phase.EDGES);
+    Integer field = edgeFields.get(className.toLowerCase(Locale.ENGLISH));
+    if (field == null) {
+      throw new IllegalArgumentException("Edge class " + className + " was not added to the bulk load");
+    }
+    long from = getVertex(fromClass, fromKey);
+    long to = getVertex(toClass, toKey);
+    edgeCount++;
+
+    if (lightweightEdges && (properties == null || properties.isEmpty())) {
+      lightweightSize = addEntry(lightweightEntries, lightweightSize, from, field, to);
+      lightweightSize = addEntry(lightweightEntries, lightweightSize, to, field + 1, from);
+      if (lightweightSize == lightweightEntries.length / OAdjacencySorter.ENTRY_SIZE) {
+        flushLightweightEdges();
+      }
+      return;
+    }
+    edgeBatch.add(new PendingEdge(edgeClasses.get(className.toLowerCase(Locale.ENGLISH)), field, from, to, properties));
+    if (edgeBatch.size() >= batchSize) {
+      flushEdges();
+    }
+  }
+
+  /**
+   * Writes the pending vertices and edges and the connections of the vertices, rebuilds the indexes and closes the worker sessions.
+   * Call this once, after vertices and edges creation.
+   */
+  public void end() {
+    if (phase != Phase.VERTICES) {
+      checkPhase(Phase.EDGES);
+    }
+    boolean completed = false;
+    try {
+      flushVertices();
+      flushEdges();
+      flushLightweightEdges();
+      waitForWorkers();
+      writeAdjacency();
+      completed = true;
+    } finally {
+      release(completed);
+    }
+  }
+
+  /**
+   * Stops the load: waits for the batches being written, closes the worker sessions and rebuilds the dropped indexes. The records
+   * already written are not removed. It does nothing if the load has already ended.
+   */
+  public void abort() {
+    if (phase != Phase.ENDED) {
+      // the batches not started yet are skipped
+      error.compareAndSet(null, new ODatabaseException("Graph bulk load aborted"));
+      release(false);
+    }
+  }
+
+  /**
+   * Aborts the load if end() was not called, see {@link #abort()}
+   */
+  @Override
+  public void close() {
+    abort();
+  }
+
+  /**
+   * @return the number of vertices created
+   */
+  public long getVertexCount() {
+    return vertexCount;
+  }
+
+  /**
+   * @return the number of edges created
+   */
+  public long getEdgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * @return the property where the keys are written on vertices
+   */
+  public String getKeyProperty() {
+    return keyProperty;
+  }
+
+  /**
+   * @param keyProperty the property where the keys are written on vertices ({@value #DEFAULT_KEY_PROPERTY} by default), null to
+   *                    not write them
+   */
+  public void setKeyProperty(String keyProperty) {
+    checkPhase(Phase.NEW);
+    this.keyProperty = keyProperty;
+  }
+
+  /**
+   * @return the number of worker sessions
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * @param parallelism the number of worker sessions (see {@link OGlobalConfiguration#GRAPH_BULK_LOAD_PARALLELISM})
+   */
+  public void setParallelism(int parallelism) {
+    checkPhase(Phase.NEW);
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * @return the number of records written by a worker session in each batch
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * @param batchSize the number of records written by a worker session in each batch (see {@link
+   *                  OGlobalConfiguration#GRAPH_BULK_LOAD_BATCH_SIZE})
+   */
+  public void setBatchSize(int batchSize) {
+    checkPhase(Phase.NEW);
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * @return the number of adjacency entries kept in memory before a sorted run is written to disk
+   */
+  public int getSortBufferSize() {
+    return sortBufferSize;
+  }
+
+  /**
+   * @param sortBufferSize the number of adjacency entries kept in memory before a sorted run is written to disk (see {@link
+   *                       OGlobalConfiguration#GRAPH_BULK_LOAD_SORT_BUFFER_SIZE})
+   */
+  public void setSortBufferSize(int sortBufferSize) {
+    checkPhase(Phase.NEW);
+    this.sortBufferSize = sortBufferSize;
+  }
+
+  /**
+   * @return the directory of the sorted runs
+   */
+  public File getTempDirectory() {
+    return tempDirectory;
+  }
+
+  /**
+   * @param tempDirectory the directory of the sorted runs (java.io.tmpdir by default)
+   */
+  public void setTempDirectory(File tempDirectory) {
+    checkPhase(Phase.NEW);
+    this.tempDirectory = tempDirectory;
+  }
+
+  private void flushVertices() {
+    if (vertexBatch.isEmpty()) {
+      return;
+    }
+    List<PendingVertex> batch = vertexBatch;
+    vertexBatch = new ArrayList<>();
+    submit(session -> writeVertices(session, batch));
+  }
+
+  private void flushEdges() {
+    if (edgeBatch.isEmpty()) {
+      return;
+    }
+    List<PendingEdge> batch = edgeBatch;
+    edgeBatch = new ArrayList<>();
+    submit(session -> writeEdges(session, batch));
+  }
+
+  private void flushLightweightEdges() {
+    if (lightweightSize == 0) {
+      return;
+    }
+    try {
+      sorter.add(lightweightEntries, lightweightSize);
+    } catch (IOException e) {
+      throw OException.wrapException(new ODatabaseException("Error on writing the adjacency of the graph bulk load"), e);
+    }
+    lightweightSize = 0;
+  }
+
+  private void writeVertices(ODatabaseDocumentInternal session, List<PendingVertex> batch) {
+    long[] rids = new long[batch.size()];
+    for (int i = 0; i < batch.size(); i++) {
+      PendingVertex pending = batch.get(i);
+      OVertex vertex = session.newVertex(pending.keys.className);
+      if (pending.properties != null) {
+        for (Map.Entry<String, Object> property : pending.properties.entrySet()) {
+          vertex.setProperty(property.getKey(), property.getValue());
+        }
+      }
+      if (keyProperty != null) {
+        vertex.setProperty(keyProperty, pending.key);
+      }
+      vertex.save();
+      rids[i] = pack(vertex.getIdentity());
+    }
+    for (int i = 0; i < batch.size(); i++) {
+      batch.get(i).keys.set(batch.get(i).key, rids[i]);
+    }
+  }
+
+  private void writeEdges(ODatabaseDocumentInternal session, List<PendingEdge> batch) throws IOException {
+    long[] entries = new long[batch.size() * 2 * OAdjacencySorter.ENTRY_SIZE];
+    int size = 0;
+    for (PendingEdge pending : batch) {
+      ODocument edge = session.newInstance(pending.className);
+      if (pending.properties != null) {
+        edge.fromMap(pending.properties);
+      }
+      edge.field("out", unpack(pending.from));
+      edge.field("in", unpack(pending.to));
+      edge.save();
+      long rid = pack(edge.getIdentity());
+      size = addEntry(entries, size, pending.from, pending.field, rid);
+      size = addEntry(entries, size, pending.to, pending.field + 1, rid);
+    }
+    sorter.add(entries, size);
+  }
+
+  /**
+   * Reads the sorted adjacency entries, collects the entries of each vertex and writes them in batches
+   */
+  private void writeAdjacency() {
+    try (OAdjacencySorter.Cursor cursor = sorter.sort()) {
+      List<Adjacency> batch = new ArrayList<>();
+      int batchEntries = 0;
+      boolean hasNext = cursor.next();
+      while (hasNext) {
+        Adjacency adjacency = new Adjacency(cursor.vertex());
+        do {
+          adjacency.add(cursor.field(), cursor.target());
+          hasNext = cursor.next();
+        } while (hasNext && cursor.vertex() == adjacency.vertex);
+
+        batch.add(adjacency);
+        batchEntries += adjacency.size;
+        if (batchEntries >= batchSize) {
+          List<Adjacency> toWrite = batch;
+          submit(session -> writeAdjacency(session, toWrite));
+          batch = new ArrayList<>();
+          batchEntries = 0;
+        }
+      }
+      if (!batch.isEmpty()) {
+        List<Adjacency> toWrite = batch;
+        submit(session -> writeAdjacency(session, toWrite));
+      }
+      waitForWorkers();
+    } catch (IOException e) {
+      throw OException.wrapException(new ODatabaseException("Error on reading the adjacency of the graph bulk load"), e);
+    }
+  }
+
+  private void writeAdjacency(ODatabaseDocumentInternal session, List<Adjacency> batch) {
+    for (Adjacency adjacency : batch) {
+      ORID rid = unpack(adjacency.vertex);
+      ODocument vertex = session.load(rid);
+      if (vertex == null) {
+        throw new ODatabaseException("Vertex " + rid + " not found during the graph bulk load");
+      }
+      int i = 0;
+      while (i < adjacency.size) {
+        int field = adjacency.fields[i];
+        ORidBag bag = new ORidBag();
+        for (; i < adjacency.size && adjacency.fields[i] == field; i++) {
+          bag.add(unpack(adjacency.targets[i]));
+        }
+        vertex.field(fieldNames.get(field), bag);
+      }
+      vertex.save();
+    }
+  }
+
+  private void submit(WorkerTask task) {
+    checkError();
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw OException.wrapException(new ODatabaseException("Graph bulk load interrupted"), e);
+    }
+    try {
+      executor.submit(() -> {
+        ODatabaseDocumentInternal session = sessions.poll();
+        try {
+          session.activateOnCurrentThread();
+          if (error.get() == null) {
+            task.execute(session);
+          }
+        } catch (Throwable e) {
+          error.compareAndSet(null, e);
+        } finally {
+          ODatabaseRecordThreadLocal.instance().remove();
+          sessions.add(session);
+          permits.release();
+        }
+      });
+    } catch (RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Waits for the batches submitted to the worker sessions
+   */
+  private void waitForWorkers() {
+    int workers = Math.max(1, parallelism);
+    try {
+      permits.acquire(workers);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw OException.wrapException(new ODatabaseException("Graph bulk load interrupted"), e);
+    } finally {
+      db.activateOnCurrentThread();
+    }
+    permits.release(workers);
+    checkError();
+  }
+
+  private void checkError() {
+    Throwable e = error.get();
+    if (e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    } else if (e instanceof Error) {
+      throw (Error) e;
+    } else if (e != null) {
+      throw OException.wrapException(new ODatabaseException("Error during the graph bulk load"), e);
+    }
+  }
+
+  /**
+   * closes the worker sessions, the executor and the sorter and rebuilds the indexes
+   *
+   * @param throwErrors true to throw the errors on rebuilding the indexes, that are logged anyway
+   */
+  private void release(boolean throwErrors) {
+    phase = Phase.ENDED;
+    try {
+      closeSessions();
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
+        executor = null;
+      }
+      if (sorter != null) {
+        sorter.close();
+      }
+      rebuildIndexes(throwErrors);
+    }
+  }
+
+  private void closeSessions() {
+    int workers = Math.max(1, parallelism);
+    if (permits != null) {
+      permits.acquireUninterruptibly(workers);
+    }
+    try {
+      ODatabaseDocumentInternal session;
+      while ((session = sessions.poll()) != null) {
+        session.activateOnCurrentThread();
+        session.declareIntent(null);
+        session.close();
+      }
+    } finally {
+      if (permits != null) {
+        permits.release(workers);
+      }
+      db.activateOnCurrentThread();
+    }
+  }
+
+  private void deferIndexes(List<OClass> classes) {
+    Map<String, OIndex<?>> toDrop = new LinkedHashMap<>();
+    for (OClass clazz : classes) {
+      for (OIndex<?> index : clazz.getIndexes()) {
+        toDrop.put(index.getName(), index);
+      }
+    }
+    indexes.addAll(ODeferredIndexes.drop(db, toDrop.values()));
+  }
+
+  private void rebuildIndexes(boolean throwErrors) {
+    List<ODocument> toRebuild = new ArrayList<>(indexes);
+    indexes.clear();
+    try {
+      ODeferredIndexes.create(db, toRebuild);
+    } catch (RuntimeException e) {
+      if (throwErrors) {
+        throw e;
+      }
+    }
+  }
+
+  private VertexKeys getKeys(String className) {
+    VertexKeys result = keys.get(className.toLowerCase(Locale.ENGLISH));
+    if (result == null) {
+      throw new IllegalArgumentException("Vertex class " + className + " was not added to the bulk load");
+    }
+    return result;
+  }
+
+  private long getVertex(String className, Object key) {
+    long rid = getKeys(className).get(normalizeKey(key));
+    if (rid == 0) {
+      throw new IllegalArgumentException("Vertex " + className + " with key " + key + " was not created by the bulk load");
+    }
+    return rid;
+  }
+
+  private void checkPhase(Phase expected) {
+    if (phase != expected) {
+      switch (expected) {
+      case NEW:
+        throw new IllegalStateException("The graph bulk load was already started");
+      default:
+        throw new IllegalStateException(phase == Phase.NEW ? "begin() was not called" : "The graph bulk load has ended");
+      }
+    }
+  }
+
+  private static Object normalizeKey(Object key) {
+    if (key instanceof String) {
+      return key;
+    }
+    if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+      return ((Number) key).longValue();
+    }
+    throw new IllegalArgumentException("Invalid vertex key: " + key + " (expected a string or an integer number)");
+  }
+
+  private static int addEntry(long[] entries, int size, long vertex, int field, long target) {
+    int offset = size * OAdjacencySorter.ENTRY_SIZE;
+    entries[offset] = vertex;
+    entries[offset + 1] = field;
+    entries[offset + 2] = target;
+    return size + 1;
+  }
+
+  /**
+   * Packs a RID in a long: 16 bits for the cluster id and 48 bits for the cluster position
+   */
+  static long pack(ORID rid) {
+    return ((long) rid.getClusterId() << 48) | rid.getClusterPosition();
+  }
+
+  static ORID unpack(long rid) {
+    return new ORecordId((int) (rid >>> 48), rid & 0xFFFFFFFFFFFFL);
+  }
+
+  private static final class PendingVertex {
+    private final VertexKeys          keys;
+    private final Object              key;
+    private final Map<String, Object> properties;
+
+    private PendingVertex(VertexKeys keys, Object key, Map<String, Object> properties) {
+      this.keys = keys;
+      this.key = key;
+      this.properties = properties;
+    }
+  }
+
+  private static final class PendingEdge {
+    private final String              className;
+    private final int                 field;
+    private final long                from;
+    private final long                to;
+    private final Map<String, Object> properties;
+
+    private PendingEdge(String className, int field, long from, long to, Map<String, Object> properties) {
+      this.className = className;
+      this.field = field;
+      this.from = from;
+      this.to = to;
+      this.properties = properties;
+    }
+  }
+
+  /**
+   * The adjacency entries of a vertex, sorted by field
+   */
+  private static final class Adjacency {
+    private final long   vertex;
+    private       int[]  fields  = new int[4];
+    private       long[] targets = new long[4];
+    private       int    size    = 0;
+
+    private Adjacency(long vertex) {
+      this.vertex = vertex;
+    }
+
+    private void add(int field, long target) {
+      if (size == fields.length) {
+        fields = Arrays.copyOf(fields, size * 2);
+        targets = Arrays.copyOf(targets, size * 2);
+      }
+      fields[size] = field;
+      targets[size++] = target;
+    }
+  }
+
+  /**
+   * The RIDs of the vertices of a class, by key. Integer keys are kept in an open addressing hash table of primitive longs, string
+   * keys in a hash map. The keys are reserved by the loading thread when a vertex is created and set by the worker session that
+   * writes it.
+   */
+  private static final class VertexKeys {
+    private final String            className;
+    private final Map<String, Long> stringKeys = new HashMap<>();
+    private       long[]            longKeys   = new long[1024];
+    private       long[]            longRids   = new long[1024];
+    private       int               longSize   = 0;
+
+    private VertexKeys(String className) {
+      this.className = className;
+    }
+
+    synchronized void reserve(Object key) {
+      if (get(key) != 0) {
+        throw new IllegalArgumentException("Duplicate key " + key + " in vertex class " + className);
+      }
+      set(key, PENDING);
+    }
+
+    synchronized void set(Object key, long rid) {
+      if (key instanceof String) {
+        stringKeys.put((String) key, rid);
+        return;
+      }
+      long longKey = (Long) key;
+      int slot = slot(longKeys, longRids, longKey);
+      if (longRids[slot] == 0) {
+        longKeys[slot] = longKey;
+        if (++longSize * 2 > longKeys.length) {
+          longRids[slot] = rid;
+          rehash();
+          return;
+        }
+      }
+      longRids[slot] = rid;
+    }
+
+    /**
+     * @return the packed RID of the vertex, {@link #PENDING} if it is not written yet, 0 if the key was not reserved
+     */
+    synchronized long get(Object key) {
+      if (key instanceof String) {
+        Long rid = stringKeys.get(key);
+        return rid == null ? 0 : rid;
+      }
+      return longRids[slot(longKeys, longRids, (Long) key)];
+    }
+
+    private void rehash() {
+      long[] oldKeys = longKeys;
+      long[] oldRids = longRids;
+      longKeys = new long[oldKeys.length * 2];
+      longRids = new long[oldRids.length * 2];
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldRids[i] != 0) {
+          int slot = slot(longKeys, longRids, oldKeys[i]);
+          longKeys[slot] = oldKeys[i];
+          longRids[slot] = oldRids[i];
+        }
+      }
+    }
+
+    private static int slot(long[] keys, long[] rids, long key) {
+      int mask = keys.length - 1;
+      long h = key * 0x9E3779B97F4A7C15L;
+      int slot = (int) (h ^ (h >>> 32)) & mask;
+      while (rids[slot] != 0 && keys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+  }
+}
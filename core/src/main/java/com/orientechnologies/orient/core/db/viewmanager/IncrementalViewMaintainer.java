@@ -0,0 +1,853 @@
+package com.orientechnologies.orient.core.db.viewmanager;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.metadata.schema.OImmutableClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.metadata.schema.OView;
+import com.orientechnologies.orient.core.record.OElement;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultInternal;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import com.orientechnologies.orient.core.sql.parser.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a view up to date applying the changes of the records of its target class as deltas to the view rows and indexes,
+ * instead of re-running the whole view query.
+ * <p>
+ * Only views defined by a filter, a projection and optionally a GROUP BY with <code>count()</code>, <code>sum()</code>,
+ * <code>avg()</code>, <code>min()</code> and <code>max()</code> aggregates on a single class, that read nothing but the fields
+ * of the records of that class (no link traversal or graph function), can be maintained this way (see
+ * {@link #create(OView, ViewManager, ODatabaseDocumentInternal)}). The state needed to apply the deltas (the view row of each
+ * origin record, or the partial aggregates of each group) is kept in memory, so it is rebuilt with a full refresh of the view
+ * every time the database is opened.
+ */
+class IncrementalViewMaintainer {
+
+  private static final String HIDDEN_PREFIX = "__ivm_";
+  private static final String COUNT_ALIAS   = HIDDEN_PREFIX + "count";
+
+  private enum AggregateType {
+    COUNT_STAR, COUNT, SUM, AVG, MIN, MAX
+  }
+
+  /**
+   * A projection item of the view query. For aggregates, <code>expression</code> is the argument of the function
+   */
+  private static class Item {
+    private final OProjectionItem item;
+    private final String          alias;
+    private final AggregateType   type;
+    private final OExpression     expression;
+
+    Item(OProjectionItem item, AggregateType type, OExpression expression) {
+      this.item = item;
+      this.alias = item.getProjectionAliasAsString();
+      this.type = type;
+      this.expression = expression;
+    }
+  }
+
+  /**
+   * A record change, with the record content before and after the change (null for created and deleted records respectively)
+   */
+  static class Change {
+    private final IncrementalViewMaintainer maintainer;
+    private final ODocument                 record;
+    private       OResult                   before;
+    private       OResult                   after;
+    private       ORID                      rid;
+
+    Change(IncrementalViewMaintainer maintainer, ODocument record, OResult before, OResult after) {
+      this.maintainer = maintainer;
+      this.record = record;
+      this.before = before;
+      this.after = after;
+    }
+
+    IncrementalViewMaintainer getMaintainer() {
+      return maintainer;
+    }
+
+    /**
+     * merges a following change of the same record in the same transaction
+     *
+     * @return false if the two changes cancel each other (the record was created and then deleted)
+     */
+    boolean merge(Change next) {
+      this.after = next.after;
+      return before != null || after != null;
+    }
+  }
+
+  private static class Group {
+    private       ORID     row;
+    private       long     count;
+    private final Object[] values;
+    private final long[]   counts;
+    private       boolean  recompute;
+
+    Group(int items) {
+      values = new Object[items];
+      counts = new long[items];
+    }
+  }
+
+  private final ViewManager       viewManager;
+  private final String            viewName;
+  private final String            query;
+  private final String            targetClass;
+  private final OWhereClause      where;
+  private final List<Item>        items;
+  private final List<OExpression> groupBy;
+  private final boolean           aggregate;
+  private final String            select;
+  private final String            groupByClause;
+  private final String            buildQuery;
+
+  private final Queue<Change> changes = new ConcurrentLinkedQueue<>();
+
+  private String       clusterName;
+  private String       originRidField;
+  private List<String> indexNames = Collections.emptyList();
+
+  // origin record -> view row, for views without aggregates
+  private final Map<ORID, ORID>          rows   = new HashMap<>();
+  // group key -> group, for views with aggregates
+  private final Map<List<Object>, Group> groups = new HashMap<>();
+
+  private volatile boolean ready = false;
+
+  private IncrementalViewMaintainer(ViewManager viewManager, OView view, OSelectStatement statement, List<Item> items) {
+    this.viewManager = viewManager;
+    this.viewName = view.getName();
+    this.query = view.getQuery();
+    this.targetClass = statement.getTarget().getItem().getIdentifier().getStringValue();
+    this.where = statement.getWhereClause();
+    this.items = items;
+    this.groupBy = statement.getGroupBy() == null ? Collections.emptyList() : statement.getGroupBy().getItems();
+    this.aggregate = !groupBy.isEmpty() || (items != null && items.stream().anyMatch(x -> x.type != null));
+    this.select = createSelect();
+    this.groupByClause = createGroupByClause();
+    this.buildQuery = createBuildQuery();
+  }
+
+  /**
+   * @return a maintainer for the view, or null if the view query cannot be maintained incrementally
+   */
+  static IncrementalViewMaintainer create(OView view, ViewManager viewManager, ODatabaseDocumentInternal db) {
+    // parsed without the statement cache, that returns copies without the syntax tree
+    OStatement stm = OStatementCache.get(view.getQuery(), null);
+    if (!(stm instanceof OSelectStatement)) {
+      return null;
+    }
+    OSelectStatement statement = (OSelectStatement) stm;
+    if (statement.getLetClause() != null || statement.getUnwind() != null || statement.getSkip() != null
+        || statement.getLimit() != null || statement.getOrderBy() != null || statement.getFetchPlan() != null
+        || statement.refersToParent()) {
+      return null;
+    }
+    if (!isClassTarget(statement.getTarget())) {
+      return null;
+    }
+    if (!statement.readsOnlyTargetRecords()) {
+      // a change of a linked record or of the graph would not be seen
+      return null;
+    }
+    if (statement.getWhereClause() != null) {
+      SubQueryCollector collector = new SubQueryCollector();
+      statement.getWhereClause().extractSubQueries(collector);
+      if (!collector.getSubQueries().isEmpty()) {
+        return null;
+      }
+    }
+
+    List<Item> items = null;
+    OProjection projection = statement.getProjection();
+    if (projection != null && !(projection.getItems().size() == 1 && projection.getItems().get(0).isAll())) {
+      if (projection.isDistinct()) {
+        return null;
+      }
+      items = new ArrayList<>();
+      for (OProjectionItem projectionItem : projection.getItems()) {
+        Item item = toItem(projectionItem);
+        if (item == null) {
+          return null;
+        }
+        items.add(item);
+      }
+    }
+    if (statement.getGroupBy() != null) {
+      if (items == null) {
+        return null;
+      }
+      for (OExpression exp : statement.getGroupBy().getItems()) {
+        if (exp.isAggregate() || exp.refersToParent()) {
+          return null;
+        }
+      }
+    }
+    if (items != null && (statement.getGroupBy() != null || items.stream().anyMatch(x -> x.type != null)) && items.stream()
+        .anyMatch(x -> x.item.isAll())) {
+      return null;
+    }
+    return new IncrementalViewMaintainer(viewManager, view, statement, items);
+  }
+
+  private static boolean isClassTarget(OFromClause target) {
+    if (target == null || target.getItem() == null) {
+      return false;
+    }
+    OFromItem item = target.getItem();
+    return item.getIdentifier() != null && item.getModifier() == null && item.getRids() == null && item.getCluster() == null
+        && item.getClusterList() == null && item.getIndex() == null && item.getMetadata() == null && item.getStatement() == null
+        && item.getInputParam() == null && item.getInputParams() == null && item.getFunctionCall() == null;
+  }
+
+  private static Item toItem(OProjectionItem projectionItem) {
+    if (projectionItem.isAll()) {
+      return new Item(projectionItem, null, null);
+    }
+    SubQueryCollector collector = new SubQueryCollector();
+    projectionItem.extractSubQueries(collector);
+    if (projectionItem.isExpand() || projectionItem.refersToParent() || !collector.getSubQueries().isEmpty()) {
+      return null;
+    }
+    OExpression expression = projectionItem.getExpression();
+    if (!expression.isAggregate()) {
+      return new Item(projectionItem, null, expression);
+    }
+    OFunctionCall function = getTopLevelFunction(expression);
+    if (function == null || function.getParams().size() != 1 || function.getParams().get(0).isAggregate()) {
+      return null;
+    }
+    switch (function.getName().getStringValue().toLowerCase(Locale.ENGLISH)) {
+    case "count":
+      return new Item(projectionItem, function.isStar() ? AggregateType.COUNT_STAR : AggregateType.COUNT,
+          function.getParams().get(0));
+    case "sum":
+      return new Item(projectionItem, AggregateType.SUM, function.getParams().get(0));
+    case "avg":
+      return new Item(projectionItem, AggregateType.AVG, function.getParams().get(0));
+    case "min":
+      return new Item(projectionItem, AggregateType.MIN, function.getParams().get(0));
+    case "max":
+      return new Item(projectionItem, AggregateType.MAX, function.getParams().get(0));
+    default:
+      return null;
+    }
+  }
+
+  private static OFunctionCall getTopLevelFunction(OExpression expression) {
+    if (!(expression.getMathExpression() instanceof OBaseExpression)) {
+      return null;
+    }
+    OBaseExpression base = (OBaseExpression) expression.getMathExpression();
+    if (base.getModifier() != null || base.getIdentifier() == null || base.getIdentifier().getSuffix() != null
+        || base.getIdentifier().getLevelZero() == null) {
+      return null;
+    }
+    return base.getIdentifier().getLevelZero().getFunctionCall();
+  }
+
+  /**
+   * For aggregate views, the view projection plus the hidden projections needed to maintain the aggregates (the number of
+   * records in the group, the sum and the count for averages, the group keys). For the other views, the plain records of the
+   * target class.
+   */
+  private String createSelect() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("SELECT ");
+    if (aggregate) {
+      for (Item item : items) {
+        builder.append(item.item).append(", ");
+      }
+      builder.append("count(*) AS `").append(COUNT_ALIAS).append("`");
+      for (int i = 0; i < items.size(); i++) {
+        Item item = items.get(i);
+        if (item.type == AggregateType.AVG) {
+          builder.append(", sum(").append(item.expression).append(") AS `").append(sumAlias(i)).append("`");
+          builder.append(", count(").append(item.expression).append(") AS `").append(countAlias(i)).append("`");
+        }
+      }
+      for (int i = 0; i < groupBy.size(); i++) {
+        builder.append(", ").append(groupBy.get(i)).append(" AS `").append(keyAlias(i)).append("`");
+      }
+    }
+    builder.append(" FROM `").append(targetClass).append("`");
+    return builder.toString();
+  }
+
+  private String createGroupByClause() {
+    if (groupBy.isEmpty()) {
+      return "";
+    }
+    return " GROUP BY " + groupBy.stream().map(x -> x.toString()).collect(Collectors.joining(", "));
+  }
+
+  private String createBuildQuery() {
+    return select + (where == null ? "" : " WHERE " + where) + groupByClause;
+  }
+
+  /**
+   * @return the build query restricted to a single group
+   */
+  private String createGroupQuery(List<Object> key, List<Object> params) {
+    List<String> conditions = new ArrayList<>();
+    if (where != null) {
+      conditions.add("(" + where + ")");
+    }
+    for (int i = 0; i < groupBy.size(); i++) {
+      if (key.get(i) == null) {
+        conditions.add(groupBy.get(i) + " IS NULL");
+      } else {
+        conditions.add(groupBy.get(i) + " = ?");
+        params.add(key.get(i));
+      }
+    }
+    return select + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions)) + groupByClause;
+  }
+
+  private static String sumAlias(int item) {
+    return HIDDEN_PREFIX + "sum_" + item;
+  }
+
+  private static String countAlias(int item) {
+    return HIDDEN_PREFIX + "cnt_" + item;
+  }
+
+  private static String keyAlias(int item) {
+    return HIDDEN_PREFIX + "key_" + item;
+  }
+
+  String getViewName() {
+    return viewName;
+  }
+
+  String getQuery() {
+    return query;
+  }
+
+  boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * @return true if changes of records of this class can affect the view
+   */
+  boolean isAffectedBy(OImmutableClass clazz) {
+    return clazz.isSubClassOf(targetClass);
+  }
+
+  Change capture(ODocument record, OResult before, OResult after) {
+    return new Change(this, record, before, after);
+  }
+
+  /**
+   * Queues a committed change, to be applied at the next {@link #applyChanges(ODatabaseDocumentInternal)}
+   */
+  void enqueue(Change change) {
+    change.rid = change.record.getIdentity().copy();
+    changes.add(change);
+  }
+
+  /**
+   * Populates the view from scratch in a new cluster and initializes the in-memory state. Changes committed while the view is
+   * being built are applied at the end, recalculating the groups they affect.
+   */
+  void build(ODatabaseDocumentInternal db, String clusterName, List<OIndex> indexes, String originRidField) {
+    this.ready = false;
+    this.changes.clear();
+    this.rows.clear();
+    this.groups.clear();
+    this.clusterName = clusterName;
+    this.originRidField = originRidField;
+    this.indexNames = new ArrayList<>();
+    for (OIndex index : indexes) {
+      indexNames.add(index.getName());
+    }
+
+    OCommandContext ctx = createContext(db);
+    try (OResultSet rs = db.query(buildQuery)) {
+      while (rs.hasNext()) {
+        OResult item = rs.next();
+        if (aggregate) {
+          Group group = new Group(items.size());
+          initGroup(group, item);
+          writeGroup(group, db);
+          groups.put(groupKey(item), group);
+        } else {
+          ORID origin = item.getIdentity().orElse(null);
+          if (origin != null) {
+            rows.put(origin, insertRow(project(item, origin, ctx), db));
+          }
+        }
+      }
+    }
+
+    Change change;
+    Set<List<Object>> toRecompute = new LinkedHashSet<>();
+    while ((change = changes.poll()) != null) {
+      if (aggregate) {
+        if (change.before != null) {
+          toRecompute.add(groupKey(change.before, ctx));
+        }
+        if (change.after != null) {
+          toRecompute.add(groupKey(change.after, ctx));
+        }
+      } else {
+        applyRowChange(change, db, ctx);
+      }
+    }
+    for (List<Object> key : toRecompute) {
+      recomputeGroup(key, db);
+    }
+    this.ready = true;
+  }
+
+  /**
+   * Applies to the view all the changes committed since the last invocation
+   */
+  void applyChanges(ODatabaseDocumentInternal db) {
+    if (changes.isEmpty()) {
+      return;
+    }
+    OCommandContext ctx = createContext(db);
+    Set<List<Object>> dirtyGroups = new LinkedHashSet<>();
+    Change change;
+    while ((change = changes.poll()) != null) {
+      if (aggregate) {
+        applyGroupChange(change, dirtyGroups, ctx);
+      } else {
+        applyRowChange(change, db, ctx);
+      }
+    }
+    for (List<Object> key : dirtyGroups) {
+      Group group = groups.get(key);
+      if (group == null || group.recompute) {
+        recomputeGroup(key, db);
+      } else if (group.count <= 0 && !groupBy.isEmpty()) {
+        deleteRow(group.row, db);
+        groups.remove(key);
+      } else {
+        writeGroup(group, db);
+      }
+    }
+  }
+
+  private OCommandContext createContext(ODatabaseDocumentInternal db) {
+    OBasicCommandContext ctx = new OBasicCommandContext();
+    ctx.setDatabase(db);
+    return ctx;
+  }
+
+  private boolean matches(OResult record, OCommandContext ctx) {
+    return where == null || where.matchesFilters(record, ctx);
+  }
+
+  // --- views without aggregates
+
+  private void applyRowChange(Change change, ODatabaseDocumentInternal db, OCommandContext ctx) {
+    if (!change.rid.isPersistent()) {
+      return;
+    }
+    ORID row = rows.get(change.rid);
+    if (change.after != null && matches(change.after, ctx)) {
+      OResultInternal projected = project(change.after, change.rid, ctx);
+      if (row == null || !updateRow(row, projected, db)) {
+        rows.put(change.rid, insertRow(projected, db));
+      }
+    } else if (row != null) {
+      deleteRow(row, db);
+      rows.remove(change.rid);
+    }
+  }
+
+  private OResultInternal project(OResult record, ORID origin, OCommandContext ctx) {
+    OResultInternal result = new OResultInternal();
+    if (items == null) {
+      copyProperties(record, result);
+    } else {
+      for (Item item : items) {
+        if (item.item.isAll()) {
+          copyProperties(record, result);
+        } else {
+          result.setProperty(item.alias, item.item.execute(record, ctx));
+        }
+      }
+    }
+    result.setProperty("@rid", origin);
+    return result;
+  }
+
+  private static void copyProperties(OResult from, OResultInternal to) {
+    for (String name : from.getPropertyNames()) {
+      if (!name.startsWith("@")) {
+        to.setProperty(name, from.getProperty(name));
+      }
+    }
+  }
+
+  // --- views with aggregates
+
+  private void applyGroupChange(Change change, Set<List<Object>> dirtyGroups, OCommandContext ctx) {
+    if (change.before != null && matches(change.before, ctx)) {
+      List<Object> key = groupKey(change.before, ctx);
+      dirtyGroups.add(key);
+      Group group = groups.get(key);
+      if (group != null) {
+        retract(group, change.before, ctx);
+      }
+    }
+    if (change.after != null && matches(change.after, ctx)) {
+      List<Object> key = groupKey(change.after, ctx);
+      dirtyGroups.add(key);
+      Group group = groups.get(key);
+      if (group == null) {
+        group = new Group(items.size());
+        for (int i = 0; i < items.size(); i++) {
+          if (items.get(i).type == null) {
+            group.values[i] = items.get(i).item.execute(change.after, ctx);
+          }
+        }
+        groups.put(key, group);
+      }
+      accumulate(group, change.after, ctx);
+    }
+  }
+
+  private void accumulate(Group group, OResult record, OCommandContext ctx) {
+    group.count++;
+    for (int i = 0; i < items.size(); i++) {
+      Item item = items.get(i);
+      if (item.type == null || item.type == AggregateType.COUNT_STAR) {
+        continue;
+      }
+      Object value = item.expression.execute(record, ctx);
+      if (value == null) {
+        continue;
+      }
+      switch (item.type) {
+      case COUNT:
+        group.counts[i]++;
+        break;
+      case AVG:
+        group.counts[i]++;
+        // the sum is kept as for SUM, fall through
+      case SUM:
+        if (value instanceof Number) {
+          group.values[i] = group.values[i] == null ? value : OType.increment((Number) group.values[i], (Number) value);
+        } else {
+          group.recompute = true;
+        }
+        break;
+      case MIN:
+      case MAX:
+        if (group.values[i] == null) {
+          group.values[i] = value;
+        } else {
+          Integer comparison = compare(value, group.values[i]);
+          if (comparison == null) {
+            group.recompute = true;
+          } else if (item.type == AggregateType.MIN ? comparison < 0 : comparison > 0) {
+            group.values[i] = value;
+          }
+        }
+        break;
+      }
+    }
+  }
+
+  private void retract(Group group, OResult record, OCommandContext ctx) {
+    group.count--;
+    for (int i = 0; i < items.size(); i++) {
+      Item item = items.get(i);
+      if (item.type == null || item.type == AggregateType.COUNT_STAR) {
+        continue;
+      }
+      Object value = item.expression.execute(record, ctx);
+      if (value == null) {
+        continue;
+      }
+      switch (item.type) {
+      case COUNT:
+        group.counts[i]--;
+        break;
+      case AVG:
+        group.counts[i]--;
+        // the sum is kept as for SUM, fall through
+      case SUM:
+        if (value instanceof Number && group.values[i] instanceof Number) {
+          group.values[i] = OType.increment((Number) group.values[i], negate((Number) value));
+        } else {
+          group.recompute = true;
+        }
+        break;
+      case MIN:
+      case MAX:
+        // the current minimum/maximum is gone, the new one can be calculated only from the remaining records
+        Integer comparison = group.values[i] == null ? null : compare(value, group.values[i]);
+        if (comparison == null || (item.type == AggregateType.MIN ? comparison <= 0 : comparison >= 0)) {
+          group.recompute = true;
+        }
+        break;
+      }
+    }
+    if (group.count <= 0) {
+      // no need to recalculate anything for an empty group
+      group.recompute = false;
+      Arrays.fill(group.counts, 0);
+      for (int i = 0; i < items.size(); i++) {
+        if (items.get(i).type != null) {
+          group.values[i] = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * Recalculates the aggregates of a group from the records, eg. when the minimum of a group is deleted
+   */
+  private void recomputeGroup(List<Object> key, ODatabaseDocumentInternal db) {
+    Group group = groups.get(key);
+    List<Object> params = new ArrayList<>();
+    String groupQuery = createGroupQuery(key, params);
+    try (OResultSet rs = db.query(groupQuery, params.toArray())) {
+      if (rs.hasNext()) {
+        OResult item = rs.next();
+        if (group == null) {
+          group = new Group(items.size());
+          groups.put(key, group);
+        }
+        initGroup(group, item);
+        writeGroup(group, db);
+        return;
+      }
+    }
+    if (group == null) {
+      return;
+    }
+    if (groupBy.isEmpty()) {
+      group.count = 0;
+      writeGroup(group, db);
+    } else {
+      deleteRow(group.row, db);
+      groups.remove(key);
+    }
+  }
+
+  private void initGroup(Group group, OResult item) {
+    group.recompute = false;
+    group.count = ((Number) item.getProperty(COUNT_ALIAS)).longValue();
+    for (int i = 0; i < items.size(); i++) {
+      Item projection = items.get(i);
+      if (projection.type == null) {
+        group.values[i] = item.getProperty(projection.alias);
+        continue;
+      }
+      switch (projection.type) {
+      case COUNT:
+        group.counts[i] = ((Number) item.getProperty(projection.alias)).longValue();
+        break;
+      case AVG:
+        group.values[i] = item.getProperty(sumAlias(i));
+        group.counts[i] = ((Number) item.getProperty(countAlias(i))).longValue();
+        break;
+      case SUM:
+      case MIN:
+      case MAX:
+        group.values[i] = item.getProperty(projection.alias);
+        break;
+      default:
+        break;
+      }
+    }
+  }
+
+  private List<Object> groupKey(OResult item) {
+    List<Object> key = new ArrayList<>(groupBy.size());
+    for (int i = 0; i < groupBy.size(); i++) {
+      key.add(normalizeKey(item.getProperty(keyAlias(i))));
+    }
+    return key;
+  }
+
+  private List<Object> groupKey(OResult record, OCommandContext ctx) {
+    List<Object> key = new ArrayList<>(groupBy.size());
+    for (OExpression exp : groupBy) {
+      key.add(normalizeKey(exp.execute(record, ctx)));
+    }
+    return key;
+  }
+
+  private static Object normalizeKey(Object value) {
+    if (value instanceof OIdentifiable) {
+      return ((OIdentifiable) value).getIdentity();
+    }
+    return value;
+  }
+
+  private void writeGroup(Group group, ODatabaseDocumentInternal db) {
+    OResultInternal row = new OResultInternal();
+    for (int i = 0; i < items.size(); i++) {
+      row.setProperty(items.get(i).alias, aggregateValue(group, i));
+    }
+    if (group.row == null || !updateRow(group.row, row, db)) {
+      group.row = insertRow(row, db);
+    }
+  }
+
+  private Object aggregateValue(Group group, int i) {
+    Item item = items.get(i);
+    if (item.type == null) {
+      return group.values[i];
+    }
+    switch (item.type) {
+    case COUNT_STAR:
+      return group.count;
+    case COUNT:
+      return group.counts[i];
+    case SUM:
+      return group.values[i] == null ? 0 : group.values[i];
+    case AVG:
+      return group.counts[i] == 0 ? null : average((Number) group.values[i], group.counts[i]);
+    default:
+      return group.values[i];
+    }
+  }
+
+  /**
+   * Same as <code>avg()</code>: the result has the same type of the sum
+   */
+  private static Object average(Number sum, long total) {
+    if (sum instanceof Integer)
+      return (int) (sum.intValue() / total);
+    else if (sum instanceof Long)
+      return sum.longValue() / total;
+    else if (sum instanceof Float)
+      return sum.floatValue() / total;
+    else if (sum instanceof Double)
+      return sum.doubleValue() / total;
+    else if (sum instanceof BigDecimal)
+      return ((BigDecimal) sum).divide(new BigDecimal(total), RoundingMode.HALF_UP);
+    return null;
+  }
+
+  private static Number negate(Number value) {
+    if (value instanceof Integer)
+      return -value.intValue();
+    else if (value instanceof Long)
+      return -value.longValue();
+    else if (value instanceof Short)
+      return -value.shortValue();
+    else if (value instanceof Float)
+      return -value.floatValue();
+    else if (value instanceof Double)
+      return -value.doubleValue();
+    else if (value instanceof BigDecimal)
+      return ((BigDecimal) value).negate();
+    return -value.doubleValue();
+  }
+
+  /**
+   * @return the comparison of the two values, null if they are not comparable
+   */
+  private static Integer compare(Object a, Object b) {
+    try {
+      if (a instanceof Number && b instanceof Number) {
+        Number[] numbers = OType.castComparableNumber((Number) a, (Number) b);
+        return ((Comparable) numbers[0]).compareTo(numbers[1]);
+      }
+      if (a instanceof Comparable) {
+        return ((Comparable) a).compareTo(b);
+      }
+    } catch (ClassCastException e) {
+      OLogManager.instance().debug(IncrementalViewMaintainer.class, "Cannot compare " + a + " and " + b);
+    }
+    return null;
+  }
+
+  // --- view rows
+
+  private ORID insertRow(OResult row, ODatabaseDocumentInternal db) {
+    return viewManager.addItemToView(row, db, originRidField, viewName, clusterName, getIndexes(db)).getIdentity();
+  }
+
+  /**
+   * @return false if the row does not exist anymore
+   */
+  private boolean updateRow(ORID rid, OResult values, ODatabaseDocumentInternal db) {
+    OElement row = db.load(rid);
+    if (row == null) {
+      return false;
+    }
+    List<OIndex> indexes = getIndexes(db);
+    List<Object> oldKeys = new ArrayList<>();
+    for (OIndex idx : indexes) {
+      oldKeys.add(viewManager.indexedKeyFor(idx, row));
+    }
+
+    Set<String> names = values.getPropertyNames();
+    for (String name : names) {
+      if (!name.startsWith("@")) {
+        row.setProperty(name, values.getProperty(name));
+      }
+    }
+    for (String name : row.getPropertyNames()) {
+      if (!names.contains(name) && !name.equals(originRidField) && !name.equals("@view")) {
+        row.removeProperty(name);
+      }
+    }
+    if (!((ODocument) row).isDirty()) {
+      return true;
+    }
+    db.save(row);
+
+    for (int i = 0; i < indexes.size(); i++) {
+      OIndex idx = indexes.get(i);
+      Object newKey = viewManager.indexedKeyFor(idx, row);
+      if (!Objects.equals(oldKeys.get(i), newKey)) {
+        idx.remove(oldKeys.get(i), row);
+        idx.put(newKey, row);
+      }
+    }
+    return true;
+  }
+
+  private void deleteRow(ORID rid, ODatabaseDocumentInternal db) {
+    if (rid == null) {
+      return;
+    }
+    OElement row = db.load(rid);
+    if (row == null) {
+      return;
+    }
+    for (OIndex idx : getIndexes(db)) {
+      idx.remove(viewManager.indexedKeyFor(idx, row), row);
+    }
+    db.delete(rid);
+  }
+
+  private List<OIndex> getIndexes(ODatabaseDocumentInternal db) {
+    List<OIndex> result = new ArrayList<>();
+    for (String name : indexNames) {
+      OIndex<?> idx = db.getMetadata().getIndexManagerInternal().getIndex(db, name);
+      if (idx != null) {
+        result.add(idx);
+      }
+    }
+    return result;
+  }
+}
@@ -10,9 +10,11 @@ import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentEmbedded;
 import com.orientechnologies.orient.core.index.*;
 import com.orientechnologies.orient.core.metadata.schema.*;
+import com.orientechnologies.orient.core.query.live.OLiveQueryHookV2;
 import com.orientechnologies.orient.core.record.OElement;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultInternal;
 import com.orientechnologies.orient.core.sql.executor.OResultSet;
 import com.orientechnologies.orient.core.sql.parser.*;
 
@@ -47,6 +49,17 @@ public class ViewManager {
 
   private final Map<String, Long> lastChangePerClass = new ConcurrentHashMap<>();
 
+  /**
+   * Views with {@link OViewConfig#UPDATE_STRATEGY_INCREMENTAL} update strategy that can be maintained incrementally
+   */
+  private final ConcurrentMap<String, IncrementalViewMaintainer> incrementalViews    = new ConcurrentHashMap<>();
+  private final Set<String>                                      nonIncrementalViews = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Changes to incremental views made by transactions that are not committed yet
+   */
+  private final Map<ODatabaseDocument, Map<ChangeKey, IncrementalViewMaintainer.Change>> pendingChanges = new ConcurrentHashMap<>();
+
   private volatile String    lastUpdatedView = null;
   private volatile TimerTask timerTask;
   private volatile Future<?> lastTask;
@@ -115,6 +128,7 @@ public class ViewManager {
     try {
       cleanUnusedViewClusters(db);
       cleanUnusedViewIndexes(db);
+      applyIncrementalChanges(db);
       OView view = getNextViewToUpdate(db);
       if (view != null) {
         updateView(view, db);
@@ -196,6 +210,9 @@ public class ViewManager {
       if (isLiveUpdate(db, name)) {
         continue;
       }
+      if (isIncrementallyMaintained(name)) {
+        continue;
+      }
       if (!isUpdateExpiredFor(name, db)) {
         continue;
       }
@@ -217,6 +234,68 @@ public class ViewManager {
     return OViewConfig.UPDATE_STRATEGY_LIVE.equalsIgnoreCase(view.getUpdateStrategy());
   }
 
+  private boolean isIncrementallyMaintained(String viewName) {
+    IncrementalViewMaintainer maintainer = incrementalViews.get(viewName);
+    return maintainer != null && maintainer.isReady();
+  }
+
+  /**
+   * @return the maintainer of the view, if the view has incremental update strategy and its query allows incremental
+   * maintenance; null otherwise
+   */
+  private IncrementalViewMaintainer getIncrementalMaintainer(OView view, ODatabaseDocumentInternal db) {
+    if (!OViewConfig.UPDATE_STRATEGY_INCREMENTAL.equalsIgnoreCase(view.getUpdateStrategy())) {
+      incrementalViews.remove(view.getName());
+      return null;
+    }
+    IncrementalViewMaintainer maintainer = incrementalViews.get(view.getName());
+    if (maintainer != null && maintainer.getQuery().equals(view.getQuery())) {
+      return maintainer;
+    }
+    maintainer = IncrementalViewMaintainer.create(view, this, db);
+    if (maintainer == null) {
+      incrementalViews.remove(view.getName());
+      if (nonIncrementalViews.add(view.getName())) {
+        OLogManager.instance().info(this,
+            "View %s cannot be maintained incrementally (only filters, projections and GROUP BY with count(), sum(), avg(), min() and max() on the fields of a single class are supported), it will be rebuilt in batch",
+            view.getName());
+      }
+      return null;
+    }
+    incrementalViews.put(view.getName(), maintainer);
+    return maintainer;
+  }
+
+  /**
+   * Applies to the incremental views the changes committed since the last run
+   */
+  private synchronized void applyIncrementalChanges(ODatabaseDocumentInternal db) {
+    if (incrementalViews.isEmpty()) {
+      return;
+    }
+    OSchema schema = db.getMetadata().getSchema();
+    for (IncrementalViewMaintainer maintainer : incrementalViews.values()) {
+      OView view = schema.getView(maintainer.getViewName());
+      if (view == null || !OViewConfig.UPDATE_STRATEGY_INCREMENTAL.equalsIgnoreCase(view.getUpdateStrategy()) || !maintainer
+          .getQuery().equals(view.getQuery())) {
+        incrementalViews.remove(maintainer.getViewName(), maintainer);
+        continue;
+      }
+      if (!maintainer.isReady() || !buildOnThisNode(db, view.getName())) {
+        continue;
+      }
+      try {
+        OScenarioThreadLocal.executeAsDistributed(() -> {
+          maintainer.applyChanges(db);
+          return null;
+        });
+      } catch (Exception e) {
+        OLogManager.instance().warn(this, "Failed to apply changes to view %s, the view will be rebuilt", e, view.getName());
+        incrementalViews.remove(maintainer.getViewName(), maintainer);
+      }
+    }
+  }
+
   protected boolean buildOnThisNode(ODatabase db, String name) {
     return true;
   }
@@ -280,10 +359,15 @@ public class ViewManager {
     String clusterName = db.getClusterNameById(cluster);
 
     List<OIndex> indexes = createNewIndexesForView(view, cluster, db);
+    IncrementalViewMaintainer maintainer = getIncrementalMaintainer(view, db);
 
     OScenarioThreadLocal.executeAsDistributed(new Callable<Object>() {
       @Override
       public Object call() {
+        if (maintainer != null) {
+          maintainer.build(db, clusterName, indexes, originRidField);
+          return null;
+        }
 
         OResultSet rs = db.query(query);
         while (rs.hasNext()) {
@@ -299,6 +383,7 @@ public class ViewManager {
     view = db.getMetadata().getSchema().getView(view.getName());
     if (view == null) {
       //the view was dropped in the meantime
+      incrementalViews.remove(viewName);
       db.dropCluster(clusterName);
       indexes.forEach(x -> x.delete());
       return;
@@ -329,7 +414,7 @@ public class ViewManager {
 
   }
 
-  private void addItemToView(OResult item, ODatabaseDocument db, String originRidField, String viewName, String clusterName,
+  OElement addItemToView(OResult item, ODatabaseDocument db, String originRidField, String viewName, String clusterName,
       List<OIndex> indexes) {
     OElement newRow = copyElement(item, db);
     if (originRidField != null) {
@@ -339,9 +424,10 @@ public class ViewManager {
     db.save(newRow, clusterName);
 
     indexes.forEach(idx -> idx.put(indexedKeyFor(idx, newRow), newRow));
+    return newRow;
   }
 
-  private Object indexedKeyFor(OIndex idx, OElement newRow) {
+  Object indexedKeyFor(OIndex idx, OElement newRow) {
     List<String> fieldsToIndex = idx.getDefinition().getFieldsToIndex();
     if (fieldsToIndex.size() == 1) {
       return idx.getDefinition().createValue((Object) newRow.getProperty(fieldsToIndex.get(0)));
@@ -451,14 +537,67 @@ public class ViewManager {
 
   public void recordAdded(OImmutableClass clazz, ODocument doc, ODatabaseDocumentEmbedded oDatabaseDocumentEmbedded) {
     lastChangePerClass.put(clazz.getName().toLowerCase(Locale.ENGLISH), System.currentTimeMillis());
+    if (!incrementalViews.isEmpty()) {
+      captureChange(clazz, doc, null, toResult(doc), oDatabaseDocumentEmbedded);
+    }
   }
 
   public void recordUpdated(OImmutableClass clazz, ODocument doc, ODatabaseDocumentEmbedded oDatabaseDocumentEmbedded) {
     lastChangePerClass.put(clazz.getName().toLowerCase(Locale.ENGLISH), System.currentTimeMillis());
+    if (!incrementalViews.isEmpty()) {
+      captureChange(clazz, doc, OLiveQueryHookV2.calculateBefore(doc), toResult(doc), oDatabaseDocumentEmbedded);
+    }
   }
 
   public void recordDeleted(OImmutableClass clazz, ODocument doc, ODatabaseDocumentEmbedded oDatabaseDocumentEmbedded) {
     lastChangePerClass.put(clazz.getName().toLowerCase(Locale.ENGLISH), System.currentTimeMillis());
+    if (!incrementalViews.isEmpty()) {
+      captureChange(clazz, doc, OLiveQueryHookV2.calculateBefore(doc), null, oDatabaseDocumentEmbedded);
+    }
+  }
+
+  private void captureChange(OImmutableClass clazz, ODocument doc, OResult before, OResult after, ODatabaseDocument db) {
+    for (IncrementalViewMaintainer maintainer : incrementalViews.values()) {
+      if (!maintainer.isAffectedBy(clazz)) {
+        continue;
+      }
+      IncrementalViewMaintainer.Change change = maintainer.capture(doc, before, after);
+      Map<ChangeKey, IncrementalViewMaintainer.Change> changes = pendingChanges.computeIfAbsent(db, x -> new LinkedHashMap<>());
+      ChangeKey key = new ChangeKey(doc, maintainer);
+      IncrementalViewMaintainer.Change previous = changes.get(key);
+      if (previous == null) {
+        changes.put(key, change);
+      } else if (!previous.merge(change)) {
+        changes.remove(key);
+      }
+    }
+  }
+
+  private static OResult toResult(ODocument doc) {
+    OResultInternal result = new OResultInternal();
+    for (String prop : doc.getPropertyNames()) {
+      result.setProperty(prop, OLiveQueryHookV2.unboxRidbags(doc.getProperty(prop)));
+    }
+    result.setProperty("@rid", doc.getIdentity());
+    result.setProperty("@class", doc.getClassName());
+    return result;
+  }
+
+  /**
+   * Hands the changes made by a transaction to the incremental views, after the commit
+   */
+  public void notifyForTxChanges(ODatabaseDocument db) {
+    Map<ChangeKey, IncrementalViewMaintainer.Change> changes = pendingChanges.remove(db);
+    if (changes != null) {
+      changes.values().forEach(x -> x.getMaintainer().enqueue(x));
+    }
+  }
+
+  /**
+   * Discards the changes made by a transaction, after a rollback
+   */
+  public void removePendingDatabaseOps(ODatabaseDocument db) {
+    pendingChanges.remove(db);
   }
 
   public String getViewFromOldCluster(int clusterId) {
@@ -482,6 +621,34 @@ public class ViewManager {
     item.incrementAndGet();
   }
 
+  /**
+   * Identifies the pending change of a record for a view. The record is compared by instance, because its RID can still be
+   * temporary.
+   */
+  private static final class ChangeKey {
+    private final ODocument                 record;
+    private final IncrementalViewMaintainer maintainer;
+
+    private ChangeKey(ODocument record, IncrementalViewMaintainer maintainer) {
+      this.record = record;
+      this.maintainer = maintainer;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof ChangeKey)) {
+        return false;
+      }
+      ChangeKey other = (ChangeKey) o;
+      return record == other.record && maintainer == other.maintainer;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(record) + System.identityHashCode(maintainer);
+    }
+  }
+
   private class ViewUpdateListener implements OLiveQueryResultListener {
     private final String viewName;
 
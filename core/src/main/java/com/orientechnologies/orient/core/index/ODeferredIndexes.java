@@ -0,0 +1,156 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.index;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Drops indexes that are going to be built again in bulk after a massive write (a streaming insert, a graph bulk load), keeping
+ * their configuration in a storage property until they are created again. If the process stops before the indexes are created
+ * again, they are created when the database is opened the next time.
+ */
+public class ODeferredIndexes {
+
+  public static final String STORAGE_PROPERTY = "deferredIndexes";
+
+  private static final String INDEXES = "indexes";
+
+  private ODeferredIndexes() {
+  }
+
+  /**
+   * saves the configuration of the indexes in the storage, then drops them
+   *
+   * @return the configurations of the dropped indexes, to pass to {@link #create(ODatabaseDocumentInternal, List)}
+   */
+  public static List<ODocument> drop(ODatabaseDocumentInternal db, Collection<? extends OIndex<?>> indexes) {
+    List<ODocument> result = new ArrayList<>(indexes.size());
+    for (OIndex<?> index : indexes) {
+      result.add(index.getConfiguration().copy());
+    }
+    if (result.isEmpty()) {
+      return result;
+    }
+
+    OStorage storage = db.getStorage();
+    synchronized (storage) {
+      List<ODocument> saved = load(storage);
+      saved.addAll(result);
+      save(storage, saved);
+    }
+
+    OIndexManagerAbstract indexManager = db.getMetadata().getIndexManagerInternal();
+    for (ODocument config : result) {
+      indexManager.dropIndex(db, config.field(OIndexInternal.CONFIG_NAME));
+    }
+    return result;
+  }
+
+  /**
+   * creates again the dropped indexes, that are built from the records of their clusters, and removes their configuration from the
+   * storage. An index that cannot be created (eg. for a violation of a unique constraint) is not tried again: the error is logged and
+   * the first one is thrown after trying all the indexes
+   */
+  public static void create(ODatabaseDocumentInternal db, List<ODocument> configs) {
+    OIndexManagerAbstract indexManager = db.getMetadata().getIndexManagerInternal();
+    RuntimeException firstError = null;
+    for (ODocument config : configs) {
+      String name = config.field(OIndexInternal.CONFIG_NAME);
+      try {
+        if (indexManager.getIndex(db, name) == null) {
+          OLogManager.instance().info(ODeferredIndexes.class, "Rebuilding deferred index '%s'", name);
+          String type = config.field(OIndexInternal.CONFIG_TYPE);
+          String algorithm = config.field(OIndexInternal.ALGORITHM);
+          OIndexMetadata indexMetadata = OIndexAbstract.loadMetadataInternal(config, type, algorithm, null);
+          int[] clusterIds = indexMetadata.getClustersToIndex().stream().mapToInt(db::getClusterIdByName).filter(id -> id >= 0)
+              .toArray();
+          ODocument metadata = config.field(OIndexInternal.METADATA, OType.EMBEDDED);
+          indexManager.createIndex(db, name, type, indexMetadata.getIndexDefinition(), clusterIds, null, metadata, algorithm);
+        }
+      } catch (RuntimeException e) {
+        OLogManager.instance().error(ODeferredIndexes.class, "Error on rebuilding deferred index '%s'", e, name);
+        if (firstError == null) {
+          firstError = e;
+        }
+      } finally {
+        OStorage storage = db.getStorage();
+        synchronized (storage) {
+          List<ODocument> saved = load(storage);
+          saved.removeIf(x -> name.equals(x.field(OIndexInternal.CONFIG_NAME)));
+          save(storage, saved);
+        }
+      }
+    }
+    if (firstError != null) {
+      throw firstError;
+    }
+  }
+
+  /**
+   * creates the indexes left dropped by a massive write that did not complete, called when the database is opened. An error is
+   * logged and does not prevent the open
+   */
+  public static void recover(ODatabaseDocumentInternal db) {
+    List<ODocument> saved;
+    synchronized (db.getStorage()) {
+      saved = load(db.getStorage());
+    }
+    if (!saved.isEmpty()) {
+      OLogManager.instance()
+          .warn(ODeferredIndexes.class, "Database '%s': %d indexes were dropped by a massive write that did not complete, creating them",
+              db.getName(), saved.size());
+      try {
+        create(db, saved);
+      } catch (RuntimeException ignore) {
+        // already logged
+      }
+    }
+  }
+
+  private static List<ODocument> load(OStorage storage) {
+    String value = storage.getConfiguration().getProperty(STORAGE_PROPERTY);
+    List<ODocument> result = new ArrayList<>();
+    if (value != null && !value.isEmpty()) {
+      List<ODocument> saved = new ODocument().fromJSON(value).field(INDEXES, OType.EMBEDDEDLIST);
+      if (saved != null) {
+        result.addAll(saved);
+      }
+    }
+    return result;
+  }
+
+  private static void save(OStorage storage, List<ODocument> configs) {
+    if (configs.isEmpty()) {
+      storage.removeProperty(STORAGE_PROPERTY);
+    } else {
+      ODocument doc = new ODocument();
+      doc.field(INDEXES, configs, OType.EMBEDDEDLIST);
+      storage.setProperty(STORAGE_PROPERTY, doc.toJSON());
+    }
+  }
+}
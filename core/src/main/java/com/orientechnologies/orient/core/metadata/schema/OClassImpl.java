@@ -44,6 +44,7 @@ import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sharding.auto.OAutoShardingClusterSelectionStrategy;
 import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import com.orientechnologies.orient.core.sql.parser.OQueryResultCache;
 import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
 import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.OStorage;
@@ -656,6 +657,7 @@ public abstract class OClassImpl implements OClass {
       final ORecord record = iteratorCluster.next();
       record.delete();
     }
+    OQueryResultCache.invalidate(database, Collections.singleton(database.getClusterIdByName(clusterName)));
   }
 
   public Collection<OClass> getSubclasses() {
@@ -864,6 +866,12 @@ public abstract class OClassImpl implements OClass {
           record.delete();
         }
       }
+
+      final List<Integer> truncated = new ArrayList<Integer>(clusterIds.length);
+      for (int id : clusterIds) {
+        truncated.add(id);
+      }
+      OQueryResultCache.invalidate(db, truncated);
     } finally {
       releaseSchemaReadLock();
     }
@@ -9,8 +9,13 @@ public class OViewConfig {
   /**
    * default
    */
-  public static String UPDATE_STRATEGY_BATCH = "batch";
-  public static String UPDATE_STRATEGY_LIVE  = "live";
+  public static String UPDATE_STRATEGY_BATCH       = "batch";
+  public static String UPDATE_STRATEGY_LIVE        = "live";
+  /**
+   * the view is built once, then the changes of the records of the target class are applied to it as deltas. Views that cannot
+   * be maintained incrementally are rebuilt in batch
+   */
+  public static String UPDATE_STRATEGY_INCREMENTAL = "incremental";
 
   public static class OViewIndexConfig {
 
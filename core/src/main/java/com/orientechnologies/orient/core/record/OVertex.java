@@ -33,6 +33,12 @@ public interface OVertex extends OElement {
 
   Iterable<OEdge> getEdges(ODirection direction, OClass... type);
 
+  /**
+   * Returns the edges of the given class and direction that have the given value for the given property. On vertices with many
+   * edges, the edges are looked up in an index of the edge class on (out, property) or (in, property) when one is defined.
+   */
+  Iterable<OEdge> getEdgesByProperty(ODirection direction, String type, String propertyName, Object value);
+
   Iterable<OVertex> getVertices(ODirection direction);
 
   Iterable<OVertex> getVertices(ODirection direction, String... type);
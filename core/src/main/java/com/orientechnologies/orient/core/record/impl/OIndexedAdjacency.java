@@ -0,0 +1,240 @@
+/*
+ *
+ *  *  Copyright 2016 OrientDB LTD (info(at)orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://www.orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.record.impl;
+
+import com.orientechnologies.common.collection.OMultiCollectionIterator;
+import com.orientechnologies.common.util.OSizeable;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexCursor;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.OEdge;
+import com.orientechnologies.orient.core.record.OElement;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorEquals;
+
+import java.util.*;
+
+/**
+ * Indexed adjacency of the vertices with many edges (supernodes): instead of scanning all the edges of a class, the edges that
+ * match a condition are looked up in an index of the edge class.
+ * <p>
+ * An index on <code>(out, &lt;property&gt;)</code> (or <code>(in, &lt;property&gt;)</code> for the incoming edges) seeks the
+ * edges of a vertex by the value of an edge property. An ordered index on <code>(out, in)</code> (or <code>(in, out)</code>)
+ * seeks the edges of a vertex by the class of the opposite vertex, as a range of RIDs for each cluster of the class.
+ * <p>
+ * The seek methods return <code>null</code> when the edge class has no suitable index, the caller is then expected to scan the
+ * edges of the vertex.
+ */
+public final class OIndexedAdjacency {
+
+  private OIndexedAdjacency() {
+  }
+
+  /**
+   * Returns true if the vertex has more edges of the given class and direction than the threshold configured with {@link
+   * OGlobalConfiguration#QUERY_INDEXED_ADJACENCY_THRESHOLD}, so that seeking them in an index is worth it.
+   */
+  public static boolean isSupernode(OVertex vertex, ODirection direction, String label) {
+    int threshold = getThreshold();
+    if (threshold < 0) {
+      return false;
+    }
+    if (direction == ODirection.BOTH) {
+      return countEdges(vertex, ODirection.OUT, label) + countEdges(vertex, ODirection.IN, label) > threshold;
+    }
+    return countEdges(vertex, direction, label) > threshold;
+  }
+
+  /**
+   * Returns the edges of the given class and direction that have the given value for the given property. The edges are looked up
+   * in an index of the edge class if the vertex is a supernode, otherwise they are filtered.
+   */
+  public static Iterable<OEdge> getEdgesByProperty(OVertex vertex, ODirection direction, String label, String propertyName,
+      Object value) {
+    if (isSupernode(vertex, direction, label)) {
+      Iterable<OEdge> result = getEdges(vertex, direction, label, propertyName, value);
+      if (result != null) {
+        return result;
+      }
+    }
+    List<OEdge> result = new ArrayList<>();
+    for (OEdge edge : vertex.getEdges(direction, label)) {
+      if (OQueryOperatorEquals.equals(edge.getProperty(propertyName), value)) {
+        result.add(edge);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Seeks the edges of the given class and direction that have the given value for the given property.
+   *
+   * @return the edges, or null if the edge class has no index on the direction and the property
+   */
+  public static Iterable<OEdge> getEdges(OVertex vertex, ODirection direction, String label, String propertyName, Object value) {
+    if (direction == ODirection.BOTH) {
+      Iterable<OEdge> out = getEdges(vertex, ODirection.OUT, label, propertyName, value);
+      Iterable<OEdge> in = out == null ? null : getEdges(vertex, ODirection.IN, label, propertyName, value);
+      return in == null ? null : new OMultiCollectionIterator<OEdge>().add(out).add(in);
+    }
+    OIndex<?> index = getIndex(label, directionField(direction), propertyName);
+    if (index == null) {
+      return null;
+    }
+    Object key = index.getDefinition().createValue(vertex.getIdentity(), value);
+    if (key == null) {
+      return Collections.emptyList();
+    }
+    Object indexResult = index.get(key);
+    if (indexResult == null) {
+      return Collections.emptyList();
+    }
+    if (indexResult instanceof OIdentifiable) {
+      indexResult = Collections.singleton(indexResult);
+    }
+    List<OIdentifiable> rids = new ArrayList<>();
+    for (Object rid : (Iterable<?>) indexResult) {
+      rids.add((OIdentifiable) rid);
+    }
+    return toEdges(rids, label);
+  }
+
+  /**
+   * Seeks the edges of the given class and direction whose opposite vertex belongs to the given class (polymorphically).
+   *
+   * @return the edges, or null if the edge class has no ordered index on the two vertices
+   */
+  public static Iterable<OEdge> getEdgesToClass(OVertex vertex, ODirection direction, String label, OClass oppositeClass) {
+    if (direction == ODirection.BOTH) {
+      Iterable<OEdge> out = getEdgesToClass(vertex, ODirection.OUT, label, oppositeClass);
+      Iterable<OEdge> in = out == null ? null : getEdgesToClass(vertex, ODirection.IN, label, oppositeClass);
+      return in == null ? null : new OMultiCollectionIterator<OEdge>().add(out).add(in);
+    }
+    OIndex<?> index = getIndex(label, directionField(direction), directionField(direction.opposite()));
+    if (index == null || !index.supportsOrderedIterations()) {
+      return null;
+    }
+    List<OIdentifiable> rids = new ArrayList<>();
+    for (int clusterId : oppositeClass.getPolymorphicClusterIds()) {
+      OCompositeKey from = new OCompositeKey(vertex.getIdentity(), new ORecordId(clusterId, 0));
+      OCompositeKey to = new OCompositeKey(vertex.getIdentity(), new ORecordId(clusterId, Long.MAX_VALUE));
+      OIndexCursor cursor = index.iterateEntriesBetween(from, true, to, true, true);
+      Map.Entry<Object, OIdentifiable> entry;
+      while ((entry = cursor.nextEntry()) != null) {
+        rids.add(entry.getValue());
+      }
+    }
+    return toEdges(rids, label);
+  }
+
+  /**
+   * Returns the number of edges of the given class and direction stored in the vertex, or -1 if it cannot be computed without
+   * loading the edges.
+   */
+  public static int countEdges(OVertex vertex, ODirection direction, String label) {
+    Object value = vertex.getProperty(OVertexDocument.getConnectionFieldName(direction, label, true));
+    if (value == null) {
+      return 0;
+    }
+    if (value instanceof OIdentifiable) {
+      return 1;
+    }
+    if (value instanceof OSizeable) {
+      return ((OSizeable) value).size();
+    }
+    if (value instanceof Collection) {
+      return ((Collection) value).size();
+    }
+    return -1;
+  }
+
+  private static int getThreshold() {
+    ODatabaseDocumentInternal db = ODatabaseRecordThreadLocal.instance().getIfDefined();
+    if (db == null) {
+      return OGlobalConfiguration.QUERY_INDEXED_ADJACENCY_THRESHOLD.getValueAsInteger();
+    }
+    return db.getConfiguration().getValueAsInteger(OGlobalConfiguration.QUERY_INDEXED_ADJACENCY_THRESHOLD);
+  }
+
+  private static String directionField(ODirection direction) {
+    return direction == ODirection.OUT ? "out" : "in";
+  }
+
+  private static OIndex<?> getIndex(String label, String vertexField, String otherField) {
+    ODatabaseDocumentInternal db = ODatabaseRecordThreadLocal.instance().getIfDefined();
+    if (db == null) {
+      return null;
+    }
+    OClass edgeClass = db.getMetadata().getImmutableSchemaSnapshot().getClass(label == null ? "E" : label);
+    if (edgeClass == null) {
+      return null;
+    }
+    for (OIndex<?> index : edgeClass.getIndexes()) {
+      List<String> fields = index.getDefinition().getFields();
+      if (fields.size() == 2 && fields.get(0).equalsIgnoreCase(vertexField) && fields.get(1).equalsIgnoreCase(otherField)) {
+        return index;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Loads the edges, skipping the ones that do not belong to the edge class: an index defined on a superclass also contains the
+   * edges of the sibling classes.
+   */
+  private static Iterable<OEdge> toEdges(List<OIdentifiable> rids, String label) {
+    return () -> new Iterator<OEdge>() {
+      private final Iterator<OIdentifiable> iterator = rids.iterator();
+      private OEdge nextEdge;
+
+      @Override
+      public boolean hasNext() {
+        while (nextEdge == null && iterator.hasNext()) {
+          ORecord record = iterator.next().getRecord();
+          if (record instanceof OElement) {
+            OEdge edge = ((OElement) record).asEdge().orElse(null);
+            if (edge != null && (label == null || edge.getSchemaType().map(c -> c.isSubClassOf(label)).orElse(false))) {
+              nextEdge = edge;
+            }
+          }
+        }
+        return nextEdge != null;
+      }
+
+      @Override
+      public OEdge next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        OEdge result = nextEdge;
+        nextEdge = null;
+        return result;
+      }
+    };
+  }
+}
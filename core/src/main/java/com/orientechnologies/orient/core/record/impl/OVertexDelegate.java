@@ -145,6 +145,11 @@ public class OVertexDelegate implements OVertex {
 
   }
 
+  @Override
+  public Iterable<OEdge> getEdgesByProperty(ODirection direction, String type, String propertyName, Object value) {
+    return OIndexedAdjacency.getEdgesByProperty(this, direction, type, propertyName, value);
+  }
+
   @Override
   public Iterable<OVertex> getVertices(ODirection direction) {
 
@@ -164,6 +164,11 @@ public class OVertexDocument extends ODocument implements OVertex {
 
   }
 
+  @Override
+  public Iterable<OEdge> getEdgesByProperty(ODirection direction, String type, String propertyName, Object value) {
+    return OIndexedAdjacency.getEdgesByProperty(this, direction, type, propertyName, value);
+  }
+
   @Override
   public Iterable<OVertex> getVertices(ODirection direction) {
     return getVertices(direction, (String[]) null);
@@ -20,6 +20,7 @@ import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.serialization.types.OByteSerializer;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
@@ -344,13 +345,19 @@ public class HelperClasses {
     if (uuid != null)
       configByte |= 2;
 
+    boolean compact = ridbag.isEmbedded() && OGlobalConfiguration.RID_BAG_EMBEDDED_COMPACT_FORMAT.getValueAsBoolean();
+    if (compact)
+      configByte |= 4;
+
     //alloc will move offset and do skip
     int posForWrite = bytes.alloc(OByteSerializer.BYTE_SIZE);
     OByteSerializer.INSTANCE.serialize(configByte, bytes.bytes, posForWrite);
 
     //removed serializing UUID
 
-    if (ridbag.isEmbedded()) {
+    if (compact) {
+      writeCompactEmbeddedRidbag(bytes, ridbag);
+    } else if (ridbag.isEmbedded()) {
       writeEmbeddedRidbag(bytes, ridbag);
     } else {
       writeSBTreeRidbag(bytes, ridbag, ownerUuid);
@@ -383,6 +390,41 @@ public class HelperClasses {
     }
   }
 
+  protected static void writeCompactEmbeddedRidbag(BytesContainer bytes, ORidBag ridbag) {
+    OVarIntSerializer.write(bytes, ridbag.size());
+    OEmbeddedRidBag delegate = (OEmbeddedRidBag) ridbag.getDelegate();
+    byte[] encoded = delegate.getEncodedEntries();
+    if (encoded != null) {
+      // NOT DECODED SINCE IT WAS READ: WRITE IT AS IT IS
+      OCompactRidBagSerializer.writeEncoded(bytes, encoded);
+      return;
+    }
+    Object[] entries = delegate.getEntries();
+    ORID[] rids = new ORID[ridbag.size()];
+    int count = 0;
+    ODatabaseDocumentInternal db = ODatabaseRecordThreadLocal.instance().getIfDefined();
+    for (int i = 0; i < entries.length; i++) {
+      Object entry = entries[i];
+      if (entry instanceof OIdentifiable) {
+        OIdentifiable itemValue = (OIdentifiable) entry;
+        final ORID rid = itemValue.getIdentity();
+        if (db != null && !db.isClosed() && db.getTransaction().isActive() && !itemValue.getIdentity().isPersistent()) {
+          itemValue = db.getTransaction().getRecord(itemValue.getIdentity());
+        }
+        if (itemValue == null) {
+          //should never happen
+          String errorMessage = "Found null entry in ridbag with rid=" + rid;
+          OSerializationException exc = new OSerializationException(errorMessage);
+          OLogManager.instance().error(ORecordSerializerBinaryV1.class, errorMessage, null);
+          throw exc;
+        }
+        entries[i] = itemValue.getIdentity();
+        rids[count++] = itemValue.getIdentity();
+      }
+    }
+    OCompactRidBagSerializer.write(bytes, count == rids.length ? rids : Arrays.copyOf(rids, count));
+  }
+
   protected static void writeSBTreeRidbag(BytesContainer bytes, ORidBag ridbag, UUID ownerUuid) {
     ((OSBTreeRidBag) ridbag.getDelegate()).applyNewEntries();
 
@@ -449,7 +491,12 @@ public class HelperClasses {
     //removed deserializing UUID
 
     ORidBag ridbag = null;
-    if (isEmbedded) {
+    if (isEmbedded && (configByte & 4) != 0) {
+      ridbag = new ORidBag();
+      int size = OVarIntSerializer.readAsInteger(bytes);
+      ridbag.getDelegate().setSize(size);
+      ((OEmbeddedRidBag) ridbag.getDelegate()).setEncodedEntries(OCompactRidBagSerializer.read(bytes));
+    } else if (isEmbedded) {
       ridbag = new ORidBag();
       int size = OVarIntSerializer.readAsInteger(bytes);
       ridbag.getDelegate().setSize(size);
@@ -461,8 +508,9 @@ public class HelperClasses {
       long fileId = OVarIntSerializer.readAsLong(bytes);
       long pageIndex = OVarIntSerializer.readAsLong(bytes);
       int pageOffset = OVarIntSerializer.readAsInteger(bytes);
-      //read bag size
-      OVarIntSerializer.readAsInteger(bytes);
+      // the size of the bag when the owner record was written, changes included: it is the degree counter of the vertex field,
+      // written in the same atomic operation as the tree, so size() does not need to walk the tree
+      int size = OVarIntSerializer.readAsInteger(bytes);
 
       OBonsaiCollectionPointer pointer = null;
       if (fileId != -1)
@@ -478,7 +526,7 @@ public class HelperClasses {
       }
 
       ridbag = new ORidBag(pointer, changes, uuid);
-      ridbag.getDelegate().setSize(-1);
+      ridbag.getDelegate().setSize(size);
     }
     return ridbag;
   }
@@ -0,0 +1,105 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Compact format of the content of an embedded RidBag. The RIDs are sorted and grouped by cluster: each group stores the cluster
+ * id and the number of RIDs once, then the first position and the deltas between the following positions, all as var ints. The
+ * encoded content is prefixed by its length, so that it can be kept as it is and decoded only when the RidBag is accessed.
+ * <p>
+ * Format: {@code length (unsigned var int), [clusterId (var int), count (unsigned var int), firstPosition (var int), delta
+ * (unsigned var int) * (count - 1)] * groups}
+ */
+public class OCompactRidBagSerializer {
+
+  /**
+   * Writes the RIDs in the compact format. The order of the RIDs is not preserved.
+   */
+  public static void write(BytesContainer bytes, ORID[] rids) {
+    ORID[] sorted = rids.clone();
+    Arrays.sort(sorted);
+
+    BytesContainer groups = new BytesContainer();
+    int i = 0;
+    while (i < sorted.length) {
+      int clusterId = sorted[i].getClusterId();
+      int end = i + 1;
+      while (end < sorted.length && sorted[end].getClusterId() == clusterId) {
+        end++;
+      }
+      OVarIntSerializer.write(groups, clusterId);
+      OVarIntSerializer.writeUnsignedVarLong(end - i, groups);
+      long previous = sorted[i].getClusterPosition();
+      OVarIntSerializer.write(groups, previous);
+      for (int j = i + 1; j < end; j++) {
+        long position = sorted[j].getClusterPosition();
+        OVarIntSerializer.writeUnsignedVarLong(position - previous, groups);
+        previous = position;
+      }
+      i = end;
+    }
+    writeEncoded(bytes, Arrays.copyOf(groups.bytes, groups.offset));
+  }
+
+  /**
+   * Writes content already encoded in the compact format, as returned by {@link #read(BytesContainer)}.
+   */
+  public static void writeEncoded(BytesContainer bytes, byte[] encoded) {
+    OVarIntSerializer.writeUnsignedVarLong(encoded.length, bytes);
+    int pos = bytes.alloc(encoded.length);
+    System.arraycopy(encoded, 0, bytes.bytes, pos, encoded.length);
+  }
+
+  /**
+   * Reads the content in the compact format without decoding it.
+   *
+   * @return the encoded RIDs, to be passed to {@link #decode(byte[], Consumer)}
+   */
+  public static byte[] read(BytesContainer bytes) {
+    int length = (int) OVarIntSerializer.readUnsignedVarLong(bytes);
+    byte[] encoded = Arrays.copyOfRange(bytes.bytes, bytes.offset, bytes.offset + length);
+    bytes.skip(length);
+    return encoded;
+  }
+
+  /**
+   * Decodes the RIDs, sorted by cluster and position.
+   */
+  public static void decode(byte[] encoded, Consumer<ORecordId> consumer) {
+    BytesContainer bytes = new BytesContainer(encoded);
+    while (bytes.offset < encoded.length) {
+      int clusterId = OVarIntSerializer.readAsInteger(bytes);
+      long count = OVarIntSerializer.readUnsignedVarLong(bytes);
+      long position = OVarIntSerializer.readAsLong(bytes);
+      consumer.accept(new ORecordId(clusterId, position));
+      for (long i = 1; i < count; i++) {
+        position += OVarIntSerializer.readUnsignedVarLong(bytes);
+        consumer.accept(new ORecordId(clusterId, position));
+      }
+    }
+  }
+}
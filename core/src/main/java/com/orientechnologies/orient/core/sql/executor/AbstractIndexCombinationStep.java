@@ -0,0 +1,300 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.concur.OTimeoutException;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ORecord;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Base class for the steps that combine the RIDs returned by multiple index lookups (see {@link IndexIntersectionStep} and {@link
+ * IndexUnionStep}) before fetching the records. Each sub-plan is an index fetch (see {@link FetchFromIndexStep}), the RIDs are
+ * collected in {@link ORidBitmap}s, without duplicates, and their records are loaded in RID order, in batches.
+ * <p>
+ * RIDs of records created in the current transaction are not persistent, so they are kept in a separate set.
+ */
+public abstract class AbstractIndexCombinationStep extends AbstractExecutionStep {
+
+  protected final List<OInternalExecutionPlan> subExecutionPlans;
+  protected final int[]                        filterClusterIds;
+
+  //runtime
+  private Iterator<ORID> ridIterator;
+  private Deque<OResult> buffer = new ArrayDeque<>();
+  private long           reservedMemory;
+  private long           cost = 0;
+
+  /**
+   * @param subExecutionPlans the index fetches, the cheapest first
+   * @param filterClusterIds  only return RIDs of these clusters. Pass null if no filtering is needed
+   * @param ctx               the execution context
+   * @param profilingEnabled  enable profiling
+   */
+  public AbstractIndexCombinationStep(List<OInternalExecutionPlan> subExecutionPlans, int[] filterClusterIds, OCommandContext ctx,
+      boolean profilingEnabled) {
+    super(ctx, profilingEnabled);
+    this.subExecutionPlans = subExecutionPlans;
+    this.filterClusterIds = filterClusterIds;
+  }
+
+  /**
+   * Combines the RIDs collected so far with the ones returned by the next index fetch
+   *
+   * @param current the RIDs collected so far
+   * @param rids    the RIDs returned by the index fetch
+   *
+   * @return the combined RIDs
+   */
+  protected abstract ORidBitmap combine(ORidBitmap current, ORidBitmap rids);
+
+  /**
+   * Same as {@link #combine(ORidBitmap, ORidBitmap)}, for the non persistent RIDs. The result is stored in <code>current</code>
+   */
+  protected abstract void combineTemporary(Set<ORID> current, Set<ORID> rids);
+
+  /**
+   * @return true if the result cannot change fetching other indexes (eg. an empty intersection)
+   */
+  protected boolean isComplete(ORidBitmap current, Set<ORID> currentTemporary) {
+    return false;
+  }
+
+  protected abstract String getHeader();
+
+  @Override
+  public OResultSet syncPull(OCommandContext ctx, int nRecords) throws OTimeoutException {
+    getPrev().ifPresent(x -> x.syncPull(ctx, nRecords));
+    if (ridIterator == null) {
+      long begin = profilingEnabled ? System.nanoTime() : 0;
+      try {
+        ridIterator = fetchRids(ctx);
+      } finally {
+        if (profilingEnabled) {
+          cost += (System.nanoTime() - begin);
+        }
+      }
+    }
+    return new OResultSet() {
+      private int localCount = 0;
+
+      @Override
+      public boolean hasNext() {
+        if (localCount >= nRecords) {
+          return false;
+        }
+        while (buffer.isEmpty() && ridIterator.hasNext()) {
+          fillBuffer();
+        }
+        return !buffer.isEmpty();
+      }
+
+      /**
+       * loads the records of the next RIDs together, so that they are read from the storage in a single batch, sorted by physical
+       * position. The records deleted after the index lookup, or not visible to the current user, are skipped
+       */
+      private void fillBuffer() {
+        int batchSize = Math
+            .max(1, Math.min(OGlobalConfiguration.QUERY_FETCH_BATCH_SIZE.getValueAsInteger(), nRecords - localCount));
+        List<ORID> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize && ridIterator.hasNext()) {
+          batch.add(ridIterator.next());
+        }
+        List<ORecord> records = ((ODatabaseDocumentInternal) ctx.getDatabase()).loadRecords(batch);
+        for (ORecord record : records) {
+          if (record != null) {
+            OResultInternal result = new OResultInternal();
+            result.setElement(record);
+            buffer.add(result);
+          }
+        }
+      }
+
+      @Override
+      public OResult next() {
+        if (!hasNext()) {
+          throw new IllegalStateException();
+        }
+        localCount++;
+        OResult result = buffer.poll();
+        ctx.setVariable("$current", result);
+        return result;
+      }
+
+      @Override
+      public void close() {
+
+      }
+
+      @Override
+      public Optional<OExecutionPlan> getExecutionPlan() {
+        return Optional.empty();
+      }
+
+      @Override
+      public Map<String, Long> getQueryStats() {
+        return null;
+      }
+    };
+  }
+
+  private Iterator<ORID> fetchRids(OCommandContext ctx) {
+    ORidBitmap result = null;
+    Set<ORID> resultTemporary = null;
+    for (OInternalExecutionPlan subPlan : subExecutionPlans) {
+      if (timedOut) {
+        break;
+      }
+      ORidBitmap rids = new ORidBitmap();
+      Set<ORID> temporary = new LinkedHashSet<>();
+      while (true) {
+        OResultSet block = subPlan.fetchNext(100);
+        if (!block.hasNext()) {
+          break;
+        }
+        while (block.hasNext()) {
+          Object value = block.next().getProperty("rid");
+          if (!(value instanceof OIdentifiable)) {
+            continue;
+          }
+          ORID rid = ((OIdentifiable) value).getIdentity();
+          if (!matchesClusterFilter(rid)) {
+            continue;
+          }
+          if (rid.isPersistent()) {
+            rids.add(rid);
+          } else {
+            temporary.add(rid);
+          }
+        }
+      }
+      subPlan.close();
+      if (result == null) {
+        result = rids;
+        resultTemporary = temporary;
+        reserve(ctx, result.sizeInBytes());
+      } else {
+        reserve(ctx, rids.sizeInBytes());
+        ORidBitmap combined = combine(result, rids);
+        reserve(ctx, combined.sizeInBytes());
+        release(ctx, result.sizeInBytes() + rids.sizeInBytes());
+        result = combined;
+        combineTemporary(resultTemporary, temporary);
+      }
+      if (isComplete(result, resultTemporary)) {
+        break;
+      }
+    }
+    if (result == null) {
+      return Collections.emptyIterator();
+    }
+    Iterator<ORID> persistent = result.iterator();
+    Iterator<ORID> temporary = resultTemporary.iterator();
+    return new Iterator<ORID>() {
+      @Override
+      public boolean hasNext() {
+        return persistent.hasNext() || temporary.hasNext();
+      }
+
+      @Override
+      public ORID next() {
+        return persistent.hasNext() ? persistent.next() : temporary.next();
+      }
+    };
+  }
+
+  private void reserve(OCommandContext ctx, long bytes) {
+    if (bytes > 0) {
+      ctx.reserveMemory(bytes);
+      reservedMemory += bytes;
+    }
+  }
+
+  private void release(OCommandContext ctx, long bytes) {
+    bytes = Math.min(bytes, reservedMemory);
+    ctx.releaseMemory(bytes);
+    reservedMemory -= bytes;
+  }
+
+  private boolean matchesClusterFilter(ORID rid) {
+    if (filterClusterIds == null || rid.getClusterId() < 0) {
+      return true;
+    }
+    for (int filterClusterId : filterClusterIds) {
+      if (filterClusterId == rid.getClusterId()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void close() {
+    ctx.releaseMemory(reservedMemory);
+    reservedMemory = 0;
+    ridIterator = null;
+    buffer.clear();
+    super.close();
+  }
+
+  @Override
+  public String prettyPrint(int depth, int indent) {
+    String spaces = OExecutionStepInternal.getIndent(depth, indent);
+    StringBuilder result = new StringBuilder();
+    result.append(spaces);
+    result.append("+ ");
+    result.append(getHeader());
+    if (profilingEnabled) {
+      result.append(" (" + getCostFormatted() + ")");
+    }
+    if (filterClusterIds != null) {
+      result.append("\n");
+      result.append(spaces);
+      result.append("  filtering clusters [");
+      result.append(Arrays.stream(filterClusterIds).boxed().map(x -> "" + x).collect(Collectors.joining(",")));
+      result.append("]");
+    }
+    for (OInternalExecutionPlan subPlan : subExecutionPlans) {
+      result.append("\n");
+      result.append(subPlan.prettyPrint(depth + 1, indent));
+    }
+    return result.toString();
+  }
+
+  public List<OExecutionPlan> getSubExecutionPlans() {
+    return (List) subExecutionPlans;
+  }
+
+  @Override
+  public long getCost() {
+    return cost;
+  }
+
+  @Override
+  public boolean canBeCached() {
+    for (OInternalExecutionPlan plan : subExecutionPlans) {
+      if (!plan.canBeCached()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  protected List<OInternalExecutionPlan> copySubExecutionPlans(OCommandContext ctx) {
+    return subExecutionPlans.stream().map(x -> x.copy(ctx)).collect(Collectors.toList());
+  }
+}
@@ -2,6 +2,7 @@ package com.orientechnologies.orient.core.sql.executor;
 
 import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.command.OCommandMemoryTracker;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.sql.parser.OExpression;
 import com.orientechnologies.orient.core.sql.parser.OGroupBy;
@@ -21,8 +22,9 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
   private Map<List, OResultInternal> aggregateResults = new LinkedHashMap<>();
   private List<OResultInternal>      finalResults     = null;
 
-  private int  nextItem = 0;
-  private long cost     = 0;
+  private int  nextItem       = 0;
+  private long cost           = 0;
+  private long reservedMemory = 0;
 
   public AggregateProjectionCalculationStep(OProjection projection, OGroupBy groupBy, OCommandContext ctx,
       boolean profilingEnabled) {
@@ -75,6 +77,12 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
     };
   }
 
+  @Override
+  public OResultBatch syncPullBatch(OCommandContext ctx, int nRecords) throws OTimeoutException {
+    // aggregated results are already materialized, the plain projection of the superclass does not apply here
+    return OResultBatch.collect(syncPull(ctx, nRecords), nRecords);
+  }
+
   private void executeAggregation(OCommandContext ctx, int nRecords) {
     if (!prev.isPresent()) {
       throw new OCommandExecutionException("Cannot execute an aggregation or a GROUP BY without a previous result");
@@ -112,6 +120,9 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
       }
       OResultInternal preAggr = aggregateResults.get(key);
       if (preAggr == null) {
+        long size = OCommandMemoryTracker.estimateSize(key) + 64L * this.projection.getItems().size();
+        ctx.reserveMemory(size);
+        reservedMemory += size;
         preAggr = new OResultInternal();
         aggregateResults.put(key, preAggr);
       }
@@ -136,6 +147,13 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
     }
   }
 
+  @Override
+  public void close() {
+    super.close();
+    ctx.releaseMemory(reservedMemory);
+    reservedMemory = 0;
+  }
+
   @Override
   public String prettyPrint(int depth, int indent) {
     String spaces = OExecutionStepInternal.getIndent(depth, indent);
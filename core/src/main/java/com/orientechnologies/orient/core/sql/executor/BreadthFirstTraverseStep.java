@@ -89,7 +89,7 @@ public class BreadthFirstTraverseStep extends AbstractTraverseStep {
     }
   }
 
-  private void addNextEntryPoints(Object nextStep, int depth, List<OIdentifiable> path, OCommandContext ctx) {
+  protected void addNextEntryPoints(Object nextStep, int depth, List<OIdentifiable> path, OCommandContext ctx) {
     if (nextStep instanceof OIdentifiable) {
       addNextEntryPoints(((OIdentifiable) nextStep), depth, path, ctx);
     } else if (nextStep instanceof Iterable) {
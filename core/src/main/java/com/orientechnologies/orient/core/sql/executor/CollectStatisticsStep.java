@@ -0,0 +1,116 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.concur.OTimeoutException;
+import com.orientechnologies.orient.core.command.OCommandContext;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Transparent step used by PROFILE: it wraps a step of the execution plan and collects the {@link OStepStatistics} of the work
+ * done to pull records from it (including the iteration of the returned result sets, that for many steps is where the actual work
+ * happens).
+ */
+public class CollectStatisticsStep extends AbstractExecutionStep implements OBatchExecutionStep {
+
+  private final OExecutionStepInternal wrapped;
+  private final OStepStatistics        statistics;
+
+  public CollectStatisticsStep(OExecutionStepInternal wrapped, OStepStatistics statistics, OCommandContext ctx) {
+    super(ctx, false);
+    this.wrapped = wrapped;
+    this.statistics = statistics;
+  }
+
+  @Override
+  public OResultSet syncPull(OCommandContext ctx, int nRecords) throws OTimeoutException {
+    OResultSet result;
+    statistics.start();
+    try {
+      result = wrapped.syncPull(ctx, nRecords);
+    } finally {
+      statistics.stop();
+    }
+    return new OResultSet() {
+      @Override
+      public boolean hasNext() {
+        statistics.start();
+        try {
+          return result.hasNext();
+        } finally {
+          statistics.stop();
+        }
+      }
+
+      @Override
+      public OResult next() {
+        statistics.start();
+        try {
+          OResult item = result.next();
+          statistics.addRows(1);
+          return item;
+        } finally {
+          statistics.stop();
+        }
+      }
+
+      @Override
+      public void close() {
+        result.close();
+      }
+
+      @Override
+      public Optional<OExecutionPlan> getExecutionPlan() {
+        return result.getExecutionPlan();
+      }
+
+      @Override
+      public Map<String, Long> getQueryStats() {
+        return result.getQueryStats();
+      }
+    };
+  }
+
+  @Override
+  public OResultBatch syncPullBatch(OCommandContext ctx, int nRecords) throws OTimeoutException {
+    if (!(wrapped instanceof OBatchExecutionStep)) {
+      return OResultBatch.collect(syncPull(ctx, nRecords), nRecords);
+    }
+    statistics.start();
+    try {
+      OResultBatch result = ((OBatchExecutionStep) wrapped).syncPullBatch(ctx, nRecords);
+      statistics.addRows(result.size());
+      return result;
+    } finally {
+      statistics.stop();
+    }
+  }
+
+  public OExecutionStepInternal getWrapped() {
+    return wrapped;
+  }
+
+  public OStepStatistics getStatistics() {
+    return statistics;
+  }
+
+  @Override
+  public void sendTimeout() {
+    wrapped.sendTimeout();
+  }
+
+  @Override
+  public void close() {
+    wrapped.close();
+  }
+
+  @Override
+  public String prettyPrint(int depth, int indent) {
+    return wrapped.prettyPrint(depth, indent);
+  }
+
+  @Override
+  public long getCost() {
+    return wrapped.getCost();
+  }
+}
@@ -5,6 +5,7 @@ import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.sql.parser.OIdentifier;
+import com.orientechnologies.orient.core.sql.parser.OQueryResultCache;
 
 import java.util.Map;
 import java.util.Optional;
@@ -58,6 +59,7 @@ public class CountFromClassStep extends AbstractExecutionStep {
           if (clazz == null) {
             throw new OCommandExecutionException("Class " + target.getStringValue() + " does not exist in the database schema");
           }
+          OQueryResultCache.trackClass(clazz);
           long size = clazz.count();
           executed = true;
           OResultInternal result = new OResultInternal();
@@ -5,6 +5,7 @@ import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.sql.parser.OIndexIdentifier;
+import com.orientechnologies.orient.core.sql.parser.OQueryResultCache;
 
 import java.util.Map;
 import java.util.Optional;
@@ -53,6 +54,7 @@ public class CountFromIndexStep extends AbstractExecutionStep {
         try {
           final ODatabaseDocumentInternal database = (ODatabaseDocumentInternal) ctx.getDatabase();
           OIndex<?> idx = database.getMetadata().getIndexManagerInternal().getIndex(database, target.getIndexName());
+          OQueryResultCache.trackClusters(idx.getClusters(), database);
           long size = idx.getSize();
           executed = true;
           OResultInternal result = new OResultInternal();
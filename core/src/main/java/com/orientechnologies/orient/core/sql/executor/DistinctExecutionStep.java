@@ -2,6 +2,7 @@ package com.orientechnologies.orient.core.sql.executor;
 
 import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.command.OCommandMemoryTracker;
 import com.orientechnologies.orient.core.id.ORID;
 
 import java.util.HashSet;
@@ -14,13 +15,17 @@ import java.util.Set;
  */
 public class DistinctExecutionStep extends AbstractExecutionStep {
 
+  // estimated memory used by a RID in the set of visited RIDs
+  private static final long RID_SIZE = 16;
+
   private Set<OResult> pastItems = new HashSet<>();
   private ORidSet      pastRids  = new ORidSet();
 
   private OResultSet lastResult = null;
   private OResult    nextValue;
 
-  private long cost = 0;
+  private long cost           = 0;
+  private long reservedMemory = 0;
 
   public DistinctExecutionStep(OCommandContext ctx, boolean profilingEnabled) {
     super(ctx, profilingEnabled);
@@ -113,13 +118,20 @@ public class DistinctExecutionStep extends AbstractExecutionStep {
       int cluster = identity.getClusterId();
       long pos = identity.getClusterPosition();
       if (cluster >= 0 && pos >= 0) {
+        reserveMemory(RID_SIZE);
         pastRids.add(identity);
         return;
       }
     }
+    reserveMemory(OCommandMemoryTracker.estimateSize(nextValue));
     pastItems.add(nextValue);
   }
 
+  private void reserveMemory(long size) {
+    ctx.reserveMemory(size);
+    reservedMemory += size;
+  }
+
   private boolean alreadyVisited(OResult nextValue) {
     if (nextValue.isElement()) {
       ORID identity = nextValue.getElement().get().getIdentity();
@@ -140,6 +152,8 @@ public class DistinctExecutionStep extends AbstractExecutionStep {
   @Override
   public void close() {
     prev.ifPresent(x -> x.close());
+    ctx.releaseMemory(reservedMemory);
+    reservedMemory = 0;
   }
 
   @Override
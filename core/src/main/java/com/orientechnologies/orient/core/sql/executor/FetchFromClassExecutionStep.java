@@ -12,7 +12,7 @@ import java.util.stream.Collectors;
 /**
  * Created by luigidellaquila on 08/07/16.
  */
-public class FetchFromClassExecutionStep extends AbstractExecutionStep {
+public class FetchFromClassExecutionStep extends AbstractExecutionStep implements OBatchExecutionStep {
 
   protected String               className;
   protected boolean              orderByRidAsc  = false;
@@ -181,6 +181,27 @@ public class FetchFromClassExecutionStep extends AbstractExecutionStep {
 
   }
 
+  @Override
+  public OResultBatch syncPullBatch(OCommandContext ctx, int nRecords) throws OTimeoutException {
+    getPrev().ifPresent(x -> x.syncPull(ctx, nRecords));
+    OResultBatch result = null;
+    while (currentStep < getSubSteps().size()) {
+      int missing = result == null ? nRecords : nRecords - result.size();
+      if (missing <= 0) {
+        break;
+      }
+      OResultBatch block = OResultBatch.pull((OExecutionStepInternal) getSubSteps().get(currentStep), ctx, missing);
+      if (block.isEmpty()) {
+        currentStep++;
+      } else if (result == null) {
+        result = block;
+      } else {
+        result.addAll(block);
+      }
+    }
+    return result == null ? new OResultBatch(0, ctx) : result;
+  }
+
   @Override
   public void sendTimeout() {
     for (OExecutionStep step : getSubSteps()) {
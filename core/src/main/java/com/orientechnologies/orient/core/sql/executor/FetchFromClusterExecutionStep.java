@@ -19,7 +19,7 @@ import java.util.Optional;
 /**
  * @author Luigi Dell'Aquila (l.dellaquila-(at)-orientdb.com)
  */
-public class FetchFromClusterExecutionStep extends AbstractExecutionStep {
+public class FetchFromClusterExecutionStep extends AbstractExecutionStep implements OBatchExecutionStep {
 
   public static final Object ORDER_ASC  = "ASC";
   public static final Object ORDER_DESC = "DESC";
@@ -47,14 +47,7 @@ public class FetchFromClusterExecutionStep extends AbstractExecutionStep {
     getPrev().ifPresent(x -> x.syncPull(ctx, nRecords));
     long begin = profilingEnabled ? System.nanoTime() : 0;
     try {
-      if (iterator == null) {
-        long minClusterPosition = calculateMinClusterPosition();
-        long maxClusterPosition = calculateMaxClusterPosition();
-        iterator = new ORecordIteratorCluster((ODatabaseDocumentInternal) ctx.getDatabase(), clusterId, minClusterPosition, maxClusterPosition);
-        if (ORDER_DESC.equals(order)) {
-          iterator.last();
-        }
-      }
+      initIterator(ctx);
       OResultSet rs = new OResultSet() {
 
         private int nFetched = 0;
@@ -137,6 +130,46 @@ public class FetchFromClusterExecutionStep extends AbstractExecutionStep {
 
   }
 
+  @Override
+  public OResultBatch syncPullBatch(OCommandContext ctx, int nRecords) throws OTimeoutException {
+    getPrev().ifPresent(x -> x.syncPull(ctx, nRecords));
+    long begin = profilingEnabled ? System.nanoTime() : 0;
+    try {
+      initIterator(ctx);
+      OResultBatch result = new OResultBatch(nRecords, ctx);
+      boolean desc = ORDER_DESC.equals(order);
+      for (int nFetched = 0; nFetched < nRecords; nFetched++) {
+        if (nFetched % 100 == 0 && OExecutionThreadLocal.isInterruptCurrentOperation()) {
+          throw new OCommandInterruptedException("The command has been interrupted");
+        }
+        if (desc ? !iterator.hasPrevious() : !iterator.hasNext()) {
+          break;
+        }
+        OResultInternal item = new OResultInternal();
+        item.element = desc ? iterator.previous() : iterator.next();
+        result.add(item);
+      }
+      return result;
+    } finally {
+      if (profilingEnabled) {
+        cost += (System.nanoTime() - begin);
+      }
+    }
+  }
+
+  private void initIterator(OCommandContext ctx) {
+    if (iterator == null) {
+      OQueryResultCache.trackCluster(clusterId);
+      long minClusterPosition = calculateMinClusterPosition();
+      long maxClusterPosition = calculateMaxClusterPosition();
+      iterator = new ORecordIteratorCluster((ODatabaseDocumentInternal) ctx.getDatabase(), clusterId, minClusterPosition,
+          maxClusterPosition);
+      if (ORDER_DESC.equals(order)) {
+        iterator.last();
+      }
+    }
+  }
+
   private long calculateMinClusterPosition() {
     if (queryPlanning == null || queryPlanning.ridRangeConditions == null || queryPlanning.ridRangeConditions.isEmpty()) {
       return -1;
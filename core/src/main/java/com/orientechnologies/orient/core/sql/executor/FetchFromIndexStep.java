@@ -231,6 +231,7 @@ public class FetchFromIndexStep extends AbstractExecutionStep {
     if (index == null) {
       index = db.getMetadata().getIndexManagerInternal().getIndex(db, indexName);
     }
+    OQueryResultCache.trackClusters(index.getClusters(), db);
     try {
       if (index.getDefinition() == null) {
         return;
@@ -9,6 +9,7 @@ import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.OCommandInterruptedException;
 import com.orientechnologies.orient.core.sql.parser.OBinaryCondition;
 import com.orientechnologies.orient.core.sql.parser.OFromClause;
+import com.orientechnologies.orient.core.sql.parser.OQueryResultCache;
 
 import java.util.Iterator;
 import java.util.Map;
@@ -97,6 +98,9 @@ public class FetchFromIndexedFunctionStep extends AbstractExecutionStep {
     if (fullResult == null) {
       long begin = profilingEnabled ? System.nanoTime() : 0;
       try {
+        if (queryTarget.getItem().getIdentifier() != null) {
+          OQueryResultCache.trackClass(ctx.getDatabase().getClass(queryTarget.getItem().getIdentifier().getStringValue()));
+        }
         fullResult = functionCondition.executeIndexedFunction(queryTarget, ctx).iterator();
       } finally {
         if (profilingEnabled) {
@@ -3,9 +3,12 @@ package com.orientechnologies.orient.core.sql.executor;
 import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.orient.core.command.OCommandContext;
-import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.ORecord;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -20,6 +23,8 @@ public class FetchFromRidsStep extends AbstractExecutionStep {
 
   private OResult nextResult = null;
 
+  private final Deque<OResult> buffer = new ArrayDeque<>();
+
   public FetchFromRidsStep(Collection<ORecordId> rids, OCommandContext ctx, boolean profilingEnabled) {
     super(ctx, profilingEnabled);
     this.rids = rids;
@@ -29,6 +34,7 @@ public class FetchFromRidsStep extends AbstractExecutionStep {
   public void reset() {
     iterator = rids.iterator();
     nextResult = null;
+    buffer.clear();
   }
 
   @Override
@@ -41,20 +47,34 @@ public class FetchFromRidsStep extends AbstractExecutionStep {
         if (nextResult != null) {
           return;
         }
-        while (iterator.hasNext()) {
+        while (buffer.isEmpty() && iterator.hasNext()) {
+          fillBuffer();
+        }
+        nextResult = buffer.poll();
+      }
+
+      /**
+       * loads the records of the next RIDs together, so that they are read from the storage in a single batch, sorted by physical
+       * position
+       */
+      private void fillBuffer() {
+        int batchSize = Math
+            .max(1, Math.min(OGlobalConfiguration.QUERY_FETCH_BATCH_SIZE.getValueAsInteger(), nRecords - internalNext));
+        List<ORID> batch = new ArrayList<>(Math.min(batchSize, rids.size()));
+        while (batch.size() < batchSize && iterator.hasNext()) {
           ORecordId nextRid = iterator.next();
-          if (nextRid == null) {
-            continue;
+          if (nextRid != null) {
+            batch.add(nextRid);
           }
-          OIdentifiable nextDoc = (OIdentifiable) ctx.getDatabase().load(nextRid);
-          if (nextDoc == null) {
-            continue;
+        }
+        List<ORecord> records = ((ODatabaseDocumentInternal) ctx.getDatabase()).loadRecords(batch);
+        for (ORecord record : records) {
+          if (record != null) {
+            OResultInternal result = new OResultInternal();
+            result.setElement(record);
+            buffer.add(result);
           }
-          nextResult = new OResultInternal();
-          ((OResultInternal) nextResult).setElement(nextDoc);
-          return;
         }
-        return;
       }
 
       @Override
@@ -3,19 +3,22 @@ package com.orientechnologies.orient.core.sql.executor;
 import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.sql.parser.OCompiledCondition;
+import com.orientechnologies.orient.core.sql.parser.OExpressionCompiler;
 import com.orientechnologies.orient.core.sql.parser.OWhereClause;
 
-import java.util.Map;
-import java.util.Optional;
-
 /**
  * Created by luigidellaquila on 12/07/16.
  */
-public class FilterStep extends AbstractExecutionStep {
-  private OWhereClause whereClause;
+public class FilterStep extends AbstractExecutionStep implements OBatchExecutionStep {
+  private OWhereClause       whereClause;
+  private OCompiledCondition compiledCondition;
 
-  private OResultSet prevResult = null;
+  // records fetched from the previous step and not evaluated yet
+  private OResultBatch prevBatch         = null;
+  private int          prevBatchPosition = 0;
 
   private long cost;
 
@@ -26,103 +29,47 @@ public class FilterStep extends AbstractExecutionStep {
 
   @Override
   public OResultSet syncPull(OCommandContext ctx, int nRecords) throws OTimeoutException {
+    return syncPullBatch(ctx, nRecords);
+  }
+
+  @Override
+  public OResultBatch syncPullBatch(OCommandContext ctx, int nRecords) throws OTimeoutException {
     if (!prev.isPresent()) {
       throw new IllegalStateException("filter step requires a previous step");
     }
     OExecutionStepInternal prevStep = prev.get();
 
-    return new OResultSet() {
-      public boolean finished = false;
-
-      private OResult nextItem = null;
-      private int fetched = 0;
-
-      private void fetchNextItem() {
-        nextItem = null;
-        if (finished) {
-          return;
-        }
-        if (prevResult == null) {
-          prevResult = prevStep.syncPull(ctx, nRecords);
-          if (!prevResult.hasNext()) {
-            finished = true;
-            return;
+    OResultBatch result = new OResultBatch(nRecords, ctx);
+    Object oldCurrent = ctx.getVariable("$current");
+    try {
+      while (result.size() < nRecords) {
+        if (prevBatch == null || prevBatchPosition >= prevBatch.size()) {
+          prevBatch = OResultBatch.pull(prevStep, ctx, nRecords);
+          prevBatchPosition = 0;
+          if (prevBatch.isEmpty()) {
+            prevBatch = null;
+            break;
           }
         }
-        while (!finished) {
-          while (!prevResult.hasNext()) {
-            prevResult = prevStep.syncPull(ctx, nRecords);
-            if (!prevResult.hasNext()) {
-              finished = true;
-              return;
+        long begin = profilingEnabled ? System.nanoTime() : 0;
+        try {
+          while (prevBatchPosition < prevBatch.size() && result.size() < nRecords) {
+            OResult item = prevBatch.get(prevBatchPosition++);
+            ctx.setVariable("$current", item);
+            if (compiledCondition != null ? compiledCondition.evaluate(item, ctx) : whereClause.matchesFilters(item, ctx)) {
+              result.add(item);
             }
           }
-          nextItem = prevResult.next();
-          long begin = profilingEnabled ? System.nanoTime() : 0;
-          try {
-            if (whereClause.matchesFilters(nextItem, ctx)) {
-              break;
-            }
-
-            nextItem = null;
-          } finally {
-            if (profilingEnabled) {
-              cost += (System.nanoTime() - begin);
-            }
+        } finally {
+          if (profilingEnabled) {
+            cost += (System.nanoTime() - begin);
           }
         }
       }
-
-      @Override
-      public boolean hasNext() {
-
-        if (fetched >= nRecords || finished) {
-          return false;
-        }
-        if (nextItem == null) {
-          fetchNextItem();
-        }
-
-        if (nextItem != null) {
-          return true;
-        }
-
-        return false;
-      }
-
-      @Override
-      public OResult next() {
-        if (fetched >= nRecords || finished) {
-          throw new IllegalStateException();
-        }
-        if (nextItem == null) {
-          fetchNextItem();
-        }
-        if (nextItem == null) {
-          throw new IllegalStateException();
-        }
-        OResult result = nextItem;
-        nextItem = null;
-        fetched++;
-        return result;
-      }
-
-      @Override
-      public void close() {
-        FilterStep.this.close();
-      }
-
-      @Override
-      public Optional<OExecutionPlan> getExecutionPlan() {
-        return Optional.empty();
-      }
-
-      @Override
-      public Map<String, Long> getQueryStats() {
-        return null;
-      }
-    };
-
+    } finally {
+      ctx.setVariable("$current", oldCurrent);
+    }
+    return result;
   }
 
   @Override
@@ -172,6 +119,11 @@ public class FilterStep extends AbstractExecutionStep {
 
   @Override
   public OExecutionStep copy(OCommandContext ctx) {
-    return new FilterStep(this.whereClause.copy(), ctx, profilingEnabled);
+    FilterStep result = new FilterStep(this.whereClause.copy(), ctx, profilingEnabled);
+    if (OGlobalConfiguration.QUERY_COMPILED_EXPRESSIONS.getValueAsBoolean()) {
+      // copies are created for plans that are taken from the execution plan cache, ie. for hot statements
+      result.compiledCondition = OExpressionCompiler.compile(result.whereClause);
+    }
+    return result;
   }
 }
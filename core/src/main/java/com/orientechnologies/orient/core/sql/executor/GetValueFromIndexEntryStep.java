@@ -2,12 +2,14 @@ package com.orientechnologies.orient.core.sql.executor;
 
 import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OContextualRecordId;
 import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ORecord;
 
-import java.util.Arrays;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
@@ -48,6 +50,9 @@ public class GetValueFromIndexEntryStep extends AbstractExecutionStep {
       private OResult nextItem = null;
       private int fetched = 0;
 
+      private boolean prevFinished = false;
+      private final Deque<OResult> buffer = new ArrayDeque<>();
+
       @Override
       public boolean hasNext() {
 
@@ -88,19 +93,29 @@ public class GetValueFromIndexEntryStep extends AbstractExecutionStep {
         if (finished) {
           return;
         }
-        if (prevResult == null) {
-          prevResult = prevStep.syncPull(ctx, nRecords);
-          if (!prevResult.hasNext()) {
-            finished = true;
-            return;
-          }
+        if (buffer.isEmpty()) {
+          fillBuffer();
         }
-        while (!finished) {
-          while (!prevResult.hasNext()) {
+        nextItem = buffer.poll();
+        if (nextItem == null) {
+          finished = true;
+        }
+      }
+
+      /**
+       * extracts the values of the next index entries and loads their records together, so that they are read from the storage
+       * in a single batch, sorted by physical position
+       */
+      private void fillBuffer() {
+        int batchSize = Math.max(1, Math.min(OGlobalConfiguration.QUERY_FETCH_BATCH_SIZE.getValueAsInteger(), nRecords - fetched));
+        List<Object> values = new ArrayList<>();
+        List<ORID> toLoad = new ArrayList<>();
+        while (!prevFinished && values.size() < batchSize) {
+          if (prevResult == null || !prevResult.hasNext()) {
             prevResult = prevStep.syncPull(ctx, nRecords);
             if (!prevResult.hasNext()) {
-              finished = true;
-              return;
+              prevFinished = true;
+              break;
             }
           }
           OResult val = prevResult.next();
@@ -125,19 +140,49 @@ public class GetValueFromIndexEntryStep extends AbstractExecutionStep {
               }
             }
             if (finalVal instanceof OIdentifiable) {
-              OResultInternal res = new OResultInternal();
-              res.setElement((OIdentifiable) finalVal);
-              nextItem = res;
+              values.add(finalVal);
+              if (finalVal instanceof ORID && !(finalVal instanceof OContextualRecordId) && ((ORID) finalVal).isPersistent()) {
+                toLoad.add((ORID) finalVal);
+              }
             } else if (finalVal instanceof OResult) {
-              nextItem = (OResult) finalVal;
+              values.add(finalVal);
             }
-            break;
           } finally {
             if (profilingEnabled) {
               cost += (System.nanoTime() - begin);
             }
           }
         }
+
+        long begin = profilingEnabled ? System.nanoTime() : 0;
+        try {
+          Map<ORID, ORecord> records = toLoad.size() > 1 ? loadRecords(toLoad) : Collections.emptyMap();
+          for (Object value : values) {
+            if (value instanceof OIdentifiable) {
+              OResultInternal res = new OResultInternal();
+              ORecord record = records.get(value);
+              res.setElement(record != null ? record : (OIdentifiable) value);
+              buffer.add(res);
+            } else {
+              buffer.add((OResult) value);
+            }
+          }
+        } finally {
+          if (profilingEnabled) {
+            cost += (System.nanoTime() - begin);
+          }
+        }
+      }
+
+      private Map<ORID, ORecord> loadRecords(List<ORID> rids) {
+        List<ORecord> records = ((ODatabaseDocumentInternal) ctx.getDatabase()).loadRecords(rids);
+        Map<ORID, ORecord> result = new HashMap<>();
+        for (int i = 0; i < rids.size(); i++) {
+          if (records.get(i) != null) {
+            result.put(rids.get(i), records.get(i));
+          }
+        }
+        return result;
       }
 
       @Override
@@ -3,6 +3,7 @@ package com.orientechnologies.orient.core.sql.executor;
 import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.command.OCommandMemoryTracker;
 import com.orientechnologies.orient.core.sql.parser.OIdentifier;
 import com.orientechnologies.orient.core.sql.parser.OLocalResultSet;
 import com.orientechnologies.orient.core.sql.parser.OStatement;
@@ -19,7 +20,8 @@ public class GlobalLetQueryStep extends AbstractExecutionStep {
   private final OIdentifier            varName;
   private final OInternalExecutionPlan subExecutionPlan;
 
-  private boolean executed = false;
+  private boolean executed       = false;
+  private long    reservedMemory = 0;
 
   public GlobalLetQueryStep(OIdentifier varName, OStatement query, OCommandContext ctx, boolean profilingEnabled) {
     super(ctx, profilingEnabled);
@@ -53,13 +55,28 @@ public class GlobalLetQueryStep extends AbstractExecutionStep {
 
   private List<OResult> toList(OLocalResultSet oLocalResultSet) {
     List<OResult> result = new ArrayList<>();
-    while (oLocalResultSet.hasNext()) {
-      result.add(oLocalResultSet.next());
+    try {
+      while (oLocalResultSet.hasNext()) {
+        OResult item = oLocalResultSet.next();
+        // the result stays in the context until the end of the query
+        long size = OCommandMemoryTracker.estimateSize(item);
+        ctx.reserveMemory(size);
+        reservedMemory += size;
+        result.add(item);
+      }
+    } finally {
+      oLocalResultSet.close();
     }
-    oLocalResultSet.close();
     return result;
   }
 
+  @Override
+  public void close() {
+    super.close();
+    ctx.releaseMemory(reservedMemory);
+    reservedMemory = 0;
+  }
+
   @Override
   public String prettyPrint(int depth, int indent) {
     String spaces = OExecutionStepInternal.getIndent(depth, indent);
@@ -0,0 +1,166 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorEquals;
+import com.orientechnologies.orient.core.sql.parser.OExpression;
+import com.orientechnologies.orient.core.sql.parser.OIdentifier;
+import com.orientechnologies.orient.core.sql.parser.OLocalResultSet;
+import com.orientechnologies.orient.core.sql.parser.OProjection;
+import com.orientechnologies.orient.core.sql.parser.OSelectStatement;
+import com.orientechnologies.orient.core.sql.parser.OStatement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Calculates a correlated LET subquery like <code>LET $a = (SELECT FROM B WHERE b = $parent.$current.a)</code> as a hash join.
+ * <p>
+ * The subquery is executed only once, without the correlated condition (the build query), and its result is indexed by the
+ * value of the <code>buildKey</code> expression. Then, for each upstream record, the <code>probeKey</code> expression is
+ * calculated and the matching rows are retrieved with a hash lookup.
+ * </p>
+ * <p>
+ * Building the hash table requires a full execution of the build query, that is not convenient if the upstream returns very
+ * few records and the subquery is cheap (eg. an index lookup), so the first <code>minProbeRows</code> records are calculated
+ * with nested loops, exactly as {@link LetQueryStep} does.
+ * </p>
+ */
+public class HashJoinLetQueryStep extends LetQueryStep {
+
+  private final OSelectStatement buildQuery;
+  private final OProjection      buildProjection;
+  private final OExpression      buildKey;
+  private final OExpression      probeKey;
+  private final boolean          buildKeyOnLeft;
+  private final int              minProbeRows;
+  private final long             maxInMemoryRows;
+
+  private long           probedRows = 0;
+  private OHashJoinTable table;
+
+  private long cost = 0;
+
+  /**
+   * @param varName         the LET variable name
+   * @param query           the original subquery, used for nested loop execution
+   * @param buildQuery      the subquery without the join condition and without projections
+   * @param buildProjection the projection of the original subquery (null if none)
+   * @param buildKey        the side of the join condition that refers to the subquery records
+   * @param probeKey        the side of the join condition that refers to $parent
+   * @param buildKeyOnLeft  true if the build key is the left operand of the join condition
+   * @param minProbeRows    number of records to be calculated with nested loops before building the hash table
+   * @param maxInMemoryRows max number of rows of the hash table kept in heap before spilling to disk
+   */
+  public HashJoinLetQueryStep(OIdentifier varName, OStatement query, OSelectStatement buildQuery, OProjection buildProjection,
+      OExpression buildKey, OExpression probeKey, boolean buildKeyOnLeft, int minProbeRows, long maxInMemoryRows,
+      OCommandContext ctx, boolean profilingEnabled) {
+    super(varName, query, ctx, profilingEnabled);
+    this.buildQuery = buildQuery;
+    this.buildProjection = buildProjection;
+    this.buildKey = buildKey;
+    this.probeKey = probeKey;
+    this.buildKeyOnLeft = buildKeyOnLeft;
+    this.minProbeRows = minProbeRows;
+    this.maxInMemoryRows = maxInMemoryRows;
+  }
+
+  @Override
+  protected void calculate(OResultInternal result, OCommandContext ctx) {
+    if (table == null && probedRows++ < minProbeRows) {
+      super.calculate(result, ctx);
+      return;
+    }
+    long begin = profilingEnabled ? System.nanoTime() : 0;
+    try {
+      if (table == null) {
+        table = buildTable(ctx);
+      }
+      Object probeValue = calculateProbeKey(result, ctx);
+      List<OResult> matches;
+      if (probeValue == null) {
+        matches = Collections.emptyList();
+      } else if (table.isHashable(probeValue)) {
+        matches = table.get(probeValue);
+      } else {
+        List<OResult> scanned = new ArrayList<>();
+        table.scan((key, rows) -> {
+          if (buildKeyOnLeft ? OQueryOperatorEquals.equals(key, probeValue) : OQueryOperatorEquals.equals(probeValue, key)) {
+            scanned.addAll(rows);
+          }
+        });
+        matches = scanned;
+      }
+      result.setMetadata(varName.getStringValue(), new ArrayList<>(matches));
+    } finally {
+      if (profilingEnabled) {
+        cost += (System.nanoTime() - begin);
+      }
+    }
+  }
+
+  private Object calculateProbeKey(OResult record, OCommandContext ctx) {
+    Object oldCurrent = ctx.getVariable("$current");
+    ctx.setVariable("$current", record);
+    try {
+      OBasicCommandContext subCtx = new OBasicCommandContext();
+      subCtx.setDatabase(ctx.getDatabase());
+      subCtx.setParentWithoutOverridingChild(ctx);
+      return probeKey.execute(record, subCtx);
+    } finally {
+      ctx.setVariable("$current", oldCurrent);
+    }
+  }
+
+  private OHashJoinTable buildTable(OCommandContext ctx) {
+    OBasicCommandContext subCtx = new OBasicCommandContext();
+    subCtx.setDatabase(ctx.getDatabase());
+    subCtx.setParentWithoutOverridingChild(ctx);
+    // the build query is synthetic, it cannot be cached by statement text
+    OInternalExecutionPlan buildPlan = buildQuery.createExecutionPlanNoCache(subCtx, profilingEnabled);
+    OHashJoinTable result = new OHashJoinTable(ctx, maxInMemoryRows);
+    try (OLocalResultSet rs = new OLocalResultSet(buildPlan)) {
+      while (rs.hasNext()) {
+        OResult row = rs.next();
+        subCtx.setVariable("$current", row);
+        Object key = buildKey.execute(row, subCtx);
+        if (key != null) {
+          result.add(key, buildProjection == null ? row : buildProjection.calculateSingle(subCtx, row));
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void close() {
+    if (table != null) {
+      table.close();
+      table = null;
+    }
+    super.close();
+  }
+
+  @Override
+  public long getCost() {
+    return cost;
+  }
+
+  @Override
+  public String prettyPrint(int depth, int indent) {
+    String spaces = OExecutionStepInternal.getIndent(depth, indent);
+    StringBuilder result = new StringBuilder();
+    result.append(spaces);
+    result.append("+ LET (hash join)");
+    if (profilingEnabled) {
+      result.append(" (" + getCostFormatted() + ")");
+    }
+    result.append("\n");
+    result.append(spaces);
+    result.append("  " + varName + " = (" + query + ")\n");
+    result.append(spaces);
+    result.append("  build: (" + buildQuery + ") ON " + buildKey + " = " + probeKey);
+    return result.toString();
+  }
+}
@@ -0,0 +1,45 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.id.ORID;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Returns the RIDs that are returned by all the index fetches of its sub-plans, eg. for <code>WHERE a = ? AND b = ?</code> with
+ * an index on <code>a</code> and one on <code>b</code>. The indexes are fetched in order, and the fetch stops as soon as the
+ * intersection is empty.
+ */
+public class IndexIntersectionStep extends AbstractIndexCombinationStep {
+
+  public IndexIntersectionStep(List<OInternalExecutionPlan> subExecutionPlans, int[] filterClusterIds, OCommandContext ctx,
+      boolean profilingEnabled) {
+    super(subExecutionPlans, filterClusterIds, ctx, profilingEnabled);
+  }
+
+  @Override
+  protected ORidBitmap combine(ORidBitmap current, ORidBitmap rids) {
+    return current.and(rids);
+  }
+
+  @Override
+  protected void combineTemporary(Set<ORID> current, Set<ORID> rids) {
+    current.retainAll(rids);
+  }
+
+  @Override
+  protected boolean isComplete(ORidBitmap current, Set<ORID> currentTemporary) {
+    return current.isEmpty() && currentTemporary.isEmpty();
+  }
+
+  @Override
+  protected String getHeader() {
+    return "INTERSECT INDEX RESULTS";
+  }
+
+  @Override
+  public OExecutionStep copy(OCommandContext ctx) {
+    return new IndexIntersectionStep(copySubExecutionPlans(ctx), filterClusterIds, ctx, profilingEnabled);
+  }
+}
@@ -0,0 +1,39 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.id.ORID;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Returns the RIDs that are returned by at least one of the index fetches of its sub-plans, without duplicates, eg. for
+ * <code>WHERE a = ? OR b = ?</code> with an index on <code>a</code> and one on <code>b</code>.
+ */
+public class IndexUnionStep extends AbstractIndexCombinationStep {
+
+  public IndexUnionStep(List<OInternalExecutionPlan> subExecutionPlans, int[] filterClusterIds, OCommandContext ctx,
+      boolean profilingEnabled) {
+    super(subExecutionPlans, filterClusterIds, ctx, profilingEnabled);
+  }
+
+  @Override
+  protected ORidBitmap combine(ORidBitmap current, ORidBitmap rids) {
+    return current.or(rids);
+  }
+
+  @Override
+  protected void combineTemporary(Set<ORID> current, Set<ORID> rids) {
+    current.addAll(rids);
+  }
+
+  @Override
+  protected String getHeader() {
+    return "UNION OF INDEX RESULTS";
+  }
+
+  @Override
+  public OExecutionStep copy(OCommandContext ctx) {
+    return new IndexUnionStep(copySubExecutionPlans(ctx), filterClusterIds, ctx, profilingEnabled);
+  }
+}
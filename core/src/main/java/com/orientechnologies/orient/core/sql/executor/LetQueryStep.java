@@ -3,6 +3,7 @@ package com.orientechnologies.orient.core.sql.executor;
 import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.command.OCommandMemoryTracker;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.sql.parser.OIdentifier;
 import com.orientechnologies.orient.core.sql.parser.OLocalResultSet;
@@ -18,8 +19,8 @@ import java.util.Optional;
  */
 public class LetQueryStep extends AbstractExecutionStep {
 
-  private final OIdentifier varName;
-  private final OStatement  query;
+  protected final OIdentifier varName;
+  protected final OStatement  query;
 
   public LetQueryStep(OIdentifier varName, OStatement query, OCommandContext ctx, boolean profilingEnabled) {
     super(ctx, profilingEnabled);
@@ -49,29 +50,6 @@ public class LetQueryStep extends AbstractExecutionStep {
         return result;
       }
 
-      private void calculate(OResultInternal result, OCommandContext ctx) {
-        OBasicCommandContext subCtx = new OBasicCommandContext();
-        subCtx.setDatabase(ctx.getDatabase());
-        subCtx.setParentWithoutOverridingChild(ctx);
-        OInternalExecutionPlan subExecutionPlan;
-        if (query.toString().contains("?")) {
-          //with positional parameters, you cannot know if a parameter has the same ordinal as the one cached
-          subExecutionPlan = query.createExecutionPlanNoCache(subCtx, profilingEnabled);
-        } else {
-          subExecutionPlan = query.createExecutionPlan(subCtx, profilingEnabled);
-        }
-        result.setMetadata(varName.getStringValue(), toList(new OLocalResultSet(subExecutionPlan)));
-      }
-
-      private List<OResult> toList(OLocalResultSet oLocalResultSet) {
-        List<OResult> result = new ArrayList<>();
-        while (oLocalResultSet.hasNext()) {
-          result.add(oLocalResultSet.next());
-        }
-        oLocalResultSet.close();
-        return result;
-      }
-
       @Override
       public void close() {
         source.close();
@@ -89,6 +67,40 @@ public class LetQueryStep extends AbstractExecutionStep {
     };
   }
 
+  protected void calculate(OResultInternal result, OCommandContext ctx) {
+    OBasicCommandContext subCtx = new OBasicCommandContext();
+    subCtx.setDatabase(ctx.getDatabase());
+    subCtx.setParentWithoutOverridingChild(ctx);
+    OInternalExecutionPlan subExecutionPlan;
+    if (query.toString().contains("?")) {
+      //with positional parameters, you cannot know if a parameter has the same ordinal as the one cached
+      subExecutionPlan = query.createExecutionPlanNoCache(subCtx, profilingEnabled);
+    } else {
+      subExecutionPlan = query.createExecutionPlan(subCtx, profilingEnabled);
+    }
+    result.setMetadata(varName.getStringValue(), toList(new OLocalResultSet(subExecutionPlan), ctx));
+  }
+
+  protected List<OResult> toList(OLocalResultSet oLocalResultSet, OCommandContext ctx) {
+    List<OResult> result = new ArrayList<>();
+    // the memory is reserved only while the result is collected, to prevent a single huge subquery result; once the result is
+    // attached to the record, the steps that buffer records account for it
+    long reservedMemory = 0;
+    try {
+      while (oLocalResultSet.hasNext()) {
+        OResult item = oLocalResultSet.next();
+        long size = OCommandMemoryTracker.estimateSize(item);
+        ctx.reserveMemory(size);
+        reservedMemory += size;
+        result.add(item);
+      }
+    } finally {
+      ctx.releaseMemory(reservedMemory);
+      oLocalResultSet.close();
+    }
+    return result;
+  }
+
   @Override
   public String prettyPrint(int depth, int indent) {
     String spaces = OExecutionStepInternal.getIndent(depth, indent);
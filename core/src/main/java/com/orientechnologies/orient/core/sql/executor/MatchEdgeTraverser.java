@@ -2,11 +2,16 @@ package com.orientechnologies.orient.core.sql.executor;
 
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.OMetadataInternal;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.OEdge;
 import com.orientechnologies.orient.core.record.OElement;
-import com.orientechnologies.orient.core.sql.parser.OMatchPathItem;
-import com.orientechnologies.orient.core.sql.parser.ORid;
-import com.orientechnologies.orient.core.sql.parser.OWhereClause;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.orient.core.record.impl.OEdgeToVertexIterable;
+import com.orientechnologies.orient.core.record.impl.OIndexedAdjacency;
+import com.orientechnologies.orient.core.sql.parser.*;
 
 import java.util.*;
 
@@ -125,6 +130,7 @@ public class MatchEdgeTraverser {
       // evaluated
 
       Iterable<OResultInternal> queryResult = traversePatternEdge(startingPoint, iCommandContext);
+      final Set<ORID> materialized = item.getFilter() == null ? null : prefetchedRids(iCommandContext);
       final OWhereClause theFilter = filter;
       final String theClassName = className;
       final Integer theClusterId = clusterId;
@@ -161,6 +167,9 @@ public class MatchEdgeTraverser {
             Object previousMatch = iCommandContext.getVariable("$currentMatch");
             while (iter.hasNext()) {
               OResultInternal next = iter.next();
+              if (materialized != null && next.getIdentity().isPresent() && !materialized.contains(next.getIdentity().get())) {
+                continue;
+              }
               OElement elem = next.toElement();
               iCommandContext.setVariable("$currentMatch", elem);
               if (matchesFilters(iCommandContext, theFilter, elem) && matchesClass(iCommandContext, theClassName, elem)
@@ -225,6 +234,14 @@ public class MatchEdgeTraverser {
     return result;
   }
 
+  /**
+   * @return the RIDs of the records of the endpoint alias, if they were prefetched (see {@link MatchPrefetchStep})
+   */
+  private Set<ORID> prefetchedRids(OCommandContext iCommandContext) {
+    Object rids = iCommandContext.getVariable(MatchPrefetchStep.PREFETCHED_MATCH_RIDS_PREFIX + getEndpointAlias());
+    return rids instanceof Set ? (Set<ORID>) rids : null;
+  }
+
   protected OWhereClause getTargetFilter(OMatchPathItem item) {
     return item.getFilter().getFilter();
   }
@@ -315,9 +332,14 @@ public class MatchEdgeTraverser {
 
     Object prevCurrent = iCommandContext.getVariable("$current");
     iCommandContext.setVariable("$current", startingPoint);
-    Object qR;
+    Object qR = null;
     try {
-      qR = this.item.getMethod().execute(startingPoint, possibleResults, iCommandContext);
+      if (possibleResults == null) {
+        qR = seekIndexedAdjacency(startingPoint, iCommandContext);
+      }
+      if (qR == null) {
+        qR = this.item.getMethod().execute(startingPoint, possibleResults, iCommandContext);
+      }
     } finally {
       iCommandContext.setVariable("$current", prevCurrent);
     }
@@ -377,4 +399,84 @@ public class MatchEdgeTraverser {
     return Collections.EMPTY_LIST;
   }
 
+  /**
+   * If the starting point is a supernode for the traversed edge class, seeks the edges that match an equality condition on an edge
+   * property (outE/inE) or the vertices of the target class (out/in) in an index of the edge class (see {@link
+   * OIndexedAdjacency}). The filters of the pattern are applied to the result anyway.
+   *
+   * @return the edges or vertices found in the index, or null if the edges of the starting point have to be scanned
+   */
+  private Iterable seekIndexedAdjacency(OIdentifiable startingPoint, OCommandContext ctx) {
+    OMethodCall method = this.item.getMethod();
+    if (method == null || this.item.getFilter() == null || startingPoint == null || method.getParams().size() != 1) {
+      return null;
+    }
+    String methodName = method.getMethodName().getStringValue().toLowerCase(Locale.ENGLISH);
+    ODirection direction;
+    boolean edges;
+    switch (methodName) {
+    case "out":
+      direction = ODirection.OUT;
+      edges = false;
+      break;
+    case "in":
+      direction = ODirection.IN;
+      edges = false;
+      break;
+    case "oute":
+      direction = ODirection.OUT;
+      edges = true;
+      break;
+    case "ine":
+      direction = ODirection.IN;
+      edges = true;
+      break;
+    default:
+      return null;
+    }
+    OExpression labelExpression = method.getParams().get(0);
+    if (!labelExpression.isEarlyCalculated(ctx)) {
+      return null;
+    }
+    Object label = labelExpression.execute((OResult) null, ctx);
+    Object record = startingPoint.getRecord();
+    if (!(label instanceof String) || !(record instanceof OElement)) {
+      return null;
+    }
+    OVertex vertex = ((OElement) record).asVertex().orElse(null);
+    if (vertex == null || !OIndexedAdjacency.isSupernode(vertex, direction, (String) label)) {
+      return null;
+    }
+
+    if (edges) {
+      OWhereClause filter = getTargetFilter(this.item);
+      if (filter == null || filter.flatten().size() != 1) {
+        return null;
+      }
+      for (OBooleanExpression condition : filter.flatten().get(0).getSubBlocks()) {
+        if (condition instanceof OBinaryCondition && ((OBinaryCondition) condition).getOperator() instanceof OEqualsCompareOperator) {
+          OExpression left = ((OBinaryCondition) condition).getLeft();
+          OExpression right = ((OBinaryCondition) condition).getRight();
+          if (left.isBaseIdentifier() && right.isEarlyCalculated(ctx)) {
+            Iterable<OEdge> result = OIndexedAdjacency
+                .getEdges(vertex, direction, (String) label, left.getDefaultAlias().getStringValue(),
+                    right.execute((OResult) null, ctx));
+            if (result != null) {
+              return result;
+            }
+          }
+        }
+      }
+      return null;
+    }
+
+    String className = targetClassName(this.item, ctx);
+    OClass clazz = className == null ? null : ((OMetadataInternal) ctx.getDatabase().getMetadata()).getImmutableSchemaSnapshot().getClass(className);
+    if (clazz == null) {
+      return null;
+    }
+    Iterable<OEdge> result = OIndexedAdjacency.getEdgesToClass(vertex, direction, (String) label, clazz);
+    return result == null ? null : new OEdgeToVertexIterable(result, direction);
+  }
+
 }
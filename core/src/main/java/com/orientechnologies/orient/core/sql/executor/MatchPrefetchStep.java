@@ -2,9 +2,12 @@ package com.orientechnologies.orient.core.sql.executor;
 
 import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.id.ORID;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Created by luigidellaquila on 20/09/16.
@@ -12,6 +15,10 @@ import java.util.List;
 public class MatchPrefetchStep extends AbstractExecutionStep {
 
   public static final String PREFETCHED_MATCH_ALIAS_PREFIX = "$$OrientDB_Prefetched_Alias_Prefix__";
+  /**
+   * the RIDs of the prefetched records, the traversals that reach the alias discard the other records without loading them
+   */
+  public static final String PREFETCHED_MATCH_RIDS_PREFIX  = "$$OrientDB_Prefetched_Rids_Prefix__";
 
   private final String                 alias;
   private final OInternalExecutionPlan prefetchExecutionPlan;
@@ -45,6 +52,15 @@ public class MatchPrefetchStep extends AbstractExecutionStep {
       }
       prefetchExecutionPlan.close();
       ctx.setVariable(PREFETCHED_MATCH_ALIAS_PREFIX + alias, prefetched);
+      Set<ORID> rids = new HashSet<>();
+      for (OResult item : prefetched) {
+        if (!item.getIdentity().isPresent()) {
+          rids = null;
+          break;
+        }
+        rids.add(item.getIdentity().get());
+      }
+      ctx.setVariable(PREFETCHED_MATCH_RIDS_PREFIX + alias, rids);
       executed = true;
     }
     return new OInternalResultSet();
@@ -0,0 +1,24 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.concur.OTimeoutException;
+import com.orientechnologies.orient.core.command.OCommandContext;
+
+/**
+ * An execution step that can produce its results a block at a time. Batch aware steps fetch their input with {@link
+ * OResultBatch#pull(OExecutionStepInternal, OCommandContext, int)}, that avoids per-record iterator calls when the previous step
+ * supports batches too and falls back to record-at-a-time execution otherwise.
+ * <p>
+ * Steps that process a whole batch are responsible for setting the <code>$current</code> context variable for each record
+ * they evaluate, as they cannot rely on the previous step doing it while they iterate.
+ */
+public interface OBatchExecutionStep extends OExecutionStepInternal {
+
+  /**
+   * returns a batch of at most <code>nRecords</code> results. An empty batch means that there are no more results.
+   *
+   * @param ctx      the query context
+   * @param nRecords the max number of records in the batch
+   */
+  OResultBatch syncPullBatch(OCommandContext ctx, int nRecords) throws OTimeoutException;
+
+}
@@ -43,6 +43,14 @@ public class ODeleteExecutionPlanner {
       }
 
       handleReturn(result, ctx, this.returnBefore, enableProfiling);
+    } else if (isParallel(ctx)) {
+      OWhereClause recheckCondition = this.whereClause == null ? null : this.whereClause.copy();
+      handleTarget(result, ctx, this.fromClause, this.whereClause, enableProfiling);
+      handleLimit(result, ctx, this.limit, enableProfiling);
+      result.chain(new ParallelModificationStep(recheckCondition, (plan, workerCtx) -> {
+        handleUnsafe(plan, workerCtx, this.unsafe, false);
+        handleDelete(plan, workerCtx, false);
+      }, "DELETE", ctx, enableProfiling));
     } else {
       handleTarget(result, ctx, this.fromClause, this.whereClause, enableProfiling);
       handleUnsafe(result, ctx, this.unsafe, enableProfiling);
@@ -53,6 +61,14 @@ public class ODeleteExecutionPlanner {
     return result;
   }
 
+  /**
+   * @return true if the records can be deleted by parallel workers (see {@link ParallelModificationStep}): the statement only
+   * returns the count of the deleted records and it is not executed in a transaction
+   */
+  private boolean isParallel(OCommandContext ctx) {
+    return !returnBefore && fromClause.getItem().getIndex() == null && ParallelModificationStep.isEnabled(ctx);
+  }
+
   private boolean handleIndexAsTarget(ODeleteExecutionPlan result, OIndexIdentifier indexIdentifier, OWhereClause whereClause,
       OCommandContext ctx, boolean profilingEnabled) {
     if (indexIdentifier == null) {
@@ -126,11 +142,11 @@ public class ODeleteExecutionPlanner {
     return false;
   }
 
-  private void handleDelete(ODeleteExecutionPlan result, OCommandContext ctx, boolean profilingEnabled) {
+  private void handleDelete(OUpdateExecutionPlan result, OCommandContext ctx, boolean profilingEnabled) {
     result.chain(new DeleteStep(ctx, profilingEnabled));
   }
 
-  private void handleUnsafe(ODeleteExecutionPlan result, OCommandContext ctx, boolean unsafe, boolean profilingEnabled) {
+  private void handleUnsafe(OUpdateExecutionPlan result, OCommandContext ctx, boolean unsafe, boolean profilingEnabled) {
     if (!unsafe) {
       result.chain(new CheckSafeDeleteStep(ctx, profilingEnabled));
     }
@@ -0,0 +1,262 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.OElement;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.BytesContainer;
+import com.orientechnologies.orient.core.serialization.serializer.result.binary.OResultSerializerNetwork;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Sorted runs of results written to temporary files by {@link OrderByStep} when the memory budget of the query is exceeded (see
+ * {@link OCommandContext#tryReserveMemory(long)}). At the end of the sort the runs are merged with the results still in memory.
+ * <p>
+ * Records are written as their RID (and reloaded when the runs are merged), projections are serialized with the binary result
+ * serializer. New or modified records cannot be written to disk, see {@link #canSpill(OResult)}.
+ */
+public class OExternalSortRuns implements AutoCloseable {
+
+  private static final byte ELEMENT    = 0;
+  private static final byte PROJECTION = 1;
+
+  private final OResultSerializerNetwork serializer = new OResultSerializerNetwork();
+  private final List<File>               runs       = new ArrayList<>();
+  private final List<DataInputStream>    readers    = new ArrayList<>();
+
+  /**
+   * @return true if the result can be written to disk, ie. it is a projection or a persistent record without pending changes
+   */
+  public static boolean canSpill(OResult item) {
+    if (!item.isElement()) {
+      return true;
+    }
+    OElement element = item.getElement().get();
+    ORID identity = element.getIdentity();
+    return identity.isPersistent() && !element.isDirty();
+  }
+
+  /**
+   * writes a sorted list of results in a new run
+   */
+  public void spill(List<OResult> sortedItems) {
+    File file;
+    try {
+      file = File.createTempFile("orientdb-orderby-", ".run");
+    } catch (IOException e) {
+      throw OException.wrapException(new OCommandExecutionException("Cannot create a temporary file for ORDER BY"), e);
+    }
+    runs.add(file);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      for (OResult item : sortedItems) {
+        write(item, out);
+      }
+    } catch (IOException e) {
+      throw OException.wrapException(new OCommandExecutionException("Cannot write ORDER BY temporary file " + file), e);
+    }
+  }
+
+  public int getRunCount() {
+    return runs.size();
+  }
+
+  /**
+   * merges the runs written to disk with a sorted list of results still in memory
+   */
+  public Iterator<OResult> merge(List<OResult> sortedItems, Comparator<OResult> comparator, OCommandContext ctx) {
+    PriorityQueue<Source> queue = new PriorityQueue<>((a, b) -> comparator.compare(a.current, b.current));
+    for (File run : runs) {
+      try {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+        readers.add(in);
+        Source source = new Source(new RunIterator(in, ctx));
+        if (source.advance()) {
+          queue.add(source);
+        }
+      } catch (IOException e) {
+        throw OException.wrapException(new OCommandExecutionException("Cannot read ORDER BY temporary file " + run), e);
+      }
+    }
+    Source inMemory = new Source(sortedItems.iterator());
+    if (inMemory.advance()) {
+      queue.add(inMemory);
+    }
+
+    return new Iterator<OResult>() {
+      @Override
+      public boolean hasNext() {
+        return !queue.isEmpty();
+      }
+
+      @Override
+      public OResult next() {
+        Source source = queue.poll();
+        if (source == null) {
+          throw new NoSuchElementException();
+        }
+        OResult result = source.current;
+        if (source.advance()) {
+          queue.add(source);
+        }
+        return result;
+      }
+    };
+  }
+
+  @Override
+  public void close() {
+    for (DataInputStream reader : readers) {
+      try {
+        reader.close();
+      } catch (IOException ignore) {
+        // the file is deleted anyway
+      }
+    }
+    readers.clear();
+    for (File run : runs) {
+      run.delete();
+    }
+    runs.clear();
+  }
+
+  private void write(OResult item, DataOutputStream out) throws IOException {
+    OResultInternal extra = new OResultInternal();
+    if (item instanceof OResultInternal) {
+      for (String name : ((OResultInternal) item).getTemporaryProperties()) {
+        extra.setProperty(name, ((OResultInternal) item).getTemporaryProperty(name));
+      }
+    }
+    if (item.isElement()) {
+      for (String key : item.getMetadataKeys()) {
+        extra.setMetadata(key, item.getMetadata(key));
+      }
+      ORID identity = item.getElement().get().getIdentity();
+      out.writeByte(ELEMENT);
+      out.writeInt(identity.getClusterId());
+      out.writeLong(identity.getClusterPosition());
+    } else {
+      out.writeByte(PROJECTION);
+      writeBytes(item, out);
+    }
+    writeBytes(extra, out);
+  }
+
+  private void writeBytes(OResult item, DataOutputStream out) throws IOException {
+    BytesContainer bytes = new BytesContainer();
+    serializer.serialize(item, bytes);
+    out.writeInt(bytes.offset);
+    out.write(bytes.bytes, 0, bytes.offset);
+  }
+
+  private OResultInternal readBytes(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return serializer.deserialize(new BytesContainer(bytes));
+  }
+
+  private static class Source {
+    private final Iterator<OResult> iterator;
+    private       OResult           current;
+
+    Source(Iterator<OResult> iterator) {
+      this.iterator = iterator;
+    }
+
+    boolean advance() {
+      if (iterator.hasNext()) {
+        current = iterator.next();
+        return true;
+      }
+      current = null;
+      return false;
+    }
+  }
+
+  private class RunIterator implements Iterator<OResult> {
+    private final DataInputStream in;
+    private final OCommandContext ctx;
+    private       OResult         next;
+
+    RunIterator(DataInputStream in, OCommandContext ctx) {
+      this.in = in;
+      this.ctx = ctx;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next == null) {
+        next = read();
+      }
+      return next != null;
+    }
+
+    @Override
+    public OResult next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      OResult result = next;
+      next = null;
+      return result;
+    }
+
+    private OResult read() {
+      try {
+        while (true) {
+          byte kind;
+          try {
+            kind = in.readByte();
+          } catch (EOFException e) {
+            return null;
+          }
+          OResultInternal result;
+          if (kind == ELEMENT) {
+            ORecordId rid = new ORecordId(in.readInt(), in.readLong());
+            OResultInternal extra = readBytes(in);
+            ORecord record = (ORecord) ctx.getDatabase().load(rid);
+            if (record == null) {
+              // deleted in the meantime
+              continue;
+            }
+            result = new OResultInternal((OIdentifiable) record);
+            for (String key : extra.getMetadataKeys()) {
+              result.setMetadata(key, extra.getMetadata(key));
+            }
+            copyTemporaryProperties(extra, result);
+          } else {
+            result = readBytes(in);
+            copyTemporaryProperties(readBytes(in), result);
+          }
+          return result;
+        }
+      } catch (IOException e) {
+        throw OException.wrapException(new OCommandExecutionException("Cannot read ORDER BY temporary file"), e);
+      }
+    }
+
+    private void copyTemporaryProperties(OResultInternal from, OResultInternal to) {
+      for (String name : from.getPropertyNames()) {
+        to.setTemporaryProperty(name, from.getProperty(name));
+      }
+    }
+  }
+}
@@ -0,0 +1,315 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.OSharedContext;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+import java.util.*;
+
+/**
+ * Degree statistics of the graph, used by the MATCH planner to estimate how many vertices are reached by a traversal: for each
+ * vertex class and edge class, the number of vertices of the class and the number of outgoing and incoming edges of the class
+ * attached to them (subclasses excluded, they are summed when the statistics are read).
+ * <p>
+ * The statistics are collected by {@link #analyze(ODatabaseDocumentInternal, long)}, that scans the connection fields of the
+ * vertices (so lightweight edges are counted too), and are stored as a property of the storage, so they survive a restart. They are
+ * not updated when the graph changes: they only have to be accurate enough to tell a selective traversal from an expensive one.
+ */
+public class OGraphStatistics {
+  public static final String STORAGE_PROPERTY = "graphStatistics";
+
+  private static final String CONNECTION_OUT_PREFIX = "out_";
+  private static final String CONNECTION_IN_PREFIX  = "in_";
+
+  private final long                             analyzedAt;
+  private final Map<String, Long>                vertices = new HashMap<>();
+  // vertex class -> edge class -> { outgoing edges, incoming edges }
+  private final Map<String, Map<String, long[]>> edges    = new HashMap<>();
+
+  private OGraphStatistics(long analyzedAt) {
+    this.analyzedAt = analyzedAt;
+  }
+
+  /**
+   * Returns the statistics of the database, loading them from the storage the first time.
+   *
+   * @return the statistics, null if the graph was never analyzed
+   */
+  public static OGraphStatistics get(ODatabaseDocumentInternal db) {
+    OSharedContext sharedContext = db.getSharedContext();
+    if (sharedContext == null || sharedContext.getQueryStats() == null) {
+      return null;
+    }
+    return sharedContext.getQueryStats().getGraphStatistics(db);
+  }
+
+  static OGraphStatistics load(ODatabaseDocumentInternal db) {
+    String value = db.getStorage().getConfiguration().getProperty(STORAGE_PROPERTY);
+    if (value == null || value.isEmpty()) {
+      return null;
+    }
+    try {
+      ODocument doc = new ODocument().fromJSON(value);
+      OGraphStatistics result = new OGraphStatistics(((Number) doc.field("analyzedAt")).longValue());
+      List<List<Object>> vertices = doc.field("vertices");
+      for (List<Object> item : vertices) {
+        result.vertices.put(key((String) item.get(0)), ((Number) item.get(1)).longValue());
+      }
+      List<List<Object>> degrees = doc.field("degrees");
+      for (List<Object> item : degrees) {
+        long[] counts = result.counts((String) item.get(0), (String) item.get(1));
+        counts[0] = ((Number) item.get(2)).longValue();
+        counts[1] = ((Number) item.get(3)).longValue();
+      }
+      return result;
+    } catch (RuntimeException e) {
+      OLogManager.instance().warn(OGraphStatistics.class, "Invalid graph statistics in database %s, they will be ignored", e,
+          db.getName());
+      return null;
+    }
+  }
+
+  /**
+   * Scans the vertices, computes the degree statistics and stores them, replacing the previous ones.
+   *
+   * @param db         the current database
+   * @param sampleSize the maximum number of vertices read for each class, the counts are scaled to the size of the class. Zero or
+   *                   negative to read all the vertices
+   *
+   * @return the new statistics
+   */
+  public static OGraphStatistics analyze(ODatabaseDocumentInternal db, long sampleSize) {
+    OSchema schema = db.getMetadata().getImmutableSchemaSnapshot();
+    OClass vertexClass = schema.getClass("V");
+    OGraphStatistics result = new OGraphStatistics(System.currentTimeMillis());
+    if (vertexClass == null) {
+      return result;
+    }
+    List<OClass> classes = new ArrayList<>(vertexClass.getAllSubclasses());
+    classes.add(vertexClass);
+    for (OClass clazz : classes) {
+      if (clazz.isAbstract()) {
+        continue;
+      }
+      long count = clazz.count(false);
+      result.vertices.put(key(clazz.getName()), count);
+
+      Map<String, long[]> sampled = new HashMap<>();
+      long read = 0;
+      for (ODocument vertex : db.browseClass(clazz.getName(), false)) {
+        if (sampleSize > 0 && read >= sampleSize) {
+          break;
+        }
+        read++;
+        for (String field : vertex.fieldNames()) {
+          int direction;
+          String edgeClass;
+          if (field.startsWith(CONNECTION_OUT_PREFIX)) {
+            direction = 0;
+            edgeClass = field.substring(CONNECTION_OUT_PREFIX.length());
+          } else if (field.startsWith(CONNECTION_IN_PREFIX)) {
+            direction = 1;
+            edgeClass = field.substring(CONNECTION_IN_PREFIX.length());
+          } else {
+            continue;
+          }
+          OClass edgeClazz = schema.getClass(edgeClass.isEmpty() ? "E" : edgeClass);
+          if (edgeClazz == null) {
+            continue;
+          }
+          sampled.computeIfAbsent(edgeClazz.getName(), k -> new long[2])[direction] += size(vertex.rawField(field));
+        }
+      }
+
+      double scale = read == 0 || read >= count ? 1 : (double) count / read;
+      for (Map.Entry<String, long[]> entry : sampled.entrySet()) {
+        long[] counts = result.counts(clazz.getName(), entry.getKey());
+        counts[0] = Math.round(entry.getValue()[0] * scale);
+        counts[1] = Math.round(entry.getValue()[1] * scale);
+      }
+    }
+
+    db.getStorage().setProperty(STORAGE_PROPERTY, result.toJSON(schema));
+    OSharedContext sharedContext = db.getSharedContext();
+    if (sharedContext != null && sharedContext.getQueryStats() != null) {
+      sharedContext.getQueryStats().setGraphStatistics(result);
+      // the cached MATCH plans were made with the old statistics
+      sharedContext.getExecutionPlanCache().invalidate();
+    }
+    return result;
+  }
+
+  private static long size(Object connection) {
+    if (connection instanceof ORidBag) {
+      return ((ORidBag) connection).size();
+    } else if (connection instanceof Collection) {
+      return ((Collection) connection).size();
+    } else if (connection instanceof OIdentifiable) {
+      return 1;
+    }
+    return 0;
+  }
+
+  /**
+   * Estimates the average number of edges that a vertex of a class has.
+   *
+   * @param schema      the current schema
+   * @param vertexClass the vertex class, subclasses included. V if null
+   * @param edgeClasses the edge classes, subclasses included. All the edges if null or empty
+   * @param direction   the direction of the edges
+   *
+   * @return the average degree, or -1 if the statistics do not contain the vertex class or one of its subclasses
+   */
+  public double getAverageDegree(OSchema schema, String vertexClass, Collection<String> edgeClasses, ODirection direction) {
+    OClass clazz = schema.getClass(vertexClass == null ? "V" : vertexClass);
+    if (clazz == null) {
+      return -1;
+    }
+    Set<String> edgeKeys = null;
+    if (edgeClasses != null && !edgeClasses.isEmpty()) {
+      edgeKeys = new HashSet<>();
+      for (String edgeClass : edgeClasses) {
+        OClass edgeClazz = schema.getClass(edgeClass);
+        if (edgeClazz != null) {
+          edgeKeys.add(key(edgeClazz.getName()));
+          for (OClass subclass : edgeClazz.getAllSubclasses()) {
+            edgeKeys.add(key(subclass.getName()));
+          }
+        }
+      }
+    }
+
+    List<OClass> classes = new ArrayList<>(clazz.getAllSubclasses());
+    classes.add(clazz);
+    long vertexCount = 0;
+    long edgeCount = 0;
+    for (OClass current : classes) {
+      if (current.isAbstract()) {
+        continue;
+      }
+      Long count = vertices.get(key(current.getName()));
+      if (count == null) {
+        // created after the analysis
+        return -1;
+      }
+      vertexCount += count;
+      Map<String, long[]> classEdges = edges.get(key(current.getName()));
+      if (classEdges == null) {
+        continue;
+      }
+      for (Map.Entry<String, long[]> entry : classEdges.entrySet()) {
+        if (edgeKeys == null || edgeKeys.contains(entry.getKey())) {
+          if (direction != ODirection.IN) {
+            edgeCount += entry.getValue()[0];
+          }
+          if (direction != ODirection.OUT) {
+            edgeCount += entry.getValue()[1];
+          }
+        }
+      }
+    }
+    return vertexCount == 0 ? 0 : (double) edgeCount / vertexCount;
+  }
+
+  /**
+   * @return the number of vertices of the class (subclasses included) when the graph was analyzed, -1 if unknown
+   */
+  public long getVertexCount(OSchema schema, String vertexClass) {
+    OClass clazz = schema.getClass(vertexClass == null ? "V" : vertexClass);
+    if (clazz == null) {
+      return -1;
+    }
+    long result = 0;
+    Long count = vertices.get(key(clazz.getName()));
+    if (count != null) {
+      result += count;
+    }
+    for (OClass subclass : clazz.getAllSubclasses()) {
+      count = vertices.get(key(subclass.getName()));
+      if (count != null) {
+        result += count;
+      }
+    }
+    return result;
+  }
+
+  public long getAnalyzedAt() {
+    return analyzedAt;
+  }
+
+  /**
+   * @return the statistics as rows of {vertexClass, edgeClass, vertices, outEdges, inEdges}
+   */
+  public List<OResult> toResults(OSchema schema) {
+    List<OResult> result = new ArrayList<>();
+    for (Map.Entry<String, Map<String, long[]>> vertexEntry : edges.entrySet()) {
+      for (Map.Entry<String, long[]> edgeEntry : vertexEntry.getValue().entrySet()) {
+        OResultInternal item = new OResultInternal();
+        item.setProperty("vertexClass", className(schema, vertexEntry.getKey()));
+        item.setProperty("edgeClass", className(schema, edgeEntry.getKey()));
+        item.setProperty("vertices", vertices.get(vertexEntry.getKey()));
+        item.setProperty("outEdges", edgeEntry.getValue()[0]);
+        item.setProperty("inEdges", edgeEntry.getValue()[1]);
+        result.add(item);
+      }
+    }
+    return result;
+  }
+
+  private String toJSON(OSchema schema) {
+    List<List<Object>> vertexItems = new ArrayList<>();
+    for (Map.Entry<String, Long> entry : vertices.entrySet()) {
+      vertexItems.add(Arrays.asList(className(schema, entry.getKey()), entry.getValue()));
+    }
+    List<List<Object>> degreeItems = new ArrayList<>();
+    for (Map.Entry<String, Map<String, long[]>> vertexEntry : edges.entrySet()) {
+      for (Map.Entry<String, long[]> edgeEntry : vertexEntry.getValue().entrySet()) {
+        degreeItems.add(Arrays.asList(className(schema, vertexEntry.getKey()), className(schema, edgeEntry.getKey()),
+            edgeEntry.getValue()[0], edgeEntry.getValue()[1]));
+      }
+    }
+    ODocument doc = new ODocument();
+    doc.field("analyzedAt", analyzedAt);
+    doc.field("vertices", vertexItems);
+    doc.field("degrees", degreeItems);
+    return doc.toJSON();
+  }
+
+  private long[] counts(String vertexClass, String edgeClass) {
+    return edges.computeIfAbsent(key(vertexClass), k -> new HashMap<>()).computeIfAbsent(key(edgeClass), k -> new long[2]);
+  }
+
+  private static String className(OSchema schema, String key) {
+    OClass clazz = schema.getClass(key);
+    return clazz == null ? key : clazz.getName();
+  }
+
+  private static String key(String className) {
+    return className.toLowerCase(Locale.ENGLISH);
+  }
+}
@@ -0,0 +1,357 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.command.OCommandMemoryTracker;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.BytesContainer;
+import com.orientechnologies.orient.core.serialization.serializer.result.binary.OResultSerializerNetwork;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Build side of a hash join. Rows are grouped by their (normalized) join key; as long as the number of rows is below a
+ * threshold everything is kept in heap, then the content is hash-partitioned to temporary files and partitions are loaded on
+ * demand (keeping in memory at most the same number of rows). The table is also spilled when the memory budget of the query
+ * is exhausted (see {@link OCommandContext#tryReserveMemory(long)}).
+ * <p>
+ * Join keys are normalized so that values that are equal for the SQL <code>=</code> operator share the same hash bucket (eg.
+ * integer numbers of different types). Values that cannot be normalized are still stored, but they can only be matched with
+ * a full scan (see {@link #isHashable(Object)}).
+ */
+public class OHashJoinTable implements Closeable {
+
+  protected static final int SPILL_PARTITIONS = 64;
+
+  private final OCommandContext ctx;
+  private final long            maxInMemoryRows;
+
+  private Map<Object, List<OResult>> content = new LinkedHashMap<>();
+  private long                       size    = 0;
+  private long                       reservedMemory;
+
+  private final Set<Class> keyKinds      = new HashSet<>();
+  private       boolean    hasUnhashable = false;
+
+  //spill status
+  private File[]                                             partitionFiles;
+  private DataOutputStream[]                                 partitionOutputs;
+  private long[]                                             partitionSizes;
+  private LinkedHashMap<Integer, Map<Object, List<OResult>>> loadedPartitions;
+  private long                                               loadedRows;
+  private OResultSerializerNetwork                           serializer;
+
+  public OHashJoinTable(OCommandContext ctx, long maxInMemoryRows) {
+    this.ctx = ctx;
+    this.maxInMemoryRows = maxInMemoryRows;
+  }
+
+  /**
+   * adds a row to the build side
+   *
+   * @param key the value of the join key for this row
+   * @param row the row
+   */
+  public void add(Object key, OResult row) {
+    if (key == null) {
+      // null never matches with '='
+      return;
+    }
+    Object normalized = normalizeKey(key);
+    if (normalized == null) {
+      hasUnhashable = true;
+      normalized = new RawKey(key);
+    } else {
+      keyKinds.add(kindOf(normalized));
+    }
+    size++;
+    if (partitionFiles == null) {
+      content.computeIfAbsent(normalized, x -> new ArrayList<>()).add(row);
+      long rowSize = OCommandMemoryTracker.estimateSize(row);
+      boolean reserved = ctx.tryReserveMemory(rowSize);
+      if (reserved) {
+        reservedMemory += rowSize;
+      }
+      if (!reserved || (maxInMemoryRows >= 0 && size > maxInMemoryRows)) {
+        spill();
+      }
+    } else {
+      writeToPartition(normalized, row);
+    }
+  }
+
+  /**
+   * @return true if a probe value can be matched with a hash lookup, false if a full scan is needed to honour the semantics of
+   * the SQL <code>=</code> operator (eg. comparing strings with numbers)
+   */
+  public boolean isHashable(Object probeKey) {
+    if (hasUnhashable) {
+      return false;
+    }
+    Object normalized = normalizeKey(probeKey);
+    if (normalized == null) {
+      return false;
+    }
+    return keyKinds.isEmpty() || (keyKinds.size() == 1 && keyKinds.contains(kindOf(normalized)));
+  }
+
+  /**
+   * returns the rows whose key is equal to the probe key. Valid only if {@link #isHashable(Object)} returns true for this key
+   */
+  public List<OResult> get(Object probeKey) {
+    Object normalized = normalizeKey(probeKey);
+    if (normalized == null) {
+      return Collections.emptyList();
+    }
+    Map<Object, List<OResult>> bucket = partitionFiles == null ? content : loadPartition(partitionFor(normalized));
+    List<OResult> result = bucket.get(normalized);
+    return result == null ? Collections.emptyList() : result;
+  }
+
+  /**
+   * invokes the consumer for all the stored keys (unwrapped) and related rows, in partition order
+   */
+  public void scan(OHashJoinScanConsumer consumer) {
+    if (partitionFiles == null) {
+      scan(content, consumer);
+    } else {
+      flushPartitions();
+      for (int i = 0; i < SPILL_PARTITIONS; i++) {
+        if (partitionSizes[i] > 0) {
+          scan(loadPartition(i), consumer);
+        }
+      }
+    }
+  }
+
+  private void scan(Map<Object, List<OResult>> bucket, OHashJoinScanConsumer consumer) {
+    for (Map.Entry<Object, List<OResult>> entry : bucket.entrySet()) {
+      Object key = entry.getKey() instanceof RawKey ? ((RawKey) entry.getKey()).value : entry.getKey();
+      consumer.accept(key, entry.getValue());
+    }
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public boolean isSpilled() {
+    return partitionFiles != null;
+  }
+
+  /**
+   * transforms a key in a value that can be used for hash lookups, following the semantics of the SQL <code>=</code> operator.
+   *
+   * @return the normalized key, or null if the value cannot be used for hash lookups
+   */
+  protected static Object normalizeKey(Object key) {
+    if (key instanceof OResult && ((OResult) key).isElement()) {
+      key = ((OResult) key).getElement().get();
+    }
+    if (key instanceof String || key instanceof Boolean || key instanceof Date) {
+      return key;
+    }
+    if (key instanceof Byte || key instanceof Short || key instanceof Integer || key instanceof Long) {
+      return ((Number) key).longValue();
+    }
+    if (key instanceof Float || key instanceof Double) {
+      double value = ((Number) key).doubleValue();
+      if (value == Math.rint(value) && value >= Long.MIN_VALUE && value <= Long.MAX_VALUE && !Double.isInfinite(value)) {
+        return (long) value;
+      }
+      return Double.isNaN(value) ? null : value;
+    }
+    if (key instanceof OIdentifiable) {
+      ORID rid = ((OIdentifiable) key).getIdentity();
+      if (rid != null && rid.isPersistent()) {
+        return rid.copy();
+      }
+    }
+    return null;
+  }
+
+  private static Class kindOf(Object normalized) {
+    if (normalized instanceof Number) {
+      return Number.class;
+    }
+    if (normalized instanceof ORID) {
+      return ORID.class;
+    }
+    return normalized.getClass();
+  }
+
+  private static int partitionFor(Object normalized) {
+    int h = normalized.hashCode();
+    h ^= (h >>> 16);
+    return Math.floorMod(h, SPILL_PARTITIONS);
+  }
+
+  private void spill() {
+    serializer = new OResultSerializerNetwork();
+    partitionFiles = new File[SPILL_PARTITIONS];
+    partitionOutputs = new DataOutputStream[SPILL_PARTITIONS];
+    partitionSizes = new long[SPILL_PARTITIONS];
+    loadedPartitions = new LinkedHashMap<>(16, 0.75f, true);
+    try {
+      File dir = new File(Orient.getTempPath());
+      dir.mkdirs();
+      for (int i = 0; i < SPILL_PARTITIONS; i++) {
+        partitionFiles[i] = File.createTempFile("hashjoin", ".tmp", dir);
+        partitionFiles[i].deleteOnExit();
+        partitionOutputs[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partitionFiles[i])));
+      }
+    } catch (IOException e) {
+      close();
+      throw OException.wrapException(new OCommandExecutionException("Cannot create temporary files for hash join"), e);
+    }
+    for (Map.Entry<Object, List<OResult>> entry : content.entrySet()) {
+      for (OResult row : entry.getValue()) {
+        writeToPartition(entry.getKey(), row);
+      }
+    }
+    content = null;
+    releaseMemory();
+  }
+
+  private void releaseMemory() {
+    ctx.releaseMemory(reservedMemory);
+    reservedMemory = 0;
+  }
+
+  private void writeToPartition(Object normalized, OResult row) {
+    int partition = normalized instanceof RawKey ? 0 : partitionFor(normalized);
+    if (partitionOutputs[partition] == null) {
+      // partition was loaded and closed for writing, new rows can only arrive before probing starts
+      throw new IllegalStateException("Cannot add rows to the hash join table after probing");
+    }
+    try {
+      DataOutputStream out = partitionOutputs[partition];
+      boolean raw = normalized instanceof RawKey;
+      OResultInternal keyHolder = new OResultInternal();
+      keyHolder.setProperty("key", raw ? ((RawKey) normalized).value : normalized);
+      writeBytes(out, serialize(keyHolder));
+      out.writeBoolean(raw);
+      if (row.isElement()) {
+        ORID rid = row.getElement().get().getIdentity();
+        out.writeBoolean(true);
+        out.writeInt(rid.getClusterId());
+        out.writeLong(rid.getClusterPosition());
+      } else {
+        out.writeBoolean(false);
+        writeBytes(out, serialize(row));
+      }
+      partitionSizes[partition]++;
+    } catch (IOException e) {
+      throw OException.wrapException(new OCommandExecutionException("Cannot write to hash join temporary file"), e);
+    }
+  }
+
+  private byte[] serialize(OResult item) {
+    BytesContainer bytes = new BytesContainer();
+    serializer.serialize(item, bytes);
+    return bytes.fitBytes();
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    byte[] result = new byte[in.readInt()];
+    in.readFully(result);
+    return result;
+  }
+
+  private void flushPartitions() {
+    for (int i = 0; i < SPILL_PARTITIONS; i++) {
+      if (partitionOutputs[i] != null) {
+        try {
+          partitionOutputs[i].close();
+        } catch (IOException e) {
+          throw OException.wrapException(new OCommandExecutionException("Cannot write to hash join temporary file"), e);
+        }
+        partitionOutputs[i] = null;
+      }
+    }
+  }
+
+  private Map<Object, List<OResult>> loadPartition(int partition) {
+    Map<Object, List<OResult>> result = loadedPartitions.get(partition);
+    if (result != null) {
+      return result;
+    }
+    flushPartitions();
+    result = new HashMap<>();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(partitionFiles[partition])))) {
+      for (long i = 0; i < partitionSizes[partition]; i++) {
+        Object key = serializer.deserialize(new BytesContainer(readBytes(in))).getProperty("key");
+        if (in.readBoolean()) {
+          key = new RawKey(key);
+        }
+        OResult row;
+        if (in.readBoolean()) {
+          ORID rid = new ORecordId(in.readInt(), in.readLong());
+          OIdentifiable record = (OIdentifiable) ctx.getDatabase().load(rid);
+          row = new OResultInternal(record == null ? rid : record);
+        } else {
+          row = serializer.deserialize(new BytesContainer(readBytes(in)));
+        }
+        result.computeIfAbsent(key, x -> new ArrayList<>()).add(row);
+      }
+    } catch (IOException e) {
+      throw OException.wrapException(new OCommandExecutionException("Cannot read hash join temporary file"), e);
+    }
+
+    loadedRows += partitionSizes[partition];
+    Iterator<Map.Entry<Integer, Map<Object, List<OResult>>>> iterator = loadedPartitions.entrySet().iterator();
+    while (loadedRows > maxInMemoryRows && iterator.hasNext()) {
+      Map.Entry<Integer, Map<Object, List<OResult>>> eldest = iterator.next();
+      loadedRows -= partitionSizes[eldest.getKey()];
+      iterator.remove();
+    }
+    loadedPartitions.put(partition, result);
+    return result;
+  }
+
+  @Override
+  public void close() {
+    content = null;
+    releaseMemory();
+    if (partitionFiles != null) {
+      for (int i = 0; i < SPILL_PARTITIONS; i++) {
+        if (partitionOutputs[i] != null) {
+          try {
+            partitionOutputs[i].close();
+          } catch (IOException ignore) {
+          }
+          partitionOutputs[i] = null;
+        }
+        if (partitionFiles[i] != null) {
+          partitionFiles[i].delete();
+        }
+      }
+      loadedPartitions.clear();
+    }
+  }
+
+  /**
+   * wrapper for keys that cannot be normalized: they are compared by identity, so each of them has its own bucket
+   */
+  private static final class RawKey {
+    private final Object value;
+
+    private RawKey(Object value) {
+      this.value = value;
+    }
+  }
+
+  public interface OHashJoinScanConsumer {
+    void accept(Object key, List<OResult> rows);
+  }
+}
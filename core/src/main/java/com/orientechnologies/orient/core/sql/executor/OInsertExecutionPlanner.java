@@ -2,6 +2,9 @@ package com.orientechnologies.orient.core.sql.executor;
 
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.index.OIndexAbstract;
+import com.orientechnologies.orient.core.metadata.OMetadataInternal;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
 import com.orientechnologies.orient.core.sql.parser.*;
 
 import java.util.ArrayList;
@@ -48,20 +51,82 @@ public class OInsertExecutionPlanner {
       }
       handleTargetClass(result, targetClass, ctx, enableProfiling);
       handleSetFields(result, insertBody, ctx, enableProfiling);
+      OIdentifier cluster = targetClusterName;
       if (targetCluster != null) {
         String name = targetCluster.getClusterName();
         if (name == null) {
           name = ctx.getDatabase().getClusterNameById(targetCluster.getClusterNumber());
         }
-        handleSave(result, new OIdentifier(name), ctx, enableProfiling);
+        cluster = new OIdentifier(name);
+      }
+      if (isStreaming(ctx)) {
+        result.chain(new StreamingInsertStep(targetClass, cluster, !sourceReadsTarget(ctx, cluster), ctx, enableProfiling));
       } else {
-        handleSave(result, targetClusterName, ctx, enableProfiling);
+        handleSave(result, cluster, ctx, enableProfiling);
+        handleReturn(result, returnStatement, ctx, enableProfiling);
       }
-      handleReturn(result, returnStatement, ctx, enableProfiling);
     }
     return result;
   }
 
+  /**
+   * @return true if the records of an INSERT ... FROM SELECT can be saved in batches, streaming the result of the query (see
+   * {@link StreamingInsertStep}): the statement does not return the inserted records
+   */
+  private boolean isStreaming(OCommandContext ctx) {
+    if (selectStatement == null || returnStatement != null) {
+      return false;
+    }
+    return StreamingInsertStep.isEnabled(ctx);
+  }
+
+  /**
+   * @return true if the query of an INSERT ... FROM SELECT may read the target class, or use the indexes of its hierarchy: the
+   * indexes of the target class cannot be dropped during the insert then
+   */
+  private boolean sourceReadsTarget(OCommandContext ctx, OIdentifier cluster) {
+    OSchema schema = ((OMetadataInternal) ctx.getDatabase().getMetadata()).getImmutableSchemaSnapshot();
+    OClass target = null;
+    if (targetClass != null) {
+      target = schema.getClass(targetClass.getStringValue());
+    } else if (cluster != null) {
+      int clusterId = ctx.getDatabase().getClusterIdByName(cluster.getStringValue());
+      target = clusterId < 0 ? null : schema.getClassByClusterId(clusterId);
+    }
+    if (target == null) {
+      return false;
+    }
+
+    SubQueryCollector collector = new SubQueryCollector();
+    if (selectStatement.getWhereClause() != null) {
+      selectStatement.getWhereClause().extractSubQueries(collector);
+    }
+    if (selectStatement.getProjection() != null) {
+      selectStatement.getProjection().extractSubQueries(collector);
+    }
+    if (selectStatement.getLetClause() != null || !collector.getSubQueries().isEmpty()) {
+      return true;
+    }
+    OFromItem item = selectStatement.getTarget() == null ? null : selectStatement.getTarget().getItem();
+    if (item == null || item.getIdentifier() == null || item.getModifier() != null) {
+      // clusters, indexes, subqueries and traversals can reach any class
+      return true;
+    }
+    OClass source = schema.getClass(item.getIdentifier().getStringValue());
+    if (source == null) {
+      return false;
+    }
+    if (source.isSubClassOf(target) || target.isSubClassOf(source)) {
+      return true;
+    }
+    for (OClass superClass : target.getAllSuperClasses()) {
+      if (source.isSubClassOf(superClass) && !superClass.getClassIndexes().isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private void handleSave(OInsertExecutionPlan result, OIdentifier targetClusterName, OCommandContext ctx,
       boolean profilingEnabled) {
     result.chain(new SaveElementStep(ctx, targetClusterName, profilingEnabled));
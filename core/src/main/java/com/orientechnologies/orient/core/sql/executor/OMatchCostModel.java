@@ -0,0 +1,311 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.OElement;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.orient.core.sql.parser.*;
+
+import java.util.*;
+
+/**
+ * Estimates the cost of a MATCH schedule with the degree statistics of the graph (see {@link OGraphStatistics}).
+ * <p>
+ * The cost of a schedule is the number of records fetched by the first step, plus the number of edges followed by each traversal
+ * (the partial matches that reach it, multiplied by the average degree of the starting class for the traversed edge classes and
+ * direction), plus the partial matches that survive each traversal (the edges followed, reduced by the estimated selectivity of the
+ * class and of the filter of the target alias, or by the probability of finding an already matched alias).
+ * <p>
+ * Traversals that start from an alias bound to a RID use the actual degree of the vertex, read from the size of its edge fields
+ * (that is kept in the vertex record), instead of the average degree.
+ */
+class OMatchCostModel {
+  static final double DEFAULT_FAN_OUT            = 10;
+  static final double DEFAULT_FILTER_SELECTIVITY = 0.5;
+  static final int    DEFAULT_RECURSION_DEPTH    = 3;
+  static final double MAX_ESTIMATE               = 1e15;
+
+  private final OCommandContext           ctx;
+  private final OSchema                   schema;
+  private final OGraphStatistics          statistics;
+  private final Map<String, Long>         estimatedRootEntries;
+  private final Map<String, String>       aliasClasses;
+  private final Map<String, OWhereClause> aliasFilters;
+  private final Map<String, ORid>         aliasRids;
+  private final Map<String, Long>         classCounts = new HashMap<>();
+  private final Map<String, OVertex>      ridVertices = new HashMap<>();
+
+  OMatchCostModel(OCommandContext ctx, OGraphStatistics statistics, Map<String, Long> estimatedRootEntries,
+      Map<String, String> aliasClasses, Map<String, OWhereClause> aliasFilters, Map<String, ORid> aliasRids) {
+    this.ctx = ctx;
+    this.schema = ((ODatabaseDocumentInternal) ctx.getDatabase()).getMetadata().getImmutableSchemaSnapshot();
+    this.statistics = statistics;
+    this.estimatedRootEntries = estimatedRootEntries;
+    this.aliasClasses = aliasClasses;
+    this.aliasFilters = aliasFilters;
+    this.aliasRids = aliasRids;
+  }
+
+  /**
+   * Estimates the cost of a schedule.
+   *
+   * @param schedule the traversals, in order of execution
+   * @param arrivals if not null, it is filled with the number of records that the traversals reach (before checking the class and
+   *                 the filter) for each alias that is not yet matched when it is reached
+   *
+   * @return the estimated cost
+   */
+  double cost(List<EdgeTraversal> schedule, Map<String, Double> arrivals) {
+    if (schedule.isEmpty()) {
+      return 0;
+    }
+    Set<String> matched = new HashSet<>();
+    EdgeTraversal first = schedule.get(0);
+    String root = first.out ? first.edge.out.alias : first.edge.in.alias;
+    double rows = cardinality(root);
+    double cost = rows;
+    matched.add(root);
+
+    for (EdgeTraversal traversal : schedule) {
+      PatternNode from = traversal.out ? traversal.edge.out : traversal.edge.in;
+      PatternNode to = traversal.out ? traversal.edge.in : traversal.edge.out;
+      double fanOut = fanOut(traversal.edge, traversal.out, from.alias);
+      double reached = Math.min(MAX_ESTIMATE, rows * fanOut);
+      cost += reached;
+
+      double next;
+      if (matched.contains(to.alias)) {
+        // closes a cycle: a partial match survives if one of the reached records is the matched one
+        next = rows * Math.min(1, fanOut / Math.max(1, cardinality(to.alias)));
+      } else if (aliasRids.get(to.alias) != null) {
+        next = rows * Math.min(1, fanOut);
+      } else {
+        next = reached * selectivity(to.alias);
+        if (arrivals != null) {
+          arrivals.merge(to.alias, reached, Double::sum);
+        }
+      }
+      if (to.isOptionalNode()) {
+        next = Math.max(rows, next);
+      }
+      rows = next;
+      cost += rows;
+      matched.add(to.alias);
+    }
+    return cost;
+  }
+
+  /**
+   * @return the estimated number of records of an alias, before following any edge
+   */
+  double cardinality(String alias) {
+    Long estimate = estimatedRootEntries.get(alias);
+    if (estimate != null) {
+      return estimate;
+    }
+    long vertices = statistics.getVertexCount(schema, null);
+    return vertices < 0 ? MAX_ESTIMATE : vertices;
+  }
+
+  /**
+   * @return the fraction of the records reached by a traversal that match the class and the filter of the target alias
+   */
+  double selectivity(String alias) {
+    String className = aliasClasses.get(alias);
+    OWhereClause filter = aliasFilters.get(alias);
+    if (filter == null) {
+      return 1;
+    }
+    Long estimate = estimatedRootEntries.get(alias);
+    if (className != null && estimate != null) {
+      long total = classCount(className);
+      if (total > 0 && estimate < total) {
+        return (double) estimate / total;
+      }
+    }
+    return DEFAULT_FILTER_SELECTIVITY;
+  }
+
+  /**
+   * Estimates the number of records reached from a record by a traversal
+   *
+   * @param edge      the pattern edge
+   * @param out       true if the edge is traversed in its direction, false if it is traversed backwards
+   * @param fromAlias the starting alias
+   *
+   * @return the average number of records reached
+   */
+  double fanOut(PatternEdge edge, boolean out, String fromAlias) {
+    double result;
+    OVertex fromVertex = boundVertex(fromAlias);
+    if (edge.item instanceof OMultiMatchPathItem) {
+      result = 1;
+      String currentClass = aliasClasses.get(fromAlias);
+      List<OMatchPathItem> items = new ArrayList<>(((OMultiMatchPathItem) edge.item).getItems());
+      if (!out) {
+        Collections.reverse(items);
+      }
+      for (OMatchPathItem item : items) {
+        result *= stepFanOut(item, out, currentClass, fromVertex);
+        currentClass = item.getFilter() == null ? null : item.getFilter().getClassName(ctx);
+        fromVertex = null;
+      }
+    } else {
+      result = stepFanOut(edge.item, out, aliasClasses.get(fromAlias), fromVertex);
+    }
+
+    OMatchFilter filter = edge.item.getFilter();
+    if (filter != null && (filter.getWhileCondition() != null || filter.getMaxDepth() != null)) {
+      // the starting point and all the records up to the maximum depth
+      int depth = filter.getMaxDepth() != null ? filter.getMaxDepth() : DEFAULT_RECURSION_DEPTH;
+      double total = 1;
+      double level = 1;
+      for (int i = 0; i < depth && total < MAX_ESTIMATE; i++) {
+        level *= result;
+        total += level;
+      }
+      result = total;
+    }
+    return Math.min(result, MAX_ESTIMATE);
+  }
+
+  private double stepFanOut(OMatchPathItem item, boolean out, String fromClass, OVertex fromVertex) {
+    if (item instanceof OFieldMatchPathItem) {
+      return 1;
+    }
+    OMethodCall method = item.getMethod();
+    if (method == null || method.getMethodName() == null) {
+      return DEFAULT_FAN_OUT;
+    }
+    String name = method.getMethodName().getStringValue().toLowerCase(Locale.ENGLISH);
+    ODirection direction;
+    boolean toEdge = false;
+    boolean fromEdge = false;
+    switch (name) {
+    case "out":
+      direction = ODirection.OUT;
+      break;
+    case "in":
+      direction = ODirection.IN;
+      break;
+    case "both":
+      direction = ODirection.BOTH;
+      break;
+    case "oute":
+      direction = ODirection.OUT;
+      toEdge = true;
+      break;
+    case "ine":
+      direction = ODirection.IN;
+      toEdge = true;
+      break;
+    case "bothe":
+      direction = ODirection.BOTH;
+      toEdge = true;
+      break;
+    case "outv":
+      direction = ODirection.OUT;
+      fromEdge = true;
+      break;
+    case "inv":
+      direction = ODirection.IN;
+      fromEdge = true;
+      break;
+    case "bothv":
+      direction = ODirection.BOTH;
+      fromEdge = true;
+      break;
+    default:
+      return DEFAULT_FAN_OUT;
+    }
+
+    if (fromEdge) {
+      if (out) {
+        return direction == ODirection.BOTH ? 2 : 1;
+      }
+      // from a vertex to the edges that have it as the out (in) vertex
+      double degree = statistics.getAverageDegree(schema, fromClass, null, direction);
+      return degree < 0 ? DEFAULT_FAN_OUT : degree;
+    }
+    if (toEdge && !out) {
+      return 1;
+    }
+    if (!out) {
+      direction = direction == ODirection.OUT ? ODirection.IN : direction == ODirection.IN ? ODirection.OUT : ODirection.BOTH;
+    }
+
+    List<String> edgeClasses = new ArrayList<>();
+    for (OExpression param : method.getParams()) {
+      if (!param.isEarlyCalculated(ctx)) {
+        return DEFAULT_FAN_OUT;
+      }
+      Object value = param.execute((OResult) null, ctx);
+      if (value instanceof String) {
+        edgeClasses.add((String) value);
+      } else if (value instanceof Collection) {
+        for (Object edgeClass : (Collection) value) {
+          edgeClasses.add(String.valueOf(edgeClass));
+        }
+      } else if (value != null) {
+        return DEFAULT_FAN_OUT;
+      }
+    }
+    if (fromVertex != null) {
+      return OMultiValue.getSize(fromVertex.getEdges(direction, edgeClasses.toArray(new String[] {})));
+    }
+    double degree = statistics.getAverageDegree(schema, fromClass, edgeClasses, direction);
+    return degree < 0 ? DEFAULT_FAN_OUT : degree;
+  }
+
+  /**
+   * @return the vertex of an alias bound to a RID, null if the alias is not bound to a RID or the record is not a vertex
+   */
+  private OVertex boundVertex(String alias) {
+    ORid rid = aliasRids.get(alias);
+    if (rid == null) {
+      return null;
+    }
+    if (!ridVertices.containsKey(alias)) {
+      OVertex vertex = null;
+      OIdentifiable identifiable = rid.toRecordId((OResult) null, ctx);
+      ORecord record = identifiable == null ? null : identifiable.getRecord();
+      if (record instanceof OElement) {
+        vertex = ((OElement) record).asVertex().orElse(null);
+      }
+      ridVertices.put(alias, vertex);
+    }
+    return ridVertices.get(alias);
+  }
+
+  private long classCount(String className) {
+    return classCounts.computeIfAbsent(className, name -> {
+      OClass clazz = schema.getClass(name);
+      return clazz == null ? 0L : clazz.count();
+    });
+  }
+}
@@ -3,7 +3,9 @@ package com.orientechnologies.orient.core.sql.executor;
 import com.orientechnologies.common.util.OPair;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OSchema;
@@ -19,6 +21,11 @@ public class OMatchExecutionPlanner {
 
   static final String DEFAULT_ALIAS_PREFIX = "$ORIENT_DEFAULT_ALIAS_";
 
+  /**
+   * maximum number of starting aliases evaluated by the cost-based planner for each pattern
+   */
+  static final int MAX_START_CANDIDATES = 32;
+
   protected     List<OMatchExpression>  matchExpressions;
   protected     List<OMatchExpression>  notMatchExpressions;
   protected     List<OExpression>       returnItems;
@@ -44,6 +51,7 @@ public class OMatchExecutionPlanner {
   private Map<String, ORid>         aliasRids;
   private boolean                   foundOptional = false;
   private long                      threshold     = 100;
+  private OMatchCostModel           costModel;
 
   public OMatchExecutionPlanner(OMatchStatement stm) {
     this.matchExpressions = stm.getMatchExpressions().stream().map(x -> x.copy()).collect(Collectors.toList());
@@ -73,7 +81,7 @@ public class OMatchExecutionPlanner {
     OSelectExecutionPlan result = new OSelectExecutionPlan(context);
     Map<String, Long> estimatedRootEntries = estimateRootEntries(aliasClasses, aliasClusters, aliasRids, aliasFilters, context);
     Set<String> aliasesToPrefetch = estimatedRootEntries.entrySet().stream().filter(x -> x.getValue() < this.threshold)
-        .filter(x -> !dependsOnExecutionContext(x.getKey())).map(x -> x.getKey()).collect(Collectors.toSet());
+        .filter(x -> !dependsOnExecutionContext(x.getKey())).map(x -> x.getKey()).collect(Collectors.toCollection(HashSet::new));
     for (Map.Entry<String, Long> entry : estimatedRootEntries.entrySet()) {
       if (entry.getValue() == 0L && !isOptional(entry.getKey())) {
         result.chain(new EmptyStep(context, enableProfiling));
@@ -81,16 +89,27 @@ public class OMatchExecutionPlanner {
       }
     }
 
+    costModel = createCostModel(context, estimatedRootEntries);
+    List<Pattern> patterns = subPatterns.size() > 1 ? subPatterns : Collections.singletonList(pattern);
+    List<List<EdgeTraversal>> schedules = new ArrayList<>();
+    for (Pattern item : patterns) {
+      List<EdgeTraversal> schedule = getTopologicalSortedSchedule(estimatedRootEntries, item);
+      schedules.add(schedule);
+      if (costModel != null) {
+        aliasesToPrefetch.addAll(getAliasesToMaterialize(schedule, item, estimatedRootEntries));
+      }
+    }
+
     addPrefetchSteps(result, aliasesToPrefetch, context, enableProfiling);
 
     if (subPatterns.size() > 1) {
       CartesianProductStep step = new CartesianProductStep(context, enableProfiling);
-      for (Pattern subPattern : subPatterns) {
-        step.addSubPlan(createPlanForPattern(subPattern, context, estimatedRootEntries, aliasesToPrefetch, enableProfiling));
+      for (int i = 0; i < subPatterns.size(); i++) {
+        step.addSubPlan(createPlanForPattern(subPatterns.get(i), context, schedules.get(i), aliasesToPrefetch, enableProfiling));
       }
       result.chain(step);
     } else {
-      OInternalExecutionPlan plan = createPlanForPattern(pattern, context, estimatedRootEntries, aliasesToPrefetch,
+      OInternalExecutionPlan plan = createPlanForPattern(pattern, context, schedules.get(0), aliasesToPrefetch,
           enableProfiling);
       for (OExecutionStep step : plan.getSteps()) {
         result.chain((OExecutionStepInternal) step);
@@ -171,6 +190,68 @@ public class OMatchExecutionPlanner {
     return false;
   }
 
+  /**
+   * Creates the cost model used to plan the pattern, if the cost-based planning is enabled and the graph was analyzed
+   *
+   * @return the cost model, null to plan with the estimated number of records of the aliases only
+   */
+  private OMatchCostModel createCostModel(OCommandContext context, Map<String, Long> estimatedRootEntries) {
+    if (!OGlobalConfiguration.QUERY_MATCH_COST_BASED.getValueAsBoolean()
+        || !(context.getDatabase() instanceof ODatabaseDocumentInternal)) {
+      return null;
+    }
+    OGraphStatistics statistics = OGraphStatistics.get((ODatabaseDocumentInternal) context.getDatabase());
+    if (statistics == null) {
+      return null;
+    }
+    return new OMatchCostModel(context, statistics, estimatedRootEntries, aliasClasses, aliasFilters, aliasRids);
+  }
+
+  /**
+   * Chooses the aliases to fetch in advance, so that the traversals that reach them discard the other records without loading
+   * them: an alias is materialized when it is estimated to have fewer records than the traversals reach. Aliases that are optional,
+   * that depend on the current match or that are reached by recursive or multi-step traversals are never materialized.
+   */
+  private Set<String> getAliasesToMaterialize(List<EdgeTraversal> schedule, Pattern pattern, Map<String, Long> estimatedRootEntries) {
+    int limit = OGlobalConfiguration.QUERY_MATCH_MATERIALIZATION_LIMIT.getValueAsInteger();
+    Set<String> notPatternAliases = new HashSet<>();
+    for (OMatchExpression expression : notMatchExpressions) {
+      for (OMatchPathItem item : expression.getItems()) {
+        notPatternAliases.add(item.getFilter().getAlias());
+      }
+    }
+
+    Map<String, Double> arrivals = new HashMap<>();
+    costModel.cost(schedule, arrivals);
+    Set<String> result = new HashSet<>();
+    for (Map.Entry<String, Double> entry : arrivals.entrySet()) {
+      String alias = entry.getKey();
+      Long estimate = estimatedRootEntries.get(alias);
+      PatternNode node = pattern.aliasToNode.get(alias);
+      if (estimate == null || estimate > limit || estimate >= entry.getValue() || node == null || node.isOptionalNode()
+          || dependsOnExecutionContext(alias) || notPatternAliases.contains(alias)) {
+        continue;
+      }
+      boolean simpleTraversals = true;
+      for (PatternEdge edge : node.in) {
+        simpleTraversals &= isSimpleTraversal(edge);
+      }
+      for (PatternEdge edge : node.out) {
+        simpleTraversals &= isSimpleTraversal(edge);
+      }
+      if (simpleTraversals) {
+        result.add(alias);
+      }
+    }
+    return result;
+  }
+
+  private boolean isSimpleTraversal(PatternEdge edge) {
+    OMatchFilter filter = edge.item.getFilter();
+    return !(edge.item instanceof OMultiMatchPathItem) && (filter == null || (filter.getWhileCondition() == null
+        && filter.getMaxDepth() == null));
+  }
+
   private boolean isOptional(String key) {
     PatternNode node = this.pattern.aliasToNode.get(key);
     return node != null && node.isOptionalNode();
@@ -234,10 +315,9 @@ public class OMatchExecutionPlanner {
     }
   }
 
-  private OInternalExecutionPlan createPlanForPattern(Pattern pattern, OCommandContext context,
-      Map<String, Long> estimatedRootEntries, Set<String> prefetchedAliases, boolean profilingEnabled) {
+  private OInternalExecutionPlan createPlanForPattern(Pattern pattern, OCommandContext context, List<EdgeTraversal> sortedEdges,
+      Set<String> prefetchedAliases, boolean profilingEnabled) {
     OSelectExecutionPlan plan = new OSelectExecutionPlan(context);
-    List<EdgeTraversal> sortedEdges = getTopologicalSortedSchedule(estimatedRootEntries, pattern);
 
     boolean first = true;
     if (sortedEdges.size() > 0) {
@@ -274,23 +354,57 @@ public class OMatchExecutionPlanner {
    * sort edges in the order they will be matched
    */
   private List<EdgeTraversal> getTopologicalSortedSchedule(Map<String, Long> estimatedRootEntries, Pattern pattern) {
-    List<EdgeTraversal> resultingSchedule = new ArrayList<>();
-    Map<String, Set<String>> remainingDependencies = getDependencies(pattern);
-    Set<PatternNode> visitedNodes = new HashSet<>();
-    Set<PatternEdge> visitedEdges = new HashSet<>();
-
     // Sort the possible root vertices in order of estimated size, since we want to start with a small vertex set.
     List<OPair<Long, String>> rootWeights = new ArrayList<>();
     for (Map.Entry<String, Long> root : estimatedRootEntries.entrySet()) {
       rootWeights.add(new OPair<>(root.getValue(), root.getKey()));
     }
     Collections.sort(rootWeights);
-
-    // Add the starting vertices, in the correct order, to an ordered set.
-    Set<String> remainingStarts = new LinkedHashSet<String>();
+    List<String> starts = new ArrayList<>();
     for (OPair<Long, String> item : rootWeights) {
-      remainingStarts.add(item.getValue());
+      starts.add(item.getValue());
+    }
+    if (costModel == null) {
+      return getTopologicalSortedSchedule(starts, pattern);
+    }
+
+    // With the cost model, try the schedules that start from each root (from the smallest) and keep the cheapest one.
+    starts.removeIf(alias -> !pattern.aliasToNode.containsKey(alias));
+    Map<String, Set<String>> dependencies = getDependencies(pattern);
+    List<EdgeTraversal> bestSchedule = null;
+    double bestCost = 0;
+    int candidates = 0;
+    for (String candidate : starts) {
+      if (isOptional(candidate) || !dependencies.get(candidate).isEmpty()) {
+        continue;
+      }
+      if (++candidates > MAX_START_CANDIDATES) {
+        break;
+      }
+      List<String> order = new ArrayList<>(starts);
+      order.remove(candidate);
+      order.add(0, candidate);
+      List<EdgeTraversal> schedule = getTopologicalSortedSchedule(order, pattern);
+      double cost = costModel.cost(schedule, null);
+      if (bestSchedule == null || cost < bestCost) {
+        bestSchedule = schedule;
+        bestCost = cost;
+      }
     }
+    return bestSchedule == null ? getTopologicalSortedSchedule(starts, pattern) : bestSchedule;
+  }
+
+  /**
+   * sort edges in the order they will be matched, preferring the starting points in the order given
+   */
+  private List<EdgeTraversal> getTopologicalSortedSchedule(List<String> starts, Pattern pattern) {
+    List<EdgeTraversal> resultingSchedule = new ArrayList<>();
+    Map<String, Set<String>> remainingDependencies = getDependencies(pattern);
+    Set<PatternNode> visitedNodes = new HashSet<>();
+    Set<PatternEdge> visitedEdges = new HashSet<>();
+
+    // Add the starting vertices, in the correct order, to an ordered set.
+    Set<String> remainingStarts = new LinkedHashSet<String>(starts);
     // Add all the remaining aliases after all the suggested start points.
     for (String alias : pattern.aliasToNode.keySet()) {
       if (!remainingStarts.contains(alias)) {
@@ -387,6 +501,23 @@ public class OMatchExecutionPlanner {
       }
 
     }
+    if (costModel != null && edges.size() > 1) {
+      // follow first the edges that close a cycle or that reach fewer records, to keep the partial matches few
+      List<Map.Entry<PatternEdge, Boolean>> sorted = new ArrayList<>(edges.entrySet());
+      Map<PatternEdge, Double> estimates = new HashMap<>();
+      for (Map.Entry<PatternEdge, Boolean> entry : sorted) {
+        PatternNode neighbor = entry.getValue() ? entry.getKey().in : entry.getKey().out;
+        estimates.put(entry.getKey(), visitedNodes.contains(neighbor) ?
+            0 :
+            costModel.fanOut(entry.getKey(), entry.getValue(), startNode.alias) * costModel
+                .selectivity(neighbor.alias));
+      }
+      sorted.sort(Comparator.comparingDouble(entry -> estimates.get(entry.getKey())));
+      edges = new LinkedHashMap<>();
+      for (Map.Entry<PatternEdge, Boolean> entry : sorted) {
+        edges.put(entry.getKey(), entry.getValue());
+      }
+    }
 
     for (Map.Entry<PatternEdge, Boolean> edgeData : edges.entrySet()) {
       PatternEdge edge = edgeData.getKey();
@@ -420,6 +551,14 @@ public class OMatchExecutionPlanner {
           } else {
             traversalDirection = isOutbound;
           }
+          if (costModel != null && !startNode.optional && !neighboringNode.optional && edge.item.isBidirectional()) {
+            // both the aliases are matched: check the edge from the side that has fewer edges
+            double forward = costModel.fanOut(edge, true, edge.out.alias);
+            double backward = costModel.fanOut(edge, false, edge.in.alias);
+            if (forward != backward) {
+              traversalDirection = forward < backward;
+            }
+          }
 
           visitedEdges.add(edge);
           resultingSchedule.add(new EdgeTraversal(edge, traversalDirection));
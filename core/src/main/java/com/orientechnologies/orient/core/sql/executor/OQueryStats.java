@@ -3,6 +3,7 @@ package com.orientechnologies.orient.core.sql.executor;
 import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -16,10 +17,28 @@ public class OQueryStats {
 
   public Map<String, Long> stats = new ConcurrentHashMap<>();
 
+  private volatile Optional<OGraphStatistics> graphStatistics;
+
   public static OQueryStats get(ODatabaseDocumentInternal db) {
     return db.getSharedContext().getQueryStats();
   }
 
+  /**
+   * @return the degree statistics of the graph, loaded from the storage the first time. Null if the graph was never analyzed
+   */
+  public OGraphStatistics getGraphStatistics(ODatabaseDocumentInternal db) {
+    Optional<OGraphStatistics> result = graphStatistics;
+    if (result == null) {
+      result = Optional.ofNullable(OGraphStatistics.load(db));
+      graphStatistics = result;
+    }
+    return result.orElse(null);
+  }
+
+  public void setGraphStatistics(OGraphStatistics statistics) {
+    graphStatistics = Optional.ofNullable(statistics);
+  }
+
   public long getIndexStats(String indexName, int params, boolean range, boolean additionalRange) {
     String key = generateKey("INDEX", indexName, String.valueOf(params), String.valueOf(range), String.valueOf(additionalRange));
     Long val = stats.get(key);
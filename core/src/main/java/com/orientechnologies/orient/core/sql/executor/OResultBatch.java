@@ -0,0 +1,143 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.command.OCommandContext;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A block of results passed between execution steps that support batch-at-a-time execution (see {@link
+ * OBatchExecutionStep}). Results are stored in a plain array, so that a step can process a whole batch in a tight loop instead of
+ * paying an iterator call (and the related bookkeeping) for each single record.
+ * <p>
+ * A batch is also an {@link OResultSet}, so steps that were not ported to batch execution can consume it row by row. In that
+ * case, if the batch was created with a context, the <code>$current</code> variable is set to each record before it is
+ * returned, exactly as record-at-a-time fetch steps do.
+ */
+public class OResultBatch implements OResultSet {
+
+  private final OCommandContext ctx;
+
+  private OResult[] items;
+  private int       size = 0;
+  private int       next = 0;
+
+  /**
+   * @param capacity the expected number of records in the batch (the batch grows if needed)
+   */
+  public OResultBatch(int capacity) {
+    this(capacity, null);
+  }
+
+  /**
+   * @param capacity the expected number of records in the batch (the batch grows if needed)
+   * @param ctx      if not null, row by row iteration sets the <code>$current</code> variable in this context
+   */
+  public OResultBatch(int capacity, OCommandContext ctx) {
+    this.items = new OResult[Math.max(capacity, 1)];
+    this.ctx = ctx;
+  }
+
+  public void add(OResult item) {
+    if (size == items.length) {
+      items = Arrays.copyOf(items, size * 2);
+    }
+    items[size++] = item;
+  }
+
+  public void addAll(OResultBatch other) {
+    if (size + other.size > items.length) {
+      items = Arrays.copyOf(items, Math.max(size * 2, size + other.size));
+    }
+    System.arraycopy(other.items, 0, items, size, other.size);
+    size += other.size;
+  }
+
+  public OResult get(int i) {
+    if (i >= size) {
+      throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+    }
+    return items[i];
+  }
+
+  public void set(int i, OResult item) {
+    if (i >= size) {
+      throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+    }
+    items[i] = item;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return next < size;
+  }
+
+  @Override
+  public OResult next() {
+    if (next >= size) {
+      throw new IllegalStateException();
+    }
+    OResult result = items[next++];
+    if (ctx != null) {
+      ctx.setVariable("$current", result);
+    }
+    return result;
+  }
+
+  @Override
+  public void close() {
+
+  }
+
+  @Override
+  public Optional<OExecutionPlan> getExecutionPlan() {
+    return Optional.empty();
+  }
+
+  @Override
+  public Map<String, Long> getQueryStats() {
+    return null;
+  }
+
+  /**
+   * Fetches a batch of at most <code>nRecords</code> results from a step. If the step supports batch execution the batch is
+   * produced directly, otherwise the result of {@link OExecutionStepInternal#syncPull(OCommandContext, int)} is collected in a
+   * new batch.
+   * <p>
+   * As for {@link OExecutionStepInternal#syncPull(OCommandContext, int)}, an empty batch means that the step has no more
+   * results.
+   *
+   * @param step     the step to fetch results from
+   * @param ctx      the query context
+   * @param nRecords the max number of records in the batch
+   */
+  public static OResultBatch pull(OExecutionStepInternal step, OCommandContext ctx, int nRecords) {
+    if (step instanceof OBatchExecutionStep) {
+      return ((OBatchExecutionStep) step).syncPullBatch(ctx, nRecords);
+    }
+    return collect(step.syncPull(ctx, nRecords), nRecords);
+  }
+
+  /**
+   * collects all the results of a result set in a new batch
+   */
+  public static OResultBatch collect(OResultSet resultSet, int expectedSize) {
+    if (resultSet instanceof OResultBatch) {
+      return (OResultBatch) resultSet;
+    }
+    OResultBatch result = new OResultBatch(expectedSize);
+    while (resultSet.hasNext()) {
+      result.add(resultSet.next());
+    }
+    return result;
+  }
+}
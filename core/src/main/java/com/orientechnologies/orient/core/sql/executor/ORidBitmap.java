@@ -0,0 +1,464 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Compressed set of persistent RIDs, organized as a Roaring bitmap: RIDs are grouped by cluster and by the high 47 bits of the
+ * cluster position, and each group stores the low 16 bits of the positions in a container that is either a sorted array (sparse
+ * groups, up to {@link #ARRAY_MAX_SIZE} elements) or a fixed size bitmap (dense groups).
+ * <p>
+ * Compared to {@link ORidSet} the memory usage is proportional to the number of RIDs rather than to the highest position, and
+ * two sets can be efficiently combined with {@link #and(ORidBitmap)} and {@link #or(ORidBitmap)}. The iteration order is the
+ * natural RID order (cluster id, then cluster position).
+ */
+public class ORidBitmap implements Iterable<ORID> {
+
+  protected static final int ARRAY_MAX_SIZE = 4096;
+
+  private static final int  POSITION_HIGH_BITS = 47;
+  private static final long POSITION_HIGH_MASK = (1L << POSITION_HIGH_BITS) - 1;
+  private static final int  MAX_CLUSTER_ID     = 0xFFFF;
+
+  private long[]      keys       = new long[4];
+  private Container[] containers = new Container[4];
+  private int         nContainers;
+  private long        size;
+
+  /**
+   * @param rid a persistent RID
+   *
+   * @return true if the RID was not already in the set
+   */
+  public boolean add(ORID rid) {
+    long key = keyOf(rid);
+    char low = (char) rid.getClusterPosition();
+    int idx = find(key);
+    if (idx >= 0) {
+      Container container = containers[idx];
+      int before = container.cardinality();
+      container = container.add(low);
+      containers[idx] = container;
+      if (container.cardinality() == before) {
+        return false;
+      }
+    } else {
+      insert(-idx - 1, key, new ArrayContainer().add(low));
+    }
+    size++;
+    return true;
+  }
+
+  public boolean contains(ORID rid) {
+    int cluster = rid.getClusterId();
+    long position = rid.getClusterPosition();
+    if (cluster < 0 || cluster > MAX_CLUSTER_ID || position < 0) {
+      return false;
+    }
+    int idx = find(((long) cluster << POSITION_HIGH_BITS) | (position >>> 16));
+    return idx >= 0 && containers[idx].contains((char) position);
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return an estimation of the heap used by this set, in bytes
+   */
+  public long sizeInBytes() {
+    long result = 64 + 12L * keys.length;
+    for (int i = 0; i < nContainers; i++) {
+      result += containers[i].sizeInBytes();
+    }
+    return result;
+  }
+
+  /**
+   * @return a new set containing the RIDs that are both in this set and in the other one
+   */
+  public ORidBitmap and(ORidBitmap other) {
+    ORidBitmap result = new ORidBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < nContainers && j < other.nContainers) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (keys[i] > other.keys[j]) {
+        j++;
+      } else {
+        Container container = containers[i].and(other.containers[j]);
+        if (container.cardinality() > 0) {
+          result.append(keys[i], container);
+        }
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return a new set containing the RIDs that are in this set or in the other one
+   */
+  public ORidBitmap or(ORidBitmap other) {
+    ORidBitmap result = new ORidBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < nContainers || j < other.nContainers) {
+      if (j >= other.nContainers || (i < nContainers && keys[i] < other.keys[j])) {
+        result.append(keys[i], containers[i].copy());
+        i++;
+      } else if (i >= nContainers || keys[i] > other.keys[j]) {
+        result.append(other.keys[j], other.containers[j].copy());
+        j++;
+      } else {
+        result.append(keys[i], containers[i].or(other.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Iterator<ORID> iterator() {
+    return new Iterator<ORID>() {
+      private int container = 0;
+      private int next      = nContainers > 0 ? containers[0].nextValue(0) : -1;
+
+      @Override
+      public boolean hasNext() {
+        return next >= 0;
+      }
+
+      @Override
+      public ORID next() {
+        if (next < 0) {
+          throw new NoSuchElementException();
+        }
+        long key = keys[container];
+        ORID result = new ORecordId((int) (key >>> POSITION_HIGH_BITS), ((key & POSITION_HIGH_MASK) << 16) | next);
+        next = containers[container].nextValue(next + 1);
+        while (next < 0 && ++container < nContainers) {
+          next = containers[container].nextValue(0);
+        }
+        return result;
+      }
+    };
+  }
+
+  private static long keyOf(ORID rid) {
+    int cluster = rid.getClusterId();
+    long position = rid.getClusterPosition();
+    if (cluster < 0 || cluster > MAX_CLUSTER_ID || position < 0) {
+      throw new IllegalArgumentException("Cannot add a non persistent RID to a RID bitmap: " + rid);
+    }
+    return ((long) cluster << POSITION_HIGH_BITS) | (position >>> 16);
+  }
+
+  private int find(long key) {
+    // fast path for RIDs added in order
+    if (nContainers > 0) {
+      long last = keys[nContainers - 1];
+      if (last == key) {
+        return nContainers - 1;
+      } else if (last < key) {
+        return -nContainers - 1;
+      }
+    }
+    return Arrays.binarySearch(keys, 0, nContainers, key);
+  }
+
+  private void insert(int idx, long key, Container container) {
+    ensureCapacity();
+    System.arraycopy(keys, idx, keys, idx + 1, nContainers - idx);
+    System.arraycopy(containers, idx, containers, idx + 1, nContainers - idx);
+    keys[idx] = key;
+    containers[idx] = container;
+    nContainers++;
+  }
+
+  private void append(long key, Container container) {
+    ensureCapacity();
+    keys[nContainers] = key;
+    containers[nContainers] = container;
+    nContainers++;
+    size += container.cardinality();
+  }
+
+  private void ensureCapacity() {
+    if (nContainers == keys.length) {
+      keys = Arrays.copyOf(keys, keys.length * 2);
+      containers = Arrays.copyOf(containers, containers.length * 2);
+    }
+  }
+
+  private abstract static class Container {
+
+    /**
+     * @return this container, or a new one if the representation changed
+     */
+    abstract Container add(char value);
+
+    abstract boolean contains(char value);
+
+    abstract int cardinality();
+
+    abstract Container and(Container other);
+
+    abstract Container or(Container other);
+
+    abstract Container copy();
+
+    abstract long sizeInBytes();
+
+    /**
+     * @return the smallest value in the container that is greater or equal to <code>from</code>, -1 if there is no such value
+     */
+    abstract int nextValue(int from);
+  }
+
+  private static class ArrayContainer extends Container {
+    private char[] values;
+    private int    cardinality;
+
+    ArrayContainer() {
+      this(new char[4], 0);
+    }
+
+    ArrayContainer(char[] values, int cardinality) {
+      this.values = values;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    Container add(char value) {
+      int idx = cardinality > 0 && values[cardinality - 1] < value ?
+          -cardinality - 1 :
+          Arrays.binarySearch(values, 0, cardinality, value);
+      if (idx >= 0) {
+        return this;
+      }
+      if (cardinality >= ARRAY_MAX_SIZE) {
+        return toBitmap().add(value);
+      }
+      idx = -idx - 1;
+      if (cardinality == values.length) {
+        values = Arrays.copyOf(values, Math.min(Math.max(values.length * 2, 4), ARRAY_MAX_SIZE));
+      }
+      System.arraycopy(values, idx, values, idx + 1, cardinality - idx);
+      values[idx] = value;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    Container and(Container other) {
+      char[] result = new char[Math.min(cardinality, other.cardinality())];
+      int count = 0;
+      if (other instanceof ArrayContainer) {
+        ArrayContainer that = (ArrayContainer) other;
+        int i = 0;
+        int j = 0;
+        while (i < cardinality && j < that.cardinality) {
+          if (values[i] < that.values[j]) {
+            i++;
+          } else if (values[i] > that.values[j]) {
+            j++;
+          } else {
+            result[count++] = values[i];
+            i++;
+            j++;
+          }
+        }
+      } else {
+        for (int i = 0; i < cardinality; i++) {
+          if (other.contains(values[i])) {
+            result[count++] = values[i];
+          }
+        }
+      }
+      return new ArrayContainer(result, count);
+    }
+
+    @Override
+    Container or(Container other) {
+      if (other instanceof BitmapContainer) {
+        return other.or(this);
+      }
+      ArrayContainer that = (ArrayContainer) other;
+      char[] result = new char[cardinality + that.cardinality];
+      int count = 0;
+      int i = 0;
+      int j = 0;
+      while (i < cardinality || j < that.cardinality) {
+        if (j >= that.cardinality || (i < cardinality && values[i] < that.values[j])) {
+          result[count++] = values[i++];
+        } else if (i >= cardinality || values[i] > that.values[j]) {
+          result[count++] = that.values[j++];
+        } else {
+          result[count++] = values[i];
+          i++;
+          j++;
+        }
+      }
+      ArrayContainer union = new ArrayContainer(result, count);
+      return count > ARRAY_MAX_SIZE ? union.toBitmap() : union;
+    }
+
+    @Override
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 32 + 2L * values.length;
+    }
+
+    @Override
+    int nextValue(int from) {
+      if (from > Character.MAX_VALUE) {
+        return -1;
+      }
+      int idx = Arrays.binarySearch(values, 0, cardinality, (char) from);
+      if (idx < 0) {
+        idx = -idx - 1;
+      }
+      return idx < cardinality ? values[idx] : -1;
+    }
+
+    private BitmapContainer toBitmap() {
+      BitmapContainer result = new BitmapContainer();
+      for (int i = 0; i < cardinality; i++) {
+        result.add(values[i]);
+      }
+      return result;
+    }
+  }
+
+  private static class BitmapContainer extends Container {
+    private final long[] words;
+    private       int    cardinality;
+
+    BitmapContainer() {
+      this(new long[1024], 0);
+    }
+
+    BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    Container add(char value) {
+      long mask = 1L << value;
+      int word = value >>> 6;
+      if ((words[word] & mask) == 0) {
+        words[word] |= mask;
+        cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    Container and(Container other) {
+      if (other instanceof ArrayContainer) {
+        return other.and(this);
+      }
+      long[] otherWords = ((BitmapContainer) other).words;
+      long[] result = new long[words.length];
+      int count = 0;
+      for (int i = 0; i < words.length; i++) {
+        result[i] = words[i] & otherWords[i];
+        count += Long.bitCount(result[i]);
+      }
+      BitmapContainer intersection = new BitmapContainer(result, count);
+      return count <= ARRAY_MAX_SIZE ? intersection.toArray() : intersection;
+    }
+
+    @Override
+    Container or(Container other) {
+      if (other instanceof ArrayContainer) {
+        ArrayContainer that = (ArrayContainer) other;
+        BitmapContainer result = (BitmapContainer) copy();
+        for (int i = 0; i < that.cardinality; i++) {
+          result.add(that.values[i]);
+        }
+        return result;
+      }
+      long[] otherWords = ((BitmapContainer) other).words;
+      long[] result = new long[words.length];
+      int count = 0;
+      for (int i = 0; i < words.length; i++) {
+        result[i] = words[i] | otherWords[i];
+        count += Long.bitCount(result[i]);
+      }
+      return new BitmapContainer(result, count);
+    }
+
+    @Override
+    Container copy() {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 32 + 8L * words.length;
+    }
+
+    @Override
+    int nextValue(int from) {
+      int word = from >>> 6;
+      if (word >= words.length) {
+        return -1;
+      }
+      long bits = words[word] & (-1L << from);
+      while (bits == 0) {
+        if (++word == words.length) {
+          return -1;
+        }
+        bits = words[word];
+      }
+      return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    private ArrayContainer toArray() {
+      char[] values = new char[cardinality];
+      int count = 0;
+      for (int value = nextValue(0); value >= 0; value = nextValue(value + 1)) {
+        values[count++] = (char) value;
+      }
+      return new ArrayContainer(values, count);
+    }
+  }
+}
@@ -3,9 +3,12 @@ package com.orientechnologies.orient.core.sql.executor;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.storage.impl.local.statistic.OSessionStoragePerformanceStatistic;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -23,6 +26,12 @@ public class OSelectExecutionPlan implements OInternalExecutionPlan {
 
   private String statement;
 
+  private Map<OExecutionStep, OStepStatistics> statistics         = null;
+  private Map<OExecutionStep, OStepStatistics> previousStatistics = null;
+  private OExecutionStepInternal               statisticsLastStep = null;
+
+  private boolean started = false;
+
   public OSelectExecutionPlan(OCommandContext ctx) {
     this.ctx = ctx;
   }
@@ -34,9 +43,49 @@ public class OSelectExecutionPlan implements OInternalExecutionPlan {
 
   @Override
   public OResultSet fetchNext(int n) {
+    if (!started) {
+      started = true;
+      OSlowQueryLog.planStarted(this);
+    }
+    if (statisticsLastStep != null) {
+      return statisticsLastStep.syncPull(ctx, n);
+    }
     return lastStep.syncPull(ctx, n);
   }
 
+  /**
+   * Enables the collection of runtime statistics for each step of the plan (rows in/out, time, pages read, records read, memory
+   * allocated and lock wait time), that are then returned by {@link #toResult()} in a "statistics" property of each step. It has
+   * to be invoked before the execution starts.
+   *
+   * @param storageStatistic the storage performance statistic of the current thread, null if not available
+   */
+  public void enableStatistics(OSessionStoragePerformanceStatistic storageStatistic) {
+    statistics = new IdentityHashMap<>();
+    previousStatistics = new IdentityHashMap<>();
+    OExecutionStepInternal previous = null;
+    CollectStatisticsStep previousCollector = null;
+    for (OExecutionStepInternal step : steps) {
+      OStepStatistics stepStatistics = new OStepStatistics(storageStatistic);
+      statistics.put(step, stepStatistics);
+      if (previousCollector != null && step instanceof AbstractExecutionStep
+          && ((AbstractExecutionStep) step).getPrev().orElse(null) == previous) {
+        step.setPrevious(previousCollector);
+        previousStatistics.put(step, previousCollector.getStatistics());
+      }
+      previous = step;
+      previousCollector = new CollectStatisticsStep(step, stepStatistics, ctx);
+    }
+    statisticsLastStep = previousCollector;
+  }
+
+  /**
+   * @return the statistics of the whole plan, if enabled with {@link #enableStatistics(OSessionStoragePerformanceStatistic)}
+   */
+  public OStepStatistics getTotalStatistics() {
+    return statisticsLastStep == null ? null : ((CollectStatisticsStep) statisticsLastStep).getStatistics();
+  }
+
   @Override
   public String prettyPrint(int depth, int indent) {
     StringBuilder result = new StringBuilder();
@@ -86,7 +135,15 @@ public class OSelectExecutionPlan implements OInternalExecutionPlan {
     result.setProperty(JAVA_TYPE, getClass().getName());
     result.setProperty("cost", getCost());
     result.setProperty("prettyPrint", prettyPrint(0, 2));
-    result.setProperty("steps", steps == null ? null : steps.stream().map(x -> x.toResult()).collect(Collectors.toList()));
+    result.setProperty("steps", steps == null ? null : steps.stream().map(x -> stepToResult(x)).collect(Collectors.toList()));
+    return result;
+  }
+
+  private OResult stepToResult(OExecutionStep step) {
+    OResult result = step.toResult();
+    if (statistics != null && statistics.containsKey(step) && result instanceof OResultInternal) {
+      ((OResultInternal) result).setProperty("statistics", statistics.get(step).toResult(previousStatistics.get(step)));
+    }
     return result;
   }
 
@@ -1,8 +1,11 @@
 package com.orientechnologies.orient.core.sql.executor;
 
 import com.orientechnologies.common.util.OPair;
+import com.orientechnologies.orient.core.collate.OCollate;
+import com.orientechnologies.orient.core.collate.ODefaultCollate;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabase;
 import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.ODatabaseInternal;
@@ -12,6 +15,7 @@ import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OCompositeCollate;
 import com.orientechnologies.orient.core.index.OIndexAbstract;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.metadata.OMetadataInternal;
@@ -1486,7 +1490,7 @@ public class OSelectExecutionPlanner {
           if (item.getExpression() != null) {
             plan.chain(new LetExpressionStep(item.getVarName(), item.getExpression(), ctx, profilingEnabled));
           } else {
-            plan.chain(new LetQueryStep(item.getVarName(), item.getQuery(), ctx, profilingEnabled));
+            plan.chain(createLetQueryStep(item.getVarName(), item.getQuery(), ctx, profilingEnabled));
           }
         }
       } else {
@@ -1496,7 +1500,7 @@ public class OSelectExecutionPlanner {
               shardedPlan
                   .chain(new LetExpressionStep(item.getVarName().copy(), item.getExpression().copy(), ctx, profilingEnabled));
             } else {
-              shardedPlan.chain(new LetQueryStep(item.getVarName().copy(), item.getQuery().copy(), ctx, profilingEnabled));
+              shardedPlan.chain(createLetQueryStep(item.getVarName().copy(), item.getQuery().copy(), ctx, profilingEnabled));
             }
           }
         }
@@ -1504,6 +1508,99 @@ public class OSelectExecutionPlanner {
     }
   }
 
+  /**
+   * creates the step that calculates a per-record LET subquery. If the subquery is correlated to the parent query only by an
+   * equality condition (eg. <code>SELECT FROM B WHERE b = $parent.$current.a AND ...</code>) the result is a hash join,
+   * otherwise the subquery is executed once per record.
+   */
+  private static LetQueryStep createLetQueryStep(OIdentifier varName, OStatement query, OCommandContext ctx,
+      boolean profilingEnabled) {
+    if (OGlobalConfiguration.QUERY_HASH_JOIN_ENABLED.getValueAsBoolean() && query.getClass() == OSelectStatement.class) {
+      LetQueryStep hashJoin = createHashJoinLetQueryStep(varName, (OSelectStatement) query, ctx, profilingEnabled);
+      if (hashJoin != null) {
+        return hashJoin;
+      }
+    }
+    return new LetQueryStep(varName, query, ctx, profilingEnabled);
+  }
+
+  private static LetQueryStep createHashJoinLetQueryStep(OIdentifier varName, OSelectStatement query, OCommandContext ctx,
+      boolean profilingEnabled) {
+    if (query.getTarget() == null || query.getTarget().refersToParent() || query.getWhereClause() == null
+        || query.getGroupBy() != null || query.getOrderBy() != null || query.getUnwind() != null || query.getSkip() != null
+        || query.getLimit() != null || query.getLetClause() != null || query.getLockRecord() != null) {
+      return null;
+    }
+    OProjection projection = query.getProjection();
+    if (projection != null) {
+      if (projection.refersToParent() || projection.isExpand() || projection.isDistinct()) {
+        return null;
+      }
+      for (OProjectionItem item : projection.getItems()) {
+        if (item.isAggregate()) {
+          return null;
+        }
+      }
+    }
+
+    OSelectStatement buildQuery = query.copy();
+    List<OAndBlock> flattened = buildQuery.getWhereClause().flatten();
+    if (flattened.size() != 1) {
+      return null;
+    }
+    OBinaryCondition joinCondition = null;
+    List<OBooleanExpression> otherConditions = new ArrayList<>();
+    for (OBooleanExpression condition : flattened.get(0).getSubBlocks()) {
+      if (!condition.refersToParent()) {
+        otherConditions.add(condition);
+      } else if (joinCondition == null && condition instanceof OBinaryCondition
+          && ((OBinaryCondition) condition).getOperator() instanceof OEqualsCompareOperator) {
+        joinCondition = (OBinaryCondition) condition;
+      } else {
+        return null;
+      }
+    }
+    if (joinCondition == null) {
+      return null;
+    }
+    boolean buildKeyOnLeft;
+    if (isParentValue(joinCondition.getRight()) && !joinCondition.getLeft().refersToParent()) {
+      buildKeyOnLeft = true;
+    } else if (isParentValue(joinCondition.getLeft()) && !joinCondition.getRight().refersToParent()) {
+      buildKeyOnLeft = false;
+    } else {
+      return null;
+    }
+
+    if (otherConditions.isEmpty()) {
+      buildQuery.setWhereClause(null);
+    } else {
+      OAndBlock andBlock = new OAndBlock(-1);
+      for (OBooleanExpression condition : otherConditions) {
+        andBlock.getSubBlocks().add(condition.copy());
+      }
+      OWhereClause where = new OWhereClause(-1);
+      where.setBaseExpression(andBlock);
+      buildQuery.setWhereClause(where);
+    }
+    buildQuery.setProjection(null);
+
+    OExpression buildKey = buildKeyOnLeft ? joinCondition.getLeft() : joinCondition.getRight();
+    OExpression probeKey = buildKeyOnLeft ? joinCondition.getRight() : joinCondition.getLeft();
+    return new HashJoinLetQueryStep(varName, query, buildQuery, projection == null ? null : projection.copy(), buildKey.copy(),
+        probeKey.copy(), buildKeyOnLeft, OGlobalConfiguration.QUERY_HASH_JOIN_MIN_PROBE_ROWS.getValueAsInteger(),
+        OGlobalConfiguration.QUERY_HASH_JOIN_MAX_IN_MEMORY_ROWS.getValueAsLong(), ctx, profilingEnabled);
+  }
+
+  /**
+   * @return true if the expression is a plain reference to a value of the parent query (eg. <code>$parent.$current.a</code>),
+   * so that it does not depend on the current record of the subquery
+   */
+  private static boolean isParentValue(OExpression expression) {
+    return expression.getMathExpression() instanceof OBaseExpression && expression.refersToParent() && expression.toString()
+        .toLowerCase(Locale.ENGLISH).startsWith("$parent.");
+  }
+
   private List<OLetItem> sortLet(List<OLetItem> items, OLetClause letClause) {
     if (letClause == null) {
       return items;
@@ -1808,49 +1905,132 @@ public class OSelectExecutionPlanner {
         throw new OCommandExecutionException("Class not found: " + queryTarget);
       }
     }
+    if (info.orderBy.getItems().stream().anyMatch(x -> x.getCollate() != null)) {
+      return false;
+    }
+    String orderType = getOrderTypeForSort(info);
+    if (orderType == null) {
+      return false;
+    }
+    int[] filterClusterIds = null;
+    if (filterClusters != null) {
+      filterClusterIds = filterClusters.stream().map(name -> ctx.getDatabase().getClusterIdByName(name)).mapToInt(i -> i).toArray();
+    }
+
+    OIndex idx = findIndexForSort(clazz.getIndexes(), info);
+    if (idx != null) {
+      plan.chain(new FetchFromIndexValuesStep(idx, orderType.equals(OOrderByItem.ASC), ctx, profilingEnabled));
+      plan.chain(new GetValueFromIndexEntryStep(ctx, filterClusterIds, profilingEnabled));
+      if (info.serverToClusters.size() == 1) {
+        info.orderApplied = true;
+      }
+      return true;
+    }
 
-    for (OIndex idx : clazz.getIndexes().stream().filter(i -> i.supportsOrderedIterations()).filter(i -> i.getDefinition() != null)
+    //try an index per subclass, merging the sorted results
+    List<OIndex> subclassIndexes = new ArrayList<>();
+    if (!findSubclassIndexesForSort(clazz, info, subclassIndexes) || subclassIndexes.size() < 2) {
+      return false;
+    }
+    List<OInternalExecutionPlan> subPlans = new ArrayList<>();
+    for (OIndex subclassIndex : subclassIndexes) {
+      OSelectExecutionPlan subPlan = new OSelectExecutionPlan(ctx);
+      subPlan.chain(new FetchFromIndexValuesStep(subclassIndex, orderType.equals(OOrderByItem.ASC), ctx, profilingEnabled));
+      subPlan.chain(new GetValueFromIndexEntryStep(ctx, filterClusterIds, profilingEnabled));
+      subPlans.add(subPlan);
+    }
+    //the ORDER BY can refer to projection aliases, the records are compared on the index fields
+    OOrderBy mergeOrder = new OOrderBy(-1);
+    mergeOrder.setItems(new ArrayList<>());
+    List<String> indexFields = subclassIndexes.get(0).getDefinition().getFields();
+    for (int i = 0; i < info.orderBy.getItems().size(); i++) {
+      OOrderByItem item = new OOrderByItem();
+      item.setAlias(indexFields.get(i));
+      item.setType(orderType);
+      mergeOrder.getItems().add(item);
+    }
+    plan.chain(new OrderedMergeStep(subPlans, mergeOrder, ctx, profilingEnabled));
+    if (info.serverToClusters.size() == 1) {
+      info.orderApplied = true;
+    }
+    return true;
+  }
+
+  /**
+   * @return the direction of the ORDER BY (ASC or DESC), null if the ORDER BY mixes directions
+   */
+  private String getOrderTypeForSort(QueryPlanningInfo info) {
+    String orderType = null;
+    for (OOrderByItem orderItem : info.orderBy.getItems()) {
+      if (orderType == null) {
+        orderType = orderItem.getType();
+      } else if (!orderType.equals(orderItem.getType())) {
+        return null;//ASC/DESC interleaved, cannot be used with index.
+      }
+    }
+    return orderType;
+  }
+
+  /**
+   * @return an index that iterates the records in the order of the ORDER BY, null if none of the indexes does
+   */
+  private OIndex findIndexForSort(Collection<OIndex<?>> indexes, QueryPlanningInfo info) {
+    for (OIndex idx : indexes.stream().filter(i -> i.supportsOrderedIterations()).filter(i -> i.getDefinition() != null)
         .collect(Collectors.toList())) {
       List<String> indexFields = idx.getDefinition().getFields();
       if (indexFields.size() < info.orderBy.getItems().size()) {
         continue;
       }
       boolean indexFound = true;
-      String orderType = null;
       for (int i = 0; i < info.orderBy.getItems().size(); i++) {
         OOrderByItem orderItem = info.orderBy.getItems().get(i);
-        if (orderItem.getCollate() != null) {
-          return false;
-        }
         String indexField = indexFields.get(i);
-        if (i == 0) {
-          orderType = orderItem.getType();
-        } else {
-          if (orderType == null || !orderType.equals(orderItem.getType())) {
-            indexFound = false;
-            break;//ASC/DESC interleaved, cannot be used with index.
-          }
-        }
         if (!(indexField.equals(orderItem.getAlias()) || isInOriginalProjection(indexField, orderItem.getAlias()))) {
           indexFound = false;
           break;
         }
       }
-      if (indexFound && orderType != null) {
-        plan.chain(new FetchFromIndexValuesStep(idx, orderType.equals(OOrderByItem.ASC), ctx, profilingEnabled));
-        int[] filterClusterIds = null;
-        if (filterClusters != null) {
-          filterClusterIds = filterClusters.stream().map(name -> ctx.getDatabase().getClusterIdByName(name)).mapToInt(i -> i)
-              .toArray();
-        }
-        plan.chain(new GetValueFromIndexEntryStep(ctx, filterClusterIds, profilingEnabled));
-        if (info.serverToClusters.size() == 1) {
-          info.orderApplied = true;
-        }
-        return true;
+      if (indexFound) {
+        return idx;
       }
     }
-    return false;
+    return null;
+  }
+
+  /**
+   * Finds an index for each subclass, that iterates its records in the order of the ORDER BY. The class itself has to be empty,
+   * subclasses without such an index are searched recursively.
+   *
+   * @param clazz  the class
+   * @param info   the query planning info
+   * @param result the indexes, one per subclass
+   *
+   * @return false if the records of the class cannot be fetched in the ORDER BY order with the indexes of its subclasses
+   */
+  private boolean findSubclassIndexesForSort(OClass clazz, QueryPlanningInfo info, List<OIndex> result) {
+    if (clazz.count(false) != 0 || clazz.getSubclasses().size() == 0 || isDiamondHierarchy(clazz)) {
+      return false;
+    }
+    for (OClass subclass : clazz.getSubclasses()) {
+      OIndex idx = findIndexForSort(subclass.getClassIndexes(), info);
+      if (idx != null && hasDefaultCollate(idx.getDefinition())) {
+        result.add(idx);
+      } else if (!findSubclassIndexesForSort(subclass, info, result)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * the merge of sorted results compares the field values, so the indexes have to use the same order
+   */
+  private boolean hasDefaultCollate(OIndexDefinition definition) {
+    OCollate collate = definition.getCollate();
+    if (collate instanceof OCompositeCollate) {
+      return ((OCompositeCollate) collate).getCollates().stream().allMatch(x -> x == null || ODefaultCollate.NAME.equals(x.getName()));
+    }
+    return collate == null || ODefaultCollate.NAME.equals(collate.getName());
   }
 
   private boolean isInOriginalProjection(String indexField, String alias) {
@@ -1888,25 +2068,59 @@ public class OSelectExecutionPlanner {
       return false;
     }
     //try subclasses
+    OExecutionStepInternal subclassesStep = handleSubclassesWithIndex(clazz, filterClusters, info, ctx, profilingEnabled);
+    if (subclassesStep != null) {
+      plan.chain(subclassesStep);
+      return true;
+    }
+    return false;
+  }
 
-    Collection<OClass> subclasses = clazz.getSubclasses();
-
+  /**
+   * Fetches the records of the subclasses of a class, each one with its own index. If all the subclasses return their records in
+   * the ORDER BY order, the results are merged keeping the order, otherwise they are concatenated.
+   *
+   * @return the step that fetches from all the subclasses, null if some subclasses cannot be fetched with an index
+   */
+  private OExecutionStepInternal handleSubclassesWithIndex(OClass clazz, Set<String> filterClusters, QueryPlanningInfo info,
+      OCommandContext ctx, boolean profilingEnabled) {
     List<OInternalExecutionPlan> subclassPlans = new ArrayList<>();
-    for (OClass subClass : subclasses) {
+    boolean sorted = info.orderBy != null;
+    for (OClass subClass : clazz.getSubclasses()) {
+      info.orderApplied = false;
       List<OExecutionStepInternal> subSteps = handleClassAsTargetWithIndexRecursive(subClass.getName(), filterClusters, info, ctx,
           profilingEnabled);
       if (subSteps == null || subSteps.size() == 0) {
-        return false;
+        info.orderApplied = false;
+        return null;
       }
+      sorted = sorted && info.orderApplied && sortedWithDefaultCollate(subSteps);
       OSelectExecutionPlan subPlan = new OSelectExecutionPlan(ctx);
       subSteps.stream().forEach(x -> subPlan.chain(x));
       subclassPlans.add(subPlan);
     }
-    if (subclassPlans.size() > 0) {
-      plan.chain(new ParallelExecStep(subclassPlans, ctx, profilingEnabled));
-      return true;
+    //the ORDER BY is applied only if the sub-plans are merged
+    info.orderApplied = false;
+    if (subclassPlans.size() == 0) {
+      return null;
     }
-    return false;
+    if (sorted && subclassPlans.size() > 1) {
+      info.orderApplied = true;
+      return new OrderedMergeStep(subclassPlans, info.orderBy.copy(), ctx, profilingEnabled);
+    }
+    if (sorted) {
+      info.orderApplied = true;
+    }
+    return new ParallelExecStep(subclassPlans, ctx, profilingEnabled);
+  }
+
+  /**
+   * @return false if the steps fetch from an index with a collate that is not the default one: the merge of the sorted results of
+   * the subclasses would compare the values in a different order
+   */
+  private boolean sortedWithDefaultCollate(List<OExecutionStepInternal> steps) {
+    return steps.stream().filter(x -> x instanceof FetchFromIndexStep)
+        .allMatch(x -> hasDefaultCollate(((FetchFromIndexStep) x).index.getDefinition()));
   }
 
   /**
@@ -1949,22 +2163,11 @@ public class OSelectExecutionPlanner {
         return null;
       }
 
-      Collection<OClass> subclasses = clazz.getSubclasses();
-
-      List<OInternalExecutionPlan> subclassPlans = new ArrayList<>();
-      for (OClass subClass : subclasses) {
-        List<OExecutionStepInternal> subSteps = handleClassAsTargetWithIndexRecursive(subClass.getName(), filterClusters, info, ctx,
-            profilingEnabled);
-        if (subSteps == null || subSteps.size() == 0) {
-          return null;
-        }
-        OSelectExecutionPlan subPlan = new OSelectExecutionPlan(ctx);
-        subSteps.stream().forEach(x -> subPlan.chain(x));
-        subclassPlans.add(subPlan);
-      }
-      if (subclassPlans.size() > 0) {
-        result.add(new ParallelExecStep(subclassPlans, ctx, profilingEnabled));
+      OExecutionStepInternal subclassesStep = handleSubclassesWithIndex(clazz, filterClusters, info, ctx, profilingEnabled);
+      if (subclassesStep == null) {
+        return null;
       }
+      result.add(subclassesStep);
     }
     return result.size() == 0 ? null : result;
   }
@@ -1999,21 +2202,28 @@ public class OSelectExecutionPlanner {
       IndexSearchDescriptor desc = indexSearchDescriptors.get(0);
       result = new ArrayList<>();
       Boolean orderAsc = getOrderDirection(info);
-      result.add(
-          new FetchFromIndexStep(desc.idx, desc.keyCondition, desc.additionalRangeCondition, !Boolean.FALSE.equals(orderAsc), ctx,
-              profilingEnabled));
       int[] filterClusterIds = null;
       if (filterClusters != null) {
         filterClusterIds = filterClusters.stream().map(name -> ctx.getDatabase().getClusterIdByName(name)).mapToInt(i -> i)
             .toArray();
       }
-      result.add(new GetValueFromIndexEntryStep(ctx, filterClusterIds, profilingEnabled));
-      if (requiresMultipleIndexLookups(desc.keyCondition)) {
-        result.add(new DistinctExecutionStep(ctx, profilingEnabled));
-      }
-      if (orderAsc != null && info.orderBy != null && fullySorted(info.orderBy, desc.keyCondition, desc.idx)
-          && info.serverToClusters.size() == 1) {
-        info.orderApplied = true;
+      List<IndexSearchDescriptor> intersection = findIndexesToIntersect(ctx, indexes, desc, c, info);
+      if (intersection.size() > 1) {
+        //the key conditions of the other indexes are still part of the remaining condition of the first one
+        result.add(new IndexIntersectionStep(createIndexFetchPlans(intersection, ctx, profilingEnabled), filterClusterIds, ctx,
+            profilingEnabled));
+      } else {
+        result.add(
+            new FetchFromIndexStep(desc.idx, desc.keyCondition, desc.additionalRangeCondition, !Boolean.FALSE.equals(orderAsc),
+                ctx, profilingEnabled));
+        result.add(new GetValueFromIndexEntryStep(ctx, filterClusterIds, profilingEnabled));
+        if (requiresMultipleIndexLookups(desc.keyCondition)) {
+          result.add(new DistinctExecutionStep(ctx, profilingEnabled));
+        }
+        if (orderAsc != null && info.orderBy != null && fullySorted(info.orderBy, desc.keyCondition, desc.idx)
+            && info.serverToClusters.size() == 1) {
+          info.orderApplied = true;
+        }
       }
       if (desc.remainingCondition != null && !desc.remainingCondition.isEmpty()) {
         if ((info.perRecordLetClause != null && refersToLet(Collections.singletonList(desc.remainingCondition)))) {
@@ -2028,6 +2238,24 @@ public class OSelectExecutionPlanner {
         }
         result.add(new FilterStep(createWhereFrom(desc.remainingCondition), ctx, profilingEnabled));
       }
+    } else if (optimumIndexSearchDescriptors.size() > 1 && OGlobalConfiguration.QUERY_INDEX_INTERSECTION_ENABLED.getValueAsBoolean()
+        && (info.perRecordLetClause == null || !refersToLet(new ArrayList<>(info.flattenedWhereClause)))) {
+      result = new ArrayList<>();
+      int[] filterClusterIds = null;
+      if (filterClusters != null) {
+        filterClusterIds = filterClusters.stream().map(name -> ctx.getDatabase().getClusterIdByName(name)).mapToInt(i -> i)
+            .toArray();
+      }
+      result.add(new IndexUnionStep(createIndexFetchPlans(optimumIndexSearchDescriptors, ctx, profilingEnabled), filterClusterIds,
+          ctx, profilingEnabled));
+      if (optimumIndexSearchDescriptors.stream().anyMatch(x -> x.remainingCondition != null && !x.remainingCondition.isEmpty())) {
+        //a record can be returned by an index and match the remaining condition of another one, so filter with the whole condition
+        OOrBlock whereClause = new OOrBlock(-1);
+        for (OAndBlock block : info.flattenedWhereClause) {
+          whereClause.getSubBlocks().add(block.copy());
+        }
+        result.add(new FilterStep(createWhereFrom(whereClause), ctx, profilingEnabled));
+      }
     } else {
       result = new ArrayList<>();
       result.add(createParallelIndexFetch(optimumIndexSearchDescriptors, filterClusters, ctx, profilingEnabled));
@@ -2038,6 +2266,75 @@ public class OSelectExecutionPlanner {
     return result;
   }
 
+  /**
+   * Given the index chosen for a flat AND block, looks for other indexes that can be used to reduce the number of records to be
+   * fetched, intersecting the RIDs returned by the indexes. Only equality lookups are added to the intersection, and only when the
+   * index statistics do not say they are much more expensive than the first index
+   *
+   * @return the list of indexes to intersect, starting with the first one. If the list has only one element, no intersection is
+   * needed
+   */
+  private List<IndexSearchDescriptor> findIndexesToIntersect(OCommandContext ctx, Set<OIndex<?>> indexes,
+      IndexSearchDescriptor first, OClass clazz, QueryPlanningInfo info) {
+    List<IndexSearchDescriptor> result = new ArrayList<>();
+    result.add(first);
+    if (!OGlobalConfiguration.QUERY_INDEX_INTERSECTION_ENABLED.getValueAsBoolean()) {
+      return result;
+    }
+    if (info.orderBy != null && getOrderDirection(info) != null && fullySorted(info.orderBy, first.keyCondition, first.idx)) {
+      //the index already returns records in the right order, the intersection would not
+      return result;
+    }
+    int maxIndexes = OGlobalConfiguration.QUERY_INDEX_INTERSECTION_MAX_INDEXES.getValueAsInteger();
+    long firstCost = first.cost(ctx);
+    Set<OIndex<?>> candidates = new HashSet<>(indexes);
+    candidates.remove(first.idx);
+    IndexSearchDescriptor last = first;
+    while (result.size() < maxIndexes && last.remainingCondition instanceof OAndBlock && !last.remainingCondition.isEmpty()) {
+      IndexSearchDescriptor next = findBestIndexFor(ctx, candidates, (OAndBlock) last.remainingCondition, clazz);
+      if (next == null || !isEqualityLookup(next)) {
+        break;
+      }
+      long nextCost = next.cost(ctx);
+      if (firstCost != Integer.MAX_VALUE && nextCost != Integer.MAX_VALUE && nextCost > firstCost * 10) {
+        break;
+      }
+      result.add(next);
+      candidates.remove(next.idx);
+      last = next;
+    }
+    return result;
+  }
+
+  private boolean isEqualityLookup(IndexSearchDescriptor desc) {
+    if (desc.additionalRangeCondition != null) {
+      return false;
+    }
+    for (OBooleanExpression exp : desc.keyCondition.getSubBlocks()) {
+      if (exp instanceof OInCondition) {
+        continue;
+      }
+      if (!(exp instanceof OBinaryCondition) || !(((OBinaryCondition) exp).getOperator() instanceof OEqualsCompareOperator)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * creates a sub-plan that fetches the entries of an index for each index search descriptor
+   */
+  private List<OInternalExecutionPlan> createIndexFetchPlans(List<IndexSearchDescriptor> indexSearchDescriptors,
+      OCommandContext ctx, boolean profilingEnabled) {
+    List<OInternalExecutionPlan> result = new ArrayList<>();
+    for (IndexSearchDescriptor desc : indexSearchDescriptors) {
+      OSelectExecutionPlan subPlan = new OSelectExecutionPlan(ctx);
+      subPlan.chain(new FetchFromIndexStep(desc.idx, desc.keyCondition, desc.additionalRangeCondition, ctx, profilingEnabled));
+      result.add(subPlan);
+    }
+    return result;
+  }
+
   private static OSchema getSchemaFromContext(OCommandContext ctx) {
     return ((OMetadataInternal) ctx.getDatabase().getMetadata()).getImmutableSchemaSnapshot();
   }
@@ -0,0 +1,462 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.metadata.security.OSecurityUser;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.statistic.OSessionStoragePerformanceStatistic;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Records the statements executed by the new SQL executor that take more than {@link OGlobalConfiguration#QUERY_SLOW_LOG_THRESHOLD}
+ * milliseconds, plus a random sample of all the statements (see {@link OGlobalConfiguration#QUERY_SLOW_LOG_SAMPLING_RATE}).
+ * <p>
+ * Each record contains the statement, the types of its parameters (the values only if {@link
+ * OGlobalConfiguration#QUERY_SLOW_LOG_PARAMETER_VALUES} is enabled), the execution time (the time spent in the executor, not the time the client
+ * spent consuming the results), the number of returned rows and the execution plan in JSON format. Sampled statements are executed
+ * with runtime statistics enabled, so their execution plan also contains rows, time, pages and records read by each step (see
+ * {@link OSelectExecutionPlan#enableStatistics(OSessionStoragePerformanceStatistic)}); this is not done for statements recorded
+ * only for the threshold, because it is not possible to know in advance that they will be slow.
+ * <p>
+ * Records are kept in a bounded in-memory ring buffer for each database (see {@link #getRecords()}), and optionally saved in the
+ * {@value #CLASS_NAME} class and in a rotating file. The file is written at most once a second, or when 64KB of records are
+ * pending.
+ * <p>
+ * When both the threshold and the sampling rate are disabled (the default), the only overhead is the check of the two settings for
+ * each statement.
+ */
+public class OSlowQueryLog {
+
+  public static final String CLASS_NAME = "OSlowQuery";
+
+  private static final ThreadLocal<Execution> CURRENT_EXECUTION = new ThreadLocal<>();
+
+  /**
+   * the sampled execution that started gathering the storage statistics of the current thread, that can be completed only on this
+   * thread
+   */
+  private static final ThreadLocal<Execution> GATHERING_EXECUTION = new ThreadLocal<>();
+
+  private static final long FILE_WRITE_INTERVAL = 1000;
+  private static final int  FILE_WRITE_SIZE     = 64 * 1024;
+
+  private static       FileHandler   fileHandler;
+  private static       String        fileHandlerPath;
+  private static final StringBuilder pendingLines    = new StringBuilder();
+  private static       long          lastFileWrite   = 0;
+  private static final Object        fileHandlerLock = new Object();
+
+  private final OResult[] buffer;
+  private       int       nextPosition = 0;
+  private       int       size         = 0;
+  private volatile boolean classCreated = false;
+
+  public OSlowQueryLog() {
+    this.buffer = new OResult[Math.max(1, OGlobalConfiguration.QUERY_SLOW_LOG_BUFFER_SIZE.getValueAsInteger())];
+  }
+
+  /**
+   * @return true if statements have to be passed to the slow query log
+   */
+  public static boolean isEnabled() {
+    return OGlobalConfiguration.QUERY_SLOW_LOG_THRESHOLD.getValueAsLong() >= 0
+        || OGlobalConfiguration.QUERY_SLOW_LOG_SAMPLING_RATE.getValueAsFloat() > 0;
+  }
+
+  /**
+   * Executes a statement, recording it in the slow query log of the database if needed. The statement is considered completed when
+   * the returned result set is closed.
+   *
+   * @param db        the current database
+   * @param statement the statement text
+   * @param params    the statement parameters (an array or a map)
+   * @param execution the actual execution of the statement
+   */
+  public static OResultSet execute(ODatabaseDocumentInternal db, String statement, Object params,
+      Supplier<OResultSet> execution) {
+    if (!isEnabled()) {
+      return execution.get();
+    }
+    OSlowQueryLog log = db.getSharedContext() == null ? null : db.getSharedContext().getSlowQueryLog();
+    if (log == null) {
+      return execution.get();
+    }
+    float samplingRate = OGlobalConfiguration.QUERY_SLOW_LOG_SAMPLING_RATE.getValueAsFloat();
+    boolean sampled = samplingRate > 0 && ThreadLocalRandom.current().nextFloat() < samplingRate;
+
+    Execution gathering = GATHERING_EXECUTION.get();
+    if (gathering != null && gathering.completed) {
+      // its result set was closed by another thread before reaching the end
+      gathering.stopStorageStatistic();
+    }
+    if (OGlobalConfiguration.QUERY_SLOW_LOG_STORE_IN_CLASS.getValueAsBoolean()) {
+      log.createClass(db);
+    }
+    Execution current = new Execution(log, db, statement, params, sampled);
+    if (sampled) {
+      current.startStorageStatistic();
+    }
+    Execution previous = CURRENT_EXECUTION.get();
+    CURRENT_EXECUTION.set(current);
+    long begin = System.nanoTime();
+    boolean started = false;
+    try {
+      OResultSet result = new SlowQueryResultSet(execution.get(), current);
+      started = true;
+      return result;
+    } catch (RuntimeException e) {
+      current.error = e.toString();
+      throw e;
+    } finally {
+      current.elapsedNanos += System.nanoTime() - begin;
+      CURRENT_EXECUTION.set(previous);
+      if (!started) {
+        current.complete();
+      }
+    }
+  }
+
+  /**
+   * Invoked by an execution plan when it starts fetching results: if it is the plan of a statement that is being executed through
+   * {@link #execute(ODatabaseDocumentInternal, String, Object, Supplier)}, it is bound to the statement and, if the statement was
+   * sampled, runtime statistics are enabled.
+   */
+  static void planStarted(OSelectExecutionPlan plan) {
+    Execution current = CURRENT_EXECUTION.get();
+    if (current != null && current.plan == null) {
+      current.plan = plan;
+      if (current.sampled) {
+        plan.enableStatistics(current.storageStatistic);
+      }
+    }
+  }
+
+  /**
+   * @return the records currently kept in memory, from the oldest to the most recent
+   */
+  public synchronized List<OResult> getRecords() {
+    List<OResult> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      result.add(buffer[(nextPosition - size + i + buffer.length) % buffer.length]);
+    }
+    return result;
+  }
+
+  public synchronized void clear() {
+    for (int i = 0; i < buffer.length; i++) {
+      buffer[i] = null;
+    }
+    size = 0;
+    nextPosition = 0;
+    classCreated = false;
+    flushFile();
+  }
+
+  /**
+   * creates the {@value #CLASS_NAME} class if it does not exist, before the statement is executed: it cannot be created when the
+   * result set is closed, that can happen in a transaction or on another thread. The schema cannot be changed in a transaction,
+   * either: in this case the class is created by the next statement executed out of transaction
+   */
+  private void createClass(ODatabaseDocumentInternal db) {
+    if (classCreated || (db.getTransaction() != null && db.getTransaction().isActive())) {
+      return;
+    }
+    try {
+      OSchema schema = db.getMetadata().getSchema();
+      if (!schema.existsClass(CLASS_NAME)) {
+        OClass clazz = schema.getOrCreateClass(CLASS_NAME);
+        clazz.createProperty("date", OType.DATETIME);
+      }
+      classCreated = true;
+    } catch (RuntimeException e) {
+      OLogManager.instance().debug(OSlowQueryLog.class, "Cannot create the %s class", e, CLASS_NAME);
+    }
+  }
+
+  protected void record(OResultInternal record, ODatabaseDocumentInternal db) {
+    synchronized (this) {
+      buffer[nextPosition] = record;
+      nextPosition = (nextPosition + 1) % buffer.length;
+      size = Math.min(size + 1, buffer.length);
+    }
+    String file = OGlobalConfiguration.QUERY_SLOW_LOG_FILE.getValueAsString();
+    if (file != null && !file.isEmpty()) {
+      writeToFile(file, record.toJSON());
+    }
+    if (OGlobalConfiguration.QUERY_SLOW_LOG_STORE_IN_CLASS.getValueAsBoolean()) {
+      saveInClass(record, db);
+    }
+  }
+
+  /**
+   * appends a record to the file. A FileHandler flushes every published record, so the records are collected and published
+   * together, once a second or when they are more than {@link #FILE_WRITE_SIZE} characters
+   */
+  private static void writeToFile(String path, String json) {
+    synchronized (fileHandlerLock) {
+      if (!path.equals(fileHandlerPath)) {
+        flushFile();
+        if (fileHandler != null) {
+          fileHandler.close();
+          fileHandler = null;
+        }
+        fileHandlerPath = path;
+        try {
+          int limit = (int) Math.min(Integer.MAX_VALUE, OGlobalConfiguration.QUERY_SLOW_LOG_FILE_LIMIT.getValueAsLong());
+          fileHandler = new FileHandler(path, limit, Math.max(1, OGlobalConfiguration.QUERY_SLOW_LOG_FILE_COUNT.getValueAsInteger()),
+              true);
+          fileHandler.setFormatter(new Formatter() {
+            @Override
+            public String format(LogRecord record) {
+              return record.getMessage() + System.lineSeparator();
+            }
+          });
+        } catch (IOException | RuntimeException e) {
+          OLogManager.instance().warn(OSlowQueryLog.class, "Cannot open the slow query log file %s", e, path);
+        }
+      }
+      if (fileHandler == null) {
+        return;
+      }
+      if (pendingLines.length() > 0) {
+        pendingLines.append(System.lineSeparator());
+      }
+      pendingLines.append(json);
+      long now = System.currentTimeMillis();
+      if (now - lastFileWrite >= FILE_WRITE_INTERVAL || pendingLines.length() >= FILE_WRITE_SIZE) {
+        flushFile();
+        lastFileWrite = now;
+      }
+    }
+  }
+
+  /**
+   * writes the pending records to the file
+   */
+  private static void flushFile() {
+    synchronized (fileHandlerLock) {
+      if (fileHandler != null && pendingLines.length() > 0) {
+        fileHandler.publish(new LogRecord(Level.INFO, pendingLines.toString()));
+      }
+      pendingLines.setLength(0);
+    }
+  }
+
+  private static void saveInClass(OResultInternal record, ODatabaseDocumentInternal db) {
+    // the record cannot be saved in the transaction of the user, it would be committed or rolled back with it
+    if (db == null || db.isClosed() || (db.getTransaction() != null && db.getTransaction().isActive())) {
+      return;
+    }
+    try {
+      if (!db.getMetadata().getImmutableSchemaSnapshot().existsClass(CLASS_NAME)) {
+        // not created when the statement was executed
+        return;
+      }
+      ODocument doc = new ODocument(CLASS_NAME);
+      for (String property : record.getPropertyNames()) {
+        Object value = record.getProperty(property);
+        doc.setProperty(property, value instanceof OResult ? ((OResult) value).toElement() : value);
+      }
+      doc.save();
+    } catch (RuntimeException e) {
+      OLogManager.instance().debug(OSlowQueryLog.class, "Cannot save slow query log record", e);
+    }
+  }
+
+  private static class Execution {
+    private final OSlowQueryLog             log;
+    private final ODatabaseDocumentInternal db;
+    private final String                    statement;
+    private final Object                    params;
+    private final boolean                   sampled;
+    private final Date                      date   = new Date();
+    private final Thread                    thread = Thread.currentThread();
+
+    private long                                elapsedNanos = 0;
+    private long                                rows         = 0;
+    private String                              error;
+    private OSelectExecutionPlan                plan;
+    private OExecutionPlan                      resultSetPlan;
+    private OSessionStoragePerformanceStatistic storageStatistic;
+    private OAbstractPaginatedStorage           gatheringStorage;
+    private volatile boolean                    completed    = false;
+
+    Execution(OSlowQueryLog log, ODatabaseDocumentInternal db, String statement, Object params, boolean sampled) {
+      this.log = log;
+      this.db = db;
+      this.statement = statement;
+      this.params = params;
+      this.sampled = sampled;
+    }
+
+    void startStorageStatistic() {
+      OStorage storage = db.getStorage();
+      if (storage == null || !(storage.getUnderlying() instanceof OAbstractPaginatedStorage)) {
+        return;
+      }
+      OAbstractPaginatedStorage paginatedStorage = (OAbstractPaginatedStorage) storage.getUnderlying();
+      storageStatistic = paginatedStorage.getSessionPerformanceStatistic();
+      if (storageStatistic == null) {
+        paginatedStorage.startGatheringPerformanceStatisticForCurrentThread();
+        gatheringStorage = paginatedStorage;
+        storageStatistic = paginatedStorage.getSessionPerformanceStatistic();
+        GATHERING_EXECUTION.set(this);
+      }
+    }
+
+    /**
+     * stops gathering the storage statistics, if this execution started it and this is the thread that executed the statement. It is
+     * called when the last result is fetched or the result set is closed; if the result set is closed by another thread before the
+     * end, it is called by the next statement executed by the owning thread
+     */
+    void stopStorageStatistic() {
+      if (gatheringStorage != null && thread == Thread.currentThread()) {
+        gatheringStorage.completeGatheringPerformanceStatisticForCurrentThread();
+        gatheringStorage = null;
+        if (GATHERING_EXECUTION.get() == this) {
+          GATHERING_EXECUTION.remove();
+        }
+      }
+    }
+
+    void complete() {
+      if (completed) {
+        return;
+      }
+      completed = true;
+      stopStorageStatistic();
+      long elapsedMillis = elapsedNanos / 1_000_000;
+      long threshold = OGlobalConfiguration.QUERY_SLOW_LOG_THRESHOLD.getValueAsLong();
+      if (sampled || (threshold >= 0 && elapsedMillis >= threshold)) {
+        log.record(toResult(elapsedMillis), db);
+      }
+    }
+
+    private OResultInternal toResult(long elapsedMillis) {
+      OResultInternal result = new OResultInternal();
+      result.setProperty("date", date);
+      result.setProperty("database", db.getName());
+      OSecurityUser user = db.getUser();
+      result.setProperty("user", user == null ? null : user.getName());
+      result.setProperty("statement", statement);
+      result.setProperty("parameters", convertParams());
+      result.setProperty("executionTimeMillis", elapsedMillis);
+      result.setProperty("rows", rows);
+      result.setProperty("sampled", sampled);
+      if (error != null) {
+        result.setProperty("error", error);
+      }
+      OExecutionPlan executionPlan = plan != null ? plan : resultSetPlan;
+      if (executionPlan != null) {
+        result.setProperty("executionPlan", executionPlan.toResult().toJSON());
+      }
+      if (plan != null && plan.getTotalStatistics() != null) {
+        result.setProperty("statistics", plan.getTotalStatistics().toResult(null));
+      }
+      return result;
+    }
+
+    private Map<String, String> convertParams() {
+      if (params == null) {
+        return null;
+      }
+      boolean values = OGlobalConfiguration.QUERY_SLOW_LOG_PARAMETER_VALUES.getValueAsBoolean();
+      Map<String, String> result = new LinkedHashMap<>();
+      if (params instanceof Object[]) {
+        Object[] array = (Object[]) params;
+        for (int i = 0; i < array.length; i++) {
+          result.put(String.valueOf(i), convertParam(array[i], values));
+        }
+      } else if (params instanceof Map) {
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) params).entrySet()) {
+          result.put(String.valueOf(entry.getKey()), convertParam(entry.getValue(), values));
+        }
+      }
+      return result;
+    }
+
+    private static String convertParam(Object value, boolean values) {
+      if (values || value == null) {
+        return String.valueOf(value);
+      }
+      return value.getClass().getSimpleName();
+    }
+  }
+
+  private static class SlowQueryResultSet implements OResultSet {
+    private final OResultSet wrapped;
+    private final Execution  execution;
+
+    SlowQueryResultSet(OResultSet wrapped, Execution execution) {
+      this.wrapped = wrapped;
+      this.execution = execution;
+      execution.resultSetPlan = wrapped.getExecutionPlan().orElse(null);
+    }
+
+    @Override
+    public boolean hasNext() {
+      long begin = System.nanoTime();
+      try {
+        boolean result = wrapped.hasNext();
+        if (!result) {
+          execution.stopStorageStatistic();
+        }
+        return result;
+      } finally {
+        execution.elapsedNanos += System.nanoTime() - begin;
+      }
+    }
+
+    @Override
+    public OResult next() {
+      long begin = System.nanoTime();
+      try {
+        OResult result = wrapped.next();
+        execution.rows++;
+        return result;
+      } finally {
+        execution.elapsedNanos += System.nanoTime() - begin;
+      }
+    }
+
+    @Override
+    public void close() {
+      long begin = System.nanoTime();
+      try {
+        wrapped.close();
+      } finally {
+        execution.elapsedNanos += System.nanoTime() - begin;
+        execution.complete();
+      }
+    }
+
+    @Override
+    public Optional<OExecutionPlan> getExecutionPlan() {
+      return wrapped.getExecutionPlan();
+    }
+
+    @Override
+    public Map<String, Long> getQueryStats() {
+      return wrapped.getQueryStats();
+    }
+  }
+}
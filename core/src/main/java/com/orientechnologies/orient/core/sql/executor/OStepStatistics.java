@@ -0,0 +1,148 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.storage.impl.local.statistic.OSessionStoragePerformanceStatistic;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+/**
+ * Runtime statistics of a single execution step, collected when a statement is executed with PROFILE (see {@link
+ * OSelectExecutionPlan#enableStatistics(OSessionStoragePerformanceStatistic)}).
+ * <p>
+ * Counters are collected including the work done by the previous steps (that are executed while this step pulls records from
+ * them), the values reported by {@link #toResult(OStepStatistics)} are then calculated for the single step, subtracting the
+ * counters of the previous step.
+ * <p>
+ * Storage counters (pages read from cache or from disk and records read) are available only if the storage supports performance
+ * statistics, allocated bytes only if the JVM supports thread allocation measurement, lock wait time only if thread contention
+ * monitoring is enabled in the JVM.
+ */
+public class OStepStatistics {
+
+  private static final ThreadMXBean THREAD_BEAN            = ManagementFactory.getThreadMXBean();
+  private static final Method       ALLOCATED_BYTES_METHOD = findAllocatedBytesMethod();
+
+  private static final int TIME            = 0;
+  private static final int PAGES_CACHE     = 1;
+  private static final int PAGES_FILE      = 2;
+  private static final int RECORDS_READ    = 3;
+  private static final int BYTES_ALLOCATED = 4;
+  private static final int LOCK_WAIT       = 5;
+
+  private final OSessionStoragePerformanceStatistic storageStatistic;
+  private final boolean                             allocationSupported;
+  private final boolean                             lockWaitSupported;
+
+  private final long[] startValues = new long[6];
+  private final long[] endValues   = new long[6];
+  private final long[] totals      = new long[6];
+  private       int    depth       = 0;
+  private       long   rows        = 0;
+
+  /**
+   * @param storageStatistic the storage statistic of the current thread, null if not available
+   */
+  public OStepStatistics(OSessionStoragePerformanceStatistic storageStatistic) {
+    this.storageStatistic = storageStatistic;
+    this.allocationSupported = ALLOCATED_BYTES_METHOD != null;
+    this.lockWaitSupported = THREAD_BEAN.isThreadContentionMonitoringSupported() && THREAD_BEAN.isThreadContentionMonitoringEnabled();
+  }
+
+  /**
+   * starts measuring an invocation of the step
+   */
+  public void start() {
+    if (depth++ == 0) {
+      readCounters(startValues);
+    }
+  }
+
+  /**
+   * ends the measurement of an invocation of the step
+   */
+  public void stop() {
+    if (--depth == 0) {
+      readCounters(endValues);
+      for (int i = 0; i < totals.length; i++) {
+        totals[i] += endValues[i] - startValues[i];
+      }
+    }
+  }
+
+  public void addRows(long n) {
+    rows += n;
+  }
+
+  public long getRows() {
+    return rows;
+  }
+
+  /**
+   * @param previous the statistics of the previous step, null if this is the first step
+   *
+   * @return the statistics of this step alone
+   */
+  public OResult toResult(OStepStatistics previous) {
+    OResultInternal result = new OResultInternal();
+    result.setProperty("rowsIn", previous == null ? 0L : previous.rows);
+    result.setProperty("rowsOut", rows);
+    result.setProperty("timeNanos", exclusive(TIME, previous));
+    if (storageStatistic != null) {
+      result.setProperty("pagesReadFromCache", exclusive(PAGES_CACHE, previous));
+      result.setProperty("pagesReadFromDisk", exclusive(PAGES_FILE, previous));
+      result.setProperty("recordsRead", exclusive(RECORDS_READ, previous));
+    }
+    if (allocationSupported) {
+      result.setProperty("bytesAllocated", exclusive(BYTES_ALLOCATED, previous));
+    }
+    if (lockWaitSupported) {
+      result.setProperty("lockWaitMillis", exclusive(LOCK_WAIT, previous));
+    }
+    return result;
+  }
+
+  private long exclusive(int counter, OStepStatistics previous) {
+    long result = totals[counter];
+    if (previous != null) {
+      result -= previous.totals[counter];
+    }
+    return Math.max(result, 0);
+  }
+
+  private void readCounters(long[] values) {
+    values[TIME] = System.nanoTime();
+    if (storageStatistic != null) {
+      values[PAGES_CACHE] = storageStatistic.getAmountOfPagesReadFromCache();
+      values[PAGES_FILE] = storageStatistic.getAmountOfPagesReadFromFile();
+      values[RECORDS_READ] = storageStatistic.getAmountOfReadRecords();
+    }
+    long threadId = Thread.currentThread().getId();
+    if (allocationSupported) {
+      try {
+        values[BYTES_ALLOCATED] = (Long) ALLOCATED_BYTES_METHOD.invoke(THREAD_BEAN, threadId);
+      } catch (Exception e) {
+        values[BYTES_ALLOCATED] = 0;
+      }
+    }
+    if (lockWaitSupported) {
+      ThreadInfo info = THREAD_BEAN.getThreadInfo(threadId);
+      values[LOCK_WAIT] = info == null ? 0 : Math.max(info.getBlockedTime(), 0) + Math.max(info.getWaitedTime(), 0);
+    }
+  }
+
+  private static Method findAllocatedBytesMethod() {
+    try {
+      // HotSpot extension, not available on all the JVMs
+      Class<?> beanInterface = Class.forName("com.sun.management.ThreadMXBean");
+      if (!beanInterface.isInstance(THREAD_BEAN) || !(Boolean) beanInterface.getMethod("isThreadAllocatedMemoryEnabled")
+          .invoke(THREAD_BEAN)) {
+        return null;
+      }
+      return beanInterface.getMethod("getThreadAllocatedBytes", long.class);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+}
@@ -73,7 +73,11 @@ public class OTraverseExecutionPlanner {
   private void handleTraversal(OSelectExecutionPlan result, OCommandContext ctx, boolean profilingEnabled) {
     switch (strategy) {
     case BREADTH_FIRST:
-      result.chain(new BreadthFirstTraverseStep(this.projections, this.whileClause, maxDepth, ctx, profilingEnabled));
+      if (ParallelBreadthFirstTraverseStep.isEnabled(ctx)) {
+        result.chain(new ParallelBreadthFirstTraverseStep(this.projections, this.whileClause, maxDepth, ctx, profilingEnabled));
+      } else {
+        result.chain(new BreadthFirstTraverseStep(this.projections, this.whileClause, maxDepth, ctx, profilingEnabled));
+      }
       break;
     case DEPTH_FIRST:
       result.chain(new DepthFirstTraverseStep(this.projections, this.whileClause, maxDepth, ctx, profilingEnabled));
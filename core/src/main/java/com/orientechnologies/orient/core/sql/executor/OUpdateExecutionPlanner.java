@@ -57,6 +57,18 @@ public class OUpdateExecutionPlanner {
   public OUpdateExecutionPlan createExecutionPlan(OCommandContext ctx, boolean enableProfiling) {
     OUpdateExecutionPlan result = new OUpdateExecutionPlan(ctx);
 
+    if (isParallel(ctx)) {
+      OWhereClause recheckCondition = this.whereClause == null ? null : this.whereClause.copy();
+      handleTarget(result, ctx, this.target, this.whereClause, this.timeout, enableProfiling);
+      handleLimit(result, ctx, this.limit, enableProfiling);
+      result.chain(new ParallelModificationStep(recheckCondition, (plan, workerCtx) -> {
+        convertToModifiableResult(plan, workerCtx, false);
+        handleOperations(plan, workerCtx, this.operations.stream().map(x -> x.copy()).collect(Collectors.toList()), false);
+        handleSave(plan, workerCtx, false);
+      }, "UPDATE", ctx, enableProfiling));
+      return result;
+    }
+
     handleTarget(result, ctx, this.target, this.whereClause, this.timeout, enableProfiling);
     if (updateEdge) {
       result.chain(new CheckRecordTypeStep(ctx, "E", enableProfiling));
@@ -75,6 +87,23 @@ public class OUpdateExecutionPlanner {
     return result;
   }
 
+  /**
+   * @return true if the records can be modified by parallel workers (see {@link ParallelModificationStep}): the statement only
+   * returns the count of the modified records and has no UPSERT or TIMEOUT, and it is not executed in a transaction
+   */
+  private boolean isParallel(OCommandContext ctx) {
+    if (upsert || updateEdge || !returnCount || operations == null || (timeout != null && timeout.getVal().longValue() > 0)) {
+      return false;
+    }
+    for (OUpdateOperations op : operations) {
+      if (op.getType() != OUpdateOperations.TYPE_SET && op.getType() != OUpdateOperations.TYPE_REMOVE
+          && op.getType() != OUpdateOperations.TYPE_MERGE && op.getType() != OUpdateOperations.TYPE_CONTENT) {
+        return false;
+      }
+    }
+    return ParallelModificationStep.isEnabled(ctx);
+  }
+
   /**
    * add a step that transforms a normal OResult in a specific object that under setProperty() updates the actual OIdentifiable
    *
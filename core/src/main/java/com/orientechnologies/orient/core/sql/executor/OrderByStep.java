@@ -2,6 +2,7 @@ package com.orientechnologies.orient.core.sql.executor;
 
 import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.command.OCommandMemoryTracker;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.sql.parser.OOrderBy;
@@ -17,8 +18,12 @@ public class OrderByStep extends AbstractExecutionStep {
 
   private long cost = 0;
 
-  private List<OResult> cachedResult = null;
-  private int           nextElement  = 0;
+  private List<OResult>      cachedResult   = null;
+  private Iterator<OResult>  sortedResult   = null;
+  private OExternalSortRuns  spilledRuns    = null;
+  private long               reservedMemory = 0;
+  // the items in the buffer that cannot be written to disk (eg. new or modified records)
+  private int                unspillable    = 0;
 
   public OrderByStep(OOrderBy orderBy, OCommandContext ctx, boolean profilingEnabled) {
     this(orderBy, null, ctx, profilingEnabled);
@@ -38,21 +43,29 @@ public class OrderByStep extends AbstractExecutionStep {
     if (cachedResult == null) {
       cachedResult = new ArrayList<>();
       prev.ifPresent(p -> init(p, ctx));
+      if (spilledRuns != null) {
+        sortedResult = spilledRuns.merge(cachedResult, (a, b) -> orderBy.compare(a, b, ctx), ctx);
+      } else {
+        sortedResult = cachedResult.iterator();
+      }
     }
 
     return new OResultSet() {
       private int currentBatchReturned = 0;
-      private int offset = nextElement;
 
       @Override
       public boolean hasNext() {
         if (currentBatchReturned >= nRecords) {
           return false;
         }
-        if (cachedResult.size() <= nextElement) {
-          return false;
+        long begin = profilingEnabled ? System.nanoTime() : 0;
+        try {
+          return sortedResult.hasNext();
+        } finally {
+          if (profilingEnabled) {
+            cost += (System.nanoTime() - begin);
+          }
         }
-        return true;
       }
 
       @Override
@@ -62,11 +75,10 @@ public class OrderByStep extends AbstractExecutionStep {
           if (currentBatchReturned >= nRecords) {
             throw new IllegalStateException();
           }
-          if (cachedResult.size() <= nextElement) {
+          if (!sortedResult.hasNext()) {
             throw new IllegalStateException();
           }
-          OResult result = cachedResult.get(offset + currentBatchReturned);
-          nextElement++;
+          OResult result = sortedResult.next();
           currentBatchReturned++;
           return result;
         } finally {
@@ -108,7 +120,11 @@ public class OrderByStep extends AbstractExecutionStep {
         OResult item = lastBatch.next();
         long begin = profilingEnabled ? System.nanoTime() : 0;
         try {
+          reserveMemory(item, ctx);
           cachedResult.add(item);
+          if (maxResults == null && !OExternalSortRuns.canSpill(item)) {
+            unspillable++;
+          }
           if (maxElementsAllowed >= 0 && maxElementsAllowed < cachedResult.size()) {
             this.cachedResult.clear();
             throw new OCommandExecutionException(
@@ -121,6 +137,7 @@ public class OrderByStep extends AbstractExecutionStep {
           if (this.maxResults != null && maxResults * 2 < cachedResult.size()) {
             cachedResult.sort((a, b) -> orderBy.compare(a, b, ctx));
             cachedResult = new ArrayList<>(cachedResult.subList(0, maxResults));
+            recalculateMemory(ctx);
             sorted = true;
           }
         } finally {
@@ -138,6 +155,7 @@ public class OrderByStep extends AbstractExecutionStep {
         if (!sorted && this.maxResults != null && maxResults < cachedResult.size()) {
           cachedResult.sort((a, b) -> orderBy.compare(a, b, ctx));
           cachedResult = new ArrayList<>(cachedResult.subList(0, maxResults));
+          recalculateMemory(ctx);
           sorted = true;
         }
       } finally {
@@ -159,6 +177,49 @@ public class OrderByStep extends AbstractExecutionStep {
 
   }
 
+  /**
+   * reserves the memory for a new item in the buffer; if the memory budget of the query is exceeded, the buffer is sorted and
+   * written to disk (only for full sorts, a sort with a limit keeps only a small buffer anyway)
+   */
+  private void reserveMemory(OResult item, OCommandContext ctx) {
+    long size = OCommandMemoryTracker.estimateSize(item);
+    if (!ctx.tryReserveMemory(size)) {
+      if (maxResults == null && !cachedResult.isEmpty() && unspillable == 0) {
+        cachedResult.sort((a, b) -> orderBy.compare(a, b, ctx));
+        if (spilledRuns == null) {
+          spilledRuns = new OExternalSortRuns();
+        }
+        spilledRuns.spill(cachedResult);
+        cachedResult.clear();
+        ctx.releaseMemory(reservedMemory);
+        reservedMemory = 0;
+      }
+      ctx.reserveMemory(size);
+    }
+    reservedMemory += size;
+  }
+
+  private void recalculateMemory(OCommandContext ctx) {
+    long size = 0;
+    for (OResult item : cachedResult) {
+      size += OCommandMemoryTracker.estimateSize(item);
+    }
+    if (size < reservedMemory) {
+      ctx.releaseMemory(reservedMemory - size);
+      reservedMemory = size;
+    }
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    ctx.releaseMemory(reservedMemory);
+    reservedMemory = 0;
+    if (spilledRuns != null) {
+      spilledRuns.close();
+    }
+  }
+
   @Override
   public String prettyPrint(int depth, int indent) {
     String result = OExecutionStepInternal.getIndent(depth, indent) + "+ " + orderBy;
@@ -0,0 +1,200 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.concur.OTimeoutException;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.sql.parser.OOrderBy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Merges the results of multiple sub-plans in a single sorted stream. Each sub-plan returns the records already sorted by the same
+ * ORDER BY, eg. fetching them from the index of a subclass.
+ * <p>
+ * This is a k-way merge: only the current block of records of each sub-plan is kept in memory and the next record is chosen with a
+ * priority queue of the heads of the sub-plans, so with a LIMIT the sub-plans are read only as far as needed, instead of sorting
+ * all the records.
+ */
+public class OrderedMergeStep extends AbstractExecutionStep {
+
+  private final List<OInternalExecutionPlan> subExecutionPlans;
+  private final OOrderBy                     orderBy;
+
+  //runtime
+  private PriorityQueue<Head> heads;
+  private long                cost = 0;
+
+  /**
+   * the current record of a sub-plan
+   */
+  private static class Head {
+    private final int        planIndex;
+    private       OResultSet block;
+    private       OResult    record;
+
+    private Head(int planIndex) {
+      this.planIndex = planIndex;
+    }
+  }
+
+  /**
+   * @param subExecutionPlans the sub-plans, each one returning records sorted by <code>orderBy</code>
+   * @param orderBy           the order of the records returned by the sub-plans
+   * @param ctx               the execution context
+   * @param profilingEnabled  enable profiling
+   */
+  public OrderedMergeStep(List<OInternalExecutionPlan> subExecutionPlans, OOrderBy orderBy, OCommandContext ctx,
+      boolean profilingEnabled) {
+    super(ctx, profilingEnabled);
+    this.subExecutionPlans = subExecutionPlans;
+    this.orderBy = orderBy;
+  }
+
+  @Override
+  public OResultSet syncPull(OCommandContext ctx, int nRecords) throws OTimeoutException {
+    getPrev().ifPresent(x -> x.syncPull(ctx, nRecords));
+    if (heads == null) {
+      init(ctx, nRecords);
+    }
+    return new OResultSet() {
+      private int localCount = 0;
+
+      @Override
+      public boolean hasNext() {
+        return localCount < nRecords && !heads.isEmpty();
+      }
+
+      @Override
+      public OResult next() {
+        if (!hasNext()) {
+          throw new IllegalStateException();
+        }
+        long begin = profilingEnabled ? System.nanoTime() : 0;
+        try {
+          Head head = heads.poll();
+          OResult result = head.record;
+          if (advance(head, nRecords)) {
+            heads.add(head);
+          }
+          localCount++;
+          ctx.setVariable("$current", result);
+          return result;
+        } finally {
+          if (profilingEnabled) {
+            cost += (System.nanoTime() - begin);
+          }
+        }
+      }
+
+      @Override
+      public void close() {
+
+      }
+
+      @Override
+      public Optional<OExecutionPlan> getExecutionPlan() {
+        return Optional.empty();
+      }
+
+      @Override
+      public Map<String, Long> getQueryStats() {
+        return null;
+      }
+    };
+  }
+
+  private void init(OCommandContext ctx, int nRecords) {
+    long begin = profilingEnabled ? System.nanoTime() : 0;
+    try {
+      heads = new PriorityQueue<>(Math.max(subExecutionPlans.size(), 1), (a, b) -> {
+        int result = orderBy.compare(a.record, b.record, ctx);
+        // with equal values, keep the order of the sub-plans
+        return result != 0 ? result : Integer.compare(a.planIndex, b.planIndex);
+      });
+      for (int i = 0; i < subExecutionPlans.size(); i++) {
+        Head head = new Head(i);
+        if (advance(head, nRecords)) {
+          heads.add(head);
+        }
+      }
+    } finally {
+      if (profilingEnabled) {
+        cost += (System.nanoTime() - begin);
+      }
+    }
+  }
+
+  /**
+   * moves the head to the next record of its sub-plan, fetching a new block if needed
+   *
+   * @return false if the sub-plan has no more records
+   */
+  private boolean advance(Head head, int nRecords) {
+    if (timedOut) {
+      return false;
+    }
+    if (head.block == null || !head.block.hasNext()) {
+      head.block = subExecutionPlans.get(head.planIndex).fetchNext(Math.max(nRecords, 1));
+    }
+    if (!head.block.hasNext()) {
+      head.record = null;
+      return false;
+    }
+    head.record = head.block.next();
+    return true;
+  }
+
+  @Override
+  public void close() {
+    for (OInternalExecutionPlan subPlan : subExecutionPlans) {
+      subPlan.close();
+    }
+    heads = null;
+    super.close();
+  }
+
+  @Override
+  public String prettyPrint(int depth, int indent) {
+    String spaces = OExecutionStepInternal.getIndent(depth, indent);
+    StringBuilder result = new StringBuilder();
+    result.append(spaces);
+    result.append("+ MERGE SORTED ");
+    result.append(orderBy);
+    if (profilingEnabled) {
+      result.append(" (" + getCostFormatted() + ")");
+    }
+    for (OInternalExecutionPlan subPlan : subExecutionPlans) {
+      result.append("\n");
+      result.append(subPlan.prettyPrint(depth + 1, indent));
+    }
+    return result.toString();
+  }
+
+  public List<OExecutionPlan> getSubExecutionPlans() {
+    return (List) subExecutionPlans;
+  }
+
+  @Override
+  public long getCost() {
+    return cost;
+  }
+
+  @Override
+  public boolean canBeCached() {
+    for (OInternalExecutionPlan plan : subExecutionPlans) {
+      if (!plan.canBeCached()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public OExecutionStep copy(OCommandContext ctx) {
+    return new OrderedMergeStep(subExecutionPlans.stream().map(x -> x.copy(ctx)).collect(Collectors.toList()), orderBy.copy(), ctx,
+        profilingEnabled);
+  }
+}
@@ -0,0 +1,331 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.common.thread.OThreadPoolExecutorWithLogging;
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.sql.parser.OInteger;
+import com.orientechnologies.orient.core.sql.parser.OTraverseProjectionItem;
+import com.orientechnologies.orient.core.sql.parser.OWhereClause;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Breadth-first TRAVERSE that expands a whole level at a time with multiple worker sessions. The records of a level are split in
+ * contiguous chunks among the workers; each worker reads the records of its chunk in a single batch and evaluates the traversed
+ * fields (eg. <code>out()</code>), discarding the records already traversed. Then the current session reads the records of the
+ * next level in a single batch and checks the WHILE condition on them.
+ * <p>
+ * The set of the traversed records is only read by the workers and updated by the current session between two levels, so the
+ * records are returned in the same order of {@link BreadthFirstTraverseStep}. The workers do not see the changes of the current
+ * transaction, so the step is used only for statements issued outside a transaction.
+ * <p>
+ * The workers run on an executor owned by the step. While waiting for them the current session checks the timeout of the statement
+ * and stops the workers on timeout, interruption or error.
+ */
+public class ParallelBreadthFirstTraverseStep extends BreadthFirstTraverseStep {
+
+  /**
+   * levels with less records than this for each worker are expanded in the current session
+   */
+  private static final int MIN_RECORDS_PER_WORKER = 100;
+
+  private final int parallelism;
+
+  private long levels         = 0;
+  private long parallelLevels = 0;
+
+  private ExecutorService executor;
+
+  public ParallelBreadthFirstTraverseStep(List<OTraverseProjectionItem> projections, OWhereClause whileClause, OInteger maxDepth,
+      OCommandContext ctx, boolean profilingEnabled) {
+    super(projections, whileClause, maxDepth, ctx, profilingEnabled);
+    this.parallelism = getParallelism(ctx);
+  }
+
+  /**
+   * @param ctx the execution context
+   *
+   * @return true if the breadth-first traversals executed in this context can expand their levels in parallel, ie. more than one
+   * worker is configured and no transaction is active
+   */
+  public static boolean isEnabled(OCommandContext ctx) {
+    return getParallelism(ctx) > 1 && !ctx.getDatabase().getTransaction().isActive();
+  }
+
+  private static int getParallelism(OCommandContext ctx) {
+    if (ctx.getDatabase() != null && ctx.getDatabase().getConfiguration() != null) {
+      return ctx.getDatabase().getConfiguration().getValueAsInteger(OGlobalConfiguration.QUERY_TRAVERSE_PARALLELISM);
+    }
+    return OGlobalConfiguration.QUERY_TRAVERSE_PARALLELISM.getValueAsInteger();
+  }
+
+  @Override
+  protected void fetchNextResults(OCommandContext ctx, int nRecords) {
+    if (this.entryPoints.isEmpty()) {
+      return;
+    }
+    List<OResult> level = new ArrayList<>(this.entryPoints);
+    this.entryPoints.clear();
+    this.results.addAll(level);
+    levels++;
+
+    List<OResult> toExpand = new ArrayList<>(level.size());
+    for (OResult item : level) {
+      if (this.maxDepth == null || this.maxDepth.getValue().intValue() > ((OTraverseResult) item).depth) {
+        toExpand.add(item);
+      }
+    }
+    if (toExpand.isEmpty()) {
+      return;
+    }
+    List<Object>[] neighbors = expand(toExpand, ctx);
+    if (neighbors == null) {
+      // timed out
+      return;
+    }
+
+    // read the records of the next level in a single batch, and pass them to the entry points in place of their RIDs
+    ORidSet toRead = new ORidSet();
+    List<ORID> rids = new ArrayList<>();
+    for (List<Object> itemNeighbors : neighbors) {
+      for (Object neighbor : itemNeighbors) {
+        if (neighbor instanceof ORID && !traversed.contains(neighbor) && toRead.add((ORID) neighbor)) {
+          rids.add((ORID) neighbor);
+        }
+      }
+    }
+    List<ORecord> records = ((ODatabaseDocumentInternal) ctx.getDatabase()).loadRecords(rids);
+    Map<ORID, ORecord> loaded = new HashMap<>();
+    for (int i = 0; i < rids.size(); i++) {
+      if (records.get(i) != null) {
+        loaded.put(rids.get(i), records.get(i));
+      }
+    }
+    for (List<Object> itemNeighbors : neighbors) {
+      itemNeighbors.replaceAll(x -> x instanceof ORID && loaded.containsKey(x) ? loaded.get(x) : x);
+    }
+
+    for (int i = 0; i < toExpand.size(); i++) {
+      OTraverseResult item = (OTraverseResult) toExpand.get(i);
+      addNextEntryPoints(neighbors[i], item.depth + 1, (List<OIdentifiable>) item.getMetadata("$path"), ctx);
+    }
+  }
+
+  /**
+   * @return for each record, the records reached by the traversed fields that are not traversed yet: the RIDs of the persistent
+   * records and the records themselves for the others. Null if the statement timed out
+   */
+  private List<Object>[] expand(List<OResult> items, OCommandContext ctx) {
+    List<Object>[] result = new List[items.size()];
+    int workers = Math.min(parallelism, items.size() / MIN_RECORDS_PER_WORKER);
+    if (workers > 1) {
+      parallelLevels++;
+      if (!expandInParallel(items, workers, result, ctx)) {
+        return null;
+      }
+    }
+    // small levels, and the records that the workers cannot read (not persistent or deleted in the meantime)
+    for (int i = 0; i < items.size(); i++) {
+      if (result[i] == null) {
+        result[i] = expandItem(items.get(i), projections, ctx);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return false if the statement timed out, with the RETURN strategy
+   */
+  private boolean expandInParallel(List<OResult> items, int workers, List<Object>[] result, OCommandContext ctx) {
+    ODatabaseDocumentInternal db = (ODatabaseDocumentInternal) ctx.getDatabase();
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    AtomicBoolean stop = new AtomicBoolean();
+    List<Future<?>> futures = new ArrayList<>(workers);
+    int chunkSize = (items.size() + workers - 1) / workers;
+    ExecutorService executor = getExecutor();
+    try {
+      for (int from = 0; from < items.size(); from += chunkSize) {
+        int start = from;
+        int end = Math.min(items.size(), from + chunkSize);
+        ODatabaseDocumentInternal session = db.copy();
+        futures.add(executor.submit(() -> runWorker(session, ctx, items, start, end, result, stop)));
+      }
+    } finally {
+      for (Future<?> future : futures) {
+        join(future, futures, stop, error, ctx);
+      }
+      db.activateOnCurrentThread();
+    }
+
+    Throwable e = error.get();
+    if (e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    } else if (e instanceof Error) {
+      throw (Error) e;
+    } else if (e != null) {
+      throw OException.wrapException(new OCommandExecutionException("Error on parallel traverse"), e);
+    }
+    return !timedOut;
+  }
+
+  /**
+   * waits for a worker, checking the timeout of the statement. On timeout, interruption or error the other workers are stopped
+   */
+  private void join(Future<?> future, List<Future<?>> futures, AtomicBoolean stop, AtomicReference<Throwable> error,
+      OCommandContext ctx) {
+    while (true) {
+      try {
+        future.get(100, TimeUnit.MILLISECONDS);
+        return;
+      } catch (TimeoutException e) {
+        if (stop.get()) {
+          continue;
+        }
+        try {
+          if (timedOut || !ctx.checkTimeout()) {
+            timedOut = true;
+            stop.set(true);
+          }
+        } catch (RuntimeException timeout) {
+          error.compareAndSet(null, timeout);
+          stop.set(true);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        error.compareAndSet(null, e);
+        stop.set(true);
+        futures.forEach(x -> x.cancel(true));
+        return;
+      } catch (CancellationException e) {
+        return;
+      } catch (ExecutionException e) {
+        error.compareAndSet(null, e.getCause());
+        stop.set(true);
+        return;
+      }
+    }
+  }
+
+  private synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = new OThreadPoolExecutorWithLogging(parallelism, parallelism, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+          r -> {
+            Thread thread = new Thread(r, "OrientDB parallel traverse worker");
+            thread.setDaemon(true);
+            return thread;
+          });
+    }
+    return executor;
+  }
+
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (executor != null) {
+        executor.shutdownNow();
+        executor = null;
+      }
+    }
+    super.close();
+  }
+
+  private void runWorker(ODatabaseDocumentInternal session, OCommandContext ctx, List<OResult> items, int start, int end,
+      List<Object>[] result, AtomicBoolean stop) {
+    try {
+      session.activateOnCurrentThread();
+      OBasicCommandContext workerCtx = new OBasicCommandContext();
+      workerCtx.setDatabase(session);
+      workerCtx.setInputParameters(ctx.getInputParameters());
+      List<OTraverseProjectionItem> workerProjections = projections.stream().map(x -> x.copy()).collect(Collectors.toList());
+
+      List<ORID> rids = new ArrayList<>(end - start);
+      for (int i = start; i < end; i++) {
+        items.get(i).getIdentity().filter(x -> x.isPersistent()).ifPresent(x -> rids.add(x));
+      }
+      List<ORecord> records = session.loadRecords(rids);
+
+      int next = 0;
+      for (int i = start; i < end && !stop.get(); i++) {
+        OResult item = items.get(i);
+        if (!item.getIdentity().filter(x -> x.isPersistent()).isPresent()) {
+          continue;
+        }
+        ORecord record = records.get(next++);
+        if (record == null) {
+          continue;
+        }
+        OTraverseResult workerItem = new OTraverseResult();
+        workerItem.setElement(record);
+        workerItem.depth = ((OTraverseResult) item).depth;
+        for (String key : item.getMetadataKeys()) {
+          workerItem.setMetadata(key, item.getMetadata(key));
+        }
+        result[i] = expandItem(workerItem, workerProjections, workerCtx);
+      }
+    } finally {
+      session.activateOnCurrentThread();
+      session.close();
+      ODatabaseRecordThreadLocal.instance().remove();
+    }
+  }
+
+  private List<Object> expandItem(OResult item, List<OTraverseProjectionItem> projections, OCommandContext ctx) {
+    List<Object> result = new ArrayList<>();
+    for (OTraverseProjectionItem proj : projections) {
+      collectNeighbors(proj.execute(item, ctx), result);
+    }
+    return result;
+  }
+
+  private void collectNeighbors(Object value, List<Object> neighbors) {
+    if (value instanceof OIdentifiable) {
+      ORID rid = ((OIdentifiable) value).getIdentity();
+      if (!rid.isPersistent()) {
+        neighbors.add(value);
+      } else if (!traversed.contains(rid)) {
+        neighbors.add(new ORecordId(rid));
+      }
+    } else if (value instanceof Iterable) {
+      for (Object item : (Iterable<?>) value) {
+        collectNeighbors(item, neighbors);
+      }
+    } else if (value instanceof OResult && ((OResult) value).isElement()) {
+      collectNeighbors(((OResult) value).getElement().get(), neighbors);
+    }
+  }
+
+  @Override
+  public String prettyPrint(int depth, int indent) {
+    String spaces = OExecutionStepInternal.getIndent(depth, indent);
+    StringBuilder result = new StringBuilder();
+    result.append(spaces);
+    result.append("+ PARALLEL BREADTH-FIRST TRAVERSE (" + parallelism + " workers)");
+    if (profilingEnabled) {
+      result.append(" (" + getCostFormatted() + ")");
+    }
+    if (levels > 0) {
+      result.append("\n");
+      result.append(spaces);
+      result.append("  " + levels + " levels, " + parallelLevels + " expanded in parallel");
+    }
+    result.append("\n");
+    if (whileClause != null) {
+      result.append(spaces);
+      result.append("WHILE " + whileClause.toString());
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,368 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.concur.ONeedRetryException;
+import com.orientechnologies.common.concur.OTimeoutException;
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.thread.OThreadPoolExecutorWithLogging;
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.sql.parser.OWhereClause;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Executes an UPDATE or a DELETE with multiple worker sessions. The records returned by the previous steps (the records that
+ * match the statement) are partitioned by cluster among the workers; each worker modifies its records in transactions of a fixed
+ * number of records, retrying a transaction that fails for a concurrent modification. The evaluation of the modifications, the
+ * serialization of the records and the maintenance of the indexes run in parallel in the workers.
+ * <p>
+ * The transactions of the workers are independent: if the statement fails, the batches already committed stay committed, as with
+ * the BATCH of a script. For this reason the step is used only for statements issued outside a transaction.
+ * <p>
+ * Returns a single record with the count of the modified records, as {@link CountStep}. The progress of the execution (matched
+ * and modified records, committed batches and retries) is logged periodically and printed in the execution plan.
+ */
+public class ParallelModificationStep extends AbstractExecutionStep {
+
+  private static final long PROGRESS_LOG_INTERVAL = 30_000;
+
+  /**
+   * marks the end of the batches of a worker
+   */
+  private static final List<ORecordId> END_OF_BATCHES = Collections.emptyList();
+
+  private final OWhereClause                                      whereClause;
+  private final BiConsumer<OUpdateExecutionPlan, OCommandContext> modification;
+  private final String                                            description;
+  private final int                                               workers;
+  private final int                                               batchSize;
+  private final int                                               maxRetries;
+
+  // runtime
+  private boolean executed = false;
+  private long    cost     = 0;
+  private long    lastProgressLog;
+
+  private final AtomicLong matched          = new AtomicLong();
+  private final AtomicLong modified         = new AtomicLong();
+  private final AtomicLong committedBatches = new AtomicLong();
+  private final AtomicLong retries          = new AtomicLong();
+
+  /**
+   * @param whereClause      the WHERE condition of the statement, checked again by the workers on the records they load (they
+   *                         could have been modified by other transactions after the match). Null if the statement has no WHERE
+   * @param modification     appends to a plan the steps that modify the records returned by the previous steps of the plan
+   * @param description      a description of the modification, for the execution plan
+   * @param ctx              the execution context
+   * @param profilingEnabled true to enable the profiling of the execution (for SQL PROFILE)
+   */
+  public ParallelModificationStep(OWhereClause whereClause, BiConsumer<OUpdateExecutionPlan, OCommandContext> modification,
+      String description, OCommandContext ctx, boolean profilingEnabled) {
+    super(ctx, profilingEnabled);
+    this.whereClause = whereClause;
+    this.modification = modification;
+    this.description = description;
+    this.workers = getWorkers(ctx);
+    this.batchSize = Math.max(1, getConfiguration(ctx, OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_BATCH_SIZE));
+    this.maxRetries = Math.max(0, getConfiguration(ctx, OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_MAX_RETRIES));
+  }
+
+  /**
+   * @param ctx the execution context
+   *
+   * @return true if the modification statements executed in this context can run in parallel, ie. more than one worker is
+   * configured and no transaction is active
+   */
+  public static boolean isEnabled(OCommandContext ctx) {
+    return getWorkers(ctx) > 1 && !ctx.getDatabase().getTransaction().isActive();
+  }
+
+  private static int getWorkers(OCommandContext ctx) {
+    return getConfiguration(ctx, OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_WORKERS);
+  }
+
+  private static int getConfiguration(OCommandContext ctx, OGlobalConfiguration config) {
+    if (ctx.getDatabase() != null && ctx.getDatabase().getConfiguration() != null) {
+      return ctx.getDatabase().getConfiguration().getValueAsInteger(config);
+    }
+    return config.getValueAsInteger();
+  }
+
+  @Override
+  public OResultSet syncPull(OCommandContext ctx, int nRecords) throws OTimeoutException {
+    if (executed) {
+      return new OInternalResultSet();
+    }
+    executed = true;
+    long begin = profilingEnabled ? System.nanoTime() : 0;
+    try {
+      execute(ctx);
+      OResultInternal resultRecord = new OResultInternal();
+      resultRecord.setProperty("count", modified.get());
+      OInternalResultSet result = new OInternalResultSet();
+      result.add(resultRecord);
+      return result;
+    } finally {
+      if (profilingEnabled) {
+        cost += (System.nanoTime() - begin);
+      }
+    }
+  }
+
+  private void execute(OCommandContext ctx) {
+    ODatabaseDocumentInternal db = (ODatabaseDocumentInternal) ctx.getDatabase();
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    List<BlockingQueue<List<ORecordId>>> queues = new ArrayList<>(workers);
+    List<Future<?>> futures = new ArrayList<>(workers);
+    lastProgressLog = System.currentTimeMillis();
+
+    // every worker must have its own thread: the producer blocks on the queue of a worker that is not running
+    ExecutorService executor = new OThreadPoolExecutorWithLogging(workers, workers, 0, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(), r -> {
+      Thread thread = new Thread(r, "OrientDB parallel " + description + " worker");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      for (int i = 0; i < workers; i++) {
+        // the workers do not need more than a couple of batches ahead
+        BlockingQueue<List<ORecordId>> queue = new ArrayBlockingQueue<>(2);
+        queues.add(queue);
+        ODatabaseDocumentInternal session = db.copy();
+        futures.add(executor.submit(() -> runWorker(session, ctx, queue, error)));
+      }
+
+      List<List<ORecordId>> partitions = new ArrayList<>(workers);
+      for (int i = 0; i < workers; i++) {
+        partitions.add(new ArrayList<>(batchSize));
+      }
+
+      while (error.get() == null) {
+        OResultSet block = getPrev().get().syncPull(ctx, batchSize);
+        if (!block.hasNext()) {
+          break;
+        }
+        while (block.hasNext() && error.get() == null) {
+          Optional<ORID> rid = block.next().getIdentity();
+          if (!rid.isPresent() || !rid.get().isPersistent()) {
+            continue;
+          }
+          matched.incrementAndGet();
+          int partition = Math.floorMod(rid.get().getClusterId(), workers);
+          partitions.get(partition).add(new ORecordId(rid.get()));
+          if (partitions.get(partition).size() >= batchSize) {
+            enqueue(queues.get(partition), partitions.get(partition), error);
+            partitions.set(partition, new ArrayList<>(batchSize));
+          }
+        }
+        logProgress(false);
+      }
+
+      for (int i = 0; i < workers; i++) {
+        if (!partitions.get(i).isEmpty()) {
+          enqueue(queues.get(i), partitions.get(i), error);
+        }
+      }
+    } finally {
+      for (BlockingQueue<List<ORecordId>> queue : queues) {
+        end(queue, error);
+      }
+      for (Future<?> future : futures) {
+        join(future, error);
+      }
+      executor.shutdown();
+      db.activateOnCurrentThread();
+    }
+
+    Throwable e = error.get();
+    if (e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    } else if (e instanceof Error) {
+      throw (Error) e;
+    } else if (e != null) {
+      throw OException.wrapException(new OCommandExecutionException("Error on parallel " + description), e);
+    }
+    logProgress(true);
+  }
+
+  /**
+   * passes a batch to a worker, unless a worker failed
+   */
+  private void enqueue(BlockingQueue<List<ORecordId>> queue, List<ORecordId> batch, AtomicReference<Throwable> error) {
+    try {
+      while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+        if (error.get() != null) {
+          return;
+        }
+        logProgress(false);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      error.compareAndSet(null, e);
+    }
+  }
+
+  /**
+   * tells a worker that there are no more batches. If a worker failed the batches still in the queue are discarded
+   */
+  private void end(BlockingQueue<List<ORecordId>> queue, AtomicReference<Throwable> error) {
+    try {
+      while (!queue.offer(END_OF_BATCHES, 100, TimeUnit.MILLISECONDS)) {
+        if (error.get() != null) {
+          queue.clear();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      error.compareAndSet(null, e);
+      queue.clear();
+      queue.offer(END_OF_BATCHES);
+    }
+  }
+
+  private void join(Future<?> future, AtomicReference<Throwable> error) {
+    while (true) {
+      try {
+        future.get(100, TimeUnit.MILLISECONDS);
+        return;
+      } catch (TimeoutException e) {
+        logProgress(false);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        error.compareAndSet(null, e);
+        future.cancel(true);
+        return;
+      } catch (ExecutionException e) {
+        error.compareAndSet(null, e.getCause());
+        return;
+      }
+    }
+  }
+
+  private void runWorker(ODatabaseDocumentInternal session, OCommandContext ctx, BlockingQueue<List<ORecordId>> queue,
+      AtomicReference<Throwable> error) {
+    try {
+      session.activateOnCurrentThread();
+      OBasicCommandContext workerCtx = new OBasicCommandContext();
+      workerCtx.setDatabase(session);
+      workerCtx.setInputParameters(ctx.getInputParameters());
+      while (true) {
+        List<ORecordId> batch = queue.take();
+        if (batch == END_OF_BATCHES) {
+          return;
+        }
+        if (error.get() == null) {
+          modified.addAndGet(executeBatch(session, workerCtx, batch));
+          committedBatches.incrementAndGet();
+        }
+      }
+    } catch (Throwable e) {
+      error.compareAndSet(null, e);
+    } finally {
+      session.activateOnCurrentThread();
+      session.close();
+      ODatabaseRecordThreadLocal.instance().remove();
+    }
+  }
+
+  /**
+   * modifies the records of a batch in a transaction
+   *
+   * @return the number of modified records
+   */
+  private long executeBatch(ODatabaseDocumentInternal session, OCommandContext workerCtx, List<ORecordId> batch) {
+    int attempt = 0;
+    while (true) {
+      // read the records in a single batch before the transaction, then the transaction finds them in the local cache (that
+      // keeps weak references, so the records are referenced here until the batch is committed)
+      List<?> records = session.loadRecords(batch);
+      session.begin();
+      try {
+        OUpdateExecutionPlan plan = new OUpdateExecutionPlan(workerCtx);
+        plan.chain(new FetchFromRidsStep(batch, workerCtx, false));
+        // the record could have been modified after the match, check it again on the current version
+        if (whereClause != null) {
+          plan.chain(new FilterStep(whereClause.copy(), workerCtx, false));
+        }
+        modification.accept(plan, workerCtx);
+        plan.chain(new CountStep(workerCtx, false));
+        plan.executeInternal();
+        OResultSet result = plan.fetchNext(1);
+        long count = result.hasNext() ? ((Number) result.next().getProperty("count")).longValue() : 0;
+        session.commit();
+        return count;
+      } catch (ONeedRetryException e) {
+        rollback(session);
+        if (attempt >= maxRetries) {
+          throw e;
+        }
+        attempt++;
+        retries.incrementAndGet();
+        // the cached records are stale, read them again
+        session.getLocalCache().clear();
+      } catch (RuntimeException | Error e) {
+        rollback(session);
+        throw e;
+      }
+    }
+  }
+
+  private static void rollback(ODatabaseDocumentInternal session) {
+    if (session.getTransaction().isActive()) {
+      session.rollback();
+    }
+  }
+
+  private synchronized void logProgress(boolean end) {
+    long now = System.currentTimeMillis();
+    if (end || now - lastProgressLog >= PROGRESS_LOG_INTERVAL) {
+      lastProgressLog = now;
+      OLogManager.instance()
+          .info(this, "Parallel %s %s: %d records matched, %d records modified, %d batches committed, %d retries", description,
+              end ? "completed" : "in progress", matched.get(), modified.get(), committedBatches.get(), retries.get());
+    }
+  }
+
+  @Override
+  public String prettyPrint(int depth, int indent) {
+    String spaces = OExecutionStepInternal.getIndent(depth, indent);
+    StringBuilder result = new StringBuilder();
+    result.append(spaces);
+    result.append("+ PARALLEL " + description + " (" + workers + " workers, batches of " + batchSize + " records)");
+    if (profilingEnabled) {
+      result.append(" (" + getCostFormatted() + ")");
+    }
+    if (executed) {
+      result.append("\n");
+      result.append(spaces);
+      result.append("  " + matched.get() + " records matched, " + modified.get() + " records modified, " + committedBatches.get()
+          + " batches committed, " + retries.get() + " retries");
+    }
+    return result.toString();
+  }
+
+  @Override
+  public long getCost() {
+    return cost;
+  }
+
+  @Override
+  public OExecutionStep copy(OCommandContext ctx) {
+    return new ParallelModificationStep(whereClause == null ? null : whereClause.copy(), modification, description, ctx,
+        profilingEnabled);
+  }
+}
@@ -2,16 +2,17 @@ package com.orientechnologies.orient.core.sql.executor;
 
 import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.sql.parser.OCompiledProjection;
+import com.orientechnologies.orient.core.sql.parser.OExpressionCompiler;
 import com.orientechnologies.orient.core.sql.parser.OProjection;
 
-import java.util.Map;
-import java.util.Optional;
-
 /**
  * Created by luigidellaquila on 12/07/16.
  */
-public class ProjectionCalculationStep extends AbstractExecutionStep {
-  protected final OProjection projection;
+public class ProjectionCalculationStep extends AbstractExecutionStep implements OBatchExecutionStep {
+  protected final OProjection         projection;
+  protected       OCompiledProjection compiledProjection;
 
   protected long cost = 0;
 
@@ -22,47 +23,35 @@ public class ProjectionCalculationStep extends AbstractExecutionStep {
 
   @Override
   public OResultSet syncPull(OCommandContext ctx, int nRecords) throws OTimeoutException {
+    return syncPullBatch(ctx, nRecords);
+  }
+
+  @Override
+  public OResultBatch syncPullBatch(OCommandContext ctx, int nRecords) throws OTimeoutException {
     if (!prev.isPresent()) {
       throw new IllegalStateException("Cannot calculate projections without a previous source");
     }
 
-    OResultSet parentRs = prev.get().syncPull(ctx, nRecords);
-    return new OResultSet() {
-      @Override
-      public boolean hasNext() {
-        return parentRs.hasNext();
-      }
-
-      @Override
-      public OResult next() {
-        OResult item = parentRs.next();
-        Object oldCurrent = ctx.getVariable("$current");
+    OResultBatch batch = OResultBatch.pull(prev.get(), ctx, nRecords);
+    Object oldCurrent = ctx.getVariable("$current");
+    try {
+      for (int i = 0; i < batch.size(); i++) {
+        OResult item = batch.get(i);
         ctx.setVariable("$current", item);
-        OResult result = calculateProjections(ctx, item);
-        ctx.setVariable("$current", oldCurrent);
-        return result;
-      }
-
-      @Override
-      public void close() {
-        parentRs.close();
+        batch.set(i, calculateProjections(ctx, item));
       }
-
-      @Override
-      public Optional<OExecutionPlan> getExecutionPlan() {
-        return Optional.empty();
-      }
-
-      @Override
-      public Map<String, Long> getQueryStats() {
-        return null;
-      }
-    };
+    } finally {
+      ctx.setVariable("$current", oldCurrent);
+    }
+    return batch;
   }
 
   private OResult calculateProjections(OCommandContext ctx, OResult next) {
     long begin = profilingEnabled ? System.nanoTime() : 0;
     try {
+      if (compiledProjection != null) {
+        return compiledProjection.calculateSingle(ctx, next);
+      }
       return this.projection.calculateSingle(ctx, next);
     } finally {
       if (profilingEnabled) {
@@ -95,6 +84,11 @@ public class ProjectionCalculationStep extends AbstractExecutionStep {
 
   @Override
   public OExecutionStep copy(OCommandContext ctx) {
-    return new ProjectionCalculationStep(projection.copy(), ctx, profilingEnabled);
+    ProjectionCalculationStep result = new ProjectionCalculationStep(projection.copy(), ctx, profilingEnabled);
+    if (OGlobalConfiguration.QUERY_COMPILED_EXPRESSIONS.getValueAsBoolean()) {
+      // copies are created for plans that are taken from the execution plan cache, ie. for hot statements
+      result.compiledProjection = OExpressionCompiler.compile(result.projection);
+    }
+    return result;
   }
 }
@@ -0,0 +1,422 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.concur.OTimeoutException;
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.thread.OThreadPoolExecutorWithLogging;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.index.ODeferredIndexes;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.parser.OIdentifier;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Saves the records of an INSERT ... FROM SELECT in transactions of a fixed number of records, instead of accumulating the whole
+ * insert in a single transaction. The records built by the previous steps are streamed from the source query: only the batches
+ * being saved are kept in memory. The batches can be saved by multiple worker sessions, in parallel.
+ * <p>
+ * Optionally the non unique indexes of the target class are dropped before the insert and created again at the end, so that they
+ * are built in bulk instead of being updated at each insert. This is never done when the source query may read the target class,
+ * because it could use those indexes.
+ * <p>
+ * The transactions are independent: if the statement fails, the batches already committed stay committed, so the step is used
+ * only for statements issued outside a transaction. Returns a single record with the count of the inserted records.
+ */
+public class StreamingInsertStep extends AbstractExecutionStep {
+
+  private static final long PROGRESS_LOG_INTERVAL = 30_000;
+
+  /**
+   * marks the end of the batches
+   */
+  private static final List<ORecord> END_OF_BATCHES = Collections.emptyList();
+
+  private final OIdentifier targetClass;
+  private final OIdentifier targetCluster;
+  private final int         batchSize;
+  private final int         writers;
+  private final boolean     canDeferIndexes;
+  private final boolean     deferIndexes;
+
+  // runtime
+  private boolean executed = false;
+  private long    cost     = 0;
+  private long    lastProgressLog;
+
+  private ExecutorService executor;
+
+  private final AtomicLong inserted         = new AtomicLong();
+  private final AtomicLong committedBatches = new AtomicLong();
+
+  /**
+   * @param targetClass      the class of the inserted records, used to find the indexes to defer. Null if the target is a cluster
+   * @param targetCluster    the cluster where the records are saved, null to save them in the clusters of their class
+   * @param canDeferIndexes  false if the source query may read the target class or use its indexes, so that they cannot be dropped
+   *                         during the insert
+   * @param ctx              the execution context
+   * @param profilingEnabled true to enable the profiling of the execution (for SQL PROFILE)
+   */
+  public StreamingInsertStep(OIdentifier targetClass, OIdentifier targetCluster, boolean canDeferIndexes, OCommandContext ctx,
+      boolean profilingEnabled) {
+    super(ctx, profilingEnabled);
+    this.targetClass = targetClass;
+    this.targetCluster = targetCluster;
+    this.canDeferIndexes = canDeferIndexes;
+    this.batchSize = getBatchSize(ctx);
+    this.writers = Math.max(1, getConfiguration(ctx).getValueAsInteger(OGlobalConfiguration.QUERY_INSERT_SELECT_WRITERS));
+    this.deferIndexes =
+        canDeferIndexes && getConfiguration(ctx).getValueAsBoolean(OGlobalConfiguration.QUERY_INSERT_SELECT_DEFER_INDEXES);
+  }
+
+  /**
+   * @param ctx the execution context
+   *
+   * @return true if the INSERT ... FROM SELECT statements executed in this context are streamed, ie. a batch size is configured
+   * and no transaction is active
+   */
+  public static boolean isEnabled(OCommandContext ctx) {
+    return getBatchSize(ctx) > 0 && !ctx.getDatabase().getTransaction().isActive();
+  }
+
+  private static int getBatchSize(OCommandContext ctx) {
+    return getConfiguration(ctx).getValueAsInteger(OGlobalConfiguration.QUERY_INSERT_SELECT_BATCH_SIZE);
+  }
+
+  private static OContextConfiguration getConfiguration(OCommandContext ctx) {
+    if (ctx.getDatabase() != null && ctx.getDatabase().getConfiguration() != null) {
+      return ctx.getDatabase().getConfiguration();
+    }
+    return new OContextConfiguration();
+  }
+
+  @Override
+  public OResultSet syncPull(OCommandContext ctx, int nRecords) throws OTimeoutException {
+    if (executed) {
+      return new OInternalResultSet();
+    }
+    executed = true;
+    long begin = profilingEnabled ? System.nanoTime() : 0;
+    try {
+      execute(ctx);
+      OResultInternal resultRecord = new OResultInternal();
+      resultRecord.setProperty("count", inserted.get());
+      OInternalResultSet result = new OInternalResultSet();
+      result.add(resultRecord);
+      return result;
+    } finally {
+      if (profilingEnabled) {
+        cost += (System.nanoTime() - begin);
+      }
+    }
+  }
+
+  private void execute(OCommandContext ctx) {
+    ODatabaseDocumentInternal db = (ODatabaseDocumentInternal) ctx.getDatabase();
+    lastProgressLog = System.currentTimeMillis();
+    List<ODocument> deferred = deferIndexes ? dropDeferredIndexes(db) : Collections.emptyList();
+    try {
+      if (writers > 1) {
+        insertInParallel(ctx, db);
+      } else {
+        insertInCurrentSession(ctx, db);
+      }
+    } catch (RuntimeException | Error e) {
+      try {
+        ODeferredIndexes.create(db, deferred);
+      } catch (RuntimeException ignore) {
+        // already logged, the error of the insert is more relevant
+      }
+      throw e;
+    }
+    ODeferredIndexes.create(db, deferred);
+    logProgress(true);
+  }
+
+  private void insertInCurrentSession(OCommandContext ctx, ODatabaseDocumentInternal db) {
+    List<ORecord> batch = new ArrayList<>(batchSize);
+    while (true) {
+      OResultSet block = getPrev().get().syncPull(ctx, batchSize);
+      if (!block.hasNext()) {
+        break;
+      }
+      while (block.hasNext()) {
+        OResult item = block.next();
+        if (item.isElement()) {
+          batch.add(item.getElement().get().getRecord());
+        }
+        if (batch.size() >= batchSize) {
+          insertBatch(db, batch);
+          batch = new ArrayList<>(batchSize);
+        }
+      }
+      logProgress(false);
+    }
+    if (!batch.isEmpty()) {
+      insertBatch(db, batch);
+    }
+  }
+
+  private void insertInParallel(OCommandContext ctx, ODatabaseDocumentInternal db) {
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    // the writers do not need more than a couple of batches ahead each
+    BlockingQueue<List<ORecord>> queue = new ArrayBlockingQueue<>(2 * writers);
+    List<Future<?>> futures = new ArrayList<>(writers);
+    executor = new OThreadPoolExecutorWithLogging(writers, writers, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+      Thread thread = new Thread(r, "OrientDB streaming insert writer");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    try {
+      for (int i = 0; i < writers; i++) {
+        ODatabaseDocumentInternal session = db.copy();
+        futures.add(executor.submit(() -> runWriter(session, queue, error)));
+      }
+
+      List<ORecord> batch = new ArrayList<>(batchSize);
+      while (error.get() == null) {
+        OResultSet block = getPrev().get().syncPull(ctx, batchSize);
+        if (!block.hasNext()) {
+          break;
+        }
+        while (block.hasNext() && error.get() == null) {
+          OResult item = block.next();
+          if (item.isElement()) {
+            batch.add(item.getElement().get().getRecord());
+          }
+          if (batch.size() >= batchSize) {
+            enqueue(queue, batch, error);
+            batch = new ArrayList<>(batchSize);
+          }
+        }
+        logProgress(false);
+      }
+      if (!batch.isEmpty() && error.get() == null) {
+        enqueue(queue, batch, error);
+      }
+    } finally {
+      for (int i = 0; i < futures.size(); i++) {
+        end(queue, error);
+      }
+      for (Future<?> future : futures) {
+        join(future, error);
+      }
+      shutdownExecutor();
+      db.activateOnCurrentThread();
+    }
+
+    Throwable e = error.get();
+    if (e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    } else if (e instanceof Error) {
+      throw (Error) e;
+    } else if (e != null) {
+      throw OException.wrapException(new OCommandExecutionException("Error on streaming insert"), e);
+    }
+  }
+
+  /**
+   * passes a batch to the writers, unless a writer failed
+   */
+  private void enqueue(BlockingQueue<List<ORecord>> queue, List<ORecord> batch, AtomicReference<Throwable> error) {
+    try {
+      while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+        if (error.get() != null) {
+          return;
+        }
+        logProgress(false);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      error.compareAndSet(null, e);
+    }
+  }
+
+  /**
+   * tells a writer that there are no more batches. If a writer failed the batches still in the queue are discarded
+   */
+  private void end(BlockingQueue<List<ORecord>> queue, AtomicReference<Throwable> error) {
+    try {
+      while (!queue.offer(END_OF_BATCHES, 100, TimeUnit.MILLISECONDS)) {
+        if (error.get() != null) {
+          queue.removeIf(batch -> batch != END_OF_BATCHES);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      error.compareAndSet(null, e);
+      queue.removeIf(batch -> batch != END_OF_BATCHES);
+      queue.offer(END_OF_BATCHES);
+    }
+  }
+
+  private void join(Future<?> future, AtomicReference<Throwable> error) {
+    while (true) {
+      try {
+        future.get(100, TimeUnit.MILLISECONDS);
+        return;
+      } catch (TimeoutException e) {
+        logProgress(false);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        error.compareAndSet(null, e);
+        future.cancel(true);
+        return;
+      } catch (ExecutionException e) {
+        error.compareAndSet(null, e.getCause());
+        return;
+      }
+    }
+  }
+
+  private synchronized void shutdownExecutor() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  @Override
+  public void close() {
+    shutdownExecutor();
+    super.close();
+  }
+
+  private void runWriter(ODatabaseDocumentInternal session, BlockingQueue<List<ORecord>> queue, AtomicReference<Throwable> error) {
+    try {
+      session.activateOnCurrentThread();
+      while (true) {
+        List<ORecord> batch = queue.take();
+        if (batch == END_OF_BATCHES) {
+          return;
+        }
+        if (error.get() == null) {
+          insertBatch(session, batch);
+        }
+      }
+    } catch (Throwable e) {
+      error.compareAndSet(null, e);
+    } finally {
+      session.activateOnCurrentThread();
+      session.close();
+      ODatabaseRecordThreadLocal.instance().remove();
+    }
+  }
+
+  /**
+   * saves the records of a batch in a transaction
+   */
+  private void insertBatch(ODatabaseDocumentInternal session, List<ORecord> batch) {
+    session.begin();
+    try {
+      for (ORecord record : batch) {
+        if (targetCluster == null) {
+          session.save(record);
+        } else {
+          session.save(record, targetCluster.getStringValue());
+        }
+      }
+      session.commit();
+    } catch (RuntimeException | Error e) {
+      if (session.getTransaction().isActive()) {
+        session.rollback();
+      }
+      throw e;
+    }
+    inserted.addAndGet(batch.size());
+    committedBatches.incrementAndGet();
+  }
+
+  /**
+   * drops the indexes of the target class that can be built again at the end of the insert without changing their content: the
+   * unique indexes (and the dictionaries, where the last insert wins) are still updated at each insert, because a violation found
+   * at the end would not allow to build them again. Their configuration is saved in the storage, so that they are created again
+   * at the next open if the process stops before the end of the insert
+   *
+   * @return the configurations of the dropped indexes
+   */
+  private List<ODocument> dropDeferredIndexes(ODatabaseDocumentInternal db) {
+    OClass clazz = null;
+    if (targetClass != null) {
+      clazz = db.getMetadata().getSchema().getClass(targetClass.getStringValue());
+    } else if (targetCluster != null) {
+      int clusterId = db.getClusterIdByName(targetCluster.getStringValue());
+      clazz = clusterId < 0 ? null : db.getMetadata().getSchema().getClassByClusterId(clusterId);
+    }
+    if (clazz == null) {
+      return Collections.emptyList();
+    }
+
+    List<OIndex<?>> indexes = new ArrayList<>();
+    for (OIndex<?> index : clazz.getClassIndexes()) {
+      String type = index.getType();
+      if (OClass.INDEX_TYPE.NOTUNIQUE.name().equalsIgnoreCase(type) || OClass.INDEX_TYPE.NOTUNIQUE_HASH_INDEX.name()
+          .equalsIgnoreCase(type)) {
+        indexes.add(index);
+      }
+    }
+    return ODeferredIndexes.drop(db, indexes);
+  }
+
+  private synchronized void logProgress(boolean end) {
+    long now = System.currentTimeMillis();
+    if (end || now - lastProgressLog >= PROGRESS_LOG_INTERVAL) {
+      lastProgressLog = now;
+      OLogManager.instance()
+          .info(this, "Streaming insert %s: %d records inserted, %d batches committed", end ? "completed" : "in progress",
+              inserted.get(), committedBatches.get());
+    }
+  }
+
+  @Override
+  public String prettyPrint(int depth, int indent) {
+    String spaces = OExecutionStepInternal.getIndent(depth, indent);
+    StringBuilder result = new StringBuilder();
+    result.append(spaces);
+    result.append("+ STREAMING INSERT (" + writers + " writers, batches of " + batchSize + " records)");
+    if (profilingEnabled) {
+      result.append(" (" + getCostFormatted() + ")");
+    }
+    if (targetCluster != null) {
+      result.append("\n");
+      result.append(spaces);
+      result.append("  on cluster " + targetCluster);
+    }
+    if (deferIndexes) {
+      result.append("\n");
+      result.append(spaces);
+      result.append("  rebuilding the non unique indexes at the end");
+    }
+    if (executed) {
+      result.append("\n");
+      result.append(spaces);
+      result.append("  " + inserted.get() + " records inserted, " + committedBatches.get() + " batches committed");
+    }
+    return result.toString();
+  }
+
+  @Override
+  public long getCost() {
+    return cost;
+  }
+
+  @Override
+  public OExecutionStep copy(OCommandContext ctx) {
+    return new StreamingInsertStep(targetClass == null ? null : targetClass.copy(), targetCluster == null ? null : targetCluster.copy(),
+        canDeferIndexes, ctx, profilingEnabled);
+  }
+}
@@ -88,6 +88,15 @@ public final class ODefaultSQLFunctionFactory extends OSQLFunctionFactoryTemplat
     register(OSQLFunctionShortestPath.NAME, OSQLFunctionShortestPath.class);
     register(OSQLFunctionDijkstra.NAME, OSQLFunctionDijkstra.class);
     register(OSQLFunctionAstar.NAME, OSQLFunctionAstar.class);
+    register(OSQLFunctionCreateGraphProjection.NAME, OSQLFunctionCreateGraphProjection.class);
+    register(OSQLFunctionRefreshGraphProjection.NAME, OSQLFunctionRefreshGraphProjection.class);
+    register(OSQLFunctionDropGraphProjection.NAME, OSQLFunctionDropGraphProjection.class);
+    register(OSQLFunctionPageRank.NAME, OSQLFunctionPageRank.class);
+    register(OSQLFunctionConnectedComponents.NAME, OSQLFunctionConnectedComponents.class);
+    register(OSQLFunctionLabelPropagation.NAME, OSQLFunctionLabelPropagation.class);
+    register(OSQLFunctionTriangleCount.NAME, OSQLFunctionTriangleCount.class);
+    register(OSQLFunctionDegreeCentrality.NAME, OSQLFunctionDegreeCentrality.class);
+    register(OSQLFunctionAnalyzeGraph.NAME, OSQLFunctionAnalyzeGraph.class);
 
   }
 
@@ -0,0 +1,286 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.command.OCommandExecutorAbstract;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.OElement;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.OVertex;
+
+import java.util.*;
+
+/**
+ * Dijkstra's cheapest path search, on primitive state: the vertices are numbered by an {@link ORidIndex}, the distances and the
+ * predecessors are kept in arrays and the frontier in an {@link OIndexedMinHeap}. Only the settled vertices are loaded, their
+ * neighbors are read from the edges with {@link OGraphAdjacency}.
+ * <p>
+ * The bidirectional search runs two searches, from the source following the edges in the given direction and from the
+ * destination following them in the opposite direction, and stops when the sum of the minimum distances of the two frontiers
+ * reaches the cheapest path found so far. It settles far fewer vertices than the forward search on large graphs.
+ * <p>
+ * When a {@link OGraphProjection} is given the searches run on the projection, numbering the vertices as the projection does, and
+ * no record is loaded.
+ * <p>
+ * The weights are read from an edge property, edges without the property weigh 0. Negative weights are not supported.
+ */
+public class ODijkstraPathFinder {
+  private final ODirection      direction;
+  private final String[]        edgeTypes;
+  private final String          weightProperty;
+  private final OCommandContext context;
+
+  private final ORidIndex        nodes;
+  private final OGraphProjection projection;
+  private final BitSet           edgeClassSet;
+  private       long             settled;
+
+  /**
+   * @param direction      the direction of the edges to follow from the source
+   * @param edgeTypes      the edge classes to follow, null for all the edges
+   * @param weightProperty the edge property that contains the weight, null to give all the edges weight 0
+   * @param context        the command context, checked for timeouts and interruptions
+   */
+  public ODijkstraPathFinder(ODirection direction, String[] edgeTypes, String weightProperty, OCommandContext context) {
+    this.direction = direction;
+    this.edgeTypes = edgeTypes;
+    this.weightProperty = weightProperty;
+    this.context = context;
+    this.nodes = new ORidIndex();
+    this.projection = null;
+    this.edgeClassSet = null;
+  }
+
+  /**
+   * Creates a finder that searches a graph projection, the weights are the ones of the projection.
+   *
+   * @param projection the projection, acquired by the caller
+   * @param direction  the direction of the edges to follow from the source
+   * @param edgeTypes  the edge classes to follow, null for all the edges of the projection
+   * @param context    the command context, checked for timeouts and interruptions
+   */
+  public ODijkstraPathFinder(OGraphProjection projection, ODirection direction, String[] edgeTypes, OCommandContext context) {
+    this.direction = direction;
+    this.edgeTypes = edgeTypes;
+    this.weightProperty = projection.getWeightProperty();
+    this.context = context;
+    this.nodes = null;
+    this.projection = projection;
+    this.edgeClassSet = projection
+        .resolveEdgeClasses(edgeTypes, ((ODatabaseDocumentInternal) context.getDatabase()).getMetadata().getImmutableSchemaSnapshot());
+  }
+
+  /**
+   * @return the number of vertices settled (and loaded) by the last search
+   */
+  public long getSettled() {
+    return settled;
+  }
+
+  /**
+   * @return the RIDs of the vertices of the cheapest path from the source to the destination, both included, or an empty list if
+   * the destination cannot be reached
+   */
+  public List<ORID> findPath(ORID source, ORID destination, boolean bidirectional) {
+    settled = 0;
+    if (source.equals(destination)) {
+      return Collections.singletonList(source);
+    }
+    int sourceNode = node(source);
+    int destinationNode = node(destination);
+    if (sourceNode < 0 || destinationNode < 0) {
+      return Collections.emptyList();
+    }
+    return bidirectional ? bidirectionalSearch(sourceNode, destinationNode) : forwardSearch(sourceNode, destinationNode);
+  }
+
+  /**
+   * @return the number of a vertex, -1 if the vertex is not in the projection
+   */
+  private int node(ORID rid) {
+    return projection == null ? nodes.add(rid) : projection.indexOf(rid);
+  }
+
+  private ORID rid(int node) {
+    return projection == null ? nodes.get(node) : projection.getRid(node);
+  }
+
+  private List<ORID> forwardSearch(int sourceNode, int destinationNode) {
+    Search search = new Search(direction);
+    search.start(sourceNode);
+
+    while (!search.frontier.isEmpty()) {
+      int node = search.frontier.peek();
+      if (node == destinationNode) {
+        return toPath(search.predecessors, node, null, -1);
+      }
+      if (!OCommandExecutorAbstract.checkInterruption(context)) {
+        break;
+      }
+      search.settleNext(null);
+    }
+    return Collections.emptyList();
+  }
+
+  private List<ORID> bidirectionalSearch(int sourceNode, int destinationNode) {
+    Search forward = new Search(direction);
+    Search backward = new Search(direction.opposite());
+    forward.start(sourceNode);
+    backward.start(destinationNode);
+
+    while (!forward.frontier.isEmpty() && !backward.frontier.isEmpty()) {
+      double best = Math.min(forward.best, backward.best);
+      if (forward.frontier.peekPriority() + backward.frontier.peekPriority() >= best) {
+        break;
+      }
+      if (!OCommandExecutorAbstract.checkInterruption(context)) {
+        return Collections.emptyList();
+      }
+      if (forward.frontier.peekPriority() <= backward.frontier.peekPriority()) {
+        forward.settleNext(backward);
+      } else {
+        backward.settleNext(forward);
+      }
+    }
+
+    Search meetingSide = forward.best <= backward.best ? forward : backward;
+    if (meetingSide.meeting < 0) {
+      return Collections.emptyList();
+    }
+    return toPath(forward.predecessors, meetingSide.meeting, backward.predecessors, meetingSide.meeting);
+  }
+
+  /**
+   * @return the path from the start of the forward search to <code>node</code>, followed by the path from <code>backwardNode</code>
+   * to the start of the backward search (if any)
+   */
+  private List<ORID> toPath(int[] predecessors, int node, int[] backwardPredecessors, int backwardNode) {
+    List<ORID> result = new ArrayList<>();
+    for (int current = node; current >= 0; current = predecessors[current]) {
+      result.add(rid(current));
+    }
+    Collections.reverse(result);
+    if (backwardPredecessors != null) {
+      for (int current = backwardPredecessors[backwardNode]; current >= 0; current = backwardPredecessors[current]) {
+        result.add(rid(current));
+      }
+    }
+    return result;
+  }
+
+  private OVertex loadVertex(int node) {
+    ORecord record = rid(node).getRecord();
+    if (record instanceof OElement) {
+      return ((OElement) record).asVertex().orElse(null);
+    }
+    return null;
+  }
+
+  /**
+   * the state of the search from one side
+   */
+  private class Search {
+    private final ODirection      direction;
+    private final OIndexedMinHeap frontier     = new OIndexedMinHeap();
+    private       double[]        distances    = new double[0];
+    private       int[]           predecessors = new int[0];
+    private final BitSet          settledNodes = new BitSet();
+
+    /**
+     * the cost of the cheapest path through the other search found by this search, and the vertex where the searches met
+     */
+    private double best    = Double.POSITIVE_INFINITY;
+    private int    meeting = -1;
+
+    private Search(ODirection direction) {
+      this.direction = direction;
+    }
+
+    private void start(int node) {
+      ensureCapacity(node);
+      distances[node] = 0;
+      frontier.push(node, 0);
+    }
+
+    private double distance(int node) {
+      return node < distances.length ? distances[node] : Double.POSITIVE_INFINITY;
+    }
+
+    private void ensureCapacity(int node) {
+      if (node >= distances.length) {
+        int oldCapacity = distances.length;
+        int capacity = Math.max(Math.max(64, node + 1), oldCapacity * 2);
+        distances = Arrays.copyOf(distances, capacity);
+        predecessors = Arrays.copyOf(predecessors, capacity);
+        Arrays.fill(distances, oldCapacity, capacity, Double.POSITIVE_INFINITY);
+        Arrays.fill(predecessors, oldCapacity, capacity, -1);
+      }
+    }
+
+    /**
+     * settles the vertex with the minimum distance and relaxes its edges
+     *
+     * @param other the search from the other side, null for a unidirectional search
+     */
+    private void settleNext(Search other) {
+      int node = frontier.poll();
+      settledNodes.set(node);
+      settled++;
+      if (projection != null) {
+        projection.forEachNeighbor(node, direction, edgeClassSet, (neighbor, edge) -> {
+          relax(node, neighbor, projection.getWeight(edge), other);
+          return true;
+        });
+        return;
+      }
+      OVertex vertex = loadVertex(node);
+      if (vertex == null) {
+        return;
+      }
+      OGraphAdjacency.forEachNeighbor(vertex, direction, edgeTypes, (neighborIdentity, edge) -> {
+        relax(node, nodes.add(neighborIdentity), OGraphAdjacency.getWeight(edge, weightProperty), other);
+        return true;
+      });
+    }
+
+    private void relax(int node, int neighbor, double weight, Search other) {
+      if (settledNodes.get(neighbor)) {
+        return;
+      }
+      ensureCapacity(neighbor);
+      double newDistance = distances[node] + weight;
+      if (newDistance < distances[neighbor]) {
+        distances[neighbor] = newDistance;
+        predecessors[neighbor] = node;
+        frontier.push(neighbor, newDistance);
+      }
+      if (other != null) {
+        double throughNeighbor = distances[neighbor] + other.distance(neighbor);
+        if (throughNeighbor < best) {
+          best = throughNeighbor;
+          meeting = neighbor;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.OEdge;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Reads the adjacency of a vertex for the path finding algorithms: the RIDs of the vertices on the other side of the edges are read
+ * from the edge records, without loading the vertices. The neighbors are visited in the same order of {@link
+ * OVertex#getVertices(ODirection, String...)}.
+ */
+public final class OGraphAdjacency {
+
+  public interface NeighborVisitor {
+    /**
+     * @param neighbor the RID of the vertex on the other side of the edge
+     * @param edge     the edge
+     *
+     * @return false to stop the visit
+     */
+    boolean visit(ORID neighbor, OEdge edge);
+  }
+
+  private OGraphAdjacency() {
+  }
+
+  /**
+   * Visits the neighbors of a vertex.
+   *
+   * @param vertex    the vertex
+   * @param direction the direction of the edges
+   * @param edgeTypes the edge classes to follow, null for all the edges
+   * @param visitor   the visitor of the neighbors
+   *
+   * @return false if the visitor stopped the visit
+   */
+  public static boolean forEachNeighbor(OVertex vertex, ODirection direction, String[] edgeTypes, NeighborVisitor visitor) {
+    if (direction == ODirection.BOTH) {
+      return forEachNeighbor(vertex, ODirection.OUT, edgeTypes, visitor) && forEachNeighbor(vertex, ODirection.IN, edgeTypes,
+          visitor);
+    }
+    for (OEdge edge : vertex.getEdges(direction, edgeTypes)) {
+      if (edge == null) {
+        continue;
+      }
+      ORID neighbor = getOtherVertex(edge, direction);
+      if (neighbor != null && !visitor.visit(neighbor, edge)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the RID of the vertex on the other side of the edge, reading the link in the edge record without loading the vertex
+   */
+  public static ORID getOtherVertex(OEdge edge, ODirection direction) {
+    ODirection otherSide = direction.opposite();
+    if (edge instanceof ODocument) {
+      Object link = ((ODocument) edge).rawField(otherSide == ODirection.OUT ? "out" : "in");
+      return link instanceof OIdentifiable ? ((OIdentifiable) link).getIdentity() : null;
+    }
+    OVertex other = edge.getVertex(otherSide);
+    return other == null ? null : other.getIdentity();
+  }
+
+  /**
+   * @return the weight of an edge, read from the given property. Edges without the property (and lightweight edges) weigh 0
+   */
+  public static double getWeight(OEdge edge, String weightProperty) {
+    if (edge == null || weightProperty == null) {
+      return 0;
+    }
+    Object value = edge.getProperty(weightProperty);
+    return value instanceof Number ? ((Number) value).doubleValue() : 0;
+  }
+}
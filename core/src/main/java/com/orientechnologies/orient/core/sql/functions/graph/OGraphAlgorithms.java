@@ -0,0 +1,523 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.OElement;
+import com.orientechnologies.orient.core.record.ORecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Graph algorithms that run on a {@link OGraphProjection}: PageRank, weakly connected components, label propagation, triangle
+ * counting and degree centrality. The vertices are split in ranges that are processed in parallel on a fork-join pool (see {@link
+ * OGlobalConfiguration#GRAPH_ALGORITHMS_PARALLELISM}); the algorithms read only the projection, and return one value per vertex,
+ * indexed by the number of the vertex in the projection.
+ * <p>
+ * The results can be written back to the database as a vertex property with {@link #writeBack(ODatabaseDocumentInternal, String,
+ * IntFunction)}.
+ */
+public class OGraphAlgorithms implements AutoCloseable {
+
+  private interface RangeTask {
+    void run(int from, int to);
+  }
+
+  private static class RangeAction extends RecursiveAction {
+    private final int       from;
+    private final int       to;
+    private final int       grain;
+    private final RangeTask task;
+
+    private RangeAction(int from, int to, int grain, RangeTask task) {
+      this.from = from;
+      this.to = to;
+      this.grain = grain;
+      this.task = task;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= grain) {
+        task.run(from, to);
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      invokeAll(new RangeAction(from, mid, grain, task), new RangeAction(mid, to, grain, task));
+    }
+  }
+
+  private final OGraphProjection projection;
+  private final int              vertexCount;
+  private final int              parallelism;
+  private final ForkJoinPool     pool;
+  private       int              iterations;
+
+  public OGraphAlgorithms(OGraphProjection projection) {
+    this(projection, OGlobalConfiguration.GRAPH_ALGORITHMS_PARALLELISM.getValueAsInteger());
+  }
+
+  public OGraphAlgorithms(OGraphProjection projection, int parallelism) {
+    this.projection = projection;
+    this.vertexCount = projection.getVertexCount();
+    this.parallelism = Math.max(1, parallelism);
+    this.pool = new ForkJoinPool(this.parallelism);
+  }
+
+  public OGraphProjection getProjection() {
+    return projection;
+  }
+
+  /**
+   * @return the number of iterations run by the last iterative algorithm (PageRank, label propagation)
+   */
+  public int getIterations() {
+    return iterations;
+  }
+
+  /**
+   * Computes the PageRank of the vertices, following the outgoing edges. The rank of the vertices without outgoing edges is
+   * distributed to all the vertices.
+   *
+   * @param dampingFactor the probability of following an edge, usually 0.85
+   * @param maxIterations the maximum number of iterations
+   * @param tolerance     the iterations stop when the sum of the changes of the ranks is below this value
+   *
+   * @return the rank of each vertex, the ranks sum to 1
+   */
+  public double[] pageRank(double dampingFactor, int maxIterations, double tolerance) {
+    iterations = 0;
+    double[] rank = new double[vertexCount];
+    if (vertexCount == 0) {
+      return rank;
+    }
+    Arrays.fill(rank, 1.0 / vertexCount);
+    double[] next = new double[vertexCount];
+    int[] outDegrees = new int[vertexCount];
+    parallelFor(vertexCount, (from, to) -> {
+      for (int v = from; v < to; v++) {
+        outDegrees[v] = projection.outEnd(v) - projection.outStart(v);
+      }
+    });
+
+    while (iterations < maxIterations) {
+      iterations++;
+      double[] current = rank;
+      DoubleAdder dangling = new DoubleAdder();
+      parallelFor(vertexCount, (from, to) -> {
+        double sum = 0;
+        for (int v = from; v < to; v++) {
+          if (outDegrees[v] == 0) {
+            sum += current[v];
+          }
+        }
+        dangling.add(sum);
+      });
+      double base = (1 - dampingFactor) / vertexCount + dampingFactor * dangling.sum() / vertexCount;
+
+      double[] target = next;
+      DoubleAdder delta = new DoubleAdder();
+      parallelFor(vertexCount, (from, to) -> {
+        double localDelta = 0;
+        for (int v = from; v < to; v++) {
+          double sum = 0;
+          int end = projection.inEnd(v);
+          for (int i = projection.inStart(v); i < end; i++) {
+            int source = projection.inSource(i);
+            sum += current[source] / outDegrees[source];
+          }
+          target[v] = base + dampingFactor * sum;
+          localDelta += Math.abs(target[v] - current[v]);
+        }
+        delta.add(localDelta);
+      });
+      next = rank;
+      rank = target;
+      if (delta.sum() < tolerance) {
+        break;
+      }
+    }
+    return rank;
+  }
+
+  /**
+   * Finds the weakly connected components, ignoring the direction of the edges, with a lock-free union-find.
+   *
+   * @return for each vertex the component, identified by the lowest vertex number in the component
+   */
+  public int[] weaklyConnectedComponents() {
+    AtomicIntegerArray parents = new AtomicIntegerArray(vertexCount);
+    for (int v = 0; v < vertexCount; v++) {
+      parents.set(v, v);
+    }
+    parallelFor(vertexCount, (from, to) -> {
+      for (int v = from; v < to; v++) {
+        int end = projection.outEnd(v);
+        for (int i = projection.outStart(v); i < end; i++) {
+          union(parents, v, projection.outTarget(i));
+        }
+      }
+    });
+    int[] result = new int[vertexCount];
+    parallelFor(vertexCount, (from, to) -> {
+      for (int v = from; v < to; v++) {
+        result[v] = find(parents, v);
+      }
+    });
+    return result;
+  }
+
+  private static int find(AtomicIntegerArray parents, int vertex) {
+    while (true) {
+      int parent = parents.get(vertex);
+      if (parent == vertex) {
+        return vertex;
+      }
+      int grandParent = parents.get(parent);
+      if (parent != grandParent) {
+        parents.compareAndSet(vertex, parent, grandParent);
+      }
+      vertex = grandParent;
+    }
+  }
+
+  /**
+   * joins the components of two vertices. The root with the highest number is linked to the other, so the links always go to
+   * lower numbers and the root of a component is its lowest vertex
+   */
+  private static void union(AtomicIntegerArray parents, int a, int b) {
+    while (true) {
+      a = find(parents, a);
+      b = find(parents, b);
+      if (a == b) {
+        return;
+      }
+      if (a < b) {
+        int tmp = a;
+        a = b;
+        b = tmp;
+      }
+      if (parents.compareAndSet(a, a, b)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Detects communities with label propagation, ignoring the direction of the edges: at each iteration every vertex takes the
+   * label that is most frequent among its neighbors (keeping its own label on ties with it, or taking the lowest label on other
+   * ties), until no label changes or the maximum number of iterations is reached.
+   *
+   * @return for each vertex the label of its community, the number of a vertex of the community
+   */
+  public int[] labelPropagation(int maxIterations) {
+    iterations = 0;
+    int[] labels = new int[vertexCount];
+    for (int v = 0; v < vertexCount; v++) {
+      labels[v] = v;
+    }
+    int[] next = new int[vertexCount];
+    while (iterations < maxIterations) {
+      iterations++;
+      int[] current = labels;
+      int[] target = next;
+      LongAdder changed = new LongAdder();
+      parallelFor(vertexCount, (from, to) -> {
+        int[] buffer = new int[16];
+        long localChanged = 0;
+        for (int v = from; v < to; v++) {
+          int size = 0;
+          int degree = projection.outEnd(v) - projection.outStart(v) + projection.inEnd(v) - projection.inStart(v);
+          if (buffer.length < degree) {
+            buffer = new int[Math.max(degree, buffer.length * 2)];
+          }
+          int end = projection.outEnd(v);
+          for (int i = projection.outStart(v); i < end; i++) {
+            int neighbor = projection.outTarget(i);
+            if (neighbor != v) {
+              buffer[size++] = current[neighbor];
+            }
+          }
+          end = projection.inEnd(v);
+          for (int i = projection.inStart(v); i < end; i++) {
+            int neighbor = projection.inSource(i);
+            if (neighbor != v) {
+              buffer[size++] = current[neighbor];
+            }
+          }
+          target[v] = mostFrequent(buffer, size, current[v]);
+          if (target[v] != current[v]) {
+            localChanged++;
+          }
+        }
+        changed.add(localChanged);
+      });
+      next = labels;
+      labels = target;
+      if (changed.sum() == 0) {
+        break;
+      }
+    }
+    return labels;
+  }
+
+  private static int mostFrequent(int[] values, int size, int currentValue) {
+    if (size == 0) {
+      return currentValue;
+    }
+    Arrays.sort(values, 0, size);
+    int best = values[0];
+    int bestCount = 0;
+    int currentCount = 0;
+    for (int i = 0; i < size; ) {
+      int j = i;
+      while (j < size && values[j] == values[i]) {
+        j++;
+      }
+      int count = j - i;
+      if (count > bestCount) {
+        best = values[i];
+        bestCount = count;
+      }
+      if (values[i] == currentValue) {
+        currentCount = count;
+      }
+      i = j;
+    }
+    return currentCount == bestCount ? currentValue : best;
+  }
+
+  /**
+   * Counts the triangles of each vertex, ignoring the direction of the edges, multiple edges and self loops. The undirected graph is
+   * first copied to an oriented adjacency on the heap, where each edge goes from the vertex with the lower degree to the other, so
+   * each triangle is found once by intersecting sorted adjacency lists.
+   *
+   * @return for each vertex the number of triangles it belongs to. The total number of triangles is the sum divided by 3
+   */
+  public int[] triangleCount() {
+    // the number of distinct neighbors of each vertex
+    int[] degrees = new int[vertexCount];
+    parallelFor(vertexCount, (from, to) -> {
+      int[] buffer = new int[16];
+      for (int v = from; v < to; v++) {
+        buffer = distinctNeighbors(v, buffer);
+        degrees[v] = buffer[buffer.length - 1];
+      }
+    });
+
+    // the neighbors that come after the vertex in the (degree, number) order, sorted by number
+    int[] forwardOffsets = new int[vertexCount + 1];
+    parallelFor(vertexCount, (from, to) -> {
+      int[] buffer = new int[16];
+      for (int v = from; v < to; v++) {
+        buffer = distinctNeighbors(v, buffer);
+        int count = 0;
+        for (int i = 0; i < buffer[buffer.length - 1]; i++) {
+          if (follows(degrees, buffer[i], v)) {
+            count++;
+          }
+        }
+        forwardOffsets[v + 1] = count;
+      }
+    });
+    for (int v = 0; v < vertexCount; v++) {
+      forwardOffsets[v + 1] += forwardOffsets[v];
+    }
+    int[] forward = new int[forwardOffsets[vertexCount]];
+    parallelFor(vertexCount, (from, to) -> {
+      int[] buffer = new int[16];
+      for (int v = from; v < to; v++) {
+        buffer = distinctNeighbors(v, buffer);
+        int position = forwardOffsets[v];
+        for (int i = 0; i < buffer[buffer.length - 1]; i++) {
+          if (follows(degrees, buffer[i], v)) {
+            forward[position++] = buffer[i];
+          }
+        }
+      }
+    });
+
+    AtomicIntegerArray triangles = new AtomicIntegerArray(vertexCount);
+    parallelFor(vertexCount, (from, to) -> {
+      for (int u = from; u < to; u++) {
+        for (int i = forwardOffsets[u]; i < forwardOffsets[u + 1]; i++) {
+          int v = forward[i];
+          // intersect the forward neighbors of u and v
+          int a = forwardOffsets[u];
+          int b = forwardOffsets[v];
+          while (a < forwardOffsets[u + 1] && b < forwardOffsets[v + 1]) {
+            if (forward[a] < forward[b]) {
+              a++;
+            } else if (forward[a] > forward[b]) {
+              b++;
+            } else {
+              triangles.incrementAndGet(u);
+              triangles.incrementAndGet(v);
+              triangles.incrementAndGet(forward[a]);
+              a++;
+              b++;
+            }
+          }
+        }
+      }
+    });
+    int[] result = new int[vertexCount];
+    for (int v = 0; v < vertexCount; v++) {
+      result[v] = triangles.get(v);
+    }
+    return result;
+  }
+
+  /**
+   * @return true if <code>neighbor</code> comes after <code>vertex</code> in the (degree, number) order
+   */
+  private static boolean follows(int[] degrees, int neighbor, int vertex) {
+    return degrees[neighbor] > degrees[vertex] || (degrees[neighbor] == degrees[vertex] && neighbor > vertex);
+  }
+
+  /**
+   * collects the distinct neighbors of a vertex, in both directions and without the vertex itself, sorted by number
+   *
+   * @return the buffer with the neighbors (possibly a new, larger one), with their count in the last position
+   */
+  private int[] distinctNeighbors(int vertex, int[] buffer) {
+    int degree = projection.outEnd(vertex) - projection.outStart(vertex) + projection.inEnd(vertex) - projection.inStart(vertex);
+    if (buffer.length <= degree) {
+      buffer = new int[Math.max(degree + 1, buffer.length * 2)];
+    }
+    int size = 0;
+    int end = projection.outEnd(vertex);
+    for (int i = projection.outStart(vertex); i < end; i++) {
+      buffer[size++] = projection.outTarget(i);
+    }
+    end = projection.inEnd(vertex);
+    for (int i = projection.inStart(vertex); i < end; i++) {
+      buffer[size++] = projection.inSource(i);
+    }
+    Arrays.sort(buffer, 0, size);
+    int distinct = 0;
+    for (int i = 0; i < size; i++) {
+      if (buffer[i] != vertex && (distinct == 0 || buffer[distinct - 1] != buffer[i])) {
+        buffer[distinct++] = buffer[i];
+      }
+    }
+    buffer[buffer.length - 1] = distinct;
+    return buffer;
+  }
+
+  /**
+   * Computes the degree centrality of the vertices.
+   *
+   * @param direction  the edges to count
+   * @param normalized divide the degrees by the number of the other vertices
+   *
+   * @return the degree centrality of each vertex
+   */
+  public double[] degreeCentrality(ODirection direction, boolean normalized) {
+    double[] result = new double[vertexCount];
+    double divisor = normalized && vertexCount > 1 ? vertexCount - 1 : 1;
+    parallelFor(vertexCount, (from, to) -> {
+      for (int v = from; v < to; v++) {
+        result[v] = projection.getDegree(v, direction) / divisor;
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Writes a value for each vertex of the projection as a property of the vertex, in transactions of {@link
+   * OGlobalConfiguration#GRAPH_ALGORITHMS_WRITE_BATCH_SIZE} vertices. If a transaction is already active all the vertices are
+   * written in that transaction. The vertices deleted after the projection was built are skipped.
+   * <p>
+   * If a batch fails its transaction is rolled back, the batches already committed are kept, and the exception reports the
+   * vertices of the failed batch.
+   *
+   * @param db       the current database
+   * @param property the name of the property
+   * @param values   the value of each vertex, by vertex number
+   *
+   * @return the number of vertices updated
+   */
+  public long writeBack(ODatabaseDocumentInternal db, String property, IntFunction<Object> values) {
+    int batchSize = Math.max(1, OGlobalConfiguration.GRAPH_ALGORITHMS_WRITE_BATCH_SIZE.getValueAsInteger());
+    boolean ownTransaction = !db.getTransaction().isActive();
+    long written = 0;
+    for (int from = 0; from < vertexCount; from += batchSize) {
+      int to = Math.min(vertexCount, from + batchSize);
+      List<ORID> rids = new ArrayList<>(to - from);
+      for (int v = from; v < to; v++) {
+        rids.add(projection.getRid(v));
+      }
+      if (ownTransaction) {
+        db.begin();
+      }
+      long batchWritten = 0;
+      try {
+        List<ORecord> records = db.loadRecords(rids);
+        for (int i = 0; i < records.size(); i++) {
+          ORecord record = records.get(i);
+          if (record instanceof OElement) {
+            ((OElement) record).setProperty(property, values.apply(from + i));
+            record.save();
+            batchWritten++;
+          }
+        }
+        if (ownTransaction) {
+          db.commit();
+        }
+      } catch (RuntimeException e) {
+        if (ownTransaction && db.getTransaction().isActive()) {
+          db.rollback();
+        }
+        throw OException.wrapException(new OCommandExecutionException(
+            "Error on writing property '" + property + "' of vertices " + from + "-" + (to - 1) + " of " + vertexCount + ", "
+                + written + " vertices were written by the previous batches"), e);
+      }
+      written += batchWritten;
+    }
+    return written;
+  }
+
+  private void parallelFor(int n, RangeTask task) {
+    if (n == 0) {
+      return;
+    }
+    int grain = Math.max(256, n / (parallelism * 8));
+    pool.invoke(new RangeAction(0, n, grain, task));
+  }
+
+  @Override
+  public void close() {
+    pool.shutdown();
+  }
+}
@@ -0,0 +1,399 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import com.orientechnologies.common.directmemory.ODirectMemoryAllocator;
+import com.orientechnologies.common.directmemory.OPointer;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.record.ODirection;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable, in-memory snapshot of the vertices and the edges of some classes, stored off-heap in compressed sparse row
+ * format, for graph analytics that would otherwise load a record and decode a RidBag at each hop.
+ * <p>
+ * The vertices are numbered with dense ints, cluster by cluster and by position inside each cluster, so a RID is mapped to its
+ * number with a binary search on the positions and no hash table is needed. The outgoing edges of vertex <code>v</code> are the
+ * entries <code>outOffsets[v] .. outOffsets[v + 1]</code> of <code>outTargets</code>, and the position of an edge in
+ * <code>outTargets</code> is the number of the edge, that indexes its weight and its class. The incoming edges are stored the same
+ * way, with the number of each edge in <code>inEdges</code>.
+ * <p>
+ * A projection does not change when the database changes: it is only marked as stale (see {@link OGraphProjectionManager}) until
+ * it is refreshed. The off-heap memory is released when the projection is dropped or replaced and no search is using it (see
+ * {@link #acquire()} and {@link #release()}).
+ */
+public final class OGraphProjection {
+
+  public interface NeighborVisitor {
+    /**
+     * @param neighbor the number of the vertex on the other side of the edge
+     * @param edge     the number of the edge, see {@link #getWeight(int)} and {@link #getEdgeClass(int)}
+     *
+     * @return false to stop the visit
+     */
+    boolean visit(int neighbor, int edge);
+  }
+
+  private final String       name;
+  private final List<String> vertexClasses;
+  private final List<String> edgeClasses;
+  private final String       weightProperty;
+
+  /**
+   * the clusters of the vertices, sorted, and the number of the first vertex of each cluster (plus the vertex count at the end)
+   */
+  private final int[]      clusterIds;
+  private final int[]      clusterStarts;
+  private final LongBuffer positions;
+  /**
+   * the clusters of the vertices and of the edges, sorted
+   */
+  private final int[]      dependencies;
+
+  private final IntBuffer    outOffsets;
+  private final IntBuffer    outTargets;
+  private final IntBuffer    inOffsets;
+  private final IntBuffer    inTargets;
+  private final IntBuffer    inEdges;
+  /**
+   * the weight of each edge, null if the projection has no weight property
+   */
+  private final DoubleBuffer weights;
+  /**
+   * the class of each edge, as an index in <code>edgeClassNames</code>, null if all the edges have the same class
+   */
+  private final ShortBuffer  edgeClassIds;
+  private final String[]     edgeClassNames;
+
+  private final int            vertexCount;
+  private final int            edgeCount;
+  private final List<OPointer> pointers;
+  private final long           buildTime;
+  private final long           createdAt = System.currentTimeMillis();
+
+  /**
+   * the searches using the projection, plus one for the manager that holds it
+   */
+  private final    AtomicInteger users = new AtomicInteger(1);
+  private volatile boolean       stale = false;
+
+  OGraphProjection(String name, List<String> vertexClasses, List<String> edgeClasses, String weightProperty, int[] clusterIds,
+      int[] clusterStarts, LongBuffer positions, int[] dependencies, IntBuffer outOffsets, IntBuffer outTargets,
+      IntBuffer inOffsets, IntBuffer inTargets, IntBuffer inEdges, DoubleBuffer weights, ShortBuffer edgeClassIds,
+      String[] edgeClassNames, List<OPointer> pointers, long buildTime) {
+    this.name = name;
+    this.vertexClasses = Collections.unmodifiableList(new ArrayList<>(vertexClasses));
+    this.edgeClasses = Collections.unmodifiableList(new ArrayList<>(edgeClasses));
+    this.weightProperty = weightProperty;
+    this.clusterIds = clusterIds;
+    this.clusterStarts = clusterStarts;
+    this.positions = positions;
+    this.dependencies = dependencies;
+    this.outOffsets = outOffsets;
+    this.outTargets = outTargets;
+    this.inOffsets = inOffsets;
+    this.inTargets = inTargets;
+    this.inEdges = inEdges;
+    this.weights = weights;
+    this.edgeClassIds = edgeClassIds;
+    this.edgeClassNames = edgeClassNames;
+    this.pointers = pointers;
+    this.buildTime = buildTime;
+    this.vertexCount = clusterStarts[clusterStarts.length - 1];
+    this.edgeCount = outOffsets.get(vertexCount);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public List<String> getVertexClasses() {
+    return vertexClasses;
+  }
+
+  public List<String> getEdgeClasses() {
+    return edgeClasses;
+  }
+
+  /**
+   * @return the edge property the weights were read from, null if the projection has no weights
+   */
+  public String getWeightProperty() {
+    return weightProperty;
+  }
+
+  public int getVertexCount() {
+    return vertexCount;
+  }
+
+  public int getEdgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * @return true if a transaction modified the projected clusters (or the schema changed) after the projection was built
+   */
+  public boolean isStale() {
+    return stale;
+  }
+
+  void markStale() {
+    stale = true;
+  }
+
+  boolean dependsOn(int clusterId) {
+    return Arrays.binarySearch(dependencies, clusterId) >= 0;
+  }
+
+  /**
+   * @return the number of the vertex with the given RID, -1 if the vertex is not in the projection
+   */
+  public int indexOf(ORID rid) {
+    return indexOf(clusterIds, clusterStarts, positions, rid);
+  }
+
+  static int indexOf(int[] clusterIds, int[] clusterStarts, LongBuffer positions, ORID rid) {
+    int cluster = Arrays.binarySearch(clusterIds, rid.getClusterId());
+    if (cluster < 0) {
+      return -1;
+    }
+    long position = rid.getClusterPosition();
+    int low = clusterStarts[cluster];
+    int high = clusterStarts[cluster + 1] - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midPosition = positions.get(mid);
+      if (midPosition < position) {
+        low = mid + 1;
+      } else if (midPosition > position) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the RID of a vertex
+   */
+  public ORID getRid(int vertex) {
+    int cluster = Arrays.binarySearch(clusterStarts, vertex);
+    if (cluster < 0) {
+      cluster = -cluster - 2;
+    } else {
+      // skip the empty clusters that start at the same number
+      while (clusterStarts[cluster + 1] == vertex) {
+        cluster++;
+      }
+    }
+    return new ORecordId(clusterIds[cluster], positions.get(vertex));
+  }
+
+  public int getDegree(int vertex, ODirection direction) {
+    switch (direction) {
+    case OUT:
+      return outOffsets.get(vertex + 1) - outOffsets.get(vertex);
+    case IN:
+      return inOffsets.get(vertex + 1) - inOffsets.get(vertex);
+    default:
+      return getDegree(vertex, ODirection.OUT) + getDegree(vertex, ODirection.IN);
+    }
+  }
+
+  // raw access to the adjacency, for the algorithms of this package: the outgoing edges of v are the entries outStart(v) ..
+  // outEnd(v) - 1, and the entry is also the number of the edge; the incoming edges are the entries inStart(v) .. inEnd(v) - 1
+
+  int outStart(int vertex) {
+    return outOffsets.get(vertex);
+  }
+
+  int outEnd(int vertex) {
+    return outOffsets.get(vertex + 1);
+  }
+
+  int outTarget(int entry) {
+    return outTargets.get(entry);
+  }
+
+  int inStart(int vertex) {
+    return inOffsets.get(vertex);
+  }
+
+  int inEnd(int vertex) {
+    return inOffsets.get(vertex + 1);
+  }
+
+  int inSource(int entry) {
+    return inTargets.get(entry);
+  }
+
+  /**
+   * @return the weight of an edge, 0 if the projection has no weights or the edge has no weight
+   */
+  public double getWeight(int edge) {
+    return weights == null ? 0 : weights.get(edge);
+  }
+
+  /**
+   * @return the name of the class of an edge
+   */
+  public String getEdgeClass(int edge) {
+    return edgeClassIds == null ? edgeClassNames[0] : edgeClassNames[edgeClassIds.get(edge)];
+  }
+
+  /**
+   * Resolves the edge classes requested by a search to the edge classes of the projection, subclasses included.
+   *
+   * @param edgeTypes the requested edge classes, null or empty for all the edges
+   *
+   * @return the indexes of the matching edge classes, null to follow all the edges
+   */
+  public BitSet resolveEdgeClasses(String[] edgeTypes, OSchema schema) {
+    if (edgeTypes == null) {
+      return null;
+    }
+    List<String> types = new ArrayList<>();
+    for (String edgeType : edgeTypes) {
+      if (edgeType != null) {
+        types.add(edgeType);
+      }
+    }
+    if (types.isEmpty()) {
+      return null;
+    }
+    BitSet result = new BitSet(edgeClassNames.length);
+    for (int i = 0; i < edgeClassNames.length; i++) {
+      OClass clazz = schema.getClass(edgeClassNames[i]);
+      for (String type : types) {
+        if (edgeClassNames[i].equalsIgnoreCase(type) || (clazz != null && clazz.isSubClassOf(type))) {
+          result.set(i);
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Visits the neighbors of a vertex, the vertices on the other side of the outgoing edges first if the direction is BOTH.
+   *
+   * @param vertex       the number of the vertex
+   * @param direction    the direction of the edges
+   * @param edgeClassSet the edge classes to follow (see {@link #resolveEdgeClasses(String[], OSchema)}), null for all the edges
+   * @param visitor      the visitor of the neighbors
+   *
+   * @return false if the visitor stopped the visit
+   */
+  public boolean forEachNeighbor(int vertex, ODirection direction, BitSet edgeClassSet, NeighborVisitor visitor) {
+    if (direction != ODirection.IN) {
+      int end = outOffsets.get(vertex + 1);
+      for (int i = outOffsets.get(vertex); i < end; i++) {
+        if (accept(i, edgeClassSet) && !visitor.visit(outTargets.get(i), i)) {
+          return false;
+        }
+      }
+    }
+    if (direction != ODirection.OUT) {
+      int end = inOffsets.get(vertex + 1);
+      for (int i = inOffsets.get(vertex); i < end; i++) {
+        int edge = inEdges.get(i);
+        if (accept(edge, edgeClassSet) && !visitor.visit(inTargets.get(i), edge)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private boolean accept(int edge, BitSet edgeClassSet) {
+    if (edgeClassSet == null) {
+      return true;
+    }
+    return edgeClassSet.get(edgeClassIds == null ? 0 : edgeClassIds.get(edge));
+  }
+
+  /**
+   * @return the off-heap memory used by the projection, in bytes
+   */
+  public long getMemorySize() {
+    long result = 0;
+    for (OPointer pointer : pointers) {
+      result += pointer.getNativeByteBuffer().capacity();
+    }
+    return result;
+  }
+
+  /**
+   * @return a description of the projection
+   */
+  public Map<String, Object> toMap() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("name", name);
+    result.put("vertexClasses", vertexClasses);
+    result.put("edgeClasses", edgeClasses);
+    result.put("weightProperty", weightProperty);
+    result.put("vertices", vertexCount);
+    result.put("edges", edgeCount);
+    result.put("memory", getMemorySize());
+    result.put("buildTime", buildTime);
+    result.put("createdAt", new Date(createdAt));
+    result.put("stale", stale);
+    return result;
+  }
+
+  /**
+   * Registers a search that uses the projection: the memory of the projection is not released until the search calls {@link
+   * #release()}.
+   *
+   * @return false if the projection was already released, and cannot be used anymore
+   */
+  public boolean acquire() {
+    while (true) {
+      int current = users.get();
+      if (current == 0) {
+        return false;
+      }
+      if (users.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Releases a projection acquired with {@link #acquire()}, the off-heap memory is freed when the projection is not used anymore.
+   */
+  public void release() {
+    if (users.decrementAndGet() == 0) {
+      for (OPointer pointer : pointers) {
+        ODirectMemoryAllocator.instance().deallocate(pointer);
+      }
+    }
+  }
+}
@@ -0,0 +1,416 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import com.orientechnologies.common.directmemory.ODirectMemoryAllocator;
+import com.orientechnologies.common.directmemory.OPointer;
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.common.thread.OThreadPoolExecutorWithLogging;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.metadata.security.ORole;
+import com.orientechnologies.orient.core.metadata.security.ORule;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Builds a {@link OGraphProjection}. The clusters are scanned in parallel by worker sessions (see {@link
+ * OGlobalConfiguration#GRAPH_PROJECTION_BUILD_PARALLELISM}): first the vertex clusters, reading only the positions of the records,
+ * then the edge clusters, reading the two vertices (and the weight) of each edge. The edges whose vertices are not projected are
+ * skipped. Lightweight edges have no record, so they are not projected.
+ */
+final class OGraphProjectionBuilder {
+
+  private interface ClusterScan<T> {
+    T scan(ODatabaseDocumentInternal session, int clusterId);
+  }
+
+  /**
+   * the edges read from a cluster, as pairs of vertex numbers
+   */
+  private static class EdgeList {
+    private int[]    sources = new int[64];
+    private int[]    targets = new int[64];
+    private double[] weights;
+    private int      size    = 0;
+
+    private EdgeList(boolean weighted) {
+      weights = weighted ? new double[64] : null;
+    }
+
+    private void add(int source, int target, double weight) {
+      if (size == sources.length) {
+        sources = Arrays.copyOf(sources, size * 2);
+        targets = Arrays.copyOf(targets, size * 2);
+        if (weights != null) {
+          weights = Arrays.copyOf(weights, size * 2);
+        }
+      }
+      sources[size] = source;
+      targets[size] = target;
+      if (weights != null) {
+        weights[size] = weight;
+      }
+      size++;
+    }
+  }
+
+  private final ODatabaseDocumentInternal db;
+  private final String                    name;
+  private final List<String>              vertexClasses;
+  private final List<String>              edgeClasses;
+  private final String                    weightProperty;
+
+  private final List<OPointer> pointers = new ArrayList<>();
+
+  OGraphProjectionBuilder(ODatabaseDocumentInternal db, String name, List<String> vertexClasses, List<String> edgeClasses,
+      String weightProperty) {
+    this.db = db;
+    this.name = name;
+    this.vertexClasses = vertexClasses == null || vertexClasses.isEmpty() ? Collections.singletonList("V") : vertexClasses;
+    this.edgeClasses = edgeClasses == null || edgeClasses.isEmpty() ? Collections.singletonList("E") : edgeClasses;
+    this.weightProperty = weightProperty;
+  }
+
+  OGraphProjection build() {
+    long begin = System.currentTimeMillis();
+    OSchema schema = db.getMetadata().getImmutableSchemaSnapshot();
+    int[] vertexClusters = resolveClusters(schema, vertexClasses, "V");
+    int[] edgeClusters = resolveClusters(schema, edgeClasses, "E");
+
+    List<String> edgeClassNames = new ArrayList<>();
+    short[] edgeClassOfCluster = new short[edgeClusters.length];
+    for (int i = 0; i < edgeClusters.length; i++) {
+      OClass clazz = schema.getClassByClusterId(edgeClusters[i]);
+      String className = clazz == null ? "E" : clazz.getName();
+      int index = edgeClassNames.indexOf(className);
+      if (index < 0) {
+        index = edgeClassNames.size();
+        edgeClassNames.add(className);
+      }
+      edgeClassOfCluster[i] = (short) index;
+    }
+    if (edgeClassNames.isEmpty()) {
+      edgeClassNames.add("E");
+    }
+
+    try {
+      List<long[]> clusterPositions = scan(vertexClusters, this::scanPositions);
+      int[] clusterStarts = new int[vertexClusters.length + 1];
+      long vertexCount = 0;
+      for (int i = 0; i < vertexClusters.length; i++) {
+        vertexCount += clusterPositions.get(i).length;
+        if (vertexCount >= Integer.MAX_VALUE) {
+          throw new OCommandExecutionException("Too many vertices for graph projection '" + name + "'");
+        }
+        clusterStarts[i + 1] = (int) vertexCount;
+      }
+      int n = (int) vertexCount;
+      LongBuffer positions = allocate(8L * n).asLongBuffer();
+      for (long[] clusterPosition : clusterPositions) {
+        positions.put(clusterPosition);
+      }
+      clusterPositions = null;
+
+      List<EdgeList> edgeLists = scan(edgeClusters,
+          (session, clusterId) -> scanEdges(session, clusterId, vertexClusters, clusterStarts, positions));
+      long edgeCount = 0;
+      for (EdgeList edgeList : edgeLists) {
+        edgeCount += edgeList.size;
+      }
+      if (edgeCount >= Integer.MAX_VALUE / 8) {
+        throw new OCommandExecutionException("Too many edges for graph projection '" + name + "'");
+      }
+      int m = (int) edgeCount;
+
+      IntBuffer outOffsets = allocate(4L * (n + 1)).asIntBuffer();
+      IntBuffer outTargets = allocate(4L * m).asIntBuffer();
+      DoubleBuffer weights = weightProperty == null ? null : allocate(8L * m).asDoubleBuffer();
+      ShortBuffer edgeClassIds = edgeClassNames.size() > 1 ? allocate(2L * m).asShortBuffer() : null;
+
+      // outgoing edges: count the edges of each vertex, then place them
+      for (EdgeList edgeList : edgeLists) {
+        for (int i = 0; i < edgeList.size; i++) {
+          int next = edgeList.sources[i] + 1;
+          outOffsets.put(next, outOffsets.get(next) + 1);
+        }
+      }
+      toStarts(outOffsets, n);
+      for (int list = 0; list < edgeLists.size(); list++) {
+        EdgeList edgeList = edgeLists.get(list);
+        for (int i = 0; i < edgeList.size; i++) {
+          int source = edgeList.sources[i];
+          int edge = outOffsets.get(source);
+          outOffsets.put(source, edge + 1);
+          outTargets.put(edge, edgeList.targets[i]);
+          if (weights != null) {
+            weights.put(edge, edgeList.weights[i]);
+          }
+          if (edgeClassIds != null) {
+            edgeClassIds.put(edge, edgeClassOfCluster[list]);
+          }
+        }
+        edgeLists.set(list, null);
+      }
+      toOffsets(outOffsets, n);
+
+      // incoming edges, sorted by the number of the source vertex
+      IntBuffer inOffsets = allocate(4L * (n + 1)).asIntBuffer();
+      IntBuffer inTargets = allocate(4L * m).asIntBuffer();
+      IntBuffer inEdges = allocate(4L * m).asIntBuffer();
+      for (int edge = 0; edge < m; edge++) {
+        int next = outTargets.get(edge) + 1;
+        inOffsets.put(next, inOffsets.get(next) + 1);
+      }
+      toStarts(inOffsets, n);
+      for (int source = 0; source < n; source++) {
+        int end = outOffsets.get(source + 1);
+        for (int edge = outOffsets.get(source); edge < end; edge++) {
+          int target = outTargets.get(edge);
+          int position = inOffsets.get(target);
+          inOffsets.put(target, position + 1);
+          inTargets.put(position, source);
+          inEdges.put(position, edge);
+        }
+      }
+      toOffsets(inOffsets, n);
+
+      int[] dependencies = new int[vertexClusters.length + edgeClusters.length];
+      System.arraycopy(vertexClusters, 0, dependencies, 0, vertexClusters.length);
+      System.arraycopy(edgeClusters, 0, dependencies, vertexClusters.length, edgeClusters.length);
+      Arrays.sort(dependencies);
+
+      return new OGraphProjection(name, vertexClasses, edgeClasses, weightProperty, vertexClusters, clusterStarts, positions,
+          dependencies, outOffsets, outTargets, inOffsets, inTargets, inEdges, weights, edgeClassIds,
+          edgeClassNames.toArray(new String[0]), pointers, System.currentTimeMillis() - begin);
+    } catch (RuntimeException | Error e) {
+      for (OPointer pointer : pointers) {
+        ODirectMemoryAllocator.instance().deallocate(pointer);
+      }
+      throw e;
+    }
+  }
+
+  private int[] resolveClusters(OSchema schema, List<String> classNames, String baseClass) {
+    Set<Integer> clusters = new TreeSet<>();
+    for (String className : classNames) {
+      OClass clazz = schema.getClass(className);
+      if (clazz == null) {
+        throw new OCommandExecutionException("Class not found: " + className);
+      }
+      if (!clazz.isSubClassOf(baseClass)) {
+        throw new OCommandExecutionException(
+            "Class " + className + " is not a" + ("V".equals(baseClass) ? " vertex" : "n edge") + " class");
+      }
+      for (int clusterId : clazz.getPolymorphicClusterIds()) {
+        if (clusterId >= 0) {
+          clusters.add(clusterId);
+        }
+      }
+    }
+    int[] result = new int[clusters.size()];
+    int i = 0;
+    for (Integer clusterId : clusters) {
+      result[i++] = clusterId;
+    }
+    return result;
+  }
+
+  /**
+   * @return the positions of the records of a vertex cluster, sorted. The records are not read
+   */
+  private long[] scanPositions(ODatabaseDocumentInternal session, int clusterId) {
+    session.checkSecurity(ORule.ResourceGeneric.CLUSTER, ORole.PERMISSION_READ, session.getClusterNameById(clusterId));
+    OStorage storage = session.getStorage();
+    long[] result = new long[64];
+    int size = 0;
+    OPhysicalPosition[] batch = storage.ceilingPhysicalPositions(clusterId, new OPhysicalPosition(0));
+    while (batch != null && batch.length > 0) {
+      for (OPhysicalPosition position : batch) {
+        if (size == result.length) {
+          result = Arrays.copyOf(result, size * 2);
+        }
+        result[size++] = position.clusterPosition;
+      }
+      batch = storage.higherPhysicalPositions(clusterId, batch[batch.length - 1]);
+    }
+    result = Arrays.copyOf(result, size);
+    Arrays.sort(result);
+    return result;
+  }
+
+  private EdgeList scanEdges(ODatabaseDocumentInternal session, int clusterId, int[] vertexClusters, int[] clusterStarts,
+      LongBuffer positions) {
+    // each worker reads the positions through its own view
+    LongBuffer workerPositions = positions.duplicate();
+    EdgeList result = new EdgeList(weightProperty != null);
+    for (ORecord record : session.browseCluster(session.getClusterNameById(clusterId))) {
+      if (!(record instanceof ODocument)) {
+        continue;
+      }
+      ODocument edge = (ODocument) record;
+      int source = vertexNumber(edge.rawField("out"), vertexClusters, clusterStarts, workerPositions);
+      int target = vertexNumber(edge.rawField("in"), vertexClusters, clusterStarts, workerPositions);
+      if (source < 0 || target < 0) {
+        continue;
+      }
+      double weight = 0;
+      if (weightProperty != null) {
+        Object value = edge.getProperty(weightProperty);
+        if (value instanceof Number) {
+          weight = ((Number) value).doubleValue();
+        }
+      }
+      result.add(source, target, weight);
+    }
+    return result;
+  }
+
+  private static int vertexNumber(Object link, int[] vertexClusters, int[] clusterStarts, LongBuffer positions) {
+    if (!(link instanceof OIdentifiable)) {
+      return -1;
+    }
+    ORID rid = ((OIdentifiable) link).getIdentity();
+    return OGraphProjection.indexOf(vertexClusters, clusterStarts, positions, rid);
+  }
+
+  /**
+   * turns the counts stored at <code>offsets[v + 1]</code> into the first position of each vertex, stored at
+   * <code>offsets[v]</code>
+   */
+  private static void toStarts(IntBuffer offsets, int n) {
+    for (int v = 1; v <= n; v++) {
+      offsets.put(v, offsets.get(v) + offsets.get(v - 1));
+    }
+  }
+
+  /**
+   * after the edges are placed <code>offsets[v]</code> is the end of each vertex: shifts them to get the CSR offsets
+   */
+  private static void toOffsets(IntBuffer offsets, int n) {
+    for (int v = n; v > 0; v--) {
+      offsets.put(v, offsets.get(v - 1));
+    }
+    offsets.put(0, 0);
+  }
+
+  private ByteBuffer allocate(long size) {
+    if (size > Integer.MAX_VALUE) {
+      throw new OCommandExecutionException("Graph projection '" + name + "' is too large");
+    }
+    // the allocator does not accept empty chunks
+    OPointer pointer = ODirectMemoryAllocator.instance().allocate((int) Math.max(size, 8), -1, true);
+    pointers.add(pointer);
+    return pointer.getNativeByteBuffer();
+  }
+
+  /**
+   * Scans the clusters with worker sessions.
+   *
+   * @return the result of the scan of each cluster, in the same order of the clusters
+   */
+  private <T> List<T> scan(int[] clusters, ClusterScan<T> scan) {
+    Object[] results = new Object[clusters.length];
+    int workers = Math
+        .max(1, Math.min(OGlobalConfiguration.GRAPH_PROJECTION_BUILD_PARALLELISM.getValueAsInteger(), clusters.length));
+    AtomicInteger next = new AtomicInteger();
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    List<Future<?>> futures = new ArrayList<>(workers);
+    ExecutorService executor = new OThreadPoolExecutorWithLogging(workers, workers, 0, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(), r -> {
+      Thread thread = new Thread(r, "OrientDB graph projection '" + name + "' builder");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      for (int i = 0; i < workers && clusters.length > 0; i++) {
+        ODatabaseDocumentInternal session = db.copy();
+        futures.add(executor.submit(() -> runWorker(session, clusters, results, next, error, scan)));
+      }
+    } finally {
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          error.compareAndSet(null, e);
+          future.cancel(true);
+        } catch (ExecutionException e) {
+          error.compareAndSet(null, e.getCause());
+        }
+      }
+      executor.shutdown();
+      db.activateOnCurrentThread();
+    }
+
+    Throwable e = error.get();
+    if (e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    } else if (e instanceof Error) {
+      throw (Error) e;
+    } else if (e != null) {
+      throw OException.wrapException(new OCommandExecutionException("Error building graph projection '" + name + "'"), e);
+    }
+    List<T> result = new ArrayList<>(clusters.length);
+    for (Object clusterResult : results) {
+      result.add((T) clusterResult);
+    }
+    return result;
+  }
+
+  private <T> void runWorker(ODatabaseDocumentInternal session, int[] clusters, Object[] results, AtomicInteger next,
+      AtomicReference<Throwable> error, ClusterScan<T> scan) {
+    try {
+      session.activateOnCurrentThread();
+      int i;
+      while (error.get() == null && (i = next.getAndIncrement()) < clusters.length) {
+        results[i] = scan.scan(session, clusters[i]);
+      }
+    } catch (Throwable e) {
+      error.compareAndSet(null, e);
+    } finally {
+      session.activateOnCurrentThread();
+      session.close();
+      ODatabaseRecordThreadLocal.instance().remove();
+    }
+  }
+}
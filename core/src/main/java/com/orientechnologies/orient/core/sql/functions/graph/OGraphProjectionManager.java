@@ -0,0 +1,256 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.config.OStorageConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.OMetadataUpdateListener;
+import com.orientechnologies.orient.core.db.OSharedContext;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.index.OIndexManagerAbstract;
+import com.orientechnologies.orient.core.metadata.schema.OSchemaShared;
+
+import java.util.*;
+
+/**
+ * The graph projections of a database (see {@link OGraphProjection}), by name. It stores itself in the shared context of the
+ * database.
+ * <p>
+ * Projections are kept in memory only, they are lost when the database is closed. A projection is marked as stale as soon as a
+ * transaction that writes on one of its vertex or edge clusters is committed, or the schema changes, also while the projection is
+ * being built. A stale projection is brought up to date by {@link #refresh(ODatabaseDocumentInternal, String)}; until then, using
+ * it logs a warning, or fails if {@link OGlobalConfiguration#GRAPH_PROJECTION_ALLOW_STALE} is disabled.
+ */
+public class OGraphProjectionManager implements OMetadataUpdateListener {
+
+  private final Map<String, OGraphProjection> projections = new HashMap<>();
+
+  /**
+   * incremented at each modification of the clusters or of the schema, to detect the modifications made while a projection is
+   * being built
+   */
+  private       long               modificationCount    = 0;
+  /**
+   * the value of {@link #modificationCount} at the last modification of each cluster
+   */
+  private final Map<Integer, Long> clusterModifications = new HashMap<>();
+  private       long               schemaModification   = 0;
+
+  /**
+   * the stale projections already reported in the log
+   */
+  private final Set<OGraphProjection> staleReported = Collections.newSetFromMap(new WeakHashMap<>());
+
+  public static OGraphProjectionManager getInstance(ODatabaseDocumentInternal db) {
+    OSharedContext sharedContext = db.getSharedContext();
+    OGraphProjectionManager manager = sharedContext == null ? null : sharedContext.getGraphProjectionManager();
+    if (manager == null) {
+      throw new OCommandExecutionException("Graph projections are not supported on database " + db.getName());
+    }
+    return manager;
+  }
+
+  /**
+   * Builds a projection, replacing the projection with the same name, if any.
+   *
+   * @param db             the current database
+   * @param name           the name of the projection
+   * @param vertexClasses  the vertex classes to project, subclasses included. V if null or empty
+   * @param edgeClasses    the edge classes to project, subclasses included. E if null or empty
+   * @param weightProperty the edge property that contains the weight of the edges, null for no weights
+   *
+   * @return the new projection
+   */
+  public OGraphProjection create(ODatabaseDocumentInternal db, String name, List<String> vertexClasses, List<String> edgeClasses,
+      String weightProperty) {
+    if (name == null || name.trim().isEmpty()) {
+      throw new OCommandExecutionException("The name of a graph projection cannot be empty");
+    }
+    long buildStart;
+    synchronized (this) {
+      buildStart = modificationCount;
+    }
+    OGraphProjection projection = new OGraphProjectionBuilder(db, name, vertexClasses, edgeClasses, weightProperty).build();
+    OGraphProjection previous;
+    synchronized (this) {
+      if (modifiedSince(projection, buildStart)) {
+        // the scan may have missed the changes committed in the meantime
+        projection.markStale();
+      }
+      previous = projections.put(key(name), projection);
+    }
+    if (previous != null) {
+      previous.release();
+    }
+    return projection;
+  }
+
+  /**
+   * Rebuilds a projection with the same classes and weight property.
+   *
+   * @return the new projection
+   */
+  public OGraphProjection refresh(ODatabaseDocumentInternal db, String name) {
+    OGraphProjection current;
+    synchronized (this) {
+      current = projections.get(key(name));
+    }
+    if (current == null) {
+      throw new OCommandExecutionException("Graph projection not found: " + name);
+    }
+    return create(db, current.getName(), current.getVertexClasses(), current.getEdgeClasses(), current.getWeightProperty());
+  }
+
+  /**
+   * Drops a projection. Its memory is released as soon as the searches that are using it are completed.
+   *
+   * @return true if the projection existed
+   */
+  public boolean drop(String name) {
+    OGraphProjection previous;
+    synchronized (this) {
+      previous = projections.remove(key(name));
+    }
+    if (previous == null) {
+      return false;
+    }
+    previous.release();
+    return true;
+  }
+
+  private boolean modifiedSince(OGraphProjection projection, long count) {
+    if (schemaModification > count) {
+      return true;
+    }
+    for (Map.Entry<Integer, Long> entry : clusterModifications.entrySet()) {
+      if (entry.getValue() > count && projection.dependsOn(entry.getKey())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns a projection for a search: the caller has to {@link OGraphProjection#release()} it when the search is completed.
+   *
+   * @return the projection, null if there is no projection with this name
+   *
+   * @throws OCommandExecutionException if the projection is stale and {@link OGlobalConfiguration#GRAPH_PROJECTION_ALLOW_STALE} is
+   *                                    disabled. Otherwise a warning is logged the first time a stale projection is acquired
+   */
+  public synchronized OGraphProjection acquire(String name) {
+    OGraphProjection projection = projections.get(key(name));
+    if (projection != null && projection.isStale()) {
+      if (!OGlobalConfiguration.GRAPH_PROJECTION_ALLOW_STALE.getValueAsBoolean()) {
+        throw new OCommandExecutionException("Graph projection '" + projection.getName()
+            + "' is stale, its classes changed after it was built: refresh it with refreshGraphProjection()");
+      }
+      if (staleReported.add(projection)) {
+        OLogManager.instance().warn(this,
+            "Graph projection '%s' is stale, its classes changed after it was built: refresh it with refreshGraphProjection()",
+            projection.getName());
+      }
+    }
+    if (projection == null || !projection.acquire()) {
+      return null;
+    }
+    return projection;
+  }
+
+  public synchronized List<OGraphProjection> getProjections() {
+    return new ArrayList<>(projections.values());
+  }
+
+  /**
+   * Marks as stale the projections that depend on at least one of the clusters
+   *
+   * @param db         the current database
+   * @param clusterIds the clusters that were modified
+   */
+  public static void invalidate(ODatabaseDocumentInternal db, Collection<Integer> clusterIds) {
+    OSharedContext sharedContext = db.getSharedContext();
+    if (sharedContext == null || sharedContext.getGraphProjectionManager() == null || clusterIds.isEmpty()) {
+      return;
+    }
+    sharedContext.getGraphProjectionManager().invalidateClusters(clusterIds);
+  }
+
+  public synchronized void invalidateClusters(Collection<Integer> clusterIds) {
+    modificationCount++;
+    for (Integer clusterId : clusterIds) {
+      clusterModifications.put(clusterId, modificationCount);
+    }
+    for (OGraphProjection projection : projections.values()) {
+      if (!projection.isStale()) {
+        for (Integer clusterId : clusterIds) {
+          if (projection.dependsOn(clusterId)) {
+            projection.markStale();
+            break;
+          }
+        }
+      }
+    }
+  }
+
+  public synchronized void invalidate() {
+    modificationCount++;
+    schemaModification = modificationCount;
+    for (OGraphProjection projection : projections.values()) {
+      projection.markStale();
+    }
+  }
+
+  /**
+   * Drops all the projections
+   */
+  public synchronized void close() {
+    for (OGraphProjection projection : projections.values()) {
+      projection.release();
+    }
+    projections.clear();
+  }
+
+  private static String key(String name) {
+    return name.toLowerCase(Locale.ENGLISH);
+  }
+
+  @Override
+  public void onSchemaUpdate(String database, OSchemaShared schema) {
+    invalidate();
+  }
+
+  @Override
+  public void onIndexManagerUpdate(String database, OIndexManagerAbstract indexManager) {
+  }
+
+  @Override
+  public void onFunctionLibraryUpdate(String database) {
+  }
+
+  @Override
+  public void onSequenceLibraryUpdate(String database) {
+  }
+
+  @Override
+  public void onStorageConfigurationUpdate(String database, OStorageConfiguration update) {
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary min-heap of int elements (eg. the indexes of an {@link ORidIndex}) with double priorities. The heap keeps the position of
+ * each element, so the priority of an element already in the heap can be changed in O(log n), without the duplicate entries of a
+ * {@link java.util.PriorityQueue}.
+ */
+public final class OIndexedMinHeap {
+  private int[]    heap;
+  private double[] priorities;
+  /**
+   * position in the heap + 1 of each element, 0 if the element is not in the heap
+   */
+  private int[]    positions;
+  private int      size = 0;
+
+  public OIndexedMinHeap() {
+    this(64);
+  }
+
+  public OIndexedMinHeap(int expectedElements) {
+    int capacity = Math.max(16, expectedElements);
+    heap = new int[capacity];
+    priorities = new double[capacity];
+    positions = new int[capacity];
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean contains(int element) {
+    return element < positions.length && positions[element] != 0;
+  }
+
+  /**
+   * Adds an element, or changes its priority if the element is already in the heap.
+   */
+  public void push(int element, double priority) {
+    if (element >= positions.length) {
+      int capacity = Math.max(element + 1, positions.length * 2);
+      positions = Arrays.copyOf(positions, capacity);
+      priorities = Arrays.copyOf(priorities, capacity);
+    }
+    if (positions[element] != 0) {
+      double previous = priorities[element];
+      priorities[element] = priority;
+      if (priority < previous) {
+        siftUp(positions[element] - 1);
+      } else {
+        siftDown(positions[element] - 1);
+      }
+      return;
+    }
+    if (size == heap.length) {
+      heap = Arrays.copyOf(heap, size * 2);
+    }
+    priorities[element] = priority;
+    heap[size] = element;
+    positions[element] = size + 1;
+    size++;
+    siftUp(size - 1);
+  }
+
+  /**
+   * @return the element with the lowest priority, without removing it
+   */
+  public int peek() {
+    if (size == 0) {
+      throw new NoSuchElementException();
+    }
+    return heap[0];
+  }
+
+  /**
+   * @return the lowest priority in the heap
+   */
+  public double peekPriority() {
+    return priorities[peek()];
+  }
+
+  /**
+   * Removes the element with the lowest priority.
+   *
+   * @return the removed element
+   */
+  public int poll() {
+    int result = peek();
+    size--;
+    positions[result] = 0;
+    if (size > 0) {
+      heap[0] = heap[size];
+      positions[heap[0]] = 1;
+      siftDown(0);
+    }
+    return result;
+  }
+
+  /**
+   * @return the priority of an element in the heap
+   */
+  public double getPriority(int element) {
+    if (!contains(element)) {
+      throw new NoSuchElementException("" + element);
+    }
+    return priorities[element];
+  }
+
+  private void siftUp(int position) {
+    int element = heap[position];
+    double priority = priorities[element];
+    while (position > 0) {
+      int parent = (position - 1) >>> 1;
+      int parentElement = heap[parent];
+      if (priorities[parentElement] <= priority) {
+        break;
+      }
+      heap[position] = parentElement;
+      positions[parentElement] = position + 1;
+      position = parent;
+    }
+    heap[position] = element;
+    positions[element] = position + 1;
+  }
+
+  private void siftDown(int position) {
+    int element = heap[position];
+    double priority = priorities[element];
+    int half = size >>> 1;
+    while (position < half) {
+      int child = 2 * position + 1;
+      int right = child + 1;
+      if (right < size && priorities[heap[right]] < priorities[heap[child]]) {
+        child = right;
+      }
+      if (priority <= priorities[heap[child]]) {
+        break;
+      }
+      heap[position] = heap[child];
+      positions[heap[child]] = position + 1;
+      position = child;
+    }
+    heap[position] = element;
+    positions[element] = position + 1;
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+import java.util.Arrays;
+
+/**
+ * Assigns dense int indexes (0, 1, 2...) to RIDs, in order of insertion, so that the graph algorithms can keep the state of the
+ * vertices in primitive arrays instead of maps with boxed values. The RIDs are kept as cluster ids and positions in an open
+ * addressing hash table, without ORID instances.
+ */
+public final class ORidIndex {
+  private int[]  clusterIds;
+  private long[] positions;
+  private int    size = 0;
+
+  /**
+   * hash table of the indexes + 1, 0 for the empty slots
+   */
+  private int[] slots;
+
+  public ORidIndex() {
+    this(64);
+  }
+
+  public ORidIndex(int expectedSize) {
+    int capacity = Math.max(16, expectedSize);
+    clusterIds = new int[capacity];
+    positions = new long[capacity];
+    slots = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+  }
+
+  /**
+   * @return the index of the RID, or -1 if the RID was not added
+   */
+  public int indexOf(ORID rid) {
+    return indexOf(rid.getClusterId(), rid.getClusterPosition());
+  }
+
+  public int indexOf(int clusterId, long position) {
+    int mask = slots.length - 1;
+    int slot = hash(clusterId, position) & mask;
+    while (slots[slot] != 0) {
+      int index = slots[slot] - 1;
+      if (clusterIds[index] == clusterId && positions[index] == position) {
+        return index;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Adds a RID, if not already present.
+   *
+   * @return the index of the RID
+   */
+  public int add(ORID rid) {
+    int clusterId = rid.getClusterId();
+    long position = rid.getClusterPosition();
+    int mask = slots.length - 1;
+    int slot = hash(clusterId, position) & mask;
+    while (slots[slot] != 0) {
+      int index = slots[slot] - 1;
+      if (clusterIds[index] == clusterId && positions[index] == position) {
+        return index;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    if (size == clusterIds.length) {
+      clusterIds = Arrays.copyOf(clusterIds, size * 2);
+      positions = Arrays.copyOf(positions, size * 2);
+    }
+    int index = size++;
+    clusterIds[index] = clusterId;
+    positions[index] = position;
+    slots[slot] = index + 1;
+    if (size * 2 > slots.length) {
+      rehash(slots.length * 2);
+    }
+    return index;
+  }
+
+  /**
+   * @return the RID with the given index
+   */
+  public ORID get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("" + index);
+    }
+    return new ORecordId(clusterIds[index], positions[index]);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private void rehash(int newCapacity) {
+    slots = new int[newCapacity];
+    int mask = newCapacity - 1;
+    for (int index = 0; index < size; index++) {
+      int slot = hash(clusterIds[index], positions[index]) & mask;
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = index + 1;
+    }
+  }
+
+  private static int hash(int clusterId, long position) {
+    long h = position * 0x9E3779B97F4A7C15L + clusterId;
+    h ^= h >>> 32;
+    h *= 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 29));
+  }
+}
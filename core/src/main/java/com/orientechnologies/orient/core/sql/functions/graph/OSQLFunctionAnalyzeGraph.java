@@ -0,0 +1,55 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.sql.executor.OGraphStatistics;
+import com.orientechnologies.orient.core.sql.functions.OSQLFunctionAbstract;
+
+/**
+ * Collects the degree statistics of the graph (see {@link OGraphStatistics}), used by the cost-based planning of MATCH
+ * statements, and returns them as rows of {vertexClass, edgeClass, vertices, outEdges, inEdges}.
+ */
+public class OSQLFunctionAnalyzeGraph extends OSQLFunctionAbstract {
+  public static final String NAME = "analyzeGraph";
+
+  public OSQLFunctionAnalyzeGraph() {
+    super(NAME, 0, 1);
+  }
+
+  public Object execute(Object iThis, final OIdentifiable iCurrentRecord, Object iCurrentResult, final Object[] iParams,
+      OCommandContext iContext) {
+    final ODatabaseDocumentInternal db = (ODatabaseDocumentInternal) iContext.getDatabase();
+    long sampleSize = 0;
+    if (iParams.length > 0 && iParams[0] != null) {
+      if (!(iParams[0] instanceof Number)) {
+        throw new IllegalArgumentException("The sample size of analyzeGraph() has to be a number: " + iParams[0]);
+      }
+      sampleSize = ((Number) iParams[0]).longValue();
+    }
+    return OGraphStatistics.analyze(db, sampleSize).toResults(db.getMetadata().getImmutableSchemaSnapshot());
+  }
+
+  public String getSyntax() {
+    return "analyzeGraph([<maxVerticesReadPerClass>])";
+  }
+}
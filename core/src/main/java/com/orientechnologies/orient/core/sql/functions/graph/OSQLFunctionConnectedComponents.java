@@ -0,0 +1,52 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Finds the weakly connected components of a graph projection, see {@link OGraphAlgorithms#weaklyConnectedComponents()}. The
+ * component of a vertex is identified by the RID of a vertex of the component.
+ */
+public class OSQLFunctionConnectedComponents extends OSQLFunctionGraphAlgorithmAbstract {
+  public static final String NAME = "connectedComponents";
+
+  public OSQLFunctionConnectedComponents() {
+    super(NAME, "component");
+  }
+
+  @Override
+  protected IntFunction<Object> compute(OGraphAlgorithms algorithms, Map<String, Object> options, Map<String, Object> summary) {
+    final int[] components = algorithms.weaklyConnectedComponents();
+    final BitSet roots = new BitSet(components.length);
+    for (int component : components) {
+      roots.set(component);
+    }
+    summary.put("components", roots.cardinality());
+    final OGraphProjection projection = algorithms.getProjection();
+    return v -> projection.getRid(components[v]);
+  }
+
+  public String getSyntax() {
+    return "connectedComponents(<projectionName>, [<options>]) \n // options  : {writeProperty: null}";
+  }
+}
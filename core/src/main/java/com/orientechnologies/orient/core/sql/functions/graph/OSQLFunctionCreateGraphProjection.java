@@ -0,0 +1,77 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.common.io.OIOUtils;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.sql.functions.OSQLFunctionAbstract;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds a graph projection (see {@link OGraphProjection}) of the given vertex and edge classes, replacing the projection with the
+ * same name if any, and returns its description.
+ * <p>
+ * The classes can be a class name or a list of class names, all the vertices and all the edges by default. The weight property
+ * is optional, the weights are used by <code>dijkstra()</code> on the projection.
+ */
+public class OSQLFunctionCreateGraphProjection extends OSQLFunctionAbstract {
+  public static final String NAME = "createGraphProjection";
+
+  public OSQLFunctionCreateGraphProjection() {
+    super(NAME, 1, 4);
+  }
+
+  public Object execute(Object iThis, final OIdentifiable iCurrentRecord, Object iCurrentResult, final Object[] iParams,
+      OCommandContext iContext) {
+    final String name = OIOUtils.getStringContent(iParams[0]);
+    final List<String> vertexClasses = iParams.length > 1 ? toClassNames(iParams[1]) : null;
+    final List<String> edgeClasses = iParams.length > 2 ? toClassNames(iParams[2]) : null;
+    final String weightProperty = iParams.length > 3 && iParams[3] != null ? OIOUtils.getStringContent(iParams[3]) : null;
+
+    final ODatabaseDocumentInternal db = (ODatabaseDocumentInternal) iContext.getDatabase();
+    return OGraphProjectionManager.getInstance(db).create(db, name, vertexClasses, edgeClasses, weightProperty).toMap();
+  }
+
+  private static List<String> toClassNames(Object param) {
+    if (param == null) {
+      return null;
+    }
+    if (!OMultiValue.isMultiValue(param)) {
+      return Collections.singletonList(OIOUtils.getStringContent(param));
+    }
+    final List<String> result = new ArrayList<>();
+    for (Object item : OMultiValue.getMultiValueIterable(param)) {
+      if (item != null) {
+        result.add(OIOUtils.getStringContent(item));
+      }
+    }
+    return result;
+  }
+
+  public String getSyntax() {
+    return "createGraphProjection(<name>, [<vertexClasses>, [<edgeClasses>, [<weightEdgeFieldName>]]])";
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import com.orientechnologies.orient.core.record.ODirection;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Computes the degree centrality of the vertices of a graph projection, see {@link OGraphAlgorithms#degreeCentrality(ODirection,
+ * boolean)}.
+ */
+public class OSQLFunctionDegreeCentrality extends OSQLFunctionGraphAlgorithmAbstract {
+  public static final String NAME             = "degreeCentrality";
+  public static final String PARAM_DIRECTION  = "direction";
+  public static final String PARAM_NORMALIZED = "normalized";
+
+  public OSQLFunctionDegreeCentrality() {
+    super(NAME, "degreeCentrality");
+  }
+
+  @Override
+  protected IntFunction<Object> compute(OGraphAlgorithms algorithms, Map<String, Object> options, Map<String, Object> summary) {
+    final Object direction = options.get(PARAM_DIRECTION);
+    final double[] centrality = algorithms.degreeCentrality(
+        direction == null ? ODirection.BOTH : ODirection.valueOf(direction.toString().toUpperCase(Locale.ENGLISH)),
+        getBoolean(options, PARAM_NORMALIZED, true));
+    return v -> centrality[v];
+  }
+
+  public String getSyntax() {
+    return "degreeCentrality(<projectionName>, [<options>]) \n "
+        + "// options  : {direction: 'BOTH', normalized: true, writeProperty: null}";
+  }
+}
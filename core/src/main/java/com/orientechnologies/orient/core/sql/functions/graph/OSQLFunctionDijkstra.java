@@ -19,58 +19,138 @@
  */
 package com.orientechnologies.orient.core.sql.functions.graph;
 
+import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.common.io.OIOUtils;
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.OElement;
+import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OSQLHelper;
+import com.orientechnologies.orient.core.sql.executor.OResult;
 
-import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
  * Dijkstra's algorithm describes how to find the cheapest path from one node to another node in a directed weighted graph.
  * <p>
  * The first parameter is source record. The second parameter is destination record. The third parameter is a name of property that
- * represents 'weight'.
+ * represents 'weight'. The fourth parameter is the direction of the edges to follow (OUT by default). The fifth parameter is a map
+ * of options: <code>{bidirectional: true}</code> searches from both the source and the destination, see {@link
+ * ODijkstraPathFinder}; <code>{projection: '&lt;name&gt;'}</code> searches a graph projection (see {@link OGraphProjection})
+ * built with the same weight property, instead of the database.
  * <p>
  * If property is not defined in edge or is null, distance between vertexes are 0.
  *
  * @author Luca Garulli (l.garulli--(at)--orientdb.com)
  */
 public class OSQLFunctionDijkstra extends OSQLFunctionPathFinder {
-  public static final String NAME = "dijkstra";
-
-  private String paramWeightFieldName;
+  public static final String NAME                = "dijkstra";
+  public static final String PARAM_BIDIRECTIONAL = "bidirectional";
+  public static final String PARAM_PROJECTION    = "projection";
 
   public OSQLFunctionDijkstra() {
-    super(NAME, 3, 4);
+    super(NAME, 3, 5);
   }
 
   public LinkedList<OVertex> execute(final Object iThis, final OIdentifiable iCurrentRecord, final Object iCurrentResult,
       final Object[] iParams, final OCommandContext iContext) {
-    return new OSQLFunctionAstar().execute(this, iCurrentRecord, iCurrentResult, toAStarParams(iParams), iContext);
-  }
+    final ORecord record = iCurrentRecord != null ? iCurrentRecord.getRecord() : null;
+
+    final OVertex source = toVertex(iParams[0], record, iContext, "sourceVertex");
+    final OVertex destination = toVertex(iParams[1], record, iContext, "destinationVertex");
+    final String weightFieldName = OIOUtils.getStringContent(iParams[2]);
 
-  private Object[] toAStarParams(Object[] iParams) {
-    Object[] result = new Object[4];
-    result[0] = iParams[0];
-    result[1] = iParams[1];
-    result[2] = iParams[2];
-    Map<String, Object> options = new HashMap<String, Object>();
-    options.put("emptyIfMaxDepth", true);
-    if (iParams.length > 3) {
-      options.put("direction", iParams[3]);
+    ODirection direction = ODirection.OUT;
+    if (iParams.length > 3 && iParams[3] != null) {
+      if (iParams[3] instanceof ODirection) {
+        direction = (ODirection) iParams[3];
+      } else {
+        direction = ODirection.valueOf(OIOUtils.getStringContent(iParams[3]).toUpperCase(Locale.ENGLISH));
+      }
+    }
+
+    boolean bidirectional = false;
+    String projectionName = null;
+    if (iParams.length > 4 && iParams[4] != null) {
+      Map<String, Object> options = null;
+      if (iParams[4] instanceof Map) {
+        options = (Map<String, Object>) iParams[4];
+      } else if (iParams[4] instanceof OIdentifiable) {
+        options = ((ODocument) ((OIdentifiable) iParams[4]).getRecord()).toMap();
+      }
+      if (options != null && options.get(PARAM_BIDIRECTIONAL) != null) {
+        bidirectional = Boolean.parseBoolean(options.get(PARAM_BIDIRECTIONAL).toString());
+      }
+      if (options != null && options.get(PARAM_PROJECTION) != null) {
+        projectionName = options.get(PARAM_PROJECTION).toString();
+      }
+    }
+
+    final List<ORID> path;
+    if (projectionName == null) {
+      final ODijkstraPathFinder finder = new ODijkstraPathFinder(direction, null, weightFieldName, iContext);
+      path = finder.findPath(source.getIdentity(), destination.getIdentity(), bidirectional);
+      iContext.setVariable("getNeighbors", finder.getSettled());
+    } else {
+      final OGraphProjection projection = OGraphProjectionManager
+          .getInstance((ODatabaseDocumentInternal) iContext.getDatabase()).acquire(projectionName);
+      if (projection == null) {
+        throw new OCommandExecutionException("Graph projection not found: " + projectionName);
+      }
+      try {
+        if (weightFieldName != null && !weightFieldName.equals(projection.getWeightProperty())) {
+          throw new IllegalArgumentException(
+              "Graph projection '" + projectionName + "' has no weights from the '" + weightFieldName + "' property");
+        }
+        final ODijkstraPathFinder finder = new ODijkstraPathFinder(projection, direction, null, iContext);
+        path = finder.findPath(source.getIdentity(), destination.getIdentity(), bidirectional);
+        iContext.setVariable("getNeighbors", finder.getSettled());
+      } finally {
+        projection.release();
+      }
+    }
+
+    final LinkedList<OVertex> result = new LinkedList<OVertex>();
+    for (ORID rid : path) {
+      final ORecord vertex = rid.getRecord();
+      if (vertex instanceof OElement && ((OElement) vertex).isVertex()) {
+        result.add(((OElement) vertex).asVertex().get());
+      }
     }
-    result[3] = options;
     return result;
   }
 
-  private LinkedList<OVertex> internalExecute(final OCommandContext iContext) {
-    return super.execute(iContext);
+  private OVertex toVertex(Object param, final ORecord record, final OCommandContext iContext, final String name) {
+    if (OMultiValue.isMultiValue(param)) {
+      if (OMultiValue.getSize(param) > 1)
+        throw new IllegalArgumentException("Only one " + name + " is allowed");
+      param = OMultiValue.getFirstValue(param);
+      if (param instanceof OResult && ((OResult) param).isElement()) {
+        param = ((OResult) param).getElement().get();
+      }
+    }
+    param = OSQLHelper.getValue(param, record, iContext);
+    if (param instanceof OIdentifiable) {
+      final ORecord elem = ((OIdentifiable) param).getRecord();
+      if (elem instanceof OElement && ((OElement) elem).isVertex()) {
+        return ((OElement) elem).asVertex().get();
+      }
+    }
+    throw new IllegalArgumentException("The " + name + " must be a vertex record");
   }
 
   public String getSyntax() {
-    return "dijkstra(<sourceVertex>, <destinationVertex>, <weightEdgeFieldName>, [<direction>])";
+    return "dijkstra(<sourceVertex>, <destinationVertex>, <weightEdgeFieldName>, [<direction>, [<options>]]) \n "
+        + "// options  : {bidirectional: false, projection: '<projectionName>'}";
   }
 
   protected float getDistance(final OVertex node, final OVertex target) {
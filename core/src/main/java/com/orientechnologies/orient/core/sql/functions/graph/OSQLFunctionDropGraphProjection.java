@@ -0,0 +1,47 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import com.orientechnologies.common.io.OIOUtils;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.sql.functions.OSQLFunctionAbstract;
+
+/**
+ * Drops a graph projection (see {@link OGraphProjection}), returns true if the projection existed.
+ */
+public class OSQLFunctionDropGraphProjection extends OSQLFunctionAbstract {
+  public static final String NAME = "dropGraphProjection";
+
+  public OSQLFunctionDropGraphProjection() {
+    super(NAME, 1, 1);
+  }
+
+  public Object execute(Object iThis, final OIdentifiable iCurrentRecord, Object iCurrentResult, final Object[] iParams,
+      OCommandContext iContext) {
+    final ODatabaseDocumentInternal db = (ODatabaseDocumentInternal) iContext.getDatabase();
+    return OGraphProjectionManager.getInstance(db).drop(OIOUtils.getStringContent(iParams[0]));
+  }
+
+  public String getSyntax() {
+    return "dropGraphProjection(<name>)";
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import com.orientechnologies.common.io.OIOUtils;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultInternal;
+import com.orientechnologies.orient.core.sql.functions.OSQLFunctionAbstract;
+
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Base class of the SQL functions that run a graph algorithm (see {@link OGraphAlgorithms}) on a graph projection. The first
+ * parameter is the name of the projection, the second an optional map of options.
+ * <p>
+ * By default the function returns one result for each vertex, with the RID of the vertex and the value computed by the algorithm
+ * (use <code>expand()</code> to get them as rows). With the <code>writeProperty</code> option the values are written as a
+ * property of the vertices instead, and the function returns a summary.
+ */
+public abstract class OSQLFunctionGraphAlgorithmAbstract extends OSQLFunctionAbstract {
+  public static final String PARAM_WRITE_PROPERTY = "writeProperty";
+
+  private final String resultProperty;
+
+  protected OSQLFunctionGraphAlgorithmAbstract(String name, String resultProperty) {
+    super(name, 1, 2);
+    this.resultProperty = resultProperty;
+  }
+
+  /**
+   * runs the algorithm
+   *
+   * @return the value computed for each vertex, by vertex number
+   */
+  protected abstract IntFunction<Object> compute(OGraphAlgorithms algorithms, Map<String, Object> options,
+      Map<String, Object> summary);
+
+  public Object execute(Object iThis, final OIdentifiable iCurrentRecord, Object iCurrentResult, final Object[] iParams,
+      OCommandContext iContext) {
+    final String projectionName = OIOUtils.getStringContent(iParams[0]);
+    final Map<String, Object> options = iParams.length > 1 ? toMap(iParams[1]) : Collections.emptyMap();
+
+    final ODatabaseDocumentInternal db = (ODatabaseDocumentInternal) iContext.getDatabase();
+    final OGraphProjection projection = OGraphProjectionManager.getInstance(db).acquire(projectionName);
+    if (projection == null) {
+      throw new OCommandExecutionException("Graph projection not found: " + projectionName);
+    }
+    try (OGraphAlgorithms algorithms = new OGraphAlgorithms(projection)) {
+      final Map<String, Object> summary = new LinkedHashMap<>();
+      summary.put("projection", projection.getName());
+      summary.put("vertices", projection.getVertexCount());
+      summary.put("stale", projection.isStale());
+
+      final long begin = System.currentTimeMillis();
+      final IntFunction<Object> values = compute(algorithms, options, summary);
+      summary.put("computeTime", System.currentTimeMillis() - begin);
+
+      final Object writeProperty = options.get(PARAM_WRITE_PROPERTY);
+      if (writeProperty != null) {
+        final long beginWrite = System.currentTimeMillis();
+        summary.put("written", algorithms.writeBack(db, writeProperty.toString(), values));
+        summary.put("writeTime", System.currentTimeMillis() - beginWrite);
+        return summary;
+      }
+
+      final List<OResult> result = new ArrayList<>(projection.getVertexCount());
+      for (int v = 0; v < projection.getVertexCount(); v++) {
+        final OResultInternal item = new OResultInternal();
+        item.setProperty("rid", projection.getRid(v));
+        item.setProperty(resultProperty, values.apply(v));
+        result.add(item);
+      }
+      return result;
+    } finally {
+      projection.release();
+    }
+  }
+
+  private static Map<String, Object> toMap(Object param) {
+    if (param instanceof Map) {
+      return (Map<String, Object>) param;
+    } else if (param instanceof OIdentifiable) {
+      return ((ODocument) ((OIdentifiable) param).getRecord()).toMap();
+    }
+    return Collections.emptyMap();
+  }
+
+  protected static int getInt(Map<String, Object> options, String name, int defaultValue) {
+    final Object value = options.get(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+  }
+
+  protected static double getDouble(Map<String, Object> options, String name, double defaultValue) {
+    final Object value = options.get(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+  }
+
+  protected static boolean getBoolean(Map<String, Object> options, String name, boolean defaultValue) {
+    final Object value = options.get(name);
+    return value == null ? defaultValue : Boolean.parseBoolean(value.toString());
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Detects the communities of a graph projection with label propagation, see {@link OGraphAlgorithms#labelPropagation(int)}. The
+ * community of a vertex is identified by the RID of a vertex of the community.
+ */
+public class OSQLFunctionLabelPropagation extends OSQLFunctionGraphAlgorithmAbstract {
+  public static final String NAME                 = "labelPropagation";
+  public static final String PARAM_MAX_ITERATIONS = "maxIterations";
+
+  public OSQLFunctionLabelPropagation() {
+    super(NAME, "community");
+  }
+
+  @Override
+  protected IntFunction<Object> compute(OGraphAlgorithms algorithms, Map<String, Object> options, Map<String, Object> summary) {
+    final int[] labels = algorithms.labelPropagation(getInt(options, PARAM_MAX_ITERATIONS, 10));
+    final BitSet communities = new BitSet(labels.length);
+    for (int label : labels) {
+      communities.set(label);
+    }
+    summary.put("iterations", algorithms.getIterations());
+    summary.put("communities", communities.cardinality());
+    final OGraphProjection projection = algorithms.getProjection();
+    return v -> projection.getRid(labels[v]);
+  }
+
+  public String getSyntax() {
+    return "labelPropagation(<projectionName>, [<options>]) \n // options  : {maxIterations: 10, writeProperty: null}";
+  }
+}
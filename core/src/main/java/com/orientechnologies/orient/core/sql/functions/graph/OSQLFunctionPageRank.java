@@ -0,0 +1,50 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Computes the PageRank of the vertices of a graph projection, see {@link OGraphAlgorithms#pageRank(double, int, double)}.
+ */
+public class OSQLFunctionPageRank extends OSQLFunctionGraphAlgorithmAbstract {
+  public static final String NAME                 = "pageRank";
+  public static final String PARAM_DAMPING_FACTOR = "dampingFactor";
+  public static final String PARAM_MAX_ITERATIONS = "maxIterations";
+  public static final String PARAM_TOLERANCE      = "tolerance";
+
+  public OSQLFunctionPageRank() {
+    super(NAME, "pageRank");
+  }
+
+  @Override
+  protected IntFunction<Object> compute(OGraphAlgorithms algorithms, Map<String, Object> options, Map<String, Object> summary) {
+    final double[] ranks = algorithms.pageRank(getDouble(options, PARAM_DAMPING_FACTOR, 0.85),
+        getInt(options, PARAM_MAX_ITERATIONS, 20), getDouble(options, PARAM_TOLERANCE, 1e-7));
+    summary.put("iterations", algorithms.getIterations());
+    return v -> ranks[v];
+  }
+
+  public String getSyntax() {
+    return "pageRank(<projectionName>, [<options>]) \n "
+        + "// options  : {dampingFactor: 0.85, maxIterations: 20, tolerance: 0.0000001, writeProperty: null}";
+  }
+}
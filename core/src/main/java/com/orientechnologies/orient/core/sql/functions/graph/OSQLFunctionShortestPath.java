@@ -1,16 +1,14 @@
 package com.orientechnologies.orient.core.sql.functions.graph;
 
-import com.orientechnologies.common.collection.OMultiCollectionIterator;
 import com.orientechnologies.common.collection.OMultiValue;
-import com.orientechnologies.common.util.ORawPair;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.command.OCommandExecutorAbstract;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.record.*;
 import com.orientechnologies.orient.core.record.impl.ODocument;
-import com.orientechnologies.orient.core.record.impl.OEdgeToVertexIterable;
 import com.orientechnologies.orient.core.sql.OSQLHelper;
 import com.orientechnologies.orient.core.sql.executor.OResult;
 import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionMathAbstract;
@@ -19,12 +17,16 @@ import java.util.*;
 
 /**
  * Shortest path algorithm to find the shortest path from one node to another node in a directed graph.
+ * <p>
+ * With the <code>{projection: '&lt;name&gt;'}</code> option the search runs on a graph projection (see {@link OGraphProjection})
+ * instead of the database.
  *
  * @author Luca Garulli (l.garulli--(at)--orientdb.com)
  */
 public class OSQLFunctionShortestPath extends OSQLFunctionMathAbstract {
   public static final String NAME            = "shortestPath";
-  public static final String PARAM_MAX_DEPTH = "maxDepth";
+  public static final String PARAM_MAX_DEPTH  = "maxDepth";
+  public static final String PARAM_PROJECTION = "projection";
 
   protected static final float DISTANCE = 1f;
 
@@ -41,22 +43,86 @@ public class OSQLFunctionShortestPath extends OSQLFunctionMathAbstract {
     private String   edgeType;
     private String[] edgeTypeParam;
 
-    private ArrayDeque<OVertex> queueLeft  = new ArrayDeque<>();
-    private ArrayDeque<OVertex> queueRight = new ArrayDeque<>();
+    /**
+     * the vertices (and the edges, if requested) met by the search, each one with a dense index used by the arrays below
+     */
+    private final ORidIndex nodes = new ORidIndex();
+
+    /**
+     * the projection to search, if any: the projection numbers the vertices instead of <code>nodes</code>
+     */
+    private String           projectionName;
+    private OGraphProjection projection;
+    private BitSet           edgeClassSet;
+
+    private NodeQueue queueLeft  = new NodeQueue();
+    private NodeQueue queueRight = new NodeQueue();
 
-    private final Set<ORID> leftVisited  = new HashSet<ORID>();
-    private final Set<ORID> rightVisited = new HashSet<ORID>();
+    private final BitSet leftVisited  = new BitSet();
+    private final BitSet rightVisited = new BitSet();
 
-    private final Map<ORID, ORID> previouses = new HashMap<ORID, ORID>();
-    private final Map<ORID, ORID> nexts      = new HashMap<ORID, ORID>();
+    /**
+     * for each node, the previous node on the path from the source and the next node on the path to the destination, -1 if none
+     */
+    private int[] previouses = new int[0];
+    private int[] nexts      = new int[0];
 
-    private OVertex current;
-    private OVertex currentRight;
     public  Integer maxDepth;
     /**
      * option that decides whether or not to return the edge information
      */
     public  Boolean edge;
+
+    /**
+     * @return the number of a vertex or edge, -1 if the vertex is not in the projection
+     */
+    private int node(ORID rid) {
+      int node = projection == null ? nodes.add(rid) : projection.indexOf(rid);
+      ensureCapacity(node);
+      return node;
+    }
+
+    /**
+     * grows the links to hold a node. The nodes of a projection are not numbered by the search, so the links are grown also when
+     * a neighbor is visited
+     */
+    private void ensureCapacity(int node) {
+      if (node >= previouses.length) {
+        int capacity = Math.max(Math.max(64, node + 1), previouses.length * 2);
+        int oldCapacity = previouses.length;
+        previouses = Arrays.copyOf(previouses, capacity);
+        nexts = Arrays.copyOf(nexts, capacity);
+        Arrays.fill(previouses, oldCapacity, capacity, -1);
+        Arrays.fill(nexts, oldCapacity, capacity, -1);
+      }
+    }
+
+    private ORID rid(int node) {
+      return projection == null ? nodes.get(node) : projection.getRid(node);
+    }
+  }
+
+  /**
+   * the nodes of a level of the search
+   */
+  private static class NodeQueue {
+    private int[] nodes = new int[16];
+    private int   size  = 0;
+
+    private void add(int node) {
+      if (size == nodes.length) {
+        nodes = Arrays.copyOf(nodes, size * 2);
+      }
+      nodes[size++] = node;
+    }
+
+    private int size() {
+      return size;
+    }
+
+    private boolean isEmpty() {
+      return size == 0;
+    }
   }
 
   public List<ORID> execute(Object iThis, final OIdentifiable iCurrentRecord, final Object iCurrentResult, final Object[] iParams,
@@ -131,11 +197,38 @@ public class OSQLFunctionShortestPath extends OSQLFunctionMathAbstract {
       bindAdditionalParams(iParams[4], ctx);
     }
 
-    ctx.queueLeft.add(ctx.sourceVertex);
-    ctx.leftVisited.add(ctx.sourceVertex.getIdentity());
+    if (ctx.projectionName == null) {
+      return search(ctx, iContext);
+    }
+    if (Boolean.TRUE.equals(ctx.edge)) {
+      throw new IllegalArgumentException("Graph projections do not contain the edges, the edge option cannot be used");
+    }
+    final OGraphProjection projection = OGraphProjectionManager
+        .getInstance((ODatabaseDocumentInternal) iContext.getDatabase()).acquire(ctx.projectionName);
+    if (projection == null) {
+      throw new OCommandExecutionException("Graph projection not found: " + ctx.projectionName);
+    }
+    try {
+      ctx.projection = projection;
+      ctx.edgeClassSet = projection.resolveEdgeClasses(ctx.edgeType == null ? null : ctx.edgeTypeParam,
+          ((ODatabaseDocumentInternal) iContext.getDatabase()).getMetadata().getImmutableSchemaSnapshot());
+      return search(ctx, iContext);
+    } finally {
+      projection.release();
+    }
+  }
 
-    ctx.queueRight.add(ctx.destinationVertex);
-    ctx.rightVisited.add(ctx.destinationVertex.getIdentity());
+  private List<ORID> search(final OShortestPathContext ctx, final OCommandContext iContext) {
+    int sourceNode = ctx.node(ctx.sourceVertex.getIdentity());
+    int destinationNode = ctx.node(ctx.destinationVertex.getIdentity());
+    if (sourceNode < 0 || destinationNode < 0) {
+      return new ArrayList<ORID>();
+    }
+    ctx.queueLeft.add(sourceNode);
+    ctx.leftVisited.set(sourceNode);
+
+    ctx.queueRight.add(destinationNode);
+    ctx.rightVisited.set(destinationNode);
 
     int depth = 1;
     while (true) {
@@ -210,6 +303,7 @@ public class OSQLFunctionShortestPath extends OSQLFunctionMathAbstract {
       ctx.maxDepth = integer(mapParams.get("maxDepth"));
       Boolean withEdge = toBoolean(mapParams.get("edge"));
       ctx.edge = Boolean.TRUE.equals(withEdge) ? Boolean.TRUE : Boolean.FALSE;
+      ctx.projectionName = mapParams.get(PARAM_PROJECTION) == null ? null : mapParams.get(PARAM_PROJECTION).toString();
     }
   }
 
@@ -249,109 +343,16 @@ public class OSQLFunctionShortestPath extends OSQLFunctionMathAbstract {
     return null;
   }
 
-  /**
-   * get adjacent vertices and edges
-   *
-   * @param srcVertex
-   * @param direction
-   * @param types
-   * @return
-   * @author Thomas Young (YJJThomasYoung@hotmail.com)
-   */
-  private ORawPair<Iterable<OVertex>, Iterable<OEdge>> getVerticesAndEdges(OVertex srcVertex, ODirection direction,
-      String... types) {
-    if (direction == ODirection.BOTH) {
-      OMultiCollectionIterator<OVertex> vertexIterator = new OMultiCollectionIterator<>();
-      OMultiCollectionIterator<OEdge> edgeIterator = new OMultiCollectionIterator<>();
-      ORawPair<Iterable<OVertex>, Iterable<OEdge>> pair1 = getVerticesAndEdges(srcVertex, ODirection.OUT, types);
-      ORawPair<Iterable<OVertex>, Iterable<OEdge>> pair2 = getVerticesAndEdges(srcVertex, ODirection.IN, types);
-      vertexIterator.add(pair1.getFirst());
-      vertexIterator.add(pair2.getFirst());
-      edgeIterator.add(pair1.getSecond());
-      edgeIterator.add(pair2.getSecond());
-      return new ORawPair<>(vertexIterator, edgeIterator);
-    } else {
-      Iterable<OEdge> edges1 = srcVertex.getEdges(direction, types);
-      Iterable<OEdge> edges2 = srcVertex.getEdges(direction, types);
-      return new ORawPair<>(new OEdgeToVertexIterable(edges1, direction), edges2);
-    }
-  }
-
-  /**
-   * get adjacent vertices and edges
-   *
-   * @param srcVertex
-   * @param direction
-   * @return
-   * @author Thomas Young (YJJThomasYoung@hotmail.com)
-   */
-  private ORawPair<Iterable<OVertex>, Iterable<OEdge>> getVerticesAndEdges(OVertex srcVertex, ODirection direction) {
-    return getVerticesAndEdges(srcVertex, direction, (String[]) null);
-  }
-
   public String getSyntax() {
     return "shortestPath(<sourceVertex>, <destinationVertex>, [<direction>, [ <edgeTypeAsString> ]])";
   }
 
   protected List<ORID> walkLeft(final OSQLFunctionShortestPath.OShortestPathContext ctx) {
-    ArrayDeque<OVertex> nextLevelQueue = new ArrayDeque<>();
-    if (!Boolean.TRUE.equals(ctx.edge)) {
-      while (!ctx.queueLeft.isEmpty()) {
-        ctx.current = ctx.queueLeft.poll();
-
-        Iterable<OVertex> neighbors;
-        if (ctx.edgeType == null) {
-          neighbors = ctx.current.getVertices(ctx.directionLeft);
-        } else {
-          neighbors = ctx.current.getVertices(ctx.directionLeft, ctx.edgeTypeParam);
-        }
-        for (OVertex neighbor : neighbors) {
-          final OVertex v = (OVertex) neighbor;
-          final ORID neighborIdentity = v.getIdentity();
-
-          if (ctx.rightVisited.contains(neighborIdentity)) {
-            ctx.previouses.put(neighborIdentity, ctx.current.getIdentity());
-            return computePath(ctx.previouses, ctx.nexts, neighborIdentity);
-          }
-          if (!ctx.leftVisited.contains(neighborIdentity)) {
-            ctx.previouses.put(neighborIdentity, ctx.current.getIdentity());
-
-            nextLevelQueue.offer(v);
-            ctx.leftVisited.add(neighborIdentity);
-          }
-
-        }
-      }
-    } else {
-      while (!ctx.queueLeft.isEmpty()) {
-        ctx.current = ctx.queueLeft.poll();
-
-        ORawPair<Iterable<OVertex>, Iterable<OEdge>> neighbors;
-        if (ctx.edgeType == null) {
-          neighbors = getVerticesAndEdges(ctx.current, ctx.directionLeft);
-        } else {
-          neighbors = getVerticesAndEdges(ctx.current, ctx.directionLeft, ctx.edgeTypeParam);
-        }
-        Iterator<OVertex> vertexIterator = neighbors.getFirst().iterator();
-        Iterator<OEdge> edgeIterator = neighbors.getSecond().iterator();
-        while (vertexIterator.hasNext() && edgeIterator.hasNext()) {
-          OVertex v = vertexIterator.next();
-          final ORID neighborVertexIdentity = v.getIdentity();
-          final ORID neighborEdgeIdentity = edgeIterator.next().getIdentity();
-
-          if (ctx.rightVisited.contains(neighborVertexIdentity)) {
-            ctx.previouses.put(neighborVertexIdentity, neighborEdgeIdentity);
-            ctx.previouses.put(neighborEdgeIdentity, ctx.current.getIdentity());
-            return computePath(ctx.previouses, ctx.nexts, neighborVertexIdentity);
-          }
-          if (!ctx.leftVisited.contains(neighborVertexIdentity)) {
-            ctx.previouses.put(neighborVertexIdentity, neighborEdgeIdentity);
-            ctx.previouses.put(neighborEdgeIdentity, ctx.current.getIdentity());
-
-            nextLevelQueue.offer(v);
-            ctx.leftVisited.add(neighborVertexIdentity);
-          }
-        }
+    final NodeQueue nextLevelQueue = new NodeQueue();
+    for (int i = 0; i < ctx.queueLeft.size(); i++) {
+      List<ORID> path = walk(ctx, ctx.queueLeft.nodes[i], ctx.directionLeft, true, nextLevelQueue);
+      if (path != null) {
+        return path;
       }
     }
     ctx.queueLeft = nextLevelQueue;
@@ -359,89 +360,102 @@ public class OSQLFunctionShortestPath extends OSQLFunctionMathAbstract {
   }
 
   protected List<ORID> walkRight(final OSQLFunctionShortestPath.OShortestPathContext ctx) {
-    final ArrayDeque<OVertex> nextLevelQueue = new ArrayDeque<>();
-    if (!Boolean.TRUE.equals(ctx.edge)) {
-      while (!ctx.queueRight.isEmpty()) {
-        ctx.currentRight = ctx.queueRight.poll();
-
-        Iterable<OVertex> neighbors;
-        if (ctx.edgeType == null) {
-          neighbors = ctx.currentRight.getVertices(ctx.directionRight);
-        } else {
-          neighbors = ctx.currentRight.getVertices(ctx.directionRight, ctx.edgeTypeParam);
-        }
-        for (OVertex neighbor : neighbors) {
-          final OVertex v = (OVertex) neighbor;
-          final ORID neighborIdentity = v.getIdentity();
-
-          if (ctx.leftVisited.contains(neighborIdentity)) {
-            ctx.nexts.put(neighborIdentity, ctx.currentRight.getIdentity());
-            return computePath(ctx.previouses, ctx.nexts, neighborIdentity);
-          }
-          if (!ctx.rightVisited.contains(neighborIdentity)) {
-
-            ctx.nexts.put(neighborIdentity, ctx.currentRight.getIdentity());
+    final NodeQueue nextLevelQueue = new NodeQueue();
+    for (int i = 0; i < ctx.queueRight.size(); i++) {
+      List<ORID> path = walk(ctx, ctx.queueRight.nodes[i], ctx.directionRight, false, nextLevelQueue);
+      if (path != null) {
+        return path;
+      }
+    }
+    ctx.queueRight = nextLevelQueue;
+    return null;
+  }
 
-            nextLevelQueue.offer(v);
-            ctx.rightVisited.add(neighborIdentity);
-          }
+  /**
+   * Visits the neighbors of a vertex of the current level. Only the vertex is loaded, the neighbors are read from its edges (or
+   * from the projection, without loading anything).
+   *
+   * @return the path, if the neighbors include a vertex reached by the search from the other side, otherwise null
+   */
+  private List<ORID> walk(final OShortestPathContext ctx, final int current, final ODirection direction, final boolean left,
+      final NodeQueue nextLevelQueue) {
+    final int[] meeting = { -1 };
+    if (ctx.projection != null) {
+      ctx.projection.forEachNeighbor(current, direction, ctx.edgeClassSet,
+          (neighbor, edge) -> visit(ctx, current, neighbor, null, left, nextLevelQueue, meeting));
+    } else {
+      final OVertex currentVertex = loadVertex(ctx.nodes.get(current));
+      if (currentVertex == null) {
+        return null;
+      }
+      final String[] edgeTypes = ctx.edgeType == null ? null : ctx.edgeTypeParam;
+      OGraphAdjacency.forEachNeighbor(currentVertex, direction, edgeTypes, (neighborIdentity, edge) -> {
+        final ORID edgeIdentity = Boolean.TRUE.equals(ctx.edge) ? edge.getIdentity() : null;
+        return visit(ctx, current, ctx.node(neighborIdentity), edgeIdentity, left, nextLevelQueue, meeting);
+      });
+    }
+    return meeting[0] < 0 ? null : computePath(ctx, meeting[0]);
+  }
 
-        }
+  /**
+   * @return false if the neighbor was reached by the search from the other side, and the visit can stop
+   */
+  private boolean visit(final OShortestPathContext ctx, final int current, final int neighbor, final ORID edgeIdentity,
+      final boolean left, final NodeQueue nextLevelQueue, final int[] meeting) {
+    final BitSet visited = left ? ctx.leftVisited : ctx.rightVisited;
+    final BitSet otherVisited = left ? ctx.rightVisited : ctx.leftVisited;
+    final boolean met = otherVisited.get(neighbor);
+    if (met || !visited.get(neighbor)) {
+      ctx.ensureCapacity(neighbor);
+      if (edgeIdentity != null && edgeIdentity.isPersistent()) {
+        final int edgeNode = ctx.node(edgeIdentity);
+        link(ctx, left, neighbor, edgeNode);
+        link(ctx, left, edgeNode, current);
+      } else {
+        link(ctx, left, neighbor, current);
       }
+      if (met) {
+        meeting[0] = neighbor;
+        return false;
+      }
+      nextLevelQueue.add(neighbor);
+      visited.set(neighbor);
+    }
+    return true;
+  }
+
+  private static void link(final OShortestPathContext ctx, final boolean left, final int node, final int linked) {
+    if (left) {
+      ctx.previouses[node] = linked;
     } else {
-      while (!ctx.queueRight.isEmpty()) {
-        ctx.currentRight = ctx.queueRight.poll();
-
-        ORawPair<Iterable<OVertex>, Iterable<OEdge>> neighbors;
-        if (ctx.edgeType == null) {
-          neighbors = getVerticesAndEdges(ctx.currentRight, ctx.directionRight);
-        } else {
-          neighbors = getVerticesAndEdges(ctx.currentRight, ctx.directionRight, ctx.edgeTypeParam);
-        }
+      ctx.nexts[node] = linked;
+    }
+  }
 
-        Iterator<OVertex> vertexIterator = neighbors.getFirst().iterator();
-        Iterator<OEdge> edgeIterator = neighbors.getSecond().iterator();
-        while (vertexIterator.hasNext() && edgeIterator.hasNext()) {
-          final OVertex v = vertexIterator.next();
-          final ORID neighborVertexIdentity = v.getIdentity();
-          final ORID neighborEdgeIdentity = edgeIterator.next().getIdentity();
-
-          if (ctx.leftVisited.contains(neighborVertexIdentity)) {
-            ctx.nexts.put(neighborVertexIdentity, neighborEdgeIdentity);
-            ctx.nexts.put(neighborEdgeIdentity, ctx.currentRight.getIdentity());
-            return computePath(ctx.previouses, ctx.nexts, neighborVertexIdentity);
-          }
-          if (!ctx.rightVisited.contains(neighborVertexIdentity)) {
-            ctx.nexts.put(neighborVertexIdentity, neighborEdgeIdentity);
-            ctx.nexts.put(neighborEdgeIdentity, ctx.currentRight.getIdentity());
-
-            nextLevelQueue.offer(v);
-            ctx.rightVisited.add(neighborVertexIdentity);
-          }
-        }
-      }
+  private OVertex loadVertex(final ORID rid) {
+    final ORecord record = rid.getRecord();
+    if (record instanceof OElement) {
+      return ((OElement) record).asVertex().orElse(null);
     }
-    ctx.queueRight = nextLevelQueue;
     return null;
   }
 
-  private List<ORID> computePath(final Map<ORID, ORID> leftDistances, final Map<ORID, ORID> rightDistances, final ORID neighbor) {
+  private List<ORID> computePath(final OShortestPathContext ctx, final int neighbor) {
     final List<ORID> result = new ArrayList<ORID>();
 
-    ORID current = neighbor;
-    while (current != null) {
-      result.add(0, current);
-      current = leftDistances.get(current);
+    int current = neighbor;
+    while (current >= 0) {
+      result.add(ctx.rid(current));
+      current = ctx.previouses[current];
     }
+    Collections.reverse(result);
 
-    current = neighbor;
-    while (current != null) {
-      current = rightDistances.get(current);
-      if (current != null) {
-        result.add(current);
-      }
+    current = ctx.nexts[neighbor];
+    while (current >= 0) {
+      result.add(ctx.rid(current));
+      current = ctx.nexts[current];
     }
 
     return result;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,49 @@
+/*
+ *
+ *  *  Copyright 2010-2016 OrientDB LTD (http://orientdb.com)
+ *  *
+ *  *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  you may not use this file except in compliance with the License.
+ *  *  You may obtain a copy of the License at
+ *  *
+ *  *       http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *  Unless required by applicable law or agreed to in writing, software
+ *  *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  See the License for the specific language governing permissions and
+ *  *  limitations under the License.
+ *  *
+ *  * For more information: http://orientdb.com
+ *
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Counts the triangles each vertex of a graph projection belongs to, see {@link OGraphAlgorithms#triangleCount()}.
+ */
+public class OSQLFunctionTriangleCount extends OSQLFunctionGraphAlgorithmAbstract {
+  public static final String NAME = "triangleCount";
+
+  public OSQLFunctionTriangleCount() {
+    super(NAME, "triangles");
+  }
+
+  @Override
+  protected IntFunction<Object> compute(OGraphAlgorithms algorithms, Map<String, Object> options, Map<String, Object> summary) {
+    final int[] triangles = algorithms.triangleCount();
+    long total = 0;
+    for (int count : triangles) {
+      total += count;
+    }
+    summary.put("triangles", total / 3);
+    return v -> triangles[v];
+  }
+
+  public String getSyntax() {
+    return "triangleCount(<projectionName>, [<options>]) \n // options  : {writeProperty: null}";
+  }
+}
@@ -0,0 +1,17 @@
+package com.orientechnologies.orient.core.sql.parser;
+
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+
+/**
+ * A boolean condition that was transformed by the {@link OExpressionCompiler} in a tree of specialized evaluators. It is
+ * equivalent to {@link OBooleanExpression#evaluate(OResult, OCommandContext)} on the original AST.
+ * <p>
+ * Instances can cache values that are constant for a single query execution (eg. literals and input parameters), so they
+ * cannot be shared between different executions.
+ */
+public interface OCompiledCondition {
+
+  boolean evaluate(OResult currentRecord, OCommandContext ctx);
+
+}
@@ -0,0 +1,17 @@
+package com.orientechnologies.orient.core.sql.parser;
+
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+
+/**
+ * A projection that was transformed by the {@link OExpressionCompiler} in a list of specialized evaluators. It is equivalent to
+ * {@link OProjection#calculateSingle(OCommandContext, OResult)} on the original AST.
+ * <p>
+ * Instances can cache values that are constant for a single query execution, so they cannot be shared between different
+ * executions.
+ */
+public interface OCompiledProjection {
+
+  OResult calculateSingle(OCommandContext ctx, OResult currentRecord);
+
+}
@@ -92,10 +92,11 @@ public class OCreateViewStatement extends ODDLStatement {
         }
         break;
       case "updateStrategy":
-        if (!(OViewConfig.UPDATE_STRATEGY_BATCH.equals(value) || OViewConfig.UPDATE_STRATEGY_LIVE.equals(value))) {
+        if (!(OViewConfig.UPDATE_STRATEGY_BATCH.equals(value) || OViewConfig.UPDATE_STRATEGY_LIVE.equals(value)
+            || OViewConfig.UPDATE_STRATEGY_INCREMENTAL.equals(value))) {
           throw new OCommandSQLParsingException(
-              "Invalid value for view metadata: updateStrategy should be " + OViewConfig.UPDATE_STRATEGY_LIVE + " or "
-                  + OViewConfig.UPDATE_STRATEGY_BATCH + ", it is " + value);
+              "Invalid value for view metadata: updateStrategy should be " + OViewConfig.UPDATE_STRATEGY_LIVE + ", "
+                  + OViewConfig.UPDATE_STRATEGY_INCREMENTAL + " or " + OViewConfig.UPDATE_STRATEGY_BATCH + ", it is " + value);
         }
         break;
       case "watchClasses":
@@ -14,10 +14,19 @@ import java.util.Optional;
  */
 public class OExplainResultSet implements OResultSet {
   private final OExecutionPlan executionPlan;
+  private final boolean        includeJson;
   boolean hasNext = true;
 
   public OExplainResultSet(OExecutionPlan executionPlan) {
+    this(executionPlan, false);
+  }
+
+  /**
+   * @param includeJson if true, the execution plan is returned also as a JSON string, in the "executionPlanAsJson" property
+   */
+  public OExplainResultSet(OExecutionPlan executionPlan, boolean includeJson) {
     this.executionPlan = executionPlan;
+    this.includeJson = includeJson;
   }
 
   @Override public boolean hasNext() {
@@ -31,6 +40,9 @@ public class OExplainResultSet implements OResultSet {
     OResultInternal result = new OResultInternal();
     getExecutionPlan().ifPresent(x -> result.setProperty("executionPlan", x.toResult()));
     getExecutionPlan().ifPresent(x -> result.setProperty("executionPlanAsString", x.prettyPrint(0, 3)));
+    if (includeJson) {
+      getExecutionPlan().ifPresent(x -> result.setProperty("executionPlanAsJson", x.toResult().toJSON()));
+    }
     hasNext = false;
     return result;
   }
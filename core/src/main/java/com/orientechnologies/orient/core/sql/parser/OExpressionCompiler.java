@@ -0,0 +1,418 @@
+package com.orientechnologies.orient.core.sql.parser;
+
+import com.orientechnologies.orient.core.collate.OCollate;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.record.OElement;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultInternal;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Transforms WHERE conditions and projections in trees of specialized evaluators, that are cheaper to execute than a walk
+ * on the AST:
+ * <ul>
+ * <li>property references (eg. <code>name</code>) are resolved with a direct lookup on the current record, without going
+ * through the whole OExpression/OMathExpression/OBaseExpression/OBaseIdentifier/OSuffixIdentifier chain. Only plain property
+ * names are compiled: paths (<code>address.city</code>), method calls, array selectors, record attributes
+ * (<code>@rid</code>) and context variables (<code>$parent</code>) are interpreted</li>
+ * <li>literals and input parameters are calculated (and decoded) once per execution instead of once per record</li>
+ * <li>the collation of a property is resolved once per schema class instead of once per record</li>
+ * </ul>
+ * Everything that is not explicitly supported is delegated to the interpreter, so the result is always equivalent to the
+ * evaluation of the original AST.
+ */
+public class OExpressionCompiler {
+
+  private OExpressionCompiler() {
+  }
+
+  /**
+   * @return the compiled condition, or null if the where clause is empty
+   */
+  public static OCompiledCondition compile(OWhereClause whereClause) {
+    if (whereClause == null || whereClause.getBaseExpression() == null) {
+      return null;
+    }
+    return compile(whereClause.getBaseExpression());
+  }
+
+  public static OCompiledCondition compile(OBooleanExpression condition) {
+    if (condition instanceof OAndBlock && ((OAndBlock) condition).getSubBlocks() != null) {
+      return new AndCondition(compileAll(((OAndBlock) condition).getSubBlocks()));
+    }
+    if (condition instanceof OOrBlock && ((OOrBlock) condition).getSubBlocks() != null) {
+      return new OrCondition(compileAll(((OOrBlock) condition).getSubBlocks()));
+    }
+    if (condition instanceof ONotBlock && ((ONotBlock) condition).getSub() != null) {
+      OCompiledCondition sub = compile(((ONotBlock) condition).getSub());
+      return ((ONotBlock) condition).isNegate() ? new NotCondition(sub) : sub;
+    }
+    if (condition instanceof OParenthesisBlock && ((OParenthesisBlock) condition).subElement != null) {
+      return compile(((OParenthesisBlock) condition).subElement);
+    }
+    if (condition instanceof OBinaryCondition) {
+      OCompiledCondition result = compileBinaryCondition((OBinaryCondition) condition);
+      if (result != null) {
+        return result;
+      }
+    }
+    return new InterpretedCondition(condition);
+  }
+
+  /**
+   * @return the compiled projection, or null if the projection cannot be compiled (eg. it contains <code>*</code> or an
+   * expand())
+   */
+  public static OCompiledProjection compile(OProjection projection) {
+    if (projection == null || projection.getItems() == null || projection.getItems().isEmpty() || projection.isExpand()) {
+      return null;
+    }
+    List<OProjectionItem> items = projection.getItems();
+    String[] aliases = new String[items.size()];
+    CompiledValue[] values = new CompiledValue[items.size()];
+    for (int i = 0; i < items.size(); i++) {
+      OProjectionItem item = items.get(i);
+      if (item.all || item.isAggregate()) {
+        return null;
+      }
+      aliases[i] = item.getProjectionAliasAsString();
+      CompiledValue value = item.nestedProjection == null ? compile(item.expression) : null;
+      values[i] = value == null ? new InterpretedProjectionItem(item) : new ConvertedValue(item, value);
+    }
+    return new CompiledProjection(aliases, values);
+  }
+
+  private static OCompiledCondition[] compileAll(List<OBooleanExpression> conditions) {
+    OCompiledCondition[] result = new OCompiledCondition[conditions.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = compile(conditions.get(i));
+    }
+    return result;
+  }
+
+  private static OCompiledCondition compileBinaryCondition(OBinaryCondition condition) {
+    if (condition.left == null || condition.right == null || condition.operator == null || condition.left.isFunctionAny()) {
+      return null;
+    }
+    CompiledValue left = compile(condition.left);
+    CompiledValue right = compile(condition.right);
+    if (left == null && right == null) {
+      return null;
+    }
+    return new BinaryCondition(left == null ? new InterpretedValue(condition.left) : left,
+        right == null ? new InterpretedValue(condition.right) : right, condition.operator);
+  }
+
+  /**
+   * @return a specialized evaluator for the expression, or null if the expression is not a plain property name, a literal or an
+   * input parameter. An expression with a modifier (<code>.field</code>, <code>.method()</code>, <code>[...]</code>) is not
+   * compiled, because each modifier can load linked records or change the type of the value; a name starting with
+   * <code>$</code> is a context variable, resolved on the command context and not on the record
+   */
+  private static CompiledValue compile(OExpression expression) {
+    if (expression == null || expression.getClass() != OExpression.class || expression.isNull || expression.rid != null
+        || expression.mathExpression == null || expression.mathExpression.getClass() != OBaseExpression.class) {
+      return null;
+    }
+    OBaseExpression base = (OBaseExpression) expression.mathExpression;
+    if (base.modifier != null) {
+      return null;
+    }
+    if (base.number != null || base.string != null) {
+      return new LiteralValue(expression);
+    }
+    if (base.inputParam != null) {
+      return new InputParameterValue(base.inputParam);
+    }
+    if (base.identifier != null && base.identifier.levelZero == null && base.identifier.suffix != null
+        && base.identifier.suffix.identifier != null) {
+      String name = base.identifier.suffix.identifier.getStringValue();
+      if (!name.startsWith("$")) {
+        return new PropertyValue(name);
+      }
+    }
+    return null;
+  }
+
+  private interface CompiledValue {
+    Object execute(OResult currentRecord, OCommandContext ctx);
+
+    OCollate getCollate(OResult currentRecord, OCommandContext ctx);
+  }
+
+  private static class PropertyValue implements CompiledValue {
+    private final String name;
+
+    private OClass   lastClass;
+    private OCollate lastCollate;
+
+    PropertyValue(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Object execute(OResult currentRecord, OCommandContext ctx) {
+      // same lookup order as OSuffixIdentifier.execute()
+      if (currentRecord == null) {
+        return null;
+      }
+      if (currentRecord.hasProperty(name)) {
+        return currentRecord.getProperty(name);
+      }
+      if (currentRecord.getMetadataKeys().contains(name)) {
+        return currentRecord.getMetadata(name);
+      }
+      if (currentRecord instanceof OResultInternal && ((OResultInternal) currentRecord).getTemporaryProperties().contains(name)) {
+        return ((OResultInternal) currentRecord).getTemporaryProperty(name);
+      }
+      return null;
+    }
+
+    @Override
+    public OCollate getCollate(OResult currentRecord, OCommandContext ctx) {
+      if (currentRecord == null) {
+        return null;
+      }
+      Optional<ORecord> record = currentRecord.getRecord();
+      if (!record.isPresent()) {
+        return null;
+      }
+      OClass clazz = ((OElement) record.get()).getSchemaType().orElse(null);
+      if (clazz == null) {
+        return null;
+      }
+      if (clazz != lastClass) {
+        OProperty property = clazz.getProperty(name);
+        lastCollate = property == null ? null : property.getCollate();
+        lastClass = clazz;
+      }
+      return lastCollate;
+    }
+  }
+
+  private static class LiteralValue implements CompiledValue {
+    private final OExpression expression;
+    private       boolean     calculated = false;
+    private       Object      value;
+
+    LiteralValue(OExpression expression) {
+      this.expression = expression;
+    }
+
+    @Override
+    public Object execute(OResult currentRecord, OCommandContext ctx) {
+      if (!calculated) {
+        value = expression.execute(currentRecord, ctx);
+        calculated = true;
+      }
+      return value;
+    }
+
+    @Override
+    public OCollate getCollate(OResult currentRecord, OCommandContext ctx) {
+      return null;
+    }
+  }
+
+  private static class InputParameterValue implements CompiledValue {
+    private final OInputParameter     inputParam;
+    private       Map<Object, Object> lastParams;
+    private       Object              value;
+
+    InputParameterValue(OInputParameter inputParam) {
+      this.inputParam = inputParam;
+    }
+
+    @Override
+    public Object execute(OResult currentRecord, OCommandContext ctx) {
+      Map<Object, Object> params = ctx.getInputParameters();
+      if (lastParams == null || params != lastParams) {
+        value = inputParam.getValue(params);
+        lastParams = params;
+      }
+      return value;
+    }
+
+    @Override
+    public OCollate getCollate(OResult currentRecord, OCommandContext ctx) {
+      return null;
+    }
+  }
+
+  private static class InterpretedValue implements CompiledValue {
+    private final OExpression expression;
+
+    InterpretedValue(OExpression expression) {
+      this.expression = expression;
+    }
+
+    @Override
+    public Object execute(OResult currentRecord, OCommandContext ctx) {
+      return expression.execute(currentRecord, ctx);
+    }
+
+    @Override
+    public OCollate getCollate(OResult currentRecord, OCommandContext ctx) {
+      return expression.getCollate(currentRecord, ctx);
+    }
+  }
+
+  private static class ConvertedValue implements CompiledValue {
+    private final OProjectionItem item;
+    private final CompiledValue   value;
+
+    ConvertedValue(OProjectionItem item, CompiledValue value) {
+      this.item = item;
+      this.value = value;
+    }
+
+    @Override
+    public Object execute(OResult currentRecord, OCommandContext ctx) {
+      return item.convert(value.execute(currentRecord, ctx));
+    }
+
+    @Override
+    public OCollate getCollate(OResult currentRecord, OCommandContext ctx) {
+      return null;
+    }
+  }
+
+  private static class InterpretedProjectionItem implements CompiledValue {
+    private final OProjectionItem item;
+
+    InterpretedProjectionItem(OProjectionItem item) {
+      this.item = item;
+    }
+
+    @Override
+    public Object execute(OResult currentRecord, OCommandContext ctx) {
+      return item.execute(currentRecord, ctx);
+    }
+
+    @Override
+    public OCollate getCollate(OResult currentRecord, OCommandContext ctx) {
+      return null;
+    }
+  }
+
+  private static class BinaryCondition implements OCompiledCondition {
+    private final CompiledValue          left;
+    private final CompiledValue          right;
+    private final OBinaryCompareOperator operator;
+
+    BinaryCondition(CompiledValue left, CompiledValue right, OBinaryCompareOperator operator) {
+      this.left = left;
+      this.right = right;
+      this.operator = operator;
+    }
+
+    @Override
+    public boolean evaluate(OResult currentRecord, OCommandContext ctx) {
+      // same logic as OBinaryCondition.evaluate()
+      Object leftVal = left.execute(currentRecord, ctx);
+      Object rightVal = right.execute(currentRecord, ctx);
+      OCollate collate = left.getCollate(currentRecord, ctx);
+      if (collate == null) {
+        collate = right.getCollate(currentRecord, ctx);
+      }
+      if (collate != null) {
+        leftVal = collate.transform(leftVal);
+        rightVal = collate.transform(rightVal);
+      }
+      return operator.execute(leftVal, rightVal);
+    }
+  }
+
+  private static class AndCondition implements OCompiledCondition {
+    private final OCompiledCondition[] subBlocks;
+
+    AndCondition(OCompiledCondition[] subBlocks) {
+      this.subBlocks = subBlocks;
+    }
+
+    @Override
+    public boolean evaluate(OResult currentRecord, OCommandContext ctx) {
+      for (OCompiledCondition block : subBlocks) {
+        if (!block.evaluate(currentRecord, ctx)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static class OrCondition implements OCompiledCondition {
+    private final OCompiledCondition[] subBlocks;
+
+    OrCondition(OCompiledCondition[] subBlocks) {
+      this.subBlocks = subBlocks;
+    }
+
+    @Override
+    public boolean evaluate(OResult currentRecord, OCommandContext ctx) {
+      for (OCompiledCondition block : subBlocks) {
+        if (block.evaluate(currentRecord, ctx)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static class NotCondition implements OCompiledCondition {
+    private final OCompiledCondition sub;
+
+    NotCondition(OCompiledCondition sub) {
+      this.sub = sub;
+    }
+
+    @Override
+    public boolean evaluate(OResult currentRecord, OCommandContext ctx) {
+      return !sub.evaluate(currentRecord, ctx);
+    }
+  }
+
+  private static class InterpretedCondition implements OCompiledCondition {
+    private final OBooleanExpression condition;
+
+    InterpretedCondition(OBooleanExpression condition) {
+      this.condition = condition;
+    }
+
+    @Override
+    public boolean evaluate(OResult currentRecord, OCommandContext ctx) {
+      return condition.evaluate(currentRecord, ctx);
+    }
+  }
+
+  private static class CompiledProjection implements OCompiledProjection {
+    private final String[]        aliases;
+    private final CompiledValue[] values;
+
+    CompiledProjection(String[] aliases, CompiledValue[] values) {
+      this.aliases = aliases;
+      this.values = values;
+    }
+
+    @Override
+    public OResult calculateSingle(OCommandContext ctx, OResult currentRecord) {
+      // same logic as OProjection.calculateSingle(), without '*'
+      OResultInternal result = new OResultInternal();
+      for (int i = 0; i < aliases.length; i++) {
+        result.setProperty(aliases[i], values[i].execute(currentRecord, ctx));
+      }
+      for (String key : currentRecord.getMetadataKeys()) {
+        if (!result.getMetadataKeys().contains(key)) {
+          result.setMetadata(key, currentRecord.getMetadata(key));
+        }
+      }
+      return result;
+    }
+  }
+}
@@ -91,6 +91,7 @@ public class OFunctionCall extends SimpleNode {
   }
 
   private Object execute(Object targetObjects, OCommandContext ctx, String name) {
+    OQueryResultCache.trackFunction(name);
     List<Object> paramValues = new ArrayList<Object>();
 
     Object record = null;
@@ -474,7 +475,7 @@ public class OFunctionCall extends SimpleNode {
     return false;//TODO
   }
 
-  private boolean isGraphFunction() {
+  boolean isGraphFunction() {
     String string = name.getStringValue();
     if (string.equalsIgnoreCase("out")) {
       return true;
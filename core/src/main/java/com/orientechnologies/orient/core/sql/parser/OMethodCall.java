@@ -60,6 +60,14 @@ public class OMethodCall extends SimpleNode {
     builder.append(")");
   }
 
+  public OIdentifier getMethodName() {
+    return methodName;
+  }
+
+  public List<OExpression> getParams() {
+    return params;
+  }
+
   public boolean isBidirectional() {
     return bidirectionalMethods.contains(methodName.getStringValue().toLowerCase(Locale.ENGLISH));
   }
@@ -264,7 +272,7 @@ public class OMethodCall extends SimpleNode {
     return false;//TODO
   }
 
-  private boolean isGraphFunction() {
+  boolean isGraphFunction() {
     if (calculatedIsGraph != null) {
       return calculatedIsGraph;
     }
@@ -12,6 +12,13 @@ public class ONamedParameter extends OInputParameter {
   protected int    paramNumber;
   protected String paramName;
 
+  /**
+   * true if the parameter replaces a literal of the original statement (see {@link OStatementNormalizer})
+   */
+  protected boolean literal;
+  protected Object  literalValue;
+  protected String  literalImage;
+
   public ONamedParameter(int id) {
     super(id);
   }
@@ -29,10 +36,17 @@ public class ONamedParameter extends OInputParameter {
 
   @Override
   public String toString() {
+    if (literal) {
+      return literalImage;
+    }
     return ":" + paramName;
   }
 
   public void toString(Map<Object, Object> params, StringBuilder builder) {
+    if (literal) {
+      builder.append(literalImage);
+      return;
+    }
     Object finalValue = bindFromInputParams(params);
     if (finalValue == this) {
       builder.append(":" + paramName);
@@ -48,6 +62,9 @@ public class ONamedParameter extends OInputParameter {
   }
 
   public Object getValue(Map<Object, Object> params) {
+    if (literal) {
+      return literalValue;
+    }
     Object result = null;
     if (params != null) {
       String key = paramName;
@@ -61,6 +78,9 @@ public class ONamedParameter extends OInputParameter {
   }
 
   public Object bindFromInputParams(Map<Object, Object> params) {
+    if (literal) {
+      return toParsedTree(literalValue);
+    }
     if (params != null) {
       String key = paramName;
       if (params.containsKey(key)) {
@@ -76,9 +96,26 @@ public class ONamedParameter extends OInputParameter {
     ONamedParameter result = new ONamedParameter(-1);
     result.paramName = paramName;
     result.paramNumber = paramNumber;
+    if (literal) {
+      result.bindLiteral(literalValue, literalImage);
+    } else {
+      OStatementNormalizer.bindLiteral(result);
+    }
     return result;
   }
 
+  /**
+   * binds the parameter to a literal value, that will be used regardless of the input parameters of the execution
+   *
+   * @param value the literal value
+   * @param image the literal, as it appears in the original statement
+   */
+  void bindLiteral(Object value, String image) {
+    this.literal = true;
+    this.literalValue = value;
+    this.literalImage = image;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o)
@@ -92,6 +129,10 @@ public class ONamedParameter extends OInputParameter {
       return false;
     if (paramName != null ? !paramName.equals(that.paramName) : that.paramName != null)
       return false;
+    if (literal != that.literal)
+      return false;
+    if (literalValue != null ? !literalValue.equals(that.literalValue) : that.literalValue != null)
+      return false;
 
     return true;
   }
@@ -100,6 +141,7 @@ public class ONamedParameter extends OInputParameter {
   public int hashCode() {
     int result = paramNumber;
     result = 31 * result + (paramName != null ? paramName.hashCode() : 0);
+    result = 31 * result + (literalValue != null ? literalValue.hashCode() : 0);
     return result;
   }
 
@@ -107,12 +149,19 @@ public class ONamedParameter extends OInputParameter {
     OResultInternal result = (OResultInternal) super.serialize();
     result.setProperty("paramNumber", paramNumber);
     result.setProperty("paramName", paramName);
+    if (literal) {
+      result.setProperty("literalValue", literalValue);
+      result.setProperty("literalImage", literalImage);
+    }
     return result;
   }
 
   public void deserialize(OResult fromResult) {
     paramNumber = fromResult.getProperty("paramNumber");
     paramName = fromResult.getProperty("paramName");
+    if (fromResult.getProperty("literalImage") != null) {
+      bindLiteral(fromResult.getProperty("literalValue"), fromResult.getProperty("literalImage"));
+    }
   }
 }
 /* JavaCC - OriginalChecksum=8a00a9cf51a15dd75202f6372257fc1c (do not edit this line) */
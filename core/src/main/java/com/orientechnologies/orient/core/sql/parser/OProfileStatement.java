@@ -5,11 +5,16 @@ package com.orientechnologies.orient.core.sql.parser;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.sql.executor.OExecutionPlan;
+import com.orientechnologies.orient.core.sql.executor.OInsertExecutionPlan;
 import com.orientechnologies.orient.core.sql.executor.OInternalExecutionPlan;
 import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import com.orientechnologies.orient.core.sql.executor.OSelectExecutionPlan;
 import com.orientechnologies.orient.core.sql.executor.OUpdateExecutionPlan;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -28,7 +33,7 @@ public class OProfileStatement extends OStatement {
 
   @Override
   public void toString(Map<Object, Object> params, StringBuilder builder) {
-    builder.append("EXPLAIN ");
+    builder.append("PROFILE ");
     statement.toString(params, builder);
   }
 
@@ -46,28 +51,7 @@ public class OProfileStatement extends OStatement {
     }
     ctx.setInputParameters(params);
 
-    OExecutionPlan executionPlan;
-    if (usePlanCache) {
-      executionPlan = statement.createExecutionPlan(ctx, false);
-    } else {
-      executionPlan = statement.createExecutionPlanNoCache(ctx, false);
-    }
-
-    if(executionPlan instanceof OUpdateExecutionPlan){
-      ((OUpdateExecutionPlan) executionPlan).executeInternal();
-    }
-
-    OLocalResultSet rs = new OLocalResultSet((OInternalExecutionPlan) executionPlan);
-
-    while (rs.hasNext()) {
-      rs.next();
-    }
-
-    OExplainResultSet result = new OExplainResultSet(
-        rs.getExecutionPlan().orElseThrow(() -> new OCommandExecutionException("Cannot profile command: " + statement)));
-    rs.close();
-    return result;
-
+    return profile(db, ctx, usePlanCache);
   }
 
   @Override
@@ -79,23 +63,53 @@ public class OProfileStatement extends OStatement {
     ctx.setDatabase(db);
     ctx.setInputParameters(args);
 
-    OExecutionPlan executionPlan;
-    if (usePlanCache) {
-      executionPlan = statement.createExecutionPlan(ctx, false);
-    } else {
-      executionPlan = statement.createExecutionPlanNoCache(ctx, false);
-    }
-
-    OLocalResultSet rs = new OLocalResultSet((OInternalExecutionPlan) executionPlan);
+    return profile(db, ctx, usePlanCache);
+  }
 
-    while (rs.hasNext()) {
-      rs.next();
+  private OResultSet profile(ODatabase db, OCommandContext ctx, boolean usePlanCache) {
+    OStorage storage = db instanceof ODatabaseDocumentInternal ? ((ODatabaseDocumentInternal) db).getStorage() : null;
+    OAbstractPaginatedStorage paginatedStorage =
+        storage != null && storage.getUnderlying() instanceof OAbstractPaginatedStorage ?
+            (OAbstractPaginatedStorage) storage.getUnderlying() :
+            null;
+    boolean gatherStorageStatistic = paginatedStorage != null && paginatedStorage.getSessionPerformanceStatistic() == null;
+    if (gatherStorageStatistic) {
+      paginatedStorage.startGatheringPerformanceStatisticForCurrentThread();
+    }
+    try {
+      OExecutionPlan executionPlan;
+      if (usePlanCache) {
+        executionPlan = statement.createExecutionPlan(ctx, true);
+      } else {
+        executionPlan = statement.createExecutionPlanNoCache(ctx, true);
+      }
+
+      if (executionPlan instanceof OSelectExecutionPlan) {
+        ((OSelectExecutionPlan) executionPlan)
+            .enableStatistics(paginatedStorage == null ? null : paginatedStorage.getSessionPerformanceStatistic());
+      }
+
+      if (executionPlan instanceof OUpdateExecutionPlan) {
+        ((OUpdateExecutionPlan) executionPlan).executeInternal();
+      } else if (executionPlan instanceof OInsertExecutionPlan) {
+        ((OInsertExecutionPlan) executionPlan).executeInternal();
+      }
+
+      OLocalResultSet rs = new OLocalResultSet((OInternalExecutionPlan) executionPlan);
+
+      while (rs.hasNext()) {
+        rs.next();
+      }
+
+      OExplainResultSet result = new OExplainResultSet(
+          rs.getExecutionPlan().orElseThrow(() -> new OCommandExecutionException("Cannot profile command: " + statement)), true);
+      rs.close();
+      return result;
+    } finally {
+      if (gatherStorageStatistic) {
+        paginatedStorage.completeGatheringPerformanceStatisticForCurrentThread();
+      }
     }
-
-    OExplainResultSet result = new OExplainResultSet(
-        rs.getExecutionPlan().orElseThrow(() -> new OCommandExecutionException("Cannot profile command: " + statement)));
-    rs.close();
-    return result;
   }
 
   @Override
@@ -0,0 +1,503 @@
+package com.orientechnologies.orient.core.sql.parser;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.config.OStorageConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.OMetadataUpdateListener;
+import com.orientechnologies.orient.core.db.OSharedContext;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OIndexManagerAbstract;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OSchemaShared;
+import com.orientechnologies.orient.core.metadata.security.OSecurityUser;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.sql.executor.OExecutionPlan;
+import com.orientechnologies.orient.core.sql.executor.OInternalResultSet;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultInternal;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * An LRU cache for the results of idempotent SQL queries executed with the new SQL executor. It stores itself in the shared
+ * context of the database.
+ * <p>
+ * Entries are keyed by statement, input parameters and current user. While a query is executed the cache tracks the clusters
+ * the query reads (clusters that are scanned, clusters of the indexes that are used and clusters of the records that are loaded,
+ * also by nested queries), an entry is then invalidated as soon as a transaction that writes on one of those clusters is
+ * committed. Schema, index and function changes invalidate the whole cache.
+ * <p>
+ * The result of a query is not cached if the query calls a function that is not deterministic or that has side effects (eg.
+ * <code>sysdate()</code>, <code>uuid()</code>, <code>sequence()</code>, database functions and graph algorithms), or if it does
+ * not read any cluster, so that nothing would ever invalidate it.
+ * <p>
+ * Only small results (see {@link OGlobalConfiguration#QUERY_RESULT_CACHE_MAX_ROWS}) made of projections are cached: results that
+ * contain records are always executed against the database. Queries executed inside an active transaction bypass the cache.
+ * <p>
+ * The cache is disabled by default, see {@link OGlobalConfiguration#QUERY_RESULT_CACHE_SIZE}.
+ */
+public class OQueryResultCache implements OMetadataUpdateListener {
+
+  private static final ThreadLocal<ReadSet> CURRENT_READ_SET = new ThreadLocal<>();
+
+  /**
+   * the functions that always return the same result on the same records, without side effects. Names are lower case
+   */
+  private static final Set<String> DETERMINISTIC_FUNCTIONS = new HashSet<>(
+      Arrays.asList("abs", "avg", "bothe", "bothv", "both", "coalesce", "concat", "count", "decimal", "decode", "difference",
+          "distance", "distinct", "encode", "first", "format", "if", "ifnull", "in", "ine", "inv", "intersect", "last", "list",
+          "map", "max", "median", "min", "mode", "out", "oute", "outv", "percentile", "set", "stddev", "strcmpci", "sum",
+          "symmetricdifference", "traversededge", "traversedelement", "traversedvertex", "unionall", "variance"));
+
+  private final Map<Key, Entry> map;
+
+  // every invalidation increases the stamp; the last invalidation stamp of each cluster is kept, so that queries that were
+  // running while a cluster was invalidated can detect it and avoid caching stale results
+  private       long               stamp                  = 0;
+  private       long               lastGlobalInvalidation = 0;
+  private final Map<Integer, Long> clusterInvalidations   = new HashMap<>();
+
+  public OQueryResultCache() {
+    map = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+      protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+        return super.size() > OGlobalConfiguration.QUERY_RESULT_CACHE_SIZE.getValueAsInteger();
+      }
+    };
+  }
+
+  public static boolean isEnabled(ODatabaseDocumentInternal db) {
+    if (OGlobalConfiguration.QUERY_RESULT_CACHE_SIZE.getValueAsInteger() <= 0) {
+      return false;
+    }
+    OSharedContext sharedContext = db.getSharedContext();
+    return sharedContext != null && sharedContext.getQueryResultCache() != null && !db.getTransaction().isActive();
+  }
+
+  /**
+   * Returns the result of a query, taking it from the cache if present, or executing it and caching the result otherwise.
+   *
+   * @param statement the SQL statement
+   * @param params    the input parameters
+   * @param db        the current database
+   * @param executor  executes the query
+   *
+   * @return the query result
+   */
+  public static OResultSet execute(String statement, Map<Object, Object> params, ODatabaseDocumentInternal db,
+      Supplier<OResultSet> executor) {
+    OQueryResultCache resource = db.getSharedContext().getQueryResultCache();
+    Key key = createKey(statement, params, db);
+    if (key == null) {
+      return executor.get();
+    }
+    OResultSet cached = resource.getInternal(key);
+    if (cached != null) {
+      return cached;
+    }
+    return resource.executeAndCache(key, executor);
+  }
+
+  /**
+   * Invalidates all the cached results that depend on at least one of the clusters
+   *
+   * @param db         the current database
+   * @param clusterIds the clusters that were modified
+   */
+  public static void invalidate(ODatabaseDocumentInternal db, Collection<Integer> clusterIds) {
+    OSharedContext sharedContext = db.getSharedContext();
+    if (sharedContext == null || sharedContext.getQueryResultCache() == null || clusterIds.isEmpty()) {
+      return;
+    }
+    sharedContext.getQueryResultCache().invalidateClusters(clusterIds);
+  }
+
+  /**
+   * Notifies the cache that the query running in the current thread reads a cluster
+   */
+  public static void trackCluster(int clusterId) {
+    ReadSet readSet = CURRENT_READ_SET.get();
+    if (readSet != null) {
+      readSet.clusters.add(clusterId);
+    }
+  }
+
+  /**
+   * Notifies the cache that the query running in the current thread reads a class and its subclasses
+   */
+  public static void trackClass(OClass clazz) {
+    ReadSet readSet = CURRENT_READ_SET.get();
+    if (readSet != null && clazz != null) {
+      for (int clusterId : clazz.getPolymorphicClusterIds()) {
+        readSet.clusters.add(clusterId);
+      }
+    }
+  }
+
+  /**
+   * Notifies the cache that the query running in the current thread reads some clusters, by name
+   */
+  public static void trackClusters(Collection<String> clusterNames, ODatabaseDocumentInternal db) {
+    ReadSet readSet = CURRENT_READ_SET.get();
+    if (readSet != null && clusterNames != null) {
+      for (String clusterName : clusterNames) {
+        readSet.clusters.add(db.getClusterIdByName(clusterName));
+      }
+    }
+  }
+
+  /**
+   * Notifies the cache that the query running in the current thread calls a function. The result of the query is not cached if
+   * the function is not deterministic or has side effects
+   */
+  public static void trackFunction(String name) {
+    ReadSet readSet = CURRENT_READ_SET.get();
+    if (readSet != null && !isDeterministicFunction(name)) {
+      readSet.complete = false;
+    }
+  }
+
+  /**
+   * @return true if the function always returns the same result on the same records, without side effects
+   */
+  public static boolean isDeterministicFunction(String name) {
+    return name != null && DETERMINISTIC_FUNCTIONS.contains(name.toLowerCase(Locale.ENGLISH));
+  }
+
+  /**
+   * Notifies the cache that the query running in the current thread loaded a record
+   */
+  public static void trackRecord(OIdentifiable record) {
+    ReadSet readSet = CURRENT_READ_SET.get();
+    if (readSet != null && record != null) {
+      readSet.clusters.add(record.getIdentity().getClusterId());
+    }
+  }
+
+  private OResultSet executeAndCache(Key key, Supplier<OResultSet> executor) {
+    int maxRows = OGlobalConfiguration.QUERY_RESULT_CACHE_MAX_ROWS.getValueAsInteger();
+    ReadSet parentReadSet = CURRENT_READ_SET.get();
+    ReadSet readSet = new ReadSet(currentStamp());
+    CURRENT_READ_SET.set(readSet);
+    List<OResult> rows = new ArrayList<>();
+    OResultSet resultSet = null;
+    boolean cacheable = true;
+    try {
+      resultSet = executor.get();
+      while (cacheable && resultSet.hasNext()) {
+        OResult row = resultSet.next();
+        rows.add(row);
+        cacheable = rows.size() <= maxRows && isCacheable(row);
+      }
+    } finally {
+      CURRENT_READ_SET.set(parentReadSet);
+      if (parentReadSet != null) {
+        parentReadSet.clusters.addAll(readSet.clusters);
+        // the rest of the result is read outside of the tracking, so the enclosing query cannot be cached
+        parentReadSet.complete &= cacheable && readSet.complete;
+      }
+    }
+
+    if (!cacheable) {
+      // give back what was already fetched, then go on streaming from the original result set
+      return new PrefetchedResultSet(rows, resultSet);
+    }
+    resultSet.close();
+    // a result that does not depend on any cluster would never be invalidated
+    if (readSet.complete && !readSet.clusters.isEmpty()) {
+      List<OResult> copy = new ArrayList<>(rows.size());
+      for (OResult row : rows) {
+        copy.add(copyResult(row));
+      }
+      putInternal(key, new Entry(copy, readSet.clusters), readSet.startStamp);
+    }
+
+    OInternalResultSet result = new OInternalResultSet();
+    rows.forEach(result::add);
+    return result;
+  }
+
+  private OResultSet getInternal(Key key) {
+    Entry entry;
+    synchronized (this) {
+      entry = map.get(key);
+    }
+    if (entry == null) {
+      return null;
+    }
+    ReadSet readSet = CURRENT_READ_SET.get();
+    if (readSet != null) {
+      readSet.clusters.addAll(entry.clusters);
+    }
+    OInternalResultSet result = new OInternalResultSet();
+    for (OResult row : entry.rows) {
+      result.add(copyResult(row));
+    }
+    return result;
+  }
+
+  private synchronized void putInternal(Key key, Entry entry, long startStamp) {
+    if (lastGlobalInvalidation > startStamp) {
+      return;
+    }
+    for (Integer clusterId : entry.clusters) {
+      Long invalidation = clusterInvalidations.get(clusterId);
+      if (invalidation != null && invalidation > startStamp) {
+        // the cluster was changed while the query was running, the result could be stale
+        return;
+      }
+    }
+    map.put(key, entry);
+  }
+
+  private synchronized long currentStamp() {
+    return stamp;
+  }
+
+  public synchronized void invalidateClusters(Collection<Integer> clusterIds) {
+    stamp++;
+    for (Integer clusterId : clusterIds) {
+      clusterInvalidations.put(clusterId, stamp);
+    }
+    map.values().removeIf(entry -> !Collections.disjoint(entry.clusters, clusterIds));
+  }
+
+  public synchronized void invalidate() {
+    stamp++;
+    lastGlobalInvalidation = stamp;
+    clusterInvalidations.clear();
+    map.clear();
+  }
+
+  public synchronized int size() {
+    return map.size();
+  }
+
+  private static Key createKey(String statement, Map<Object, Object> params, ODatabaseDocumentInternal db) {
+    if (statement == null) {
+      return null;
+    }
+    Map<Object, Object> paramsCopy = new HashMap<>();
+    if (params != null) {
+      for (Map.Entry<Object, Object> param : params.entrySet()) {
+        if (!isCacheableValue(param.getValue()) || param.getValue() instanceof byte[]) {
+          // byte[] equality is not based on the content, so queries with binary parameters cannot be looked up
+          return null;
+        }
+        paramsCopy.put(param.getKey(), copyValue(param.getValue()));
+      }
+    }
+    OSecurityUser user = db.getUser();
+    return new Key(statement, paramsCopy, user == null ? null : user.getName());
+  }
+
+  private static boolean isCacheable(OResult row) {
+    if (row.isElement()) {
+      return false;
+    }
+    for (String name : row.getPropertyNames()) {
+      if (!isCacheableValue(row.getProperty(name))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isCacheableValue(Object value) {
+    if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean
+        || value instanceof Character || value instanceof Date || value instanceof byte[]) {
+      return true;
+    }
+    if (value instanceof ORID) {
+      return ((ORID) value).isPersistent();
+    }
+    if (value instanceof ORecord) {
+      return false;
+    }
+    if (value instanceof OResult) {
+      return isCacheable((OResult) value);
+    }
+    if (value instanceof Collection) {
+      for (Object item : (Collection) value) {
+        if (!isCacheableValue(item)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (value instanceof Map) {
+      for (Map.Entry<?, ?> item : ((Map<?, ?>) value).entrySet()) {
+        if (!(item.getKey() instanceof String) || !isCacheableValue(item.getValue())) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private static OResult copyResult(OResult row) {
+    OResultInternal result = new OResultInternal();
+    for (String name : row.getPropertyNames()) {
+      result.setProperty(name, copyValue(row.getProperty(name)));
+    }
+    for (String name : row.getMetadataKeys()) {
+      Object value = row.getMetadata(name);
+      if (isCacheableValue(value)) {
+        result.setMetadata(name, copyValue(value));
+      }
+    }
+    return result;
+  }
+
+  private static Object copyValue(Object value) {
+    if (value instanceof Date) {
+      return new Date(((Date) value).getTime());
+    }
+    if (value instanceof byte[]) {
+      return ((byte[]) value).clone();
+    }
+    if (value instanceof ORID) {
+      return ((ORID) value).copy();
+    }
+    if (value instanceof OResult) {
+      return copyResult((OResult) value);
+    }
+    if (value instanceof Set) {
+      Set<Object> result = new LinkedHashSet<>();
+      for (Object item : (Set) value) {
+        result.add(copyValue(item));
+      }
+      return result;
+    }
+    if (value instanceof Collection) {
+      List<Object> result = new ArrayList<>();
+      for (Object item : (Collection) value) {
+        result.add(copyValue(item));
+      }
+      return result;
+    }
+    if (value instanceof Map) {
+      Map<Object, Object> result = new LinkedHashMap<>();
+      for (Map.Entry<?, ?> item : ((Map<?, ?>) value).entrySet()) {
+        result.put(item.getKey(), copyValue(item.getValue()));
+      }
+      return result;
+    }
+    return value;
+  }
+
+  @Override
+  public void onSchemaUpdate(String database, OSchemaShared schema) {
+    invalidate();
+  }
+
+  @Override
+  public void onIndexManagerUpdate(String database, OIndexManagerAbstract indexManager) {
+    invalidate();
+  }
+
+  @Override
+  public void onFunctionLibraryUpdate(String database) {
+    invalidate();
+  }
+
+  @Override
+  public void onSequenceLibraryUpdate(String database) {
+    invalidate();
+  }
+
+  @Override
+  public void onStorageConfigurationUpdate(String database, OStorageConfiguration update) {
+    invalidate();
+  }
+
+  private static class Key {
+    private final String              statement;
+    private final Map<Object, Object> params;
+    private final String              user;
+
+    Key(String statement, Map<Object, Object> params, String user) {
+      this.statement = statement;
+      this.params = params;
+      this.user = user;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return statement.equals(key.statement) && Objects.equals(user, key.user) && params.equals(key.params);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(statement, params, user);
+    }
+  }
+
+  private static class Entry {
+    private final List<OResult> rows;
+    private final Set<Integer>  clusters;
+
+    Entry(List<OResult> rows, Set<Integer> clusters) {
+      this.rows = rows;
+      this.clusters = clusters;
+    }
+  }
+
+  private static class ReadSet {
+    private final long         startStamp;
+    private final Set<Integer> clusters = new HashSet<>();
+    private       boolean      complete = true;
+
+    ReadSet(long startStamp) {
+      this.startStamp = startStamp;
+    }
+  }
+
+  private static class PrefetchedResultSet implements OResultSet {
+    private final Iterator<OResult> prefetched;
+    private final OResultSet        rest;
+
+    PrefetchedResultSet(List<OResult> prefetched, OResultSet rest) {
+      this.prefetched = prefetched.iterator();
+      this.rest = rest;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return prefetched.hasNext() || rest.hasNext();
+    }
+
+    @Override
+    public OResult next() {
+      if (prefetched.hasNext()) {
+        return prefetched.next();
+      }
+      return rest.next();
+    }
+
+    @Override
+    public void close() {
+      rest.close();
+    }
+
+    @Override
+    public Optional<OExecutionPlan> getExecutionPlan() {
+      return rest.getExecutionPlan();
+    }
+
+    @Override
+    public Map<String, Long> getQueryStats() {
+      return rest.getQueryStats();
+    }
+  }
+}
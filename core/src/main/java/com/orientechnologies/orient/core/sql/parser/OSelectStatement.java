@@ -9,12 +9,12 @@ package com.orientechnologies.orient.core.sql.parser;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.sql.OCommandSQLParsingException;
 import com.orientechnologies.orient.core.sql.executor.*;
 import com.orientechnologies.orient.core.storage.OStorage;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 public class OSelectStatement extends OStatement {
 
@@ -262,6 +262,11 @@ public class OSelectStatement extends OStatement {
       }
     }
     ctx.setInputParameters(params);
+    if (usePlanCache && parentCtx == null && db instanceof ODatabaseDocumentInternal && OQueryResultCache
+        .isEnabled((ODatabaseDocumentInternal) db)) {
+      return OQueryResultCache.execute(originalStatement, params, (ODatabaseDocumentInternal) db,
+          () -> new OLocalResultSet(createExecutionPlan(ctx, false)));
+    }
     OInternalExecutionPlan executionPlan;
     if(usePlanCache) {
       executionPlan = createExecutionPlan(ctx, false);
@@ -281,6 +286,11 @@ public class OSelectStatement extends OStatement {
     }
     ctx.setDatabase(db);
     ctx.setInputParameters(params);
+    if (usePlanCache && parentCtx == null && db instanceof ODatabaseDocumentInternal && OQueryResultCache
+        .isEnabled((ODatabaseDocumentInternal) db)) {
+      return OQueryResultCache.execute(originalStatement, params, (ODatabaseDocumentInternal) db,
+          () -> new OLocalResultSet(createExecutionPlan(ctx, false)));
+    }
     OInternalExecutionPlan executionPlan;
     if(usePlanCache) {
       executionPlan = createExecutionPlan(ctx, false);
@@ -418,6 +428,44 @@ public class OSelectStatement extends OStatement {
     return false;
   }
 
+  /**
+   * Returns true if the statement, evaluated on a record of the target, reads only that record: it does not traverse links or
+   * nested fields, call graph functions or methods, or call functions that are not deterministic.
+   * <p>
+   * The syntax tree built by the parser is walked, so the statement has to be the one returned by the parser: its copies do not
+   * keep the tree.
+   */
+  public boolean readsOnlyTargetRecords() {
+    if (jjtGetNumChildren() == 0) {
+      throw new IllegalStateException("The syntax tree of the statement is not available: " + this);
+    }
+    return readsOnlyTargetRecords(this);
+  }
+
+  private static boolean readsOnlyTargetRecords(SimpleNode node) {
+    if (node instanceof OFunctionCall) {
+      OFunctionCall call = (OFunctionCall) node;
+      if (call.isGraphFunction() || !OQueryResultCache.isDeterministicFunction(call.getName().getStringValue())) {
+        return false;
+      }
+    }
+    if (node instanceof OMethodCall && ((OMethodCall) node).isGraphFunction()) {
+      return false;
+    }
+    if (node instanceof OModifier) {
+      OModifier modifier = (OModifier) node;
+      if (modifier.suffix != null || modifier.condition != null || modifier.rightBinaryCondition != null) {
+        return false;
+      }
+    }
+    for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+      if (!readsOnlyTargetRecords((SimpleNode) node.jjtGetChild(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public OUnwind getUnwind() {
     return unwind;
   }
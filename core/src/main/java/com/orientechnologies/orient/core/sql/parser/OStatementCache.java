@@ -1,26 +1,32 @@
 package com.orientechnologies.orient.core.sql.parser;
 
-import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
-import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.sql.OCommandSQLParsingException;
 
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
+import java.io.StringReader;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * This class is an LRU cache for already parsed SQL statement executors. It stores itself in the storage as a resource. It also
  * acts an an entry point for the SQL parser.
+ * <p>
+ * Statements that are not in the cache are normalized replacing their literals with input parameters (see {@link
+ * OStatementNormalizer}) and the parsed normalized statement is kept as a template, so statements that differ only for literal
+ * values are parsed once and then copied from the template.
  *
  * @author Luigi Dell'Aquila (l.dellaquila-(at)-orientdb.com)
  */
 public class OStatementCache {
 
+  /**
+   * marks the normalized statements that cannot be used as templates
+   */
+  private static final OStatement INVALID_TEMPLATE = new OStatement(-1);
+
   Map<String, OStatement> map;
+  Map<String, OStatement> templates;
   int                     mapSize;
 
   /**
@@ -33,6 +39,11 @@ public class OStatementCache {
         return super.size() > mapSize;
       }
     };
+    templates = new LinkedHashMap<String, OStatement>(size) {
+      protected boolean removeEldestEntry(final Map.Entry<String, OStatement> eldest) {
+        return super.size() > mapSize;
+      }
+    };
   }
 
   /**
@@ -87,7 +98,7 @@ public class OStatementCache {
       }
     }
     if (result == null) {
-      result = parse(statement);
+      result = parseNormalized(statement);
       synchronized (map) {
         map.put(statement, result);
       }
@@ -95,6 +106,72 @@ public class OStatementCache {
     return result;
   }
 
+  /**
+   * parses an SQL statement, copying it from the template of the normalized statement if it exists
+   *
+   * @param statement the SQL statement
+   *
+   * @return the corresponding executor
+   */
+  protected OStatement parseNormalized(String statement) {
+    if (!OGlobalConfiguration.STATEMENT_CACHE_NORMALIZE_LITERALS.getValueAsBoolean()) {
+      return parse(statement);
+    }
+    OStatementNormalizer.NormalizedStatement normalized = OStatementNormalizer.normalize(statement);
+    if (normalized == null) {
+      return parse(statement);
+    }
+
+    OStatement template;
+    synchronized (templates) {
+      //LRU
+      template = templates.remove(normalized.getKey());
+      if (template != null) {
+        templates.put(normalized.getKey(), template);
+      }
+    }
+
+    if (template == null) {
+      OStatement result = parse(statement);
+      template = createTemplate(result, normalized);
+      synchronized (templates) {
+        templates.put(normalized.getKey(), template);
+      }
+      return result;
+    }
+
+    if (template != INVALID_TEMPLATE) {
+      OStatement result = OStatementNormalizer.bind(template, normalized);
+      if (result != null) {
+        result.originalStatement = statement;
+        return result;
+      }
+    }
+    return parse(statement);
+  }
+
+  /**
+   * parses the normalized statement and checks that, bound to the literals, it is the same as the statement it was created from
+   *
+   * @param parsed     the statement, parsed from the original text
+   * @param normalized the normalized statement
+   *
+   * @return the template, or {@link #INVALID_TEMPLATE} if the normalized statement cannot replace the original one (eg. the
+   * grammar does not allow an input parameter in place of a literal)
+   */
+  private static OStatement createTemplate(OStatement parsed, OStatementNormalizer.NormalizedStatement normalized) {
+    try {
+      OStatement template = parse(normalized.getKey());
+      OStatement bound = OStatementNormalizer.bind(template, normalized);
+      if (bound != null && bound.toString().equals(parsed.toString())) {
+        return template;
+      }
+    } catch (OCommandSQLParsingException e) {
+      // the literals cannot be replaced by parameters in this statement
+    }
+    return INVALID_TEMPLATE;
+  }
+
   /**
    * parses an SQL statement and returns the corresponding executor
    *
@@ -106,33 +183,7 @@ public class OStatementCache {
    */
   protected static OStatement parse(String statement) throws OCommandSQLParsingException {
     try {
-      ODatabaseDocumentInternal db = ODatabaseRecordThreadLocal.instance().getIfDefined();
-      InputStream is;
-
-      if (db == null) {
-        is = new ByteArrayInputStream(statement.getBytes());
-      } else {
-        try {
-          is = new ByteArrayInputStream(statement.getBytes(db.getStorage().getConfiguration().getCharset()));
-        } catch (UnsupportedEncodingException e2) {
-          OLogManager.instance()
-              .warn(null, "Unsupported charset for database " + db + " " + db.getStorage().getConfiguration().getCharset());
-          is = new ByteArrayInputStream(statement.getBytes());
-        }
-      }
-
-      OrientSql osql = null;
-      if (db == null) {
-        osql = new OrientSql(is);
-      } else {
-        try {
-          osql = new OrientSql(is, db.getStorage().getConfiguration().getCharset());
-        } catch (UnsupportedEncodingException e2) {
-          OLogManager.instance()
-              .warn(null, "Unsupported charset for database " + db + " " + db.getStorage().getConfiguration().getCharset());
-          osql = new OrientSql(is);
-        }
-      }
+      OrientSql osql = new OrientSql(createCharStream(statement));
       OStatement result = osql.parse();
       result.originalStatement = statement;
 
@@ -145,6 +196,17 @@ public class OStatementCache {
     return null;
   }
 
+  /**
+   * The statement is read directly from the String when possible, the {@link JavaCharStream} is needed only to decode unicode
+   * escapes
+   */
+  private static CharStream createCharStream(String statement) {
+    if (OStringCharStream.canRead(statement)) {
+      return new OStringCharStream(statement);
+    }
+    return new JavaCharStream(new StringReader(statement));
+  }
+
   protected static void throwParsingException(ParseException e, String statement) {
     throw new OCommandSQLParsingException(e, statement);
   }
@@ -161,5 +223,8 @@ public class OStatementCache {
     synchronized (map) {
       map.clear();
     }
+    synchronized (templates) {
+      templates.clear();
+    }
   }
 }
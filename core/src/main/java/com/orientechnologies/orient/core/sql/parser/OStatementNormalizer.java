@@ -0,0 +1,349 @@
+package com.orientechnologies.orient.core.sql.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the integer and string literals of an SQL statement with named input parameters (eg. <code>select from Foo where name
+ * = 'John' and age &gt; 18</code> becomes <code>select from Foo where name = :__lit0 and age &gt; :__lit1</code>), so that
+ * statements that differ only for literal values share the same parsed template in the {@link OStatementCache}.
+ * <p>
+ * The statement is scanned once, without creating tokens. Only SELECT, INSERT, UPDATE and DELETE statements without input
+ * parameters are normalized; literals that do not have an equivalent input parameter (eg. floating point numbers, RIDs, strings
+ * with escape sequences and JSON keys) are left in the statement.
+ * <p>
+ * A template is bound to the literals of a statement copying it (see {@link #bind(OStatement, NormalizedStatement)}): the copies
+ * of the template parameters take the literal values and print their original text, so the bound statement behaves as if it was
+ * parsed from the original statement.
+ */
+public class OStatementNormalizer {
+
+  public static final String LITERAL_PREFIX = "__lit";
+
+  private static final String[] NORMALIZED_STATEMENTS = { "select", "insert", "update", "delete" };
+
+  /**
+   * a unary minus before a number is part of the literal only after these characters
+   */
+  private static final String UNARY_MINUS_PREDECESSORS = "=<>!(,[+-*/%:";
+
+  private static final int MAX_INTEGER_DIGITS = 18;
+
+  private static final ThreadLocal<Binding> binding = new ThreadLocal<>();
+
+  /**
+   * The result of the normalization of a statement
+   */
+  public static class NormalizedStatement {
+    private final String   key;
+    private final Object[] values;
+    private final String[] images;
+
+    NormalizedStatement(String key, Object[] values, String[] images) {
+      this.key = key;
+      this.values = values;
+      this.images = images;
+    }
+
+    /**
+     * @return the statement, with the literals replaced by named input parameters
+     */
+    public String getKey() {
+      return key;
+    }
+
+    /**
+     * @return the literal values, in order of appearance (Integer, Long or String)
+     */
+    public Object[] getValues() {
+      return values;
+    }
+
+    /**
+     * @return the literals as they appear in the original statement
+     */
+    public String[] getImages() {
+      return images;
+    }
+  }
+
+  private static class Binding {
+    private final NormalizedStatement statement;
+    private       int                 bound = 0;
+
+    private Binding(NormalizedStatement statement) {
+      this.statement = statement;
+    }
+  }
+
+  /**
+   * @param statement an SQL statement
+   *
+   * @return the normalized statement, or null if the statement cannot be normalized or contains no literals
+   */
+  public static NormalizedStatement normalize(String statement) {
+    int length = statement.length();
+    int i = 0;
+    while (i < length && Character.isWhitespace(statement.charAt(i))) {
+      i++;
+    }
+    if (!isNormalizedStatement(statement, i)) {
+      return null;
+    }
+
+    StringBuilder key = new StringBuilder(length + 16);
+    key.append(statement, 0, i);
+    List<Object> values = new ArrayList<>();
+    List<String> images = new ArrayList<>();
+
+    while (i < length) {
+      char c = statement.charAt(i);
+      if (c == '\'' || c == '"') {
+        int end = skipQuoted(statement, i, c);
+        if (end < 0) {
+          return null;
+        }
+        if (isPlainString(statement, i + 1, end - 1) && !isFollowedBy(statement, end, ':')) {
+          appendPlaceholder(key, values.size());
+          values.add(statement.substring(i + 1, end - 1));
+          images.add(statement.substring(i, end));
+        } else {
+          key.append(statement, i, end);
+        }
+        i = end;
+      } else if (c == '`') {
+        int end = skipQuoted(statement, i, c);
+        if (end < 0) {
+          return null;
+        }
+        key.append(statement, i, end);
+        i = end;
+      } else if (c == '/' && i + 1 < length && statement.charAt(i + 1) == '*') {
+        int end = statement.indexOf("*/", i + 2);
+        if (end < 0) {
+          return null;
+        }
+        key.append(statement, i, end + 2);
+        i = end + 2;
+      } else if (c == '?') {
+        return null;
+      } else if (c == ':') {
+        if (i + 1 < length && isIdentifierStart(statement.charAt(i + 1)) && (i == 0 || !isIdentifierPart(
+            statement.charAt(i - 1)))) {
+          // named input parameter
+          return null;
+        }
+        key.append(c);
+        i++;
+        i = copyWhile(statement, i, key, "0123456789-");
+      } else if (c == '#') {
+        key.append(c);
+        i = copyWhile(statement, i + 1, key, "0123456789-:");
+      } else if (isIdentifierStart(c)) {
+        int end = i + 1;
+        while (end < length && isIdentifierPart(statement.charAt(end))) {
+          end++;
+        }
+        key.append(statement, i, end);
+        i = end;
+      } else if (c >= '0' && c <= '9') {
+        int end = i + 1;
+        while (end < length && isDigit(statement.charAt(end))) {
+          end++;
+        }
+        boolean prevIsDot = i > 0 && statement.charAt(i - 1) == '.';
+        boolean complex = end < length && (isIdentifierPart(statement.charAt(end)) || statement.charAt(end) == '.'
+            || statement.charAt(end) == ':');
+        boolean octal = c == '0' && end - i > 1;
+        if (prevIsDot || complex || octal || end - i > MAX_INTEGER_DIGITS) {
+          // floating point, hex, octal, long suffix, ranges, RIDs: left as they are
+          end = skipNumber(statement, end);
+          key.append(statement, i, end);
+        } else {
+          String digits = statement.substring(i, end);
+          String image = digits;
+          int minus = unaryMinus(key);
+          if (minus >= 0) {
+            image = "-" + digits;
+            key.setLength(minus);
+          }
+          long value = Long.parseLong(image);
+          appendPlaceholder(key, values.size());
+          values.add(value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? (Object) (int) value : (Object) value);
+          images.add(image);
+        }
+        i = end;
+      } else {
+        key.append(c);
+        i++;
+      }
+    }
+
+    if (values.isEmpty()) {
+      return null;
+    }
+    return new NormalizedStatement(key.toString(), values.toArray(), images.toArray(new String[images.size()]));
+  }
+
+  /**
+   * Binds a template to the literals of a normalized statement
+   *
+   * @param template  the statement parsed from {@link NormalizedStatement#getKey()}
+   * @param statement the normalized statement
+   *
+   * @return a copy of the template, with the literal values bound to the parameters, or null if the template cannot be bound
+   */
+  public static OStatement bind(OStatement template, NormalizedStatement statement) {
+    Binding current = new Binding(statement);
+    binding.set(current);
+    OStatement result;
+    try {
+      result = template.copy();
+    } catch (UnsupportedOperationException e) {
+      return null;
+    } finally {
+      binding.remove();
+    }
+    if (current.bound != statement.values.length) {
+      // a parameter was lost or duplicated in the copy
+      return null;
+    }
+    return result;
+  }
+
+  /**
+   * invoked by {@link ONamedParameter#copy()}, binds the parameter to a literal if a template is being bound in this thread
+   */
+  static void bindLiteral(ONamedParameter param) {
+    Binding current = binding.get();
+    if (current == null || param.paramName == null || !param.paramName.startsWith(LITERAL_PREFIX)) {
+      return;
+    }
+    int index;
+    try {
+      index = Integer.parseInt(param.paramName.substring(LITERAL_PREFIX.length()));
+    } catch (NumberFormatException e) {
+      return;
+    }
+    if (index < 0 || index >= current.statement.values.length) {
+      return;
+    }
+    param.bindLiteral(current.statement.values[index], current.statement.images[index]);
+    current.bound++;
+  }
+
+  private static boolean isNormalizedStatement(String statement, int begin) {
+    int end = begin;
+    while (end < statement.length() && isIdentifierPart(statement.charAt(end))) {
+      end++;
+    }
+    for (String keyword : NORMALIZED_STATEMENTS) {
+      if (end - begin == keyword.length() && statement.regionMatches(true, begin, keyword, 0, keyword.length())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void appendPlaceholder(StringBuilder key, int index) {
+    key.append(':').append(LITERAL_PREFIX).append(index);
+  }
+
+  /**
+   * @return the index after the closing quote, -1 if the quoted text is not terminated
+   */
+  private static int skipQuoted(String statement, int begin, char quote) {
+    for (int i = begin + 1; i < statement.length(); i++) {
+      char c = statement.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == quote) {
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return true if the string content has no escape sequences and no line breaks, so it can be used as is as a parameter value
+   */
+  private static boolean isPlainString(String statement, int begin, int end) {
+    for (int i = begin; i < end; i++) {
+      char c = statement.charAt(i);
+      if (c == '\\' || c == '\n' || c == '\r') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isFollowedBy(String statement, int begin, char c) {
+    for (int i = begin; i < statement.length(); i++) {
+      char next = statement.charAt(i);
+      if (!Character.isWhitespace(next)) {
+        return next == c;
+      }
+    }
+    return false;
+  }
+
+  private static int copyWhile(String statement, int begin, StringBuilder key, String chars) {
+    int i = begin;
+    while (i < statement.length() && chars.indexOf(statement.charAt(i)) >= 0) {
+      key.append(statement.charAt(i));
+      i++;
+    }
+    return i;
+  }
+
+  private static int skipNumber(String statement, int begin) {
+    int i = begin;
+    while (i < statement.length()) {
+      char c = statement.charAt(i);
+      if (isIdentifierPart(c) || c == '.') {
+        i++;
+      } else if ((c == '+' || c == '-') && (statement.charAt(i - 1) == 'e' || statement.charAt(i - 1) == 'E'
+          || statement.charAt(i - 1) == 'p' || statement.charAt(i - 1) == 'P')) {
+        // exponent sign
+        i++;
+      } else {
+        break;
+      }
+    }
+    return i;
+  }
+
+  /**
+   * @return the position of the unary minus that precedes the number at the end of the key, -1 if there is no unary minus
+   */
+  private static int unaryMinus(StringBuilder key) {
+    int i = key.length() - 1;
+    while (i >= 0 && Character.isWhitespace(key.charAt(i))) {
+      i--;
+    }
+    if (i < 0 || key.charAt(i) != '-') {
+      return -1;
+    }
+    int minus = i;
+    i--;
+    while (i >= 0 && Character.isWhitespace(key.charAt(i))) {
+      i--;
+    }
+    if (i >= 0 && UNARY_MINUS_PREDECESSORS.indexOf(key.charAt(i)) >= 0) {
+      return minus;
+    }
+    return -1;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isIdentifierStart(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$' || c == '@';
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return isIdentifierStart(c) || isDigit(c);
+  }
+}
@@ -0,0 +1,164 @@
+package com.orientechnologies.orient.core.sql.parser;
+
+import java.io.IOException;
+
+/**
+ * A {@link CharStream} that reads the SQL statement directly from the String, without encoding it to bytes and decoding it back
+ * through a reader, and without the per-character line/column buffers of {@link JavaCharStream}. Line and column numbers are
+ * calculated only when the token manager asks for them, scanning the statement forward from the last calculated position.
+ * <p>
+ * Java unicode escapes (a backslash followed by <code>u</code> and four hex digits) are not processed, so statements that
+ * contain them have to be parsed with a {@link JavaCharStream} (see {@link #canRead(String)}).
+ */
+public class OStringCharStream implements CharStream {
+
+  private static final int TAB_SIZE = 8;
+
+  /**
+   * thrown at the end of the statement, the token manager only needs to catch it
+   */
+  private static final IOException END_OF_STREAM = new IOException("End of statement") {
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  };
+
+  private final String input;
+  private final int    length;
+  private       int    position   = 0;
+  private       int    tokenBegin = 0;
+
+  // line and column of the character at lineColumnIndex
+  private int     lineColumnIndex = -1;
+  private int     line            = 1;
+  private int     column          = 0;
+  private boolean prevCharIsCR    = false;
+  private boolean prevCharIsLF    = false;
+
+  public OStringCharStream(String input) {
+    this.input = input;
+    this.length = input.length();
+  }
+
+  /**
+   * @return true if the statement can be parsed from an {@link OStringCharStream}, ie. it contains no unicode escapes
+   */
+  public static boolean canRead(String statement) {
+    return statement.indexOf("\\u") < 0;
+  }
+
+  @Override
+  public char readChar() throws IOException {
+    if (position >= length) {
+      throw END_OF_STREAM;
+    }
+    return input.charAt(position++);
+  }
+
+  @Override
+  public char BeginToken() throws IOException {
+    tokenBegin = position;
+    return readChar();
+  }
+
+  @Override
+  public void backup(int amount) {
+    position -= amount;
+  }
+
+  @Override
+  public String GetImage() {
+    return input.substring(tokenBegin, position);
+  }
+
+  @Override
+  public char[] GetSuffix(int len) {
+    char[] result = new char[len];
+    input.getChars(position - len, position, result, 0);
+    return result;
+  }
+
+  @Override
+  public void Done() {
+  }
+
+  @Override
+  @Deprecated
+  public int getColumn() {
+    return getEndColumn();
+  }
+
+  @Override
+  @Deprecated
+  public int getLine() {
+    return getEndLine();
+  }
+
+  @Override
+  public int getEndColumn() {
+    moveLineColumnTo(position - 1);
+    return column;
+  }
+
+  @Override
+  public int getEndLine() {
+    moveLineColumnTo(position - 1);
+    return line;
+  }
+
+  @Override
+  public int getBeginColumn() {
+    moveLineColumnTo(tokenBegin);
+    return column;
+  }
+
+  @Override
+  public int getBeginLine() {
+    moveLineColumnTo(tokenBegin);
+    return line;
+  }
+
+  /**
+   * Calculates line and column of a character, with the same rules of {@link JavaCharStream}. The token manager asks for
+   * positions in increasing order, so the scan starts from the last calculated position
+   */
+  private void moveLineColumnTo(int index) {
+    if (index < lineColumnIndex) {
+      lineColumnIndex = -1;
+      line = 1;
+      column = 0;
+      prevCharIsCR = false;
+      prevCharIsLF = false;
+    }
+    while (lineColumnIndex < index && lineColumnIndex < length - 1) {
+      char c = input.charAt(++lineColumnIndex);
+      column++;
+      if (prevCharIsLF) {
+        prevCharIsLF = false;
+        line += (column = 1);
+      } else if (prevCharIsCR) {
+        prevCharIsCR = false;
+        if (c == '\n') {
+          prevCharIsLF = true;
+        } else {
+          line += (column = 1);
+        }
+      }
+      switch (c) {
+      case '\r':
+        prevCharIsCR = true;
+        break;
+      case '\n':
+        prevCharIsLF = true;
+        break;
+      case '\t':
+        column--;
+        column += (TAB_SIZE - (column % TAB_SIZE));
+        break;
+      default:
+        break;
+      }
+    }
+  }
+}
@@ -14,6 +14,7 @@ import com.orientechnologies.orient.core.sql.executor.OInternalResultSet;
 import com.orientechnologies.orient.core.sql.executor.OResultInternal;
 import com.orientechnologies.orient.core.sql.executor.OResultSet;
 
+import java.util.Collections;
 import java.util.Map;
 
 public class OTruncateClusterStatement extends ODDLStatement {
@@ -60,6 +61,7 @@ public class OTruncateClusterStatement extends ODDLStatement {
         final ORecord record = iteratorCluster.next();
         record.delete();
       }
+      OQueryResultCache.invalidate(database, Collections.singleton(clusterId));
     } else {
       String name = database.getClusterNameById(clusterId);
       clazz.truncateCluster(name);
@@ -84,6 +84,22 @@ public interface OCluster {
 
   ORawBuffer readRecord(long clusterPosition, boolean prefetchRecords) throws IOException;
 
+  /**
+   * Reads several records of the cluster. Implementations can share the page accesses of records that are stored close to each
+   * other, so the positions should be sorted.
+   *
+   * @param clusterPositions the positions of the records
+   *
+   * @return the records, in the same order of the positions, null for the records that do not exist
+   */
+  default ORawBuffer[] readRecords(long[] clusterPositions) throws IOException {
+    final ORawBuffer[] result = new ORawBuffer[clusterPositions.length];
+    for (int i = 0; i < clusterPositions.length; i++) {
+      result[i] = readRecord(clusterPositions[i], false);
+    }
+    return result;
+  }
+
   ORawBuffer readRecordIfVersionIsNotLatest(long clusterPosition, int recordVersion) throws IOException, ORecordNotFoundException;
 
   boolean exists();
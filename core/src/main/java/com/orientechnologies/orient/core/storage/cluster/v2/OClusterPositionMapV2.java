@@ -270,6 +270,45 @@ public final class OClusterPositionMapV2 extends OClusterPositionMap {
     }
   }
 
+  /**
+   * Looks up several positions at once. Consecutive positions that belong to the same bucket are read loading the bucket page only
+   * once, so the positions should be sorted.
+   *
+   * @return the entries, in the same order of the positions, null for the positions that are not mapped
+   */
+  public OClusterPositionMapBucket.PositionEntry[] get(final long[] clusterPositions, final OAtomicOperation atomicOperation)
+      throws IOException {
+    final OClusterPositionMapBucket.PositionEntry[] result = new OClusterPositionMapBucket.PositionEntry[clusterPositions.length];
+    final long lastPage = getLastPage(atomicOperation);
+
+    OCacheEntry cacheEntry = null;
+    try {
+      for (int i = 0; i < clusterPositions.length; i++) {
+        final long pageIndex = clusterPositions[i] / OClusterPositionMapBucket.MAX_ENTRIES + 1;
+        if (clusterPositions[i] < 0 || pageIndex > lastPage) {
+          continue;
+        }
+
+        if (cacheEntry == null || cacheEntry.getPageIndex() != pageIndex) {
+          if (cacheEntry != null) {
+            releasePageFromRead(atomicOperation, cacheEntry);
+            cacheEntry = null;
+          }
+          cacheEntry = loadPageForRead(atomicOperation, fileId, pageIndex, false);
+        }
+
+        final OClusterPositionMapBucket bucket = new OClusterPositionMapBucket(cacheEntry);
+        result[i] = bucket.get((int) (clusterPositions[i] % OClusterPositionMapBucket.MAX_ENTRIES));
+      }
+    } finally {
+      if (cacheEntry != null) {
+        releasePageFromRead(atomicOperation, cacheEntry);
+      }
+    }
+
+    return result;
+  }
+
   public void remove(final long clusterPosition, final OAtomicOperation atomicOperation) throws IOException {
     final long pageIndex = clusterPosition / OClusterPositionMapBucket.MAX_ENTRIES + 1;
     final int index = (int) (clusterPosition % OClusterPositionMapBucket.MAX_ENTRIES);
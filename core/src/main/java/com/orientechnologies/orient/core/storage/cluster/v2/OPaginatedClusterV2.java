@@ -536,6 +536,10 @@ public final class OPaginatedClusterV2 extends OPaginatedCluster {
       return null;
     }
 
+    return toRawBuffer(fullContent, recordVersion);
+  }
+
+  private static ORawBuffer toRawBuffer(final byte[] fullContent, final int recordVersion) {
     int fullContentPosition = 0;
 
     final byte recordType = fullContent[fullContentPosition];
@@ -549,6 +553,80 @@ public final class OPaginatedClusterV2 extends OPaginatedCluster {
     return new ORawBuffer(recordContent, recordVersion, recordType);
   }
 
+  /**
+   * Reads the records keeping the current data page pinned while the next records are stored in the same page, and looking up
+   * the positions in the position map in a single pass (see {@link OClusterPositionMapV2#get(long[], OAtomicOperation)}).
+   * Records that span more pages are read as in {@link #readRecord(long, boolean)}.
+   */
+  @Override
+  public ORawBuffer[] readRecords(final long[] clusterPositions) throws IOException {
+    final ORawBuffer[] result = new ORawBuffer[clusterPositions.length];
+
+    atomicOperationsManager.acquireReadLock(this);
+    try {
+      acquireSharedLock();
+      try {
+        final OAtomicOperation atomicOperation = OAtomicOperationsManager.getCurrentOperation();
+        final OClusterPositionMapBucket.PositionEntry[] positionEntries = clusterPositionMap.get(clusterPositions, atomicOperation);
+
+        OCacheEntry cacheEntry = null;
+        try {
+          for (int i = 0; i < clusterPositions.length; i++) {
+            final OClusterPositionMapBucket.PositionEntry positionEntry = positionEntries[i];
+            if (positionEntry == null) {
+              continue;
+            }
+
+            final long pageIndex = positionEntry.getPageIndex();
+            final int recordPosition = positionEntry.getRecordPosition();
+            if (cacheEntry == null || cacheEntry.getPageIndex() != pageIndex) {
+              if (cacheEntry != null) {
+                releasePageFromRead(atomicOperation, cacheEntry);
+                cacheEntry = null;
+              }
+              cacheEntry = loadPageForRead(atomicOperation, fileId, pageIndex, false);
+            }
+
+            final OClusterPage localPage = new OClusterPage(cacheEntry);
+            if (localPage.isDeleted(recordPosition)) {
+              continue;
+            }
+
+            final int recordVersion = localPage.getRecordVersion(recordPosition);
+            final byte[] content = localPage.getRecordBinaryValue(recordPosition, 0, localPage.getRecordSize(recordPosition));
+            if (content[content.length - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE] == 0) {
+              continue;
+            }
+
+            final long nextPagePointer = OLongSerializer.INSTANCE
+                .deserializeNative(content, content.length - OLongSerializer.LONG_SIZE);
+            if (nextPagePointer < 0) {
+              result[i] = toRawBuffer(content, recordVersion);
+            } else {
+              releasePageFromRead(atomicOperation, cacheEntry);
+              cacheEntry = null;
+
+              final byte[] fullContent = readFullEntry(clusterPositions[i], pageIndex, recordPosition, atomicOperation, 1);
+              if (fullContent != null) {
+                result[i] = toRawBuffer(fullContent, recordVersion);
+              }
+            }
+          }
+        } finally {
+          if (cacheEntry != null) {
+            releasePageFromRead(atomicOperation, cacheEntry);
+          }
+        }
+      } finally {
+        releaseSharedLock();
+      }
+    } finally {
+      atomicOperationsManager.releaseReadLock(this);
+    }
+
+    return result;
+  }
+
   @Override
   public ORawBuffer readRecordIfVersionIsNotLatest(final long clusterPosition, final int recordVersion)
       throws IOException, ORecordNotFoundException {
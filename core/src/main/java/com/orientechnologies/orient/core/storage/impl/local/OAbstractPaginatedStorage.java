@@ -79,6 +79,8 @@ import com.orientechnologies.orient.core.serialization.serializer.binary.impl.in
 import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OSimpleKeySerializer;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
 import com.orientechnologies.orient.core.sharding.auto.OAutoShardingIndexEngine;
+import com.orientechnologies.orient.core.sql.functions.graph.OGraphProjectionManager;
+import com.orientechnologies.orient.core.sql.parser.OQueryResultCache;
 import com.orientechnologies.orient.core.storage.*;
 import com.orientechnologies.orient.core.storage.cache.OCacheEntry;
 import com.orientechnologies.orient.core.storage.cache.OPageDataVerificationError;
@@ -1511,6 +1513,58 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
     }
   }
 
+  /**
+   * Reads several records at once. The RIDs are sorted by cluster and position and the records of each cluster are read in a single
+   * pass (see {@link OCluster#readRecords(long[])}), so records stored close to each other share the accesses to the cluster
+   * position map and to the data pages.
+   * <p>
+   * RIDs that cannot be read in batch (non persistent RIDs and RIDs of clusters that do not exist) are not contained in the result
+   * and have to be read one by one with {@link #readRecord(ORecordId, String, boolean, boolean, ORecordCallback)}, that reports
+   * the error. If the storage uses record level read locks nothing is read in batch.
+   *
+   * @param rids the RIDs of the records to read
+   *
+   * @return the records read, with null values for the records that do not exist
+   */
+  public Map<ORID, ORawBuffer> readRecords(final Collection<? extends ORID> rids) {
+    try {
+      checkOpenness();
+
+      final Map<ORID, ORawBuffer> result = new HashMap<>();
+      if (readLock) {
+        return result;
+      }
+
+      final List<ORID> sortedRids = new ArrayList<>(rids.size());
+      for (final ORID rid : rids) {
+        if (rid.isPersistent()) {
+          sortedRids.add(rid);
+        }
+      }
+      sortedRids.sort(Comparator.comparingInt(ORID::getClusterId).thenComparingLong(ORID::getClusterPosition));
+
+      if (transaction.get() != null) {
+        doReadRecords(sortedRids, result);
+        return result;
+      }
+
+      stateLock.acquireReadLock();
+      try {
+        checkOpenness();
+        doReadRecords(sortedRids, result);
+        return result;
+      } finally {
+        stateLock.releaseReadLock();
+      }
+    } catch (final RuntimeException ee) {
+      throw logAndPrepareForRethrow(ee);
+    } catch (final Error ee) {
+      throw logAndPrepareForRethrow(ee);
+    } catch (final Throwable t) {
+      throw logAndPrepareForRethrow(t);
+    }
+  }
+
   @Override
   public final OStorageOperationResult<ORawBuffer> readRecordIfVersionIsNotLatest(final ORecordId rid, final String fetchPlan,
       final boolean ignoreCache, final int recordVersion) throws ORecordNotFoundException {
@@ -1645,6 +1699,16 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
     }
   }
 
+  /**
+   * @return Performance statistic of the current thread if gathering of performance characteristics was started for the current
+   * thread or for the whole storage, <code>null</code> otherwise.
+   *
+   * @see #startGatheringPerformanceStatisticForCurrentThread()
+   */
+  public OSessionStoragePerformanceStatistic getSessionPerformanceStatistic() {
+    return performanceStatisticManager.getSessionPerformanceStatistic();
+  }
+
   @Override
   public final <V> V callInLock(final Callable<V> iCallable, final boolean iExclusiveLock) {
     try {
@@ -2053,6 +2117,9 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
         }
       }
 
+      OQueryResultCache.invalidate(database, clustersToLock.keySet());
+      OGraphProjectionManager.invalidate(database, clustersToLock.keySet());
+
       if (OLogManager.instance().isDebugEnabled()) {
         OLogManager.instance()
             .debug(this, "%d Committed transaction %d on database '%s' (result=%s)", Thread.currentThread().getId(),
@@ -4871,6 +4938,40 @@ public abstract class OAbstractPaginatedStorage extends OStorageAbstract
     }
   }
 
+  private void doReadRecords(final List<ORID> sortedRids, final Map<ORID, ORawBuffer> result) {
+    int begin = 0;
+    while (begin < sortedRids.size()) {
+      final int clusterId = sortedRids.get(begin).getClusterId();
+      int end = begin + 1;
+      while (end < sortedRids.size() && sortedRids.get(end).getClusterId() == clusterId) {
+        end++;
+      }
+
+      final OCluster cluster = clusterId < clusters.size() ? clusters.get(clusterId) : null;
+      if (cluster != null) {
+        final long[] clusterPositions = new long[end - begin];
+        for (int i = 0; i < clusterPositions.length; i++) {
+          clusterPositions[i] = sortedRids.get(begin + i).getClusterPosition();
+        }
+
+        final ORawBuffer[] buffers;
+        try {
+          buffers = cluster.readRecords(clusterPositions);
+        } catch (final IOException e) {
+          throw OException
+              .wrapException(new OStorageException("Error during read of records of cluster '" + cluster.getName() + "'"), e);
+        }
+
+        for (int i = 0; i < buffers.length; i++) {
+          result.put(sortedRids.get(begin + i), buffers[i]);
+        }
+        recordRead.addAndGet(buffers.length);
+      }
+
+      begin = end;
+    }
+  }
+
   private static ORawBuffer doReadRecordIfNotLatest(final OCluster cluster, final ORecordId rid, final int recordVersion)
       throws ORecordNotFoundException {
     try {
@@ -30,7 +30,6 @@ import com.orientechnologies.orient.core.storage.ridbag.sbtree.OBonsaiCollection
 import com.orientechnologies.orient.core.storage.ridbag.sbtree.OSBTreeCollectionManager;
 
 import java.io.IOException;
-import java.util.Map;
 import java.util.NavigableMap;
 
 /**
@@ -60,16 +59,7 @@ public class ORidBagUpdateSerializationOperation implements ORecordSerialization
 
     OSBTreeBonsai<OIdentifiable, Integer> tree = loadTree();
     try {
-      for (Map.Entry<OIdentifiable, Change> entry : changedValues.entrySet()) {
-        Integer storedCounter = tree.get(entry.getKey());
-
-        storedCounter = entry.getValue().applyTo(storedCounter);
-        if (storedCounter <= 0) {
-          tree.remove(entry.getKey());
-        } else {
-          tree.put(entry.getKey(), storedCounter);
-        }
-      }
+      tree.applyChanges(changedValues);
     } catch (IOException e) {
       throw OException.wrapException(new ODatabaseException("Error during ridbag update"), e);
     } finally {
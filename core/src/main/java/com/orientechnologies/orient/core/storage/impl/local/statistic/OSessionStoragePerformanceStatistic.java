@@ -298,6 +298,19 @@ public class OSessionStoragePerformanceStatistic {
     return performanceCountersHolder.getAmountOfPagesReadFromFile();
   }
 
+  /**
+   * @return Amount of records read from all the clusters in total.
+   */
+  public long getAmountOfReadRecords() {
+    long result = 0;
+    for (PerformanceCountersHolder holder : countersByComponent.values()) {
+      if (holder instanceof OClusterCountersHolder) {
+        result += ((OClusterCountersHolder) holder).readRecords;
+      }
+    }
+    return result;
+  }
+
   /**
    * Amount of pages are read from file for component name of which is passed as method argument. If null value is passed then value
    * for whole system will be returned. If data for component with passed in name does not exist then <code>-1</code> will be
@@ -30,6 +30,8 @@ import com.orientechnologies.orient.core.storage.ridbag.sbtree.OBonsaiCollection
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
 
 /**
  * The tree that have similar structure to {@link OSBTreeV1} and designed to store small entries. <br>
@@ -92,6 +94,20 @@ public interface OSBTreeBonsai<K, V> extends OTreeInternal<K, V> {
 
   V remove(K key) throws IOException;
 
+  /**
+   * Puts a batch of entries in a single pass over the tree: the keys that fall in the same bucket are written together.
+   *
+   * @param entries entries to put, sorted by key
+   */
+  void putAll(SortedMap<K, V> entries) throws IOException;
+
+  /**
+   * Removes a batch of keys in a single pass over the tree: the keys that fall in the same bucket are removed together.
+   *
+   * @param keys keys to remove, sorted
+   */
+  void removeAll(SortedSet<K> keys) throws IOException;
+
   Collection<V> getValuesMinor(K key, boolean inclusive, int maxValuesToFetch);
 
   void loadEntriesMinor(K key, boolean inclusive, RangeResultListener<K, V> listener);
@@ -119,6 +135,16 @@ public interface OSBTreeBonsai<K, V> extends OTreeInternal<K, V> {
    */
   int getRealBagSize(Map<K, Change> changes);
 
+  /**
+   * Hardcoded method for Bag to avoid creation of extra layer.
+   * <p/>
+   * Applies the changes of a bag to the counters stored in the tree in a single pass, removing the keys whose counter drops to zero.
+   *
+   * @param changes
+   *          Bag changes, sorted by key
+   */
+  void applyChanges(SortedMap<K, Change> changes) throws IOException;
+
   OBinarySerializer<K> getKeySerializer();
 
   OBinarySerializer<V> getValueSerializer();
@@ -47,6 +47,7 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.*;
 import java.util.concurrent.locks.Lock;
+import java.util.function.BiFunction;
 
 /**
  * Tree-based dictionary algorithm. Similar to {@link OSBTreeV1} but uses subpages of disk cache that is more efficient for small
@@ -626,6 +627,157 @@ public class OSBTreeBonsaiLocal<K, V> extends ODurableComponent implements OSBTr
     }
   }
 
+  @Override
+  public void putAll(final SortedMap<K, V> entries) throws IOException {
+    merge(entries.entrySet().iterator(), (value, oldValue) -> value);
+  }
+
+  @Override
+  public void removeAll(final SortedSet<K> keys) throws IOException {
+    final Iterator<K> iterator = keys.iterator();
+    merge(new Iterator<Map.Entry<K, V>>() {
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public Map.Entry<K, V> next() {
+        return new AbstractMap.SimpleImmutableEntry<>(iterator.next(), null);
+      }
+    }, (value, oldValue) -> null);
+  }
+
+  @Override
+  public void applyChanges(final SortedMap<K, Change> changes) throws IOException {
+    merge(changes.entrySet().iterator(), (change, oldValue) -> {
+      final int counter = change.applyTo((Integer) oldValue);
+      //noinspection unchecked
+      return counter > 0 ? (V) Integer.valueOf(counter) : null;
+    });
+  }
+
+  /**
+   * Merges a batch of entries into the tree in a single atomic operation. The leaf bucket of the last key is kept loaded, and the
+   * tree is searched again only for the keys that fall out of its range, so if the entries are sorted by key every leaf bucket is
+   * found and written once (unless it has to be split). Unsorted entries are still merged correctly.
+   *
+   * @param entries  the entries to merge
+   * @param function computes the new value of a key from the value of the entry and the current value of the key (null if the key
+   *                 is not in the tree); null removes the key
+   */
+  private <T> void merge(final Iterator<? extends Map.Entry<K, T>> entries, final BiFunction<T, V, V> function)
+      throws IOException {
+    if (!entries.hasNext()) {
+      return;
+    }
+
+    boolean rollback = false;
+    final OAtomicOperation atomicOperation = startAtomicOperation(true);
+    try {
+      final Lock lock = FILE_LOCK_MANAGER.acquireExclusiveLock(fileId);
+      try {
+        final LeafBounds<K> bounds = new LeafBounds<>();
+        long sizeDiff = 0;
+
+        BucketSearchResult bucketSearchResult = null;
+        OCacheEntry keyBucketCacheEntry = null;
+        OSBTreeBonsaiBucket<K, V> keyBucket = null;
+        try {
+          while (entries.hasNext()) {
+            final Map.Entry<K, T> entry = entries.next();
+            final K key = entry.getKey();
+
+            final int itemIndex;
+            if (keyBucketCacheEntry != null && isInBounds(key, bounds)) {
+              itemIndex = keyBucket.find(key);
+            } else {
+              if (keyBucketCacheEntry != null) {
+                releasePageFromWrite(atomicOperation, keyBucketCacheEntry);
+                keyBucketCacheEntry = null;
+              }
+
+              bucketSearchResult = findBucket(key, atomicOperation, bounds);
+              final OBonsaiBucketPointer bucketPointer = bucketSearchResult.getLastPathItem();
+
+              keyBucketCacheEntry = loadPageForWrite(atomicOperation, fileId, bucketPointer.getPageIndex(), false, true);
+              keyBucket = new OSBTreeBonsaiBucket<>(keyBucketCacheEntry, bucketPointer.getPageOffset(), keySerializer,
+                  valueSerializer, this);
+              itemIndex = bucketSearchResult.itemIndex;
+            }
+
+            final V oldValue = itemIndex >= 0 ? keyBucket.getEntry(itemIndex).value : null;
+            final V value = function.apply(entry.getValue(), oldValue);
+
+            if (value == null) {
+              if (itemIndex >= 0) {
+                keyBucket.remove(itemIndex);
+                sizeDiff--;
+              }
+            } else if (itemIndex >= 0) {
+              keyBucket.updateValue(itemIndex, value);
+            } else {
+              final int insertionIndex = -itemIndex - 1;
+              final OSBTreeBonsaiBucket.SBTreeEntry<K, V> treeEntry = new OSBTreeBonsaiBucket.SBTreeEntry<>(
+                  OBonsaiBucketPointer.NULL, OBonsaiBucketPointer.NULL, key, value);
+
+              if (!keyBucket.addEntry(insertionIndex, treeEntry, true)) {
+                // the split changes the bucket ranges, the bucket of the next key is searched again
+                releasePageFromWrite(atomicOperation, keyBucketCacheEntry);
+                keyBucketCacheEntry = null;
+
+                splitAndAddEntry(bucketSearchResult.path, insertionIndex, treeEntry, atomicOperation);
+              }
+              sizeDiff++;
+            }
+          }
+        } finally {
+          if (keyBucketCacheEntry != null) {
+            releasePageFromWrite(atomicOperation, keyBucketCacheEntry);
+          }
+        }
+
+        if (sizeDiff != 0) {
+          updateSize(sizeDiff, atomicOperation);
+        }
+      } finally {
+        lock.unlock();
+      }
+    } catch (final Exception e) {
+      rollback = true;
+      throw e;
+    } finally {
+      endAtomicOperation(rollback);
+    }
+  }
+
+  private boolean isInBounds(final K key, final LeafBounds<K> bounds) {
+    return (bounds.lowerKey == null || comparator.compare(key, bounds.lowerKey) >= 0) && (bounds.upperKey == null
+        || comparator.compare(key, bounds.upperKey) < 0);
+  }
+
+  private void splitAndAddEntry(List<OBonsaiBucketPointer> path, int insertionIndex,
+      final OSBTreeBonsaiBucket.SBTreeEntry<K, V> entry, final OAtomicOperation atomicOperation) throws IOException {
+    while (true) {
+      final BucketSearchResult bucketSearchResult = splitBucket(path, insertionIndex, entry.key, atomicOperation);
+      final OBonsaiBucketPointer bucketPointer = bucketSearchResult.getLastPathItem();
+
+      final OCacheEntry keyBucketCacheEntry = loadPageForWrite(atomicOperation, fileId, bucketPointer.getPageIndex(), false, true);
+      try {
+        final OSBTreeBonsaiBucket<K, V> keyBucket = new OSBTreeBonsaiBucket<>(keyBucketCacheEntry, bucketPointer.getPageOffset(),
+            keySerializer, valueSerializer, this);
+        if (keyBucket.addEntry(bucketSearchResult.itemIndex, entry, true)) {
+          return;
+        }
+      } finally {
+        releasePageFromWrite(atomicOperation, keyBucketCacheEntry);
+      }
+
+      path = bucketSearchResult.path;
+      insertionIndex = bucketSearchResult.itemIndex;
+    }
+  }
+
   @Override
   public Collection<V> getValuesMinor(final K key, final boolean inclusive, final int maxValuesToFetch) {
     final List<V> result = new ArrayList<>(64);
@@ -1202,9 +1354,22 @@ public class OSBTreeBonsaiLocal<K, V> extends ODurableComponent implements OSBTr
   }
 
   private BucketSearchResult findBucket(final K key, final OAtomicOperation atomicOperation) throws IOException {
+    return findBucket(key, atomicOperation, null);
+  }
+
+  /**
+   * @param bounds if not null, it is filled with the key range of the leaf bucket that is found
+   */
+  private BucketSearchResult findBucket(final K key, final OAtomicOperation atomicOperation, final LeafBounds<K> bounds)
+      throws IOException {
     OBonsaiBucketPointer bucketPointer = rootBucketPointer;
     final ArrayList<OBonsaiBucketPointer> path = new ArrayList<>(8);
 
+    if (bounds != null) {
+      bounds.lowerKey = null;
+      bounds.upperKey = null;
+    }
+
     while (true) {
       path.add(bucketPointer);
       final OCacheEntry bucketEntry = loadPageForRead(atomicOperation, fileId, bucketPointer.getPageIndex(), false);
@@ -1221,12 +1386,27 @@ public class OSBTreeBonsaiLocal<K, V> extends ODurableComponent implements OSBTr
 
         if (index >= 0) {
           entry = keyBucket.getEntry(index);
+          if (bounds != null) {
+            bounds.lowerKey = entry.key;
+            if (index + 1 < keyBucket.size()) {
+              bounds.upperKey = keyBucket.getKey(index + 1);
+            }
+          }
         } else {
           final int insertionIndex = -index - 1;
           if (insertionIndex >= keyBucket.size()) {
             entry = keyBucket.getEntry(insertionIndex - 1);
+            if (bounds != null) {
+              bounds.lowerKey = entry.key;
+            }
           } else {
             entry = keyBucket.getEntry(insertionIndex);
+            if (bounds != null) {
+              bounds.upperKey = entry.key;
+              if (insertionIndex > 0) {
+                bounds.lowerKey = keyBucket.getKey(insertionIndex - 1);
+              }
+            }
           }
         }
 
@@ -1467,6 +1647,15 @@ public class OSBTreeBonsaiLocal<K, V> extends ODurableComponent implements OSBTr
     }
   }
 
+  /**
+   * Key range covered by a leaf bucket, as found by the separation keys of the path from the root: lower key inclusive, upper key
+   * exclusive, null if unbounded.
+   */
+  private static final class LeafBounds<K> {
+    private K lowerKey;
+    private K upperKey;
+  }
+
   private static final class PagePathItemUnit {
     private final OBonsaiBucketPointer bucketPointer;
     private final int                  itemIndex;
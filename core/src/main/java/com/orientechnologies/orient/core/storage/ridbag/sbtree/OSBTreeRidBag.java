@@ -75,6 +75,11 @@ public class OSBTreeRidBag implements ORidBagDelegate {
    * Entries with not valid id.
    */
   private final IdentityHashMap<OIdentifiable, OModifiableInteger> newEntries        = new IdentityHashMap<>();
+  /**
+   * Persistent entries removed without looking them up in the tree: {@link #size} assumes that they were in the bag and is
+   * corrected, with a single load of the tree, the next time it is needed.
+   */
+  private final Set<OIdentifiable>                                 unverifiedRemovals = new HashSet<>();
   private       OBonsaiCollectionPointer                           collectionPointer;
   private       int                                                size;
 
@@ -89,6 +94,7 @@ public class OSBTreeRidBag implements ORidBagDelegate {
   @Override
   public void setSize(int size) {
     this.size = size;
+    unverifiedRemovals.clear();
   }
 
   private static class OIdentifiableIntegerEntry implements Entry<OIdentifiable, Integer> {
@@ -221,16 +227,10 @@ public class OSBTreeRidBag implements ORidBagDelegate {
           size--;
         }
       } else {
+        // the current value was returned by the iterator, so it is in the bag and the size decreases by one
         Change counter = changedValues.get(currentValue);
         if (counter != null) {
           counter.decrement();
-          if (size >= 0) {
-            if (counter.isUndefined()) {
-              size = -1;
-            } else {
-              size--;
-            }
-          }
         } else {
           if (nextChange != null) {
             changedValues.put(currentValue, new DiffChange(-1));
@@ -238,8 +238,9 @@ public class OSBTreeRidBag implements ORidBagDelegate {
           } else {
             changedValues.put(currentValue, new DiffChange(-1));
           }
-
-          size = -1;
+        }
+        if (size >= 0) {
+          size--;
         }
       }
 
@@ -538,7 +539,11 @@ public class OSBTreeRidBag implements ORidBagDelegate {
         changes.put(identifiable, new DiffChange(1));
       } else {
         if (counter.isUndefined()) {
-          counter = getAbsoluteValue(identifiable);
+          Integer oldValue = getTreeValue(identifiable);
+          if (unverifiedRemovals.remove(identifiable)) {
+            verifyRemoval(counter, oldValue);
+          }
+          counter = new AbsoluteChange(counter.applyTo(oldValue));
           changes.put(identifiable, counter);
         }
         counter.increment();
@@ -571,20 +576,30 @@ public class OSBTreeRidBag implements ORidBagDelegate {
         // Not persistent keys can only be in changes or newEntries
         if (identifiable.getIdentity().isPersistent()) {
           changes.put(identifiable, new DiffChange(-1));
-          size = -1;
+          if (size >= 0) {
+            // keep the size (the degree counter of edge fields) exact without looking up the key now, see verifyRemovals()
+            size--;
+            unverifiedRemovals.add(identifiable);
+          }
         } else
         // Return immediately to prevent firing of event
         {
           return;
         }
+      } else if (counter instanceof AbsoluteChange) {
+        if (counter.getValue() > 0) {
+          counter.decrement();
+          if (size >= 0) {
+            size--;
+          }
+        }
       } else {
         counter.decrement();
 
         if (size >= 0) {
+          size--;
           if (counter.isUndefined()) {
-            size = -1;
-          } else {
-            size--;
+            unverifiedRemovals.add(identifiable);
           }
         }
       }
@@ -593,6 +608,37 @@ public class OSBTreeRidBag implements ORidBagDelegate {
     removeEvent(identifiable);
   }
 
+  /**
+   * Corrects the size for the removals of entries that were not in the tree, looking them up with a single load of the tree
+   */
+  private void verifyRemovals() {
+    if (unverifiedRemovals.isEmpty()) {
+      return;
+    }
+    if (size >= 0) {
+      final OSBTreeBonsai<OIdentifiable, Integer> tree = loadTree();
+      try {
+        for (OIdentifiable identifiable : unverifiedRemovals) {
+          Change change = changes.get(identifiable);
+          if (change instanceof DiffChange) {
+            verifyRemoval(change, tree == null ? null : tree.get(identifiable));
+          }
+        }
+      } finally {
+        releaseTree();
+      }
+    }
+    unverifiedRemovals.clear();
+  }
+
+  /**
+   * The size was decreased for each removal, while the removals of an entry cannot bring its counter below zero
+   */
+  private void verifyRemoval(Change change, Integer treeValue) {
+    int oldValue = treeValue == null ? 0 : treeValue;
+    size += change.applyTo(oldValue) - (oldValue + change.getValue());
+  }
+
   @Override
   public boolean contains(OIdentifiable identifiable) {
     if (newEntries.containsKey(identifiable)) {
@@ -619,6 +665,7 @@ public class OSBTreeRidBag implements ORidBagDelegate {
   @Override
   public int size() {
     if (size >= 0) {
+      verifyRemovals();
       return size;
     } else {
       return updateSize();
@@ -752,6 +799,7 @@ public class OSBTreeRidBag implements ORidBagDelegate {
     offset += OIntegerSerializer.INT_SIZE;
 
     // Keep this section for binary compatibility with versions older then 1.7.5
+    verifyRemovals();
     OIntegerSerializer.INSTANCE.serializeLiteral(size, stream, offset);
     offset += OIntegerSerializer.INT_SIZE;
 
@@ -785,6 +833,7 @@ public class OSBTreeRidBag implements ORidBagDelegate {
 
   public void clearChanges() {
     changes.clear();
+    unverifiedRemovals.clear();
   }
 
   @Override
@@ -799,6 +848,7 @@ public class OSBTreeRidBag implements ORidBagDelegate {
     collectionPointer = null;
     changes.clear();
     newEntries.clear();
+    unverifiedRemovals.clear();
     size = 0;
   }
 
@@ -823,6 +873,7 @@ public class OSBTreeRidBag implements ORidBagDelegate {
     }
 
     this.size = -1;
+    unverifiedRemovals.clear();
 
     changes.putAll(ChangeSerializationHelper.INSTANCE.deserializeChanges(stream, offset));
 
@@ -868,23 +919,23 @@ public class OSBTreeRidBag implements ORidBagDelegate {
   }
 
   private AbsoluteChange getAbsoluteValue(OIdentifiable identifiable) {
-    final OSBTreeBonsai<OIdentifiable, Integer> tree = loadTree();
-    try {
-      Integer oldValue;
+    Integer oldValue = getTreeValue(identifiable);
+    if (oldValue == null) {
+      oldValue = 0;
+    }
 
-      if (tree == null) {
-        oldValue = 0;
-      } else {
-        oldValue = tree.get(identifiable);
-      }
+    final Change change = changes.get(identifiable);
 
-      if (oldValue == null) {
-        oldValue = 0;
-      }
-
-      final Change change = changes.get(identifiable);
+    return new AbsoluteChange(change == null ? oldValue : change.applyTo(oldValue));
+  }
 
-      return new AbsoluteChange(change == null ? oldValue : change.applyTo(oldValue));
+  /**
+   * @return the counter of the entry stored in the tree, without the changes, or null if the entry is not in the tree
+   */
+  private Integer getTreeValue(OIdentifiable identifiable) {
+    final OSBTreeBonsai<OIdentifiable, Integer> tree = loadTree();
+    try {
+      return tree == null ? null : tree.get(identifiable);
     } finally {
       releaseTree();
     }
@@ -919,6 +970,7 @@ public class OSBTreeRidBag implements ORidBagDelegate {
     }
 
     this.size = size;
+    unverifiedRemovals.clear();
     return size;
   }
 
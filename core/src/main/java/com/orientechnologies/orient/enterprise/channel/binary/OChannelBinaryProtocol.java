@@ -74,6 +74,7 @@ public class OChannelBinaryProtocol {
   public static final byte REQUEST_QUERY                             = 45;                 // since 3.0
   public static final byte REQUEST_CLOSE_QUERY                       = 46;                 // since 3.0
   public static final byte REQUEST_QUERY_NEXT_PAGE                   = 47;                 // since 3.0
+  public static final byte REQUEST_QUERY_NEXT_PAGES                  = 48;                 // since 3.1
 
   public static final byte REQUEST_TX_COMMIT   = 60;
   public static final byte REQUEST_TX_BEGIN    = 61;
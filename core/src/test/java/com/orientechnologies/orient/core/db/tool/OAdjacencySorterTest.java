@@ -0,0 +1,42 @@
+package com.orientechnologies.orient.core.db.tool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+public class OAdjacencySorterTest {
+
+  @Test
+  public void testMultiPassMerge() throws IOException {
+    File directory = new File(System.getProperty("java.io.tmpdir"));
+    int count = 1000;
+    Random random = new Random(42);
+    try (OAdjacencySorter sorter = new OAdjacencySorter(directory, 8)) {
+      long[] entries = new long[OAdjacencySorter.ENTRY_SIZE];
+      for (int i = 0; i < count; i++) {
+        entries[0] = random.nextInt(100);
+        entries[1] = random.nextInt(3);
+        entries[2] = i;
+        sorter.add(entries, 1);
+      }
+      Assert.assertTrue(sorter.getRuns() > OAdjacencySorter.MERGE_FAN_IN);
+
+      try (OAdjacencySorter.Cursor cursor = sorter.sort()) {
+        int read = 0;
+        long lastVertex = -1;
+        int lastField = -1;
+        while (cursor.next()) {
+          Assert.assertTrue(cursor.vertex() > lastVertex || (cursor.vertex() == lastVertex && cursor.field() >= lastField));
+          lastVertex = cursor.vertex();
+          lastField = cursor.field();
+          read++;
+        }
+        Assert.assertEquals(count, read);
+      }
+      Assert.assertTrue(sorter.getRuns() <= OAdjacencySorter.MERGE_FAN_IN);
+    }
+  }
+}
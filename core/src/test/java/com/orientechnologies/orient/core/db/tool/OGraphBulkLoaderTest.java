@@ -0,0 +1,181 @@
+package com.orientechnologies.orient.core.db.tool;
+
+import com.orientechnologies.orient.core.db.ODatabaseSession;
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.OEdge;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+public class OGraphBulkLoaderTest {
+
+  private OrientDB         orientDB;
+  private ODatabaseSession db;
+
+  @Before
+  public void setUp() {
+    orientDB = new OrientDB("embedded:", OrientDBConfig.defaultConfig());
+    orientDB.create("OGraphBulkLoaderTest", ODatabaseType.MEMORY);
+    db = orientDB.open("OGraphBulkLoaderTest", "admin", "admin");
+  }
+
+  @After
+  public void tearDown() {
+    db.close();
+    orientDB.drop("OGraphBulkLoaderTest");
+    orientDB.close();
+  }
+
+  @Test
+  public void testLoad() {
+    db.createVertexClass("Person").createProperty("name", OType.STRING).createIndex(OClass.INDEX_TYPE.UNIQUE);
+
+    OGraphBulkLoader loader = newLoader();
+    loader.begin();
+    Assert.assertNull(db.getMetadata().getSchema().getClass("Person").getClassIndex("Person.name"));
+
+    for (int i = 0; i < 100; i++) {
+      loader.createVertex("Person", (long) i, Collections.singletonMap("name", "p" + i));
+    }
+    for (int i = 0; i < 5; i++) {
+      loader.createVertex("City", "city" + i, null);
+    }
+    for (int i = 0; i < 100; i++) {
+      loader.createEdge("Knows", "Person", i, "Person", (i + 1) % 100, Collections.singletonMap("since", i));
+      loader.createEdge("LivesIn", "Person", (long) i, "City", "city" + (i % 5), null);
+    }
+    loader.end();
+
+    Assert.assertEquals(105, loader.getVertexCount());
+    Assert.assertEquals(200, loader.getEdgeCount());
+    Assert.assertEquals(100, db.countClass("Person"));
+    Assert.assertEquals(5, db.countClass("City"));
+    Assert.assertEquals(100, db.countClass("Knows"));
+    Assert.assertEquals(100, db.countClass("LivesIn"));
+
+    for (int i = 0; i < 100; i++) {
+      OVertex person = vertex("select from Person where uid = ?", (long) i);
+      Assert.assertEquals("p" + i, person.getProperty("name"));
+
+      Iterator<OEdge> knows = person.getEdges(ODirection.OUT, "Knows").iterator();
+      OEdge edge = knows.next();
+      Assert.assertFalse(knows.hasNext());
+      Assert.assertEquals(i, (int) edge.getProperty("since"));
+      Assert.assertEquals((long) ((i + 1) % 100), (long) edge.getTo().getProperty("uid"));
+
+      Iterator<OVertex> knownBy = person.getVertices(ODirection.IN, "Knows").iterator();
+      Assert.assertEquals((long) ((i + 99) % 100), (long) knownBy.next().getProperty("uid"));
+      Assert.assertFalse(knownBy.hasNext());
+
+      Iterator<OVertex> city = person.getVertices(ODirection.OUT, "LivesIn").iterator();
+      Assert.assertEquals("city" + (i % 5), city.next().getProperty("uid"));
+      Assert.assertFalse(city.hasNext());
+    }
+    for (int i = 0; i < 5; i++) {
+      OVertex city = vertex("select from City where uid = ?", "city" + i);
+      Set<Long> people = new HashSet<>();
+      for (OVertex person : city.getVertices(ODirection.IN, "LivesIn")) {
+        people.add(person.getProperty("uid"));
+      }
+      Assert.assertEquals(20, people.size());
+    }
+
+    Assert.assertEquals(100, db.getMetadata().getSchema().getClass("Person").getClassIndex("Person.name").getSize());
+  }
+
+  @Test
+  public void testOnlyVertices() {
+    OGraphBulkLoader loader = newLoader();
+    loader.begin();
+    loader.createVertex("Person", "a", null);
+    loader.createVertex("City", "a", null);
+    loader.end();
+
+    Assert.assertEquals(1, db.countClass("Person"));
+    Assert.assertEquals(1, db.countClass("City"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDuplicateKey() {
+    OGraphBulkLoader loader = newLoader();
+    loader.begin();
+    try {
+      loader.createVertex("Person", 1, null);
+      loader.createVertex("Person", 1L, null);
+    } finally {
+      loader.end();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingVertex() {
+    OGraphBulkLoader loader = newLoader();
+    loader.begin();
+    try {
+      loader.createVertex("Person", 1, null);
+      loader.createEdge("Knows", "Person", 1, "Person", 2, null);
+    } finally {
+      loader.end();
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testVertexAfterEdges() {
+    OGraphBulkLoader loader = newLoader();
+    loader.begin();
+    try {
+      loader.createVertex("Person", 1, null);
+      loader.createEdge("Knows", "Person", 1, "Person", 1, null);
+      loader.createVertex("Person", 2, null);
+    } finally {
+      loader.end();
+    }
+  }
+
+  @Test
+  public void testAbortRebuildsIndexes() {
+    OClass person = db.createVertexClass("Person");
+    person.createProperty("name", OType.STRING).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+
+    try (OGraphBulkLoader loader = newLoader()) {
+      loader.begin();
+      Assert.assertNull(db.getMetadata().getIndexManager().getIndex("Person.name"));
+      Map<String, Object> props = new HashMap<>();
+      props.put("name", "John");
+      loader.createVertex("Person", 1, props);
+    }
+
+    Assert.assertNotNull(db.getMetadata().getIndexManager().getIndex("Person.name"));
+  }
+
+  private OGraphBulkLoader newLoader() {
+    OGraphBulkLoader loader = new OGraphBulkLoader(db);
+    loader.setParallelism(3);
+    loader.setBatchSize(7);
+    loader.setSortBufferSize(10);
+    loader.addVertexClass("Person");
+    loader.addVertexClass("City");
+    loader.addEdgeClass("Knows");
+    loader.addEdgeClass("LivesIn");
+    return loader;
+  }
+
+  private OVertex vertex(String query, Object key) {
+    try (OResultSet rs = db.query(query, key)) {
+      OResult result = rs.next();
+      Assert.assertFalse(rs.hasNext());
+      return result.getVertex().get();
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package com.orientechnologies.orient.core.index;
+
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+public class ODeferredIndexesTest {
+
+  private ODatabaseDocumentInternal db;
+
+  @Before
+  public void before() {
+    db = new ODatabaseDocumentTx("memory:" + ODeferredIndexesTest.class.getSimpleName());
+    db.create();
+    OClass clazz = db.getMetadata().getSchema().createClass("Person");
+    clazz.createProperty("name", OType.STRING).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    for (int i = 0; i < 10; i++) {
+      db.save(new ODocument("Person").field("name", "name" + (i % 3)));
+    }
+  }
+
+  @After
+  public void after() {
+    db.drop();
+  }
+
+  @Test
+  public void testDropAndCreate() {
+    OIndex<?> index = db.getMetadata().getIndexManagerInternal().getIndex(db, "Person.name");
+    List<ODocument> configs = ODeferredIndexes.drop(db, Collections.singletonList(index));
+
+    Assert.assertNull(db.getMetadata().getIndexManagerInternal().getIndex(db, "Person.name"));
+    Assert.assertNotNull(db.getStorage().getConfiguration().getProperty(ODeferredIndexes.STORAGE_PROPERTY));
+
+    ODeferredIndexes.create(db, configs);
+
+    OIndex<?> created = db.getMetadata().getIndexManagerInternal().getIndex(db, "Person.name");
+    Assert.assertNotNull(created);
+    Assert.assertEquals(OClass.INDEX_TYPE.NOTUNIQUE.name(), created.getType());
+    Assert.assertEquals(10, created.getSize());
+    Assert.assertNull(db.getStorage().getConfiguration().getProperty(ODeferredIndexes.STORAGE_PROPERTY));
+  }
+
+  @Test
+  public void testRecover() {
+    OIndex<?> index = db.getMetadata().getIndexManagerInternal().getIndex(db, "Person.name");
+    ODeferredIndexes.drop(db, Collections.singletonList(index));
+
+    // the process stopped before creating the index again
+    ODeferredIndexes.recover(db);
+
+    OIndex<?> created = db.getMetadata().getIndexManagerInternal().getIndex(db, "Person.name");
+    Assert.assertNotNull(created);
+    Assert.assertEquals(10, created.getSize());
+    Assert.assertNull(db.getStorage().getConfiguration().getProperty(ODeferredIndexes.STORAGE_PROPERTY));
+  }
+}
@@ -0,0 +1,147 @@
+package com.orientechnologies.orient.core.record.impl;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.OEdge;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class OIndexedAdjacencyTest {
+
+  private static ODatabaseDocument db;
+  private static OVertex           hub;
+
+  @BeforeClass
+  public static void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:OIndexedAdjacencyTest");
+    db.create();
+    db.getConfiguration().setValue(OGlobalConfiguration.QUERY_INDEXED_ADJACENCY_THRESHOLD, 5);
+
+    db.command("CREATE CLASS Person EXTENDS V").close();
+    db.command("CREATE CLASS Company EXTENDS V").close();
+    db.command("CREATE CLASS Knows EXTENDS E").close();
+    db.command("CREATE PROPERTY Knows.out LINK").close();
+    db.command("CREATE PROPERTY Knows.in LINK").close();
+    db.command("CREATE PROPERTY Knows.weight INTEGER").close();
+    db.command("CREATE INDEX Knows.out_weight ON Knows (out, weight) NOTUNIQUE").close();
+    db.command("CREATE INDEX Knows.out_in ON Knows (out, in) NOTUNIQUE").close();
+
+    db.begin();
+    hub = db.newVertex("Person");
+    hub.setProperty("name", "hub");
+    hub.save();
+    for (int i = 0; i < 20; i++) {
+      OVertex person = db.newVertex("Person");
+      person.setProperty("name", "person" + i);
+      person.save();
+      OEdge edge = hub.addEdge(person, "Knows");
+      edge.setProperty("weight", i % 4);
+      edge.save();
+    }
+    for (int i = 0; i < 5; i++) {
+      OVertex company = db.newVertex("Company");
+      company.setProperty("name", "company" + i);
+      company.save();
+      OEdge edge = hub.addEdge(company, "Knows");
+      edge.setProperty("weight", 10);
+      edge.save();
+    }
+    db.commit();
+    hub = db.load(hub.getIdentity());
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    db.drop();
+  }
+
+  @Test
+  public void testSeekByProperty() {
+    Assert.assertTrue(OIndexedAdjacency.isSupernode(hub, ODirection.OUT, "Knows"));
+    Assert.assertNotNull(OIndexedAdjacency.getEdges(hub, ODirection.OUT, "Knows", "weight", 2));
+    Assert.assertNull(OIndexedAdjacency.getEdges(hub, ODirection.IN, "Knows", "weight", 2));
+
+    int count = 0;
+    for (OEdge edge : hub.getEdgesByProperty(ODirection.OUT, "Knows", "weight", 2)) {
+      Assert.assertEquals(2, (int) edge.getProperty("weight"));
+      count++;
+    }
+    Assert.assertEquals(5, count);
+  }
+
+  @Test
+  public void testSeekByOppositeClass() {
+    int count = 0;
+    for (OEdge edge : OIndexedAdjacency.getEdgesToClass(hub, ODirection.OUT, "Knows", db.getClass("Company"))) {
+      Assert.assertEquals("Company", edge.getTo().getSchemaType().get().getName());
+      count++;
+    }
+    Assert.assertEquals(5, count);
+  }
+
+  @Test
+  public void testSeekWithSuperclassIndex() {
+    db.command("CREATE CLASS Rel EXTENDS E").close();
+    db.command("CREATE CLASS Likes EXTENDS Rel").close();
+    db.command("CREATE CLASS Hates EXTENDS Rel").close();
+    db.command("CREATE PROPERTY Rel.out LINK").close();
+    db.command("CREATE PROPERTY Rel.in LINK").close();
+    db.command("CREATE PROPERTY Rel.weight INTEGER").close();
+    db.command("CREATE INDEX Rel.out_weight ON Rel (out, weight) NOTUNIQUE").close();
+
+    db.begin();
+    OVertex source = db.newVertex("Person");
+    source.setProperty("name", "source");
+    source.save();
+    for (int i = 0; i < 10; i++) {
+      OVertex person = db.newVertex("Person");
+      person.save();
+      OEdge likes = source.addEdge(person, "Likes");
+      likes.setProperty("weight", 1);
+      likes.save();
+      OEdge hates = source.addEdge(person, "Hates");
+      hates.setProperty("weight", 1);
+      hates.save();
+    }
+    db.commit();
+    source = db.load(source.getIdentity());
+
+    Assert.assertTrue(OIndexedAdjacency.isSupernode(source, ODirection.OUT, "Likes"));
+    int count = 0;
+    for (OEdge edge : source.getEdgesByProperty(ODirection.OUT, "Likes", "weight", 1)) {
+      Assert.assertEquals("Likes", edge.getSchemaType().get().getName());
+      count++;
+    }
+    Assert.assertEquals(10, count);
+  }
+
+  @Test
+  public void testMatchEdgeProperty() {
+    OResultSet result = db.query("MATCH {class: Person, where: (name = 'hub')}.outE('Knows'){where: (weight = 3), as: e} RETURN e.weight as weight");
+    int count = 0;
+    while (result.hasNext()) {
+      Assert.assertEquals(3, (int) result.next().getProperty("weight"));
+      count++;
+    }
+    result.close();
+    Assert.assertEquals(5, count);
+  }
+
+  @Test
+  public void testMatchOppositeClass() {
+    OResultSet result = db.query("MATCH {class: Person, where: (name = 'hub')}.out('Knows'){class: Company, as: c} RETURN c.name as name");
+    int count = 0;
+    while (result.hasNext()) {
+      Assert.assertTrue(((String) result.next().getProperty("name")).startsWith("company"));
+      count++;
+    }
+    result.close();
+    Assert.assertEquals(5, count);
+  }
+}
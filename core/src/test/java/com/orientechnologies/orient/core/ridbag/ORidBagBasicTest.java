@@ -1,11 +1,13 @@
 package com.orientechnologies.orient.core.ridbag;
 
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseSession;
 import com.orientechnologies.orient.core.db.ODatabaseType;
 import com.orientechnologies.orient.core.db.OrientDB;
 import com.orientechnologies.orient.core.db.OrientDBConfig;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
 import com.orientechnologies.orient.core.db.record.ridbag.embedded.OEmbeddedRidBag;
 import com.orientechnologies.orient.core.exception.ODatabaseException;
@@ -13,6 +15,7 @@ import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.record.OElement;
 import com.orientechnologies.orient.core.record.OVertex;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerBinary;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -49,6 +52,92 @@ public class ORidBagBasicTest {
 
   }
 
+  @Test
+  public void embeddedRidBagCompactFormatTest() {
+    ODatabaseDocument db = new ODatabaseDocumentTx("memory:" + OEmbeddedRidBag.class.getSimpleName() + "Compact");
+    db.create();
+    OGlobalConfiguration.RID_BAG_EMBEDDED_COMPACT_FORMAT.setValue(true);
+    try {
+      ORidBag bag = new ORidBag();
+      bag.add(new ORecordId(5, 100));
+      bag.add(new ORecordId(3, 7));
+      bag.add(new ORecordId(5, 90));
+      bag.add(new ORecordId(5, 100));
+      bag.add(new ORecordId(3, 200000));
+      ODocument doc = new ODocument();
+      doc.field("bag", bag);
+
+      byte[] bytes = ORecordSerializerBinary.INSTANCE.toStream(doc);
+      ODocument extr = (ODocument) ORecordSerializerBinary.INSTANCE.fromStream(bytes, new ODocument(), new String[] {});
+      ORidBag extrBag = extr.field("bag");
+
+      assertEquals(5, extrBag.size());
+      Assert.assertNotNull(((OEmbeddedRidBag) extrBag.getDelegate()).getEncodedEntries());
+
+      // not decoded: written again as it was read
+      byte[] bytes2 = ORecordSerializerBinary.INSTANCE.toStream(extr);
+      ODocument extr2 = (ODocument) ORecordSerializerBinary.INSTANCE.fromStream(bytes2, new ODocument(), new String[] {});
+      ORidBag extrBag2 = extr2.field("bag");
+
+      List<ORecordId> expected = Arrays
+          .asList(new ORecordId(3, 7), new ORecordId(3, 200000), new ORecordId(5, 90), new ORecordId(5, 100), new ORecordId(5, 100));
+      for (ORidBag toCheck : Arrays.asList(extrBag, extrBag2)) {
+        List<OIdentifiable> rids = new ArrayList<>();
+        for (Iterator<OIdentifiable> it = toCheck.rawIterator(); it.hasNext(); ) {
+          rids.add(it.next());
+        }
+        assertEquals(expected, rids);
+        Assert.assertNull(((OEmbeddedRidBag) toCheck.getDelegate()).getEncodedEntries());
+      }
+
+      extrBag.remove(new ORecordId(5, 90));
+      extrBag.add(new ORecordId(4, 1));
+      bytes = ORecordSerializerBinary.INSTANCE.toStream(extr);
+      extr = (ODocument) ORecordSerializerBinary.INSTANCE.fromStream(bytes, new ODocument(), new String[] {});
+      extrBag = extr.field("bag");
+      assertEquals(5, extrBag.size());
+      Assert.assertTrue(extrBag.contains(new ORecordId(4, 1)));
+      Assert.assertFalse(extrBag.contains(new ORecordId(5, 90)));
+    } finally {
+      OGlobalConfiguration.RID_BAG_EMBEDDED_COMPACT_FORMAT.setValue(false);
+      db.drop();
+    }
+  }
+
+  @Test
+  public void embeddedRidBagCompactFormatOwnerTest() {
+    ODatabaseDocument db = new ODatabaseDocumentTx("memory:" + OEmbeddedRidBag.class.getSimpleName() + "CompactOwner");
+    db.create();
+    OGlobalConfiguration.RID_BAG_EMBEDDED_COMPACT_FORMAT.setValue(true);
+    try {
+      ORidBag bag = new ORidBag();
+      bag.add(new ORecordId(5, 100));
+      bag.add(new ORecordId(3, 7));
+      ODocument doc = new ODocument();
+      doc.field("bag", bag);
+      byte[] bytes = ORecordSerializerBinary.INSTANCE.toStream(doc);
+
+      ODocument extr = (ODocument) ORecordSerializerBinary.INSTANCE.fromStream(bytes, new ODocument(), new String[] {});
+      ORidBag extrBag = extr.field("bag");
+      Assert.assertNotNull(((OEmbeddedRidBag) extrBag.getDelegate()).getEncodedEntries());
+      // the entries are decoded before they are untracked from the previous owner
+      extrBag.setOwner(null);
+      Assert.assertNull(((OEmbeddedRidBag) extrBag.getDelegate()).getEncodedEntries());
+      assertEquals(2, extrBag.size());
+
+      extr = (ODocument) ORecordSerializerBinary.INSTANCE.fromStream(bytes, new ODocument(), new String[] {});
+      extrBag = extr.field("bag");
+      Assert.assertNotNull(((OEmbeddedRidBag) extrBag.getDelegate()).getEncodedEntries());
+      Assert.assertTrue(extrBag.convertRecords2Links());
+      Assert.assertNull(((OEmbeddedRidBag) extrBag.getDelegate()).getEncodedEntries());
+      Assert.assertTrue(extrBag.contains(new ORecordId(3, 7)));
+      Assert.assertTrue(extrBag.contains(new ORecordId(5, 100)));
+    } finally {
+      OGlobalConfiguration.RID_BAG_EMBEDDED_COMPACT_FORMAT.setValue(false);
+      db.drop();
+    }
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testExceptionInCaseOfNull() {
     OEmbeddedRidBag bag = new OEmbeddedRidBag();
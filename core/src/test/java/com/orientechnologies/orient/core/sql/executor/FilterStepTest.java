@@ -0,0 +1,125 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.common.concur.OTimeoutException;
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.sql.parser.OSelectStatement;
+import com.orientechnologies.orient.core.sql.parser.OWhereClause;
+import com.orientechnologies.orient.core.sql.parser.OrientSql;
+import com.orientechnologies.orient.core.sql.parser.ParseException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+public class FilterStepTest {
+
+  private static final int TOTAL = 1000;
+
+  @Test
+  public void testFilterBatchesFromRowByRowStep() throws ParseException {
+    OCommandContext ctx = new OBasicCommandContext();
+    FilterStep step = new FilterStep(parseWhere("val % 3 = 0"), ctx, false);
+    step.setPrevious(new RowByRowStep(ctx));
+
+    checkFilteredValues(step, ctx);
+  }
+
+  @Test
+  public void testFilterBatchesFromBatchStep() throws ParseException {
+    OCommandContext ctx = new OBasicCommandContext();
+    FilterStep step = new FilterStep(parseWhere("val % 3 = 0"), ctx, false);
+    step.setPrevious(new BatchStep(ctx));
+
+    checkFilteredValues(step, ctx);
+  }
+
+  @Test
+  public void testCurrentVariable() throws ParseException {
+    OCommandContext ctx = new OBasicCommandContext();
+    FilterStep step = new FilterStep(parseWhere("$current.val = val and val < 10"), ctx, false);
+    step.setPrevious(new BatchStep(ctx));
+
+    OResultSet result = step.syncPull(ctx, 100);
+    int count = 0;
+    while (result.hasNext()) {
+      OResult item = result.next();
+      Assert.assertSame(item, ctx.getVariable("$current"));
+      count++;
+    }
+    Assert.assertEquals(10, count);
+  }
+
+  @Test
+  public void testCountAndProjectionOnBatches() throws ParseException {
+    OCommandContext ctx = new OBasicCommandContext();
+    FilterStep filter = new FilterStep(parseWhere("val >= 500"), ctx, false);
+    filter.setPrevious(new BatchStep(ctx));
+    ProjectionCalculationStep projection = new ProjectionCalculationStep(
+        ((OSelectStatement) new OrientSql(new ByteArrayInputStream("select val * 2 as double from V".getBytes())).parse())
+            .getProjection(), ctx, false);
+    projection.setPrevious(filter);
+    CountStep count = new CountStep(ctx, false);
+    count.setPrevious(projection);
+
+    OResultSet result = count.syncPull(ctx, 100);
+    Assert.assertEquals(500L, (long) result.next().getProperty("count"));
+    Assert.assertFalse(result.hasNext());
+  }
+
+  private void checkFilteredValues(FilterStep step, OCommandContext ctx) {
+    int expected = 0;
+    while (true) {
+      OResultBatch batch = step.syncPullBatch(ctx, 100);
+      if (batch.isEmpty()) {
+        break;
+      }
+      Assert.assertTrue(batch.size() <= 100);
+      for (int i = 0; i < batch.size(); i++) {
+        Assert.assertEquals(expected, (int) batch.get(i).getProperty("val"));
+        expected += 3;
+      }
+    }
+    Assert.assertEquals(TOTAL + 2 - (TOTAL + 2) % 3, expected);
+  }
+
+  private static OWhereClause parseWhere(String condition) throws ParseException {
+    return ((OSelectStatement) new OrientSql(new ByteArrayInputStream(("select from V where " + condition).getBytes())).parse())
+        .getWhereClause();
+  }
+
+  private static OResult createItem(int i) {
+    OResultInternal item = new OResultInternal();
+    item.setProperty("val", i);
+    return item;
+  }
+
+  private static class RowByRowStep extends AbstractExecutionStep {
+    private int next = 0;
+
+    RowByRowStep(OCommandContext ctx) {
+      super(ctx, false);
+    }
+
+    @Override
+    public OResultSet syncPull(OCommandContext ctx, int nRecords) throws OTimeoutException {
+      OInternalResultSet result = new OInternalResultSet();
+      for (int i = 0; i < nRecords && next < TOTAL; i++) {
+        result.add(createItem(next++));
+      }
+      return result;
+    }
+  }
+
+  private static class BatchStep extends RowByRowStep implements OBatchExecutionStep {
+
+    BatchStep(OCommandContext ctx) {
+      super(ctx);
+    }
+
+    @Override
+    public OResultBatch syncPullBatch(OCommandContext ctx, int nRecords) throws OTimeoutException {
+      return OResultBatch.collect(syncPull(ctx, nRecords), nRecords);
+    }
+  }
+}
@@ -13,6 +13,8 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
 /**
@@ -249,4 +251,128 @@ public class OCreateViewStatementExecutionTest {
     result.close();
   }
 
+  @Test
+  public void testIncrementalUpdate() throws InterruptedException {
+    String className = "testIncrementalUpdateClass";
+    String viewName = "testIncrementalUpdate";
+    db.createClass(className);
+
+    for (int i = 0; i < 10; i++) {
+      OElement elem = db.newElement(className);
+      elem.setProperty("name", "name" + i);
+      elem.setProperty("val", i);
+      elem.save();
+    }
+
+    String statement = "CREATE VIEW " + viewName + " FROM (SELECT name, val * 2 as twice FROM " + className
+        + " WHERE val >= 5) METADATA {";
+    statement += "updateStrategy:\"incremental\",";
+    statement += "indexes: [{type:'NOTUNIQUE', properties:{name:'STRING'}}]";
+    statement += "}";
+
+    db.command(statement);
+
+    Thread.sleep(1000);
+
+    OResultSet result = db.query("SELECT FROM " + viewName);
+    Assert.assertEquals(5, result.stream().count());
+    result.close();
+
+    db.command("insert into " + className + " set name = 'name10', val = 10");
+    db.command("insert into " + className + " set name = 'name11', val = 1");
+    db.command("UPDATE " + className + " SET val = 20 WHERE name = 'name3'");
+    db.command("UPDATE " + className + " SET val = 0 WHERE name = 'name5'");
+    db.command("DELETE FROM " + className + " WHERE name = 'name6'");
+
+    Thread.sleep(2000);
+
+    result = db.query("SELECT FROM " + viewName);
+    Map<String, Integer> rows = new HashMap<>();
+    result.stream().forEach(x -> rows.put(x.getProperty("name"), x.getProperty("twice")));
+    result.close();
+    Assert.assertEquals(5, rows.size());
+    Assert.assertEquals(40, (int) rows.get("name3"));
+    Assert.assertEquals(14, (int) rows.get("name7"));
+    Assert.assertEquals(20, (int) rows.get("name10"));
+    Assert.assertFalse(rows.containsKey("name5"));
+    Assert.assertFalse(rows.containsKey("name6"));
+
+    result = db.query("SELECT FROM " + viewName + " WHERE name = 'name3'");
+    Assert.assertTrue(result.hasNext());
+    Assert.assertEquals(40, (int) result.next().getProperty("twice"));
+    Assert.assertFalse(result.hasNext());
+    result.close();
+
+    result = db.query("SELECT FROM " + viewName + " WHERE name = 'name5'");
+    Assert.assertFalse(result.hasNext());
+    result.close();
+  }
+
+  @Test
+  public void testIncrementalAggregate() throws InterruptedException {
+    String className = "testIncrementalAggregateClass";
+    String viewName = "testIncrementalAggregate";
+    db.createClass(className);
+
+    for (int i = 0; i < 10; i++) {
+      OElement elem = db.newElement(className);
+      elem.setProperty("grp", "g" + (i % 2));
+      elem.setProperty("val", i);
+      elem.save();
+    }
+
+    String statement = "CREATE VIEW " + viewName + " FROM (SELECT grp, count(*) as cnt, sum(val) as total, avg(val) as average, "
+        + "min(val) as minimum, max(val) as maximum FROM " + className + " GROUP BY grp) METADATA {";
+    statement += "updateStrategy:\"incremental\"";
+    statement += "}";
+
+    db.command(statement);
+
+    Thread.sleep(1000);
+
+    // g0: 0, 2, 4, 6, 8; g1: 1, 3, 5, 7, 9
+    assertGroup(viewName, "g0", 5, 20, 4, 0, 8);
+    assertGroup(viewName, "g1", 5, 25, 5, 1, 9);
+
+    db.command("DELETE FROM " + className + " WHERE val = 0");
+    db.command("UPDATE " + className + " SET val = 19 WHERE val = 9");
+    db.command("UPDATE " + className + " SET grp = 'g2' WHERE val = 4");
+    db.begin();
+    db.command("insert into " + className + " set grp = 'g1', val = 11");
+    db.command("insert into " + className + " set grp = 'g3', val = 1");
+    db.commit();
+    db.begin();
+    db.command("insert into " + className + " set grp = 'g1', val = 100");
+    db.rollback();
+
+    Thread.sleep(2000);
+
+    // g0: 2, 6, 8; g1: 1, 3, 5, 7, 11, 19; g2: 4; g3: 1
+    assertGroup(viewName, "g0", 3, 16, 5, 2, 8);
+    assertGroup(viewName, "g1", 6, 46, 7, 1, 19);
+    assertGroup(viewName, "g2", 1, 4, 4, 4, 4);
+    assertGroup(viewName, "g3", 1, 1, 1, 1, 1);
+
+    db.command("DELETE FROM " + className + " WHERE grp = 'g3'");
+
+    Thread.sleep(2000);
+
+    OResultSet result = db.query("SELECT FROM " + viewName);
+    Assert.assertEquals(3, result.stream().count());
+    result.close();
+  }
+
+  private void assertGroup(String viewName, String group, long count, int sum, int avg, int min, int max) {
+    OResultSet result = db.query("SELECT FROM " + viewName + " WHERE grp = ?", group);
+    Assert.assertTrue(result.hasNext());
+    OResult item = result.next();
+    Assert.assertEquals(count, ((Number) item.getProperty("cnt")).longValue());
+    Assert.assertEquals(sum, ((Number) item.getProperty("total")).intValue());
+    Assert.assertEquals(avg, ((Number) item.getProperty("average")).intValue());
+    Assert.assertEquals(min, ((Number) item.getProperty("minimum")).intValue());
+    Assert.assertEquals(max, ((Number) item.getProperty("maximum")).intValue());
+    Assert.assertFalse(result.hasNext());
+    result.close();
+  }
+
 }
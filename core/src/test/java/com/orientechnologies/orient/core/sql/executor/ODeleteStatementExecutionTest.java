@@ -1,9 +1,11 @@
 package com.orientechnologies.orient.core.sql.executor;
 
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -177,4 +179,48 @@ public class ODeleteStatementExecutionTest {
     result.close();
   }
 
+  @Test
+  public void testParallelDelete() {
+    String className = "testParallelDelete";
+    OClass clazz = db.getMetadata().getSchema().createClass(className);
+    clazz.addCluster(className + "_2");
+    clazz.addCluster(className + "_3");
+    clazz.createProperty("name", OType.STRING);
+    clazz.createIndex(className + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
+    for (int i = 0; i < 500; i++) {
+      ODocument doc = db.newInstance(className);
+      doc.setProperty("name", "name" + i);
+      doc.setProperty("val", i);
+      doc.save();
+    }
+
+    db.getConfiguration().setValue(OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_WORKERS, 4);
+    db.getConfiguration().setValue(OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_BATCH_SIZE, 13);
+    try {
+      OResultSet result = db.command("delete from " + className + " where val >= 100");
+      printExecutionPlan(result);
+      Assert.assertTrue(result.getExecutionPlan().get().prettyPrint(0, 2).contains("PARALLEL DELETE"));
+      Assert.assertTrue(result.hasNext());
+      Assert.assertEquals((Object) 400L, result.next().getProperty("count"));
+      Assert.assertFalse(result.hasNext());
+      result.close();
+
+      result = db.command("delete from " + className + " where val < 100 limit 30");
+      Assert.assertEquals((Object) 30L, result.next().getProperty("count"));
+      result.close();
+    } finally {
+      db.getConfiguration().setValue(OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_WORKERS, 0);
+      db.getConfiguration()
+          .setValue(OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_BATCH_SIZE,
+              OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_BATCH_SIZE.getDefValue());
+    }
+
+    OResultSet result = db.query("select count(*) as count from " + className);
+    Assert.assertEquals((Object) 70L, result.next().getProperty("count"));
+    result.close();
+    result = db.query("select count(*) as count from " + className + " where name = 'name200'");
+    Assert.assertEquals((Object) 0L, result.next().getProperty("count"));
+    result.close();
+  }
+
 }
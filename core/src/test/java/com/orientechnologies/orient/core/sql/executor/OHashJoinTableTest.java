@@ -0,0 +1,82 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class OHashJoinTableTest {
+
+  @Test
+  public void testInMemory() {
+    try (OHashJoinTable table = new OHashJoinTable(new OBasicCommandContext(), -1)) {
+      fill(table);
+      Assert.assertFalse(table.isSpilled());
+      check(table);
+    }
+  }
+
+  @Test
+  public void testSpill() {
+    try (OHashJoinTable table = new OHashJoinTable(new OBasicCommandContext(), 10)) {
+      fill(table);
+      Assert.assertTrue(table.isSpilled());
+      check(table);
+    }
+  }
+
+  @Test
+  public void testNumberNormalization() {
+    try (OHashJoinTable table = new OHashJoinTable(new OBasicCommandContext(), -1)) {
+      table.add(1, row(1));
+      table.add(2L, row(2));
+      table.add(3.5d, row(3));
+      Assert.assertEquals(1, table.get(1L).size());
+      Assert.assertEquals(1, table.get((short) 2).size());
+      Assert.assertEquals(1, table.get(2.0f).size());
+      Assert.assertEquals(1, table.get(3.5d).size());
+      Assert.assertTrue(table.isHashable(4));
+      Assert.assertFalse(table.isHashable("1"));
+    }
+  }
+
+  @Test
+  public void testScan() {
+    try (OHashJoinTable table = new OHashJoinTable(new OBasicCommandContext(), 2)) {
+      table.add("a", row(1));
+      table.add(1, row(2));
+      table.add(new ArrayList<>(), row(3));
+      Assert.assertFalse(table.isHashable("a"));
+      List<Object> keys = new ArrayList<>();
+      table.scan((key, rows) -> keys.add(key));
+      Assert.assertEquals(3, keys.size());
+    }
+  }
+
+  private void fill(OHashJoinTable table) {
+    for (int i = 0; i < 100; i++) {
+      table.add(i % 20, row(i));
+    }
+    table.add(null, row(-1));
+    Assert.assertEquals(100, table.size());
+  }
+
+  private void check(OHashJoinTable table) {
+    for (int i = 0; i < 20; i++) {
+      List<OResult> rows = table.get(i);
+      Assert.assertEquals(5, rows.size());
+      for (OResult row : rows) {
+        Assert.assertEquals(i, (int) row.getProperty("val") % 20);
+      }
+    }
+    Assert.assertTrue(table.get(20).isEmpty());
+  }
+
+  private OResult row(int val) {
+    OResultInternal result = new OResultInternal();
+    result.setProperty("val", val);
+    return result;
+  }
+}
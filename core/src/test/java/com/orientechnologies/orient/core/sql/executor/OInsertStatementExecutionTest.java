@@ -1,8 +1,11 @@
 package com.orientechnologies.orient.core.sql.executor;
 
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -166,6 +169,122 @@ public class OInsertStatementExecutionTest {
     result.close();
   }
 
+  @Test
+  public void testStreamingInsertFromSelect() {
+    String className1 = "testStreamingInsertFromSelect";
+    db.getMetadata().getSchema().createClass(className1);
+
+    String className2 = "testStreamingInsertFromSelect_1";
+    OClass clazz = db.getMetadata().getSchema().createClass(className2);
+    clazz.addCluster(className2 + "_2");
+    clazz.createProperty("surname", OType.STRING);
+    clazz.createIndex(className2 + ".surname", OClass.INDEX_TYPE.NOTUNIQUE, "surname");
+    for (int i = 0; i < 100; i++) {
+      ODocument doc = db.newInstance(className1);
+      doc.setProperty("name", "name" + i);
+      doc.setProperty("surname", "surname" + (i % 10));
+      doc.save();
+    }
+
+    db.getConfiguration().setValue(OGlobalConfiguration.QUERY_INSERT_SELECT_BATCH_SIZE, 7);
+    db.getConfiguration().setValue(OGlobalConfiguration.QUERY_INSERT_SELECT_WRITERS, 3);
+    db.getConfiguration().setValue(OGlobalConfiguration.QUERY_INSERT_SELECT_DEFER_INDEXES, true);
+    try {
+      OResultSet result = db.command("insert into " + className2 + " from select from " + className1);
+      printExecutionPlan(result);
+      Assert.assertTrue(result.getExecutionPlan().get().prettyPrint(0, 2).contains("STREAMING INSERT"));
+      Assert.assertTrue(result.hasNext());
+      Assert.assertEquals((Object) 100L, result.next().getProperty("count"));
+      Assert.assertFalse(result.hasNext());
+      result.close();
+    } finally {
+      db.getConfiguration().setValue(OGlobalConfiguration.QUERY_INSERT_SELECT_BATCH_SIZE, 0);
+      db.getConfiguration().setValue(OGlobalConfiguration.QUERY_INSERT_SELECT_WRITERS, 1);
+      db.getConfiguration().setValue(OGlobalConfiguration.QUERY_INSERT_SELECT_DEFER_INDEXES, false);
+    }
+
+    OResultSet result = db.query("select count(*) as count from " + className2);
+    Assert.assertEquals((Object) 100L, result.next().getProperty("count"));
+    result.close();
+
+    Assert.assertNotNull(db.getMetadata().getSchema().getClass(className2).getClassIndex(className2 + ".surname"));
+    result = db.query("select from " + className2 + " where surname = 'surname3'");
+    Assert.assertTrue(result.getExecutionPlan().get().prettyPrint(0, 2).contains("FETCH FROM INDEX"));
+    Assert.assertEquals(10, result.stream().count());
+    result.close();
+  }
+
+  @Test
+  public void testStreamingInsertFromSelectOfSuperclass() {
+    String superName = "testStreamingInsertFromSelectOfSuperclass";
+    OClass superClass = db.getMetadata().getSchema().createClass(superName);
+    superClass.createProperty("surname", OType.STRING);
+    superClass.createIndex(superName + ".surname", OClass.INDEX_TYPE.NOTUNIQUE, "surname");
+
+    String sourceName = superName + "_source";
+    db.getMetadata().getSchema().createClass(sourceName, superClass);
+    String targetName = superName + "_target";
+    OClass target = db.getMetadata().getSchema().createClass(targetName, superClass);
+    target.createProperty("other", OType.STRING);
+    target.createIndex(targetName + ".other", OClass.INDEX_TYPE.NOTUNIQUE, "other");
+    for (int i = 0; i < 100; i++) {
+      ODocument doc = db.newInstance(sourceName);
+      doc.setProperty("name", "name" + i);
+      doc.setProperty("surname", "surname" + (i % 10));
+      doc.save();
+    }
+
+    db.getConfiguration().setValue(OGlobalConfiguration.QUERY_INSERT_SELECT_BATCH_SIZE, 3);
+    db.getConfiguration().setValue(OGlobalConfiguration.QUERY_INSERT_SELECT_DEFER_INDEXES, true);
+    try {
+      // the source reads the hierarchy of the target class, the indexes of the target class are not dropped
+      OResultSet result = db
+          .command("insert into " + targetName + " from select name, surname as other from " + superName + " where surname = 'surname3'");
+      String plan = result.getExecutionPlan().get().prettyPrint(0, 2);
+      Assert.assertTrue(plan.contains("STREAMING INSERT"));
+      Assert.assertFalse(plan.contains("rebuilding the non unique indexes"));
+      Assert.assertEquals((Object) 10L, result.next().getProperty("count"));
+      result.close();
+    } finally {
+      db.getConfiguration().setValue(OGlobalConfiguration.QUERY_INSERT_SELECT_BATCH_SIZE, 0);
+      db.getConfiguration().setValue(OGlobalConfiguration.QUERY_INSERT_SELECT_DEFER_INDEXES, false);
+    }
+
+    OResultSet result = db.query("select from " + targetName + " where other = 'surname3'");
+    Assert.assertEquals(10, result.stream().count());
+    result.close();
+  }
+
+  @Test
+  public void testStreamingInsertFromSelectInTransaction() {
+    String className1 = "testStreamingInsertFromSelectInTransaction";
+    db.getMetadata().getSchema().createClass(className1);
+
+    String className2 = "testStreamingInsertFromSelectInTransaction_1";
+    db.getMetadata().getSchema().createClass(className2);
+    for (int i = 0; i < 10; i++) {
+      ODocument doc = db.newInstance(className1);
+      doc.setProperty("name", "name" + i);
+      doc.save();
+    }
+
+    db.getConfiguration().setValue(OGlobalConfiguration.QUERY_INSERT_SELECT_BATCH_SIZE, 3);
+    db.begin();
+    try {
+      OResultSet result = db.command("insert into " + className2 + " from select from " + className1);
+      Assert.assertFalse(result.getExecutionPlan().get().prettyPrint(0, 2).contains("STREAMING"));
+      Assert.assertEquals(10, result.stream().count());
+      result.close();
+      db.rollback();
+    } finally {
+      db.getConfiguration().setValue(OGlobalConfiguration.QUERY_INSERT_SELECT_BATCH_SIZE, 0);
+    }
+
+    OResultSet result = db.query("select count(*) as count from " + className2);
+    Assert.assertEquals((Object) 0L, result.next().getProperty("count"));
+    result.close();
+  }
+
   @Test
   public void testInsertFromSelect2() {
     String className1 = "testInsertFromSelect2";
@@ -0,0 +1,181 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.OVertex;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+public class OMatchCostBasedPlanningTest {
+
+  private OrientDB          orientDB;
+  private ODatabaseDocument db;
+
+  /**
+   * A few hubs (A) with many outgoing X edges to B, and only three B vertices with an Y edge to C: A is the smallest class, but it
+   * is the worst starting point.
+   */
+  @Before
+  public void setUp() {
+    orientDB = new OrientDB("embedded:", OrientDBConfig.defaultConfig());
+    orientDB.create("OMatchCostBasedPlanningTest", ODatabaseType.MEMORY);
+    db = orientDB.open("OMatchCostBasedPlanningTest", "admin", "admin");
+
+    db.createVertexClass("A");
+    db.createVertexClass("B");
+    db.createVertexClass("C");
+    db.createEdgeClass("X");
+    db.createEdgeClass("Y");
+
+    db.begin();
+    List<OVertex> cs = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      OVertex c = db.newVertex("C");
+      c.setProperty("name", "c" + i);
+      c.save();
+      cs.add(c);
+    }
+    int b = 0;
+    for (int i = 0; i < 5; i++) {
+      OVertex a = db.newVertex("A");
+      a.setProperty("name", "a" + i);
+      a.save();
+      for (int j = 0; j < 400; j++) {
+        OVertex vertex = db.newVertex("B");
+        vertex.setProperty("name", "b" + b);
+        vertex.save();
+        db.newEdge(a, vertex, "X").save();
+        if (b % 700 == 0) {
+          db.newEdge(vertex, cs.get(b % 50), "Y").save();
+        }
+        b++;
+      }
+    }
+    db.commit();
+  }
+
+  @After
+  public void tearDown() {
+    db.close();
+    orientDB.drop("OMatchCostBasedPlanningTest");
+    orientDB.close();
+  }
+
+  @Test
+  public void testStatistics() {
+    Assert.assertNull(OGraphStatistics.get((ODatabaseDocumentInternal) db));
+
+    try (OResultSet rs = db.query("select expand(analyzeGraph())")) {
+      Map<String, OResult> rows = new HashMap<>();
+      rs.forEachRemaining(x -> rows.put(x.getProperty("vertexClass") + "-" + x.getProperty("edgeClass"), x));
+      Assert.assertEquals(2000L, ((Number) rows.get("A-X").getProperty("outEdges")).longValue());
+      Assert.assertEquals(2000L, ((Number) rows.get("B-X").getProperty("inEdges")).longValue());
+      Assert.assertEquals(3L, ((Number) rows.get("B-Y").getProperty("outEdges")).longValue());
+      Assert.assertEquals(3L, ((Number) rows.get("C-Y").getProperty("inEdges")).longValue());
+    }
+
+    for (OGraphStatistics statistics : Arrays
+        .asList(OGraphStatistics.get((ODatabaseDocumentInternal) db), OGraphStatistics.load((ODatabaseDocumentInternal) db))) {
+      OSchema schema = ((ODatabaseDocumentInternal) db).getMetadata().getImmutableSchemaSnapshot();
+      Assert.assertEquals(400, statistics.getAverageDegree(schema, "A", Collections.singletonList("X"), ODirection.OUT), 0);
+      Assert.assertEquals(1, statistics.getAverageDegree(schema, "B", Collections.singletonList("X"), ODirection.IN), 0);
+      Assert.assertEquals(0, statistics.getAverageDegree(schema, "A", Collections.singletonList("Y"), ODirection.OUT), 0);
+      Assert.assertEquals(0.06, statistics.getAverageDegree(schema, "C", null, ODirection.BOTH), 1e-9);
+      Assert.assertEquals(2055, statistics.getVertexCount(schema, null));
+    }
+  }
+
+  @Test
+  public void testStartFromCheapestAlias() {
+    String query = "MATCH {class: A, as: theA}.out('X'){class: B, as: theB}.out('Y'){class: C, as: theC} RETURN theA, theB, theC";
+
+    Set<List<ORID>> legacy = execute(query);
+    Assert.assertEquals("theA", firstAlias(query));
+
+    db.query("select analyzeGraph()").close();
+    Assert.assertEquals("theC", firstAlias(query));
+    Assert.assertEquals(legacy, execute(query));
+    Assert.assertEquals(3, legacy.size());
+
+    boolean costBased = OGlobalConfiguration.QUERY_MATCH_COST_BASED.getValueAsBoolean();
+    OGlobalConfiguration.QUERY_MATCH_COST_BASED.setValue(false);
+    try {
+      ((ODatabaseDocumentInternal) db).getSharedContext().getExecutionPlanCache().invalidate();
+      Assert.assertEquals("theA", firstAlias(query));
+    } finally {
+      OGlobalConfiguration.QUERY_MATCH_COST_BASED.setValue(costBased);
+    }
+  }
+
+  @Test
+  public void testSameResults() {
+    List<String> queries = Arrays.asList(
+        "MATCH {class: A, as: a}.out('X'){as: b}.out('Y'){as: c} RETURN a, b, c",
+        "MATCH {class: C, as: c}.in(){as: b}.in(){as: a} RETURN a, b, c",
+        "MATCH {class: A, as: a}.out('X'){as: b}.out('Y'){class: C, as: c, where: (name = 'c0')} RETURN a, b, c",
+        "MATCH {class: A, as: a}.out('X'){as: b}, {as: b}.out('Y'){as: c}, {class: C, as: c}.in('Y'){as: b} RETURN a, b, c",
+        "MATCH {class: A, as: a, where: (name = 'a1')}.out('X'){as: b}.out('Y'){as: c, optional: true} RETURN a, b, c",
+        "MATCH {class: B, as: b}.out('Y'){as: c}, {class: A, as: a}.out('X'){as: b} RETURN a, b, c",
+        "MATCH {class: C, as: c}.in('Y').in('X'){as: a} RETURN a, c",
+        "MATCH {class: C, as: c}.in(){while: ($depth < 2), as: a} RETURN a, c");
+
+    Map<String, Set<List<ORID>>> expected = new HashMap<>();
+    for (String query : queries) {
+      expected.put(query, execute(query));
+    }
+    db.query("select analyzeGraph()").close();
+    for (String query : queries) {
+      Assert.assertEquals(query, expected.get(query), execute(query));
+    }
+  }
+
+  private Set<List<ORID>> execute(String query) {
+    Set<List<ORID>> result = new HashSet<>();
+    try (OResultSet rs = db.query(query)) {
+      while (rs.hasNext()) {
+        OResult item = rs.next();
+        List<ORID> row = new ArrayList<>();
+        for (String alias : new String[] { "a", "b", "c", "theA", "theB", "theC" }) {
+          Object value = item.getProperty(alias);
+          if (value instanceof OResult) {
+            row.add(((OResult) value).getIdentity().orElse(null));
+          } else if (value != null) {
+            row.add(((OIdentifiable) value).getIdentity());
+          } else if (item.getPropertyNames().contains(alias)) {
+            row.add(null);
+          }
+        }
+        result.add(row);
+      }
+    }
+    return result;
+  }
+
+  private String firstAlias(String query) {
+    try (OResultSet rs = db.query(query)) {
+      for (OExecutionStep step : rs.getExecutionPlan().get().getSteps()) {
+        if (step instanceof MatchFirstStep) {
+          String printed = ((MatchFirstStep) step).prettyPrint(0, 2);
+          for (String alias : new String[] { "theA", "theB", "theC" }) {
+            if (printed.contains(alias)) {
+              return alias;
+            }
+          }
+        }
+      }
+    }
+    return null;
+  }
+}
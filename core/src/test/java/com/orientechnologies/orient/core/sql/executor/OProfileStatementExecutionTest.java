@@ -0,0 +1,60 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+
+public class OProfileStatementExecutionTest {
+  static ODatabaseDocument db;
+
+  @BeforeClass
+  public static void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:OProfileStatementExecutionTest");
+    db.create();
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    db.close();
+  }
+
+  @Test
+  public void testProfileStepStatistics() {
+    String className = "testProfileStepStatistics";
+    db.createClass(className);
+    for (int i = 0; i < 20; i++) {
+      ODocument doc = new ODocument(className);
+      doc.setProperty("val", i);
+      doc.save();
+    }
+
+    OResultSet result = db.query("profile select from " + className + " where val < 5");
+    Assert.assertTrue(result.hasNext());
+    OResult next = result.next();
+    Assert.assertNotNull(next.getProperty("executionPlanAsString"));
+    String json = next.getProperty("executionPlanAsJson");
+    Assert.assertNotNull(json);
+    Assert.assertTrue(json.contains("\"statistics\""));
+
+    OResult plan = next.getProperty("executionPlan");
+    List<OResult> steps = plan.getProperty("steps");
+    Assert.assertFalse(steps.isEmpty());
+    OResult lastStatistics = null;
+    for (OResult step : steps) {
+      OResult statistics = step.getProperty("statistics");
+      Assert.assertNotNull(statistics);
+      Assert.assertTrue((Long) statistics.getProperty("timeNanos") >= 0);
+      Assert.assertNotNull(statistics.getProperty("pagesReadFromCache"));
+      Assert.assertNotNull(statistics.getProperty("recordsRead"));
+      lastStatistics = statistics;
+    }
+    Assert.assertEquals(5L, (long) lastStatistics.getProperty("rowsOut"));
+    result.close();
+  }
+}
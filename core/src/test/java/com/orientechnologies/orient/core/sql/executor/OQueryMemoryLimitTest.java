@@ -0,0 +1,116 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OQueryMemoryLimitTest {
+
+  private static final int RECORDS = 3000;
+
+  private ODatabaseDocumentInternal db;
+  private Long                      oldMaxPerQuery;
+
+  @Before
+  public void before() {
+    oldMaxPerQuery = OGlobalConfiguration.QUERY_MEMORY_MAX_PER_QUERY.getValueAsLong();
+    db = new ODatabaseDocumentTx("memory:OQueryMemoryLimitTest");
+    db.create();
+    db.createClass("Foo");
+    for (int i = 0; i < RECORDS; i++) {
+      ODocument doc = new ODocument("Foo");
+      doc.setProperty("name", "name" + i);
+      doc.setProperty("val", (i * 7919) % RECORDS);
+      doc.save();
+    }
+  }
+
+  @After
+  public void after() {
+    OGlobalConfiguration.QUERY_MEMORY_MAX_PER_QUERY.setValue(oldMaxPerQuery);
+    db.drop();
+  }
+
+  @Test
+  public void testContextReservation() {
+    OGlobalConfiguration.QUERY_MEMORY_MAX_PER_QUERY.setValue(1000);
+    OBasicCommandContext ctx = new OBasicCommandContext();
+    ctx.setDatabase(db);
+    OBasicCommandContext child = new OBasicCommandContext();
+    child.setParent(ctx);
+
+    Assert.assertTrue(child.tryReserveMemory(600));
+    Assert.assertEquals(600, ctx.getUsedMemory());
+    Assert.assertFalse(child.tryReserveMemory(600));
+    Assert.assertEquals(600, ctx.getUsedMemory());
+    try {
+      ctx.reserveMemory(600);
+      Assert.fail();
+    } catch (OCommandExecutionException e) {
+      Assert.assertTrue(e.getMessage().contains(OGlobalConfiguration.QUERY_MEMORY_MAX_PER_QUERY.getKey()));
+    }
+    child.releaseMemory(600);
+    Assert.assertEquals(0, ctx.getUsedMemory());
+    Assert.assertTrue(ctx.tryReserveMemory(600));
+    ctx.releaseMemory(600);
+  }
+
+  @Test
+  public void testOrderBySpill() {
+    OGlobalConfiguration.QUERY_MEMORY_MAX_PER_QUERY.setValue(100_000);
+    try (OResultSet result = db.query("select from Foo order by val")) {
+      int count = 0;
+      while (result.hasNext()) {
+        Assert.assertEquals(count, (int) result.next().getProperty("val"));
+        count++;
+      }
+      Assert.assertEquals(RECORDS, count);
+    }
+  }
+
+  @Test
+  public void testOrderByProjectionSpill() {
+    OGlobalConfiguration.QUERY_MEMORY_MAX_PER_QUERY.setValue(100_000);
+    try (OResultSet result = db.query("select name, val from Foo order by val desc")) {
+      int expected = RECORDS - 1;
+      while (result.hasNext()) {
+        OResult item = result.next();
+        Assert.assertEquals(expected, (int) item.getProperty("val"));
+        Assert.assertNotNull(item.getProperty("name"));
+        expected--;
+      }
+      Assert.assertEquals(-1, expected);
+    }
+  }
+
+  @Test(expected = OCommandExecutionException.class)
+  public void testDistinctLimit() {
+    OGlobalConfiguration.QUERY_MEMORY_MAX_PER_QUERY.setValue(10_000);
+    try (OResultSet result = db.query("select distinct(name) as name from Foo")) {
+      result.stream().count();
+    }
+  }
+
+  @Test(expected = OCommandExecutionException.class)
+  public void testGroupByLimit() {
+    OGlobalConfiguration.QUERY_MEMORY_MAX_PER_QUERY.setValue(10_000);
+    try (OResultSet result = db.query("select name, count(*) from Foo group by name")) {
+      result.stream().count();
+    }
+  }
+
+  @Test
+  public void testUnlimited() {
+    OGlobalConfiguration.QUERY_MEMORY_MAX_PER_QUERY.setValue(0);
+    try (OResultSet result = db.query("select name, count(*) from Foo group by name")) {
+      Assert.assertEquals(RECORDS, result.stream().count());
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class ORidBitmapTest {
+
+  @Test
+  public void testAddContains() {
+    ORidBitmap set = new ORidBitmap();
+    long[] positions = { 0, 1, 63, 64, 65535, 65536, 1L << 40, Long.MAX_VALUE };
+    for (long position : positions) {
+      ORID rid = new ORecordId(12, position);
+      Assert.assertFalse(set.contains(rid));
+      Assert.assertTrue(set.add(rid));
+      Assert.assertTrue(set.contains(rid));
+      Assert.assertFalse(set.add(rid));
+    }
+    Assert.assertEquals(positions.length, set.size());
+    Assert.assertFalse(set.contains(new ORecordId(13, 0)));
+    Assert.assertFalse(set.contains(new ORecordId(12, 2)));
+    Assert.assertFalse(set.contains(new ORecordId(12, -2)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTemporaryRid() {
+    new ORidBitmap().add(new ORecordId(12, -2));
+  }
+
+  @Test
+  public void testDenseContainer() {
+    ORidBitmap set = new ORidBitmap();
+    for (int i = 0; i < 20000; i += 2) {
+      set.add(new ORecordId(5, i));
+    }
+    Assert.assertEquals(10000, set.size());
+    for (int i = 0; i < 20000; i++) {
+      Assert.assertEquals(i % 2 == 0, set.contains(new ORecordId(5, i)));
+    }
+    long previous = -1;
+    int count = 0;
+    for (ORID rid : set) {
+      Assert.assertTrue(rid.getClusterPosition() > previous);
+      previous = rid.getClusterPosition();
+      count++;
+    }
+    Assert.assertEquals(10000, count);
+  }
+
+  @Test
+  public void testIterationOrder() {
+    ORidBitmap set = new ORidBitmap();
+    TreeSet<ORID> expected = new TreeSet<>();
+    Random random = new Random(42);
+    for (int i = 0; i < 5000; i++) {
+      ORID rid = new ORecordId(random.nextInt(20), random.nextInt(200000));
+      set.add(rid);
+      expected.add(rid);
+    }
+    List<ORID> actual = new ArrayList<>();
+    set.forEach(actual::add);
+    Assert.assertEquals(new ArrayList<>(expected), actual);
+    Assert.assertEquals(expected.size(), set.size());
+  }
+
+  @Test
+  public void testAndOr() {
+    Random random = new Random(7);
+    for (int bound : new int[] { 1000, 70000, 300000 }) {
+      ORidBitmap a = new ORidBitmap();
+      ORidBitmap b = new ORidBitmap();
+      Set<ORID> setA = new HashSet<>();
+      Set<ORID> setB = new HashSet<>();
+      for (int i = 0; i < 20000; i++) {
+        ORID ridA = new ORecordId(random.nextInt(3), random.nextInt(bound));
+        ORID ridB = new ORecordId(random.nextInt(3), random.nextInt(bound));
+        a.add(ridA);
+        setA.add(ridA);
+        b.add(ridB);
+        setB.add(ridB);
+      }
+
+      Set<ORID> expectedAnd = new HashSet<>(setA);
+      expectedAnd.retainAll(setB);
+      ORidBitmap and = a.and(b);
+      Assert.assertEquals(expectedAnd.size(), and.size());
+      for (ORID rid : and) {
+        Assert.assertTrue(expectedAnd.contains(rid));
+      }
+
+      Set<ORID> expectedOr = new HashSet<>(setA);
+      expectedOr.addAll(setB);
+      ORidBitmap or = a.or(b);
+      Assert.assertEquals(expectedOr.size(), or.size());
+      for (ORID rid : expectedOr) {
+        Assert.assertTrue(or.contains(rid));
+      }
+
+      // the results do not share containers with the inputs
+      or.add(new ORecordId(0, 0));
+      or.add(new ORecordId(0, 1));
+      Assert.assertEquals(setA.contains(new ORecordId(0, 1)), a.contains(new ORecordId(0, 1)));
+      Assert.assertEquals(setB.contains(new ORecordId(0, 1)), b.contains(new ORecordId(0, 1)));
+    }
+  }
+
+  @Test
+  public void testEmpty() {
+    ORidBitmap empty = new ORidBitmap();
+    ORidBitmap other = new ORidBitmap();
+    other.add(new ORecordId(1, 1));
+    Assert.assertTrue(empty.isEmpty());
+    Assert.assertFalse(empty.iterator().hasNext());
+    Assert.assertTrue(empty.and(other).isEmpty());
+    Assert.assertEquals(1, empty.or(other).size());
+  }
+}
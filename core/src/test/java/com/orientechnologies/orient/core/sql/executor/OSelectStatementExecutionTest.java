@@ -1,6 +1,7 @@
 package com.orientechnologies.orient.core.sql.executor;
 
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.ODatabaseSession;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
@@ -1068,12 +1069,122 @@ public class OSelectStatementExecutionTest {
     OExecutionPlan p2 = p.get();
     Assert.assertTrue(p2 instanceof OSelectExecutionPlan);
     OSelectExecutionPlan plan = (OSelectExecutionPlan) p2;
-    Assert.assertEquals(ParallelExecStep.class, plan.getSteps().get(0).getClass());
-    ParallelExecStep parallel = (ParallelExecStep) plan.getSteps().get(0);
-    Assert.assertEquals(2, parallel.getSubExecutionPlans().size());
+    Assert.assertEquals(IndexUnionStep.class, plan.getSteps().get(0).getClass());
+    IndexUnionStep union = (IndexUnionStep) plan.getSteps().get(0);
+    Assert.assertEquals(2, union.getSubExecutionPlans().size());
     result.close();
   }
 
+  @Test
+  public void testIndexIntersection() {
+    String className = "testIndexIntersection";
+    OClass clazz = db.getMetadata().getSchema().createClass(className);
+    clazz.createProperty("name", OType.STRING);
+    clazz.createProperty("surname", OType.STRING);
+    clazz.createIndex(className + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
+    clazz.createIndex(className + ".surname", OClass.INDEX_TYPE.NOTUNIQUE, "surname");
+
+    for (int i = 0; i < 100; i++) {
+      ODocument doc = db.newInstance(className);
+      doc.setProperty("name", "name" + (i % 10));
+      doc.setProperty("surname", "surname" + (i % 7));
+      doc.setProperty("age", i);
+      doc.save();
+    }
+
+    try (OResultSet result = db.query("select from " + className + " where name = 'name2' and surname = 'surname3'")) {
+      printExecutionPlan(result);
+      Set<Integer> ages = new HashSet<>();
+      while (result.hasNext()) {
+        OResult item = result.next();
+        Assert.assertEquals("name2", item.getProperty("name"));
+        Assert.assertEquals("surname3", item.getProperty("surname"));
+        ages.add(item.getProperty("age"));
+      }
+      Assert.assertEquals(Collections.singleton(52), ages);
+      OSelectExecutionPlan plan = (OSelectExecutionPlan) result.getExecutionPlan().get();
+      Assert.assertEquals(IndexIntersectionStep.class, plan.getSteps().get(0).getClass());
+    }
+
+    try (OResultSet result = db
+        .query("select from " + className + " where name = 'name2' and surname = 'surname3' and age > 60")) {
+      Assert.assertFalse(result.hasNext());
+    }
+
+    try (OResultSet result = db.query("select from " + className + " where name = 'name2' and surname = 'foo'")) {
+      Assert.assertFalse(result.hasNext());
+    }
+
+    db.begin();
+    try {
+      ODocument doc = db.newInstance(className);
+      doc.setProperty("name", "name2");
+      doc.setProperty("surname", "surname3");
+      doc.setProperty("age", 1000);
+      doc.save();
+      try (OResultSet result = db.query("select from " + className + " where name = 'name2' and surname = 'surname3'")) {
+        Assert.assertEquals(2, result.stream().count());
+      }
+    } finally {
+      db.rollback();
+    }
+  }
+
+  @Test
+  public void testIndexIntersectionDisabled() {
+    String className = "testIndexIntersectionDisabled";
+    OClass clazz = db.getMetadata().getSchema().createClass(className);
+    clazz.createProperty("name", OType.STRING);
+    clazz.createProperty("surname", OType.STRING);
+    clazz.createIndex(className + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
+    clazz.createIndex(className + ".surname", OClass.INDEX_TYPE.NOTUNIQUE, "surname");
+
+    for (int i = 0; i < 10; i++) {
+      ODocument doc = db.newInstance(className);
+      doc.setProperty("name", "name" + i);
+      doc.setProperty("surname", "surname" + i);
+      doc.save();
+    }
+
+    boolean oldValue = OGlobalConfiguration.QUERY_INDEX_INTERSECTION_ENABLED.getValueAsBoolean();
+    OGlobalConfiguration.QUERY_INDEX_INTERSECTION_ENABLED.setValue(false);
+    try (OResultSet result = db.query("select from " + className + " where name = 'name2' and surname = 'surname2'")) {
+      OSelectExecutionPlan plan = (OSelectExecutionPlan) result.getExecutionPlan().get();
+      Assert.assertEquals(FetchFromIndexStep.class, plan.getSteps().get(0).getClass());
+      Assert.assertEquals(1, result.stream().count());
+    } finally {
+      OGlobalConfiguration.QUERY_INDEX_INTERSECTION_ENABLED.setValue(oldValue);
+    }
+  }
+
+  @Test
+  public void testIndexUnionWithRemainingCondition() {
+    String className = "testIndexUnionWithRemainingCondition";
+    OClass clazz = db.getMetadata().getSchema().createClass(className);
+    clazz.createProperty("name", OType.STRING);
+    clazz.createProperty("surname", OType.STRING);
+    clazz.createIndex(className + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
+    clazz.createIndex(className + ".surname", OClass.INDEX_TYPE.NOTUNIQUE, "surname");
+
+    for (int i = 0; i < 10; i++) {
+      ODocument doc = db.newInstance(className);
+      doc.setProperty("name", "name" + i);
+      doc.setProperty("surname", "surname" + i);
+      doc.setProperty("age", i);
+      doc.save();
+    }
+
+    try (OResultSet result = db.query(
+        "select from " + className + " where (name = 'name2' and age = 5) or surname = 'surname3' or surname = 'surname2'")) {
+      printExecutionPlan(result);
+      Set<Integer> ages = new HashSet<>();
+      result.stream().forEach(x -> ages.add(x.getProperty("age")));
+      Assert.assertEquals(new HashSet<>(Arrays.asList(2, 3)), ages);
+      OSelectExecutionPlan plan = (OSelectExecutionPlan) result.getExecutionPlan().get();
+      Assert.assertEquals(IndexUnionStep.class, plan.getSteps().get(0).getClass());
+    }
+  }
+
   @Test
   public void testFetchFromClassWithIndexes2() {
     String className = "testFetchFromClassWithIndexes2";
@@ -1823,6 +1934,54 @@ public class OSelectStatementExecutionTest {
     result.close();
   }
 
+  @Test
+  public void testLetHashJoin() {
+    String parentClassName = "testLetHashJoinParent";
+    String childClassName = "testLetHashJoinChild";
+    db.getMetadata().getSchema().createClass(parentClassName);
+    db.getMetadata().getSchema().createClass(childClassName);
+
+    for (int i = 0; i < 10; i++) {
+      ODocument doc = db.newInstance(parentClassName);
+      doc.setProperty("id", i);
+      doc.setProperty("name", "name" + i);
+      doc.save();
+      for (int j = 0; j < i; j++) {
+        ODocument child = db.newInstance(childClassName);
+        child.setProperty("parentId", (long) i);
+        child.setProperty("val", j);
+        child.save();
+      }
+    }
+
+    Integer oldMinProbeRows = OGlobalConfiguration.QUERY_HASH_JOIN_MIN_PROBE_ROWS.getValueAsInteger();
+    Long oldMaxInMemoryRows = OGlobalConfiguration.QUERY_HASH_JOIN_MAX_IN_MEMORY_ROWS.getValueAsLong();
+    try {
+      OGlobalConfiguration.QUERY_HASH_JOIN_MIN_PROBE_ROWS.setValue(2);
+      for (long maxInMemoryRows : new long[] { -1, 5 }) {
+        OGlobalConfiguration.QUERY_HASH_JOIN_MAX_IN_MEMORY_ROWS.setValue(maxInMemoryRows);
+        OResultSet result = db.query("select id, $children.size() as size, $children as children from " + parentClassName
+            + " let $children = (select val from " + childClassName + " where val < 100 and parentId = $parent.$current.id)");
+        printExecutionPlan(result);
+        Assert.assertTrue(result.getExecutionPlan().get().prettyPrint(0, 2).contains("hash join"));
+        for (int i = 0; i < 10; i++) {
+          Assert.assertTrue(result.hasNext());
+          OResult item = result.next();
+          int id = item.getProperty("id");
+          Assert.assertEquals(id, (int) item.getProperty("size"));
+          for (OResult child : item.<List<OResult>>getProperty("children")) {
+            Assert.assertTrue((Integer) child.getProperty("val") < id);
+          }
+        }
+        Assert.assertFalse(result.hasNext());
+        result.close();
+      }
+    } finally {
+      OGlobalConfiguration.QUERY_HASH_JOIN_MIN_PROBE_ROWS.setValue(oldMinProbeRows);
+      OGlobalConfiguration.QUERY_HASH_JOIN_MAX_IN_MEMORY_ROWS.setValue(oldMaxInMemoryRows);
+    }
+  }
+
   @Test
   public void testLetWithTraverseFunction() {
     String vertexClassName = "testLetWithTraverseFunction";
@@ -1929,7 +2088,7 @@ public class OSelectStatementExecutionTest {
     OClass childClass1 = db.getMetadata().getSchema().createClass(child1, parentClass);
     OClass childClass2 = db.getMetadata().getSchema().createClass(child2, parentClass);
 
-    parentClass.createProperty("name", OType.STRING);
+    childClass1.createProperty("name", OType.STRING);
     childClass1.createIndex(child1 + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
     childClass2.createIndex(child2 + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
 
@@ -1967,7 +2126,7 @@ public class OSelectStatementExecutionTest {
     OClass childClass1 = db.getMetadata().getSchema().createClass(child1, parentClass);
     OClass childClass2 = db.getMetadata().getSchema().createClass(child2, parentClass);
 
-    parentClass.createProperty("name", OType.STRING);
+    childClass1.createProperty("name", OType.STRING);
     childClass1.createIndex(child1 + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
     childClass2.createIndex(child2 + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
 
@@ -2007,7 +2166,7 @@ public class OSelectStatementExecutionTest {
     OClass childClass1 = db.getMetadata().getSchema().createClass(child1, parentClass);
     OClass childClass2 = db.getMetadata().getSchema().createClass(child2, parentClass);
 
-    parentClass.createProperty("name", OType.STRING);
+    childClass1.createProperty("name", OType.STRING);
     childClass1.createIndex(child1 + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
 
     for (int i = 0; i < 10; i++) {
@@ -2046,7 +2205,7 @@ public class OSelectStatementExecutionTest {
     OClass childClass1 = db.getMetadata().getSchema().createClass(child1, parentClass);
     OClass childClass2 = db.getMetadata().getSchema().createClass(child2, parentClass);
 
-    parentClass.createProperty("name", OType.STRING);
+    childClass1.createProperty("name", OType.STRING);
     childClass1.createIndex(child1 + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
     childClass2.createIndex(child2 + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
 
@@ -2095,7 +2254,7 @@ public class OSelectStatementExecutionTest {
     OClass childClass2_1 = db.getMetadata().getSchema().createClass(child2_1, childClass2);
     OClass childClass2_2 = db.getMetadata().getSchema().createClass(child2_2, childClass2);
 
-    parentClass.createProperty("name", OType.STRING);
+    childClass1.createProperty("name", OType.STRING);
     childClass1.createIndex(child1 + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
     childClass2_1.createIndex(child2_1 + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
     childClass2_2.createIndex(child2_2 + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
@@ -2134,6 +2293,119 @@ public class OSelectStatementExecutionTest {
     result.close();
   }
 
+  @Test
+  public void testFetchFromSubclassIndexesWithOrderBy() {
+    String parent = "testFetchFromSubclassIndexesWithOrderBy_parent";
+    String child1 = "testFetchFromSubclassIndexesWithOrderBy_child1";
+    String child2 = "testFetchFromSubclassIndexesWithOrderBy_child2";
+    OClass parentClass = db.getMetadata().getSchema().createClass(parent);
+    OClass childClass1 = db.getMetadata().getSchema().createClass(child1, parentClass);
+    OClass childClass2 = db.getMetadata().getSchema().createClass(child2, parentClass);
+
+    parentClass.createProperty("val", OType.INTEGER);
+    childClass1.createIndex(child1 + ".val", OClass.INDEX_TYPE.NOTUNIQUE, "val");
+    childClass2.createIndex(child2 + ".val", OClass.INDEX_TYPE.NOTUNIQUE, "val");
+
+    for (int i = 0; i < 20; i++) {
+      ODocument doc = db.newInstance(i % 2 == 0 ? child1 : child2);
+      doc.setProperty("val", i);
+      doc.save();
+    }
+
+    OResultSet result = db.query("select from " + parent + " where val > 5 order by val desc limit 6");
+    printExecutionPlan(result);
+    OInternalExecutionPlan plan = (OInternalExecutionPlan) result.getExecutionPlan().get();
+    Assert.assertTrue(plan.getSteps().get(0) instanceof OrderedMergeStep);
+    Assert.assertFalse(plan.getSteps().stream().anyMatch(x -> x instanceof OrderByStep));
+    for (int i = 19; i > 13; i--) {
+      Assert.assertTrue(result.hasNext());
+      Assert.assertEquals((Integer) i, result.next().getProperty("val"));
+    }
+    Assert.assertFalse(result.hasNext());
+    result.close();
+  }
+
+  @Test
+  public void testFetchFromSubclassIndexesWithOrderByAndCollate() {
+    String parent = "testFetchFromSubclassIndexesWithOrderByAndCollate_parent";
+    String child1 = "testFetchFromSubclassIndexesWithOrderByAndCollate_child1";
+    String child2 = "testFetchFromSubclassIndexesWithOrderByAndCollate_child2";
+    OClass parentClass = db.getMetadata().getSchema().createClass(parent);
+    OClass childClass1 = db.getMetadata().getSchema().createClass(child1, parentClass);
+    OClass childClass2 = db.getMetadata().getSchema().createClass(child2, parentClass);
+
+    childClass1.createProperty("name", OType.STRING);
+    childClass1.createIndex(child1 + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
+    childClass2.createProperty("name", OType.STRING).setCollate("ci");
+    childClass2.createIndex(child2 + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
+
+    String[] names = { "a", "B", "c", "D" };
+    for (int i = 0; i < names.length; i++) {
+      ODocument doc = db.newInstance(i % 2 == 0 ? child1 : child2);
+      doc.setProperty("name", names[i]);
+      doc.save();
+    }
+
+    // the index of child2 is case insensitive, its results cannot be merged comparing the values
+    OResultSet result = db.query("select from " + parent + " where name > 'A' order by name");
+    printExecutionPlan(result);
+    OInternalExecutionPlan plan = (OInternalExecutionPlan) result.getExecutionPlan().get();
+    Assert.assertFalse(plan.getSteps().get(0) instanceof OrderedMergeStep);
+    List<String> found = new ArrayList<>();
+    result.stream().forEach(x -> found.add(x.getProperty("name")));
+    List<String> expected = new ArrayList<>(found);
+    Collections.sort(expected);
+    Assert.assertEquals(expected, found);
+    result.close();
+  }
+
+  @Test
+  public void testSortFromSubclassIndexes() {
+    String parent = "testSortFromSubclassIndexes_parent";
+    String child1 = "testSortFromSubclassIndexes_child1";
+    String child2 = "testSortFromSubclassIndexes_child2";
+    String child3 = "testSortFromSubclassIndexes_child3";
+    OClass parentClass = db.getMetadata().getSchema().createClass(parent);
+    OClass childClass1 = db.getMetadata().getSchema().createClass(child1, parentClass);
+    OClass childClass2 = db.getMetadata().getSchema().createClass(child2, parentClass);
+    OClass childClass3 = db.getMetadata().getSchema().createClass(child3, childClass2);
+
+    parentClass.createProperty("val", OType.INTEGER);
+    childClass1.createIndex(child1 + ".val", OClass.INDEX_TYPE.NOTUNIQUE, "val");
+    childClass2.createIndex(child2 + ".val", OClass.INDEX_TYPE.NOTUNIQUE, "val");
+
+    for (int i = 0; i < 30; i++) {
+      ODocument doc = db.newInstance(i % 3 == 0 ? child1 : i % 3 == 1 ? child2 : child3);
+      doc.setProperty("val", i);
+      doc.save();
+    }
+
+    OResultSet result = db.query("select val as v from " + parent + " order by v limit 10");
+    printExecutionPlan(result);
+    OInternalExecutionPlan plan = (OInternalExecutionPlan) result.getExecutionPlan().get();
+    Assert.assertTrue(plan.getSteps().get(0) instanceof OrderedMergeStep);
+    Assert.assertEquals(2, ((OrderedMergeStep) plan.getSteps().get(0)).getSubExecutionPlans().size());
+    Assert.assertFalse(plan.getSteps().stream().anyMatch(x -> x instanceof OrderByStep));
+    for (int i = 0; i < 10; i++) {
+      Assert.assertTrue(result.hasNext());
+      Assert.assertEquals((Integer) i, result.next().getProperty("v"));
+    }
+    Assert.assertFalse(result.hasNext());
+    result.close();
+
+    //a subclass without index: sorted in memory
+    db.getMetadata().getSchema().createClass(parent + "_child4", parentClass);
+    result = db.query("select from " + parent + " order by val desc limit 3");
+    plan = (OInternalExecutionPlan) result.getExecutionPlan().get();
+    Assert.assertTrue(plan.getSteps().stream().anyMatch(x -> x instanceof OrderByStep));
+    for (int i = 29; i > 26; i--) {
+      Assert.assertTrue(result.hasNext());
+      Assert.assertEquals((Integer) i, result.next().getProperty("val"));
+    }
+    Assert.assertFalse(result.hasNext());
+    result.close();
+  }
+
   @Test
   public void testFetchFromSubSubclassIndexesWithDiamond() {
     String parent = "testFetchFromSubSubclassIndexesWithDiamond_parent";
@@ -2146,7 +2418,7 @@ public class OSelectStatementExecutionTest {
     OClass childClass2 = db.getMetadata().getSchema().createClass(child2, parentClass);
     OClass childClass12 = db.getMetadata().getSchema().createClass(child12, childClass1, childClass2);
 
-    parentClass.createProperty("name", OType.STRING);
+    childClass1.createProperty("name", OType.STRING);
     childClass1.createIndex(child1 + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
     childClass2.createIndex(child2 + ".name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
 
@@ -3577,4 +3849,91 @@ public class OSelectStatementExecutionTest {
       OGlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.setValue(oldValue);
     }
   }
+
+  @Test
+  public void testFetchFromIndexInBatches() {
+    String className = "testFetchFromIndexInBatches";
+    OClass clazz = db.getMetadata().getSchema().createClass(className);
+    clazz.addCluster(className + "_2");
+    clazz.createProperty("val", OType.INTEGER);
+    clazz.createIndex(className + ".val", OClass.INDEX_TYPE.NOTUNIQUE, "val");
+
+    List<ORID> deleted = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      ODocument doc = db.newInstance(className);
+      doc.setProperty("val", 199 - i);
+      doc.setProperty("name", "name" + (199 - i));
+      doc.save();
+      if (i % 10 == 0) {
+        deleted.add(doc.getIdentity());
+      }
+    }
+    for (ORID rid : deleted) {
+      db.delete(rid);
+    }
+    ((ODatabaseDocumentInternal) db).getLocalCache().clear();
+
+    Object previous = OGlobalConfiguration.QUERY_FETCH_BATCH_SIZE.getValue();
+    OGlobalConfiguration.QUERY_FETCH_BATCH_SIZE.setValue(7);
+    try {
+      OResultSet result = db.query("select from " + className + " where val >= 50 order by val");
+      printExecutionPlan(result);
+      for (int i = 50; i < 200; i++) {
+        if ((199 - i) % 10 == 0) {
+          // deleted
+          continue;
+        }
+        Assert.assertTrue(result.hasNext());
+        OResult item = result.next();
+        Assert.assertEquals((Integer) i, item.getProperty("val"));
+        Assert.assertEquals("name" + i, item.getProperty("name"));
+      }
+      Assert.assertFalse(result.hasNext());
+      result.close();
+
+      result = db.query("select from " + className + " where val >= 50 order by val limit 3");
+      Assert.assertEquals((Integer) 50, result.next().getProperty("val"));
+      Assert.assertEquals((Integer) 51, result.next().getProperty("val"));
+      Assert.assertEquals((Integer) 52, result.next().getProperty("val"));
+      Assert.assertFalse(result.hasNext());
+      result.close();
+    } finally {
+      OGlobalConfiguration.QUERY_FETCH_BATCH_SIZE.setValue(previous);
+    }
+  }
+
+  @Test
+  public void testFetchFromRidsInBatches() {
+    String className = "testFetchFromRidsInBatches";
+    db.getMetadata().getSchema().createClass(className);
+
+    List<ORID> rids = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      ODocument doc = db.newInstance(className);
+      doc.setProperty("val", i);
+      doc.save();
+      rids.add(doc.getIdentity());
+    }
+    db.delete(rids.get(3));
+    Collections.reverse(rids);
+    ((ODatabaseDocumentInternal) db).getLocalCache().clear();
+
+    Object previous = OGlobalConfiguration.QUERY_FETCH_BATCH_SIZE.getValue();
+    OGlobalConfiguration.QUERY_FETCH_BATCH_SIZE.setValue(4);
+    try {
+      OResultSet result = db.query("select from " + rids);
+      printExecutionPlan(result);
+      for (int i = 19; i >= 0; i--) {
+        if (i == 3) {
+          continue;
+        }
+        Assert.assertTrue(result.hasNext());
+        Assert.assertEquals((Integer) i, result.next().getProperty("val"));
+      }
+      Assert.assertFalse(result.hasNext());
+      result.close();
+    } finally {
+      OGlobalConfiguration.QUERY_FETCH_BATCH_SIZE.setValue(previous);
+    }
+  }
 }
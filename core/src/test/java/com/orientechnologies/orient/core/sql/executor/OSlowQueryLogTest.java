@@ -0,0 +1,94 @@
+package com.orientechnologies.orient.core.sql.executor;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class OSlowQueryLogTest {
+
+  private ODatabaseDocumentInternal db;
+  private Long                      oldThreshold;
+  private Float                     oldSamplingRate;
+  private Boolean                   oldStoreInClass;
+
+  @Before
+  public void before() {
+    oldThreshold = OGlobalConfiguration.QUERY_SLOW_LOG_THRESHOLD.getValueAsLong();
+    oldSamplingRate = OGlobalConfiguration.QUERY_SLOW_LOG_SAMPLING_RATE.getValueAsFloat();
+    oldStoreInClass = OGlobalConfiguration.QUERY_SLOW_LOG_STORE_IN_CLASS.getValueAsBoolean();
+    db = new ODatabaseDocumentTx("memory:OSlowQueryLogTest");
+    db.create();
+    db.createClass("Foo");
+    for (int i = 0; i < 10; i++) {
+      ODocument doc = new ODocument("Foo");
+      doc.setProperty("val", i);
+      doc.save();
+    }
+  }
+
+  @After
+  public void after() {
+    OGlobalConfiguration.QUERY_SLOW_LOG_THRESHOLD.setValue(oldThreshold);
+    OGlobalConfiguration.QUERY_SLOW_LOG_SAMPLING_RATE.setValue(oldSamplingRate);
+    OGlobalConfiguration.QUERY_SLOW_LOG_STORE_IN_CLASS.setValue(oldStoreInClass);
+    db.drop();
+  }
+
+  @Test
+  public void testDisabled() {
+    OGlobalConfiguration.QUERY_SLOW_LOG_THRESHOLD.setValue(-1);
+    OGlobalConfiguration.QUERY_SLOW_LOG_SAMPLING_RATE.setValue(0f);
+    db.query("select from Foo").close();
+    Assert.assertTrue(db.getSharedContext().getSlowQueryLog().getRecords().isEmpty());
+  }
+
+  @Test
+  public void testThreshold() {
+    OGlobalConfiguration.QUERY_SLOW_LOG_THRESHOLD.setValue(0);
+    OGlobalConfiguration.QUERY_SLOW_LOG_SAMPLING_RATE.setValue(0f);
+    try (OResultSet result = db.query("select from Foo where val >= ?", 5)) {
+      Assert.assertEquals(5, result.stream().count());
+    }
+
+    List<OResult> records = db.getSharedContext().getSlowQueryLog().getRecords();
+    Assert.assertEquals(1, records.size());
+    OResult record = records.get(0);
+    Assert.assertEquals("select from Foo where val >= ?", record.getProperty("statement"));
+    Assert.assertEquals(5L, (long) record.getProperty("rows"));
+    Assert.assertFalse(record.getProperty("sampled"));
+    // only the types of the parameters, unless query.slowLog.parameterValues is enabled
+    Map<String, String> parameters = record.getProperty("parameters");
+    Assert.assertEquals("Integer", parameters.get("0"));
+    Assert.assertNotNull(record.getProperty("executionPlan"));
+    Assert.assertNull(record.getProperty("statistics"));
+  }
+
+  @Test
+  public void testSampling() {
+    OGlobalConfiguration.QUERY_SLOW_LOG_THRESHOLD.setValue(-1);
+    OGlobalConfiguration.QUERY_SLOW_LOG_SAMPLING_RATE.setValue(1f);
+    OGlobalConfiguration.QUERY_SLOW_LOG_STORE_IN_CLASS.setValue(true);
+    try (OResultSet result = db.query("select from Foo")) {
+      Assert.assertEquals(10, result.stream().count());
+    }
+
+    List<OResult> records = db.getSharedContext().getSlowQueryLog().getRecords();
+    Assert.assertEquals(1, records.size());
+    OResult record = records.get(0);
+    Assert.assertTrue(record.getProperty("sampled"));
+    Assert.assertTrue(((String) record.getProperty("executionPlan")).contains("\"statistics\""));
+    OResult statistics = record.getProperty("statistics");
+    Assert.assertEquals(10L, (long) statistics.getProperty("rowsOut"));
+
+    OGlobalConfiguration.QUERY_SLOW_LOG_SAMPLING_RATE.setValue(0f);
+    Assert.assertEquals(1, db.countClass(OSlowQueryLog.CLASS_NAME));
+  }
+}
@@ -1,12 +1,17 @@
 package com.orientechnologies.orient.core.sql.executor;
 
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.OVertex;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author Luigi Dell'Aquila (l.dellaquila-(at)-orientdb.com)
  */
@@ -165,4 +170,70 @@ public class OTraverseStatementExecutionTest {
     result.close();
   }
 
+  @Test
+  public void testParallelBreadthFirst() {
+    String classPrefix = "testParallelBreadthFirst_";
+    db.createVertexClass(classPrefix + "V");
+    db.createEdgeClass(classPrefix + "E");
+
+    db.begin();
+    OVertex root = db.newVertex(classPrefix + "V");
+    root.setProperty("name", "root");
+    root.save();
+    List<OVertex> leaves = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      OVertex leaf = db.newVertex(classPrefix + "V");
+      leaf.setProperty("name", "leaf" + i);
+      leaf.save();
+      leaves.add(leaf);
+    }
+    for (int i = 0; i < 300; i++) {
+      OVertex child = db.newVertex(classPrefix + "V");
+      child.setProperty("name", "child" + i);
+      child.save();
+      root.addEdge(child, classPrefix + "E").save();
+      // the leaves are shared by many children, and some children point back to the root
+      child.addEdge(leaves.get(i % leaves.size()), classPrefix + "E").save();
+      child.addEdge(leaves.get((i * 7) % leaves.size()), classPrefix + "E").save();
+      if (i % 10 == 0) {
+        child.addEdge(root, classPrefix + "E").save();
+      }
+    }
+    db.commit();
+
+    String query = "traverse out() from (select from " + classPrefix + "V where name = 'root')";
+    List<String> expected = new ArrayList<>();
+    OResultSet result = db.query(query + " STRATEGY BREADTH_FIRST");
+    while (result.hasNext()) {
+      OResult item = result.next();
+      expected.add(item.getIdentity().get() + " " + item.getMetadata("$depth"));
+    }
+    result.close();
+    Assert.assertEquals(351, expected.size());
+
+    db.getConfiguration().setValue(OGlobalConfiguration.QUERY_TRAVERSE_PARALLELISM, 2);
+    try {
+      List<String> actual = new ArrayList<>();
+      result = db.query(query + " STRATEGY BREADTH_FIRST");
+      Assert.assertTrue(result.getExecutionPlan().get().prettyPrint(0, 2).contains("PARALLEL BREADTH-FIRST TRAVERSE"));
+      while (result.hasNext()) {
+        OResult item = result.next();
+        actual.add(item.getIdentity().get() + " " + item.getMetadata("$depth"));
+      }
+      result.close();
+      Assert.assertEquals(expected, actual);
+
+      result = db.query(query + " MAXDEPTH 1 STRATEGY BREADTH_FIRST");
+      int count = 0;
+      while (result.hasNext()) {
+        result.next();
+        count++;
+      }
+      result.close();
+      Assert.assertEquals(301, count);
+    } finally {
+      db.getConfiguration().setValue(OGlobalConfiguration.QUERY_TRAVERSE_PARALLELISM, 0);
+    }
+  }
+
 }
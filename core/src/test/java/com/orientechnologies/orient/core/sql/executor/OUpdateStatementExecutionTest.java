@@ -1,5 +1,6 @@
 package com.orientechnologies.orient.core.sql.executor;
 
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseSession;
 import com.orientechnologies.orient.core.db.ODatabaseType;
 import com.orientechnologies.orient.core.db.OrientDB;
@@ -702,4 +703,95 @@ public class OUpdateStatementExecutionTest {
     Assert.assertFalse(result.hasNext());
     result.close();
   }
+
+  @Test
+  public void testParallelUpdate() {
+    OClass clazz = db.getMetadata().getSchema().getClass(className);
+    clazz.addCluster(className + "_2");
+    clazz.addCluster(className + "_3");
+    clazz.createProperty("surname", OType.STRING);
+    clazz.createIndex(className + ".surname", OClass.INDEX_TYPE.NOTUNIQUE, "surname");
+    for (int i = 0; i < 500; i++) {
+      ODocument doc = db.newInstance(className);
+      doc.setProperty("name", "parallel" + i);
+      doc.setProperty("number", i % 2 == 0 ? 4L : 5L);
+      doc.save();
+    }
+
+    db.getConfiguration().setValue(OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_WORKERS, 3);
+    db.getConfiguration().setValue(OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_BATCH_SIZE, 17);
+    try {
+      OResultSet result = db.command("update " + className + " set surname = 'changed', number = number + 10 where number = 4");
+      printExecutionPlan(result);
+      Assert.assertTrue(result.getExecutionPlan().get().prettyPrint(0, 2).contains("PARALLEL UPDATE"));
+      Assert.assertTrue(result.hasNext());
+      Assert.assertEquals((Object) 260L, result.next().getProperty("count"));
+      Assert.assertFalse(result.hasNext());
+      result.close();
+    } finally {
+      db.getConfiguration().setValue(OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_WORKERS, 0);
+      db.getConfiguration()
+          .setValue(OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_BATCH_SIZE,
+              OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_BATCH_SIZE.getDefValue());
+    }
+
+    OResultSet result = db.query("select count(*) as count from " + className + " where surname = 'changed' and number = 14");
+    Assert.assertEquals((Object) 260L, result.next().getProperty("count"));
+    result.close();
+    result = db.query("select count(*) as count from " + className + " where number = 4");
+    Assert.assertEquals((Object) 0L, result.next().getProperty("count"));
+    result.close();
+  }
+
+  @Test
+  public void testParallelUpdateMoreWorkersThanProcessors() {
+    int workers = Runtime.getRuntime().availableProcessors() * 2 + 1;
+    OClass clazz = db.getMetadata().getSchema().getClass(className);
+    for (int i = 0; i < workers; i++) {
+      clazz.addCluster(className + "_w" + i);
+    }
+    for (int i = 0; i < 50 * workers; i++) {
+      ODocument doc = db.newInstance(className);
+      doc.setProperty("name", "parallel" + i);
+      doc.setProperty("number", 4L);
+      doc.save();
+    }
+
+    db.getConfiguration().setValue(OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_WORKERS, workers);
+    db.getConfiguration().setValue(OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_BATCH_SIZE, 1);
+    try {
+      OResultSet result = db.command("update " + className + " set surname = 'changed' where number = 4");
+      Assert.assertTrue(result.getExecutionPlan().get().prettyPrint(0, 2).contains("PARALLEL UPDATE"));
+      Assert.assertEquals((Object) (50L * workers + 10), result.next().getProperty("count"));
+      result.close();
+    } finally {
+      db.getConfiguration().setValue(OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_WORKERS, 0);
+      db.getConfiguration()
+          .setValue(OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_BATCH_SIZE,
+              OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_BATCH_SIZE.getDefValue());
+    }
+
+    OResultSet result = db.query("select count(*) as count from " + className + " where surname = 'changed'");
+    Assert.assertEquals((Object) (50L * workers + 10), result.next().getProperty("count"));
+    result.close();
+  }
+
+  @Test
+  public void testParallelUpdateInTransaction() {
+    db.getConfiguration().setValue(OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_WORKERS, 3);
+    db.begin();
+    try {
+      OResultSet result = db.command("update " + className + " set surname = 'changed' where number = 4");
+      Assert.assertFalse(result.getExecutionPlan().get().prettyPrint(0, 2).contains("PARALLEL"));
+      Assert.assertEquals((Object) 10L, result.next().getProperty("count"));
+      result.close();
+      db.rollback();
+    } finally {
+      db.getConfiguration().setValue(OGlobalConfiguration.QUERY_PARALLEL_MODIFICATION_WORKERS, 0);
+    }
+
+    OResultSet result = db.query("select count(*) as count from " + className + " where surname = 'changed'");
+    Assert.assertEquals((Object) 0L, result.next().getProperty("count"));
+    result.close();
+  }
 }
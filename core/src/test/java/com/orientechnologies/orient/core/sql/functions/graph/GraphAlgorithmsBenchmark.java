@@ -0,0 +1,112 @@
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.OVertex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Runs the graph algorithms on a synthetic power-law graph (preferential attachment: each new vertex links to
+ * <code>degree</code> vertices chosen with a probability proportional to their degree), with one thread and with the configured
+ * parallelism.
+ * <p>
+ * The size of the graph is set with the system properties <code>vertices</code> (default 100000) and <code>degree</code> (default
+ * 8), the parallelism with <code>parallelism</code> (default the number of processors).
+ */
+public class GraphAlgorithmsBenchmark {
+  private final int vertices    = Integer.getInteger("vertices", 100_000);
+  private final int degree      = Integer.getInteger("degree", 8);
+  private final int parallelism = Integer.getInteger("parallelism", Runtime.getRuntime().availableProcessors());
+
+  public static void main(String[] args) {
+    new GraphAlgorithmsBenchmark().benchmark();
+  }
+
+  public void benchmark() {
+    try (OrientDB orientDB = new OrientDB("embedded:", OrientDBConfig.defaultConfig())) {
+      orientDB.create("GraphAlgorithmsBenchmark", ODatabaseType.MEMORY);
+      try (ODatabaseDocument db = orientDB.open("GraphAlgorithmsBenchmark", "admin", "admin")) {
+        generate(db);
+
+        long begin = System.currentTimeMillis();
+        OGraphProjection projection = OGraphProjectionManager.getInstance((ODatabaseDocumentInternal) db)
+            .create((ODatabaseDocumentInternal) db, "bench", null, null, null);
+        System.out.println(
+            "Projection built in " + (System.currentTimeMillis() - begin) + " ms, " + projection.getMemorySize() + " bytes");
+
+        for (int threads : new int[] { 1, parallelism }) {
+          System.out.println("Parallelism " + threads);
+          try (OGraphAlgorithms algorithms = new OGraphAlgorithms(projection, threads)) {
+            run("pageRank", algorithms, a -> a.pageRank(0.85, 20, 0));
+            run("connectedComponents", algorithms, OGraphAlgorithms::weaklyConnectedComponents);
+            run("labelPropagation", algorithms, a -> a.labelPropagation(10));
+            run("triangleCount", algorithms, OGraphAlgorithms::triangleCount);
+            run("degreeCentrality", algorithms, a -> a.degreeCentrality(ODirection.BOTH, true));
+          }
+        }
+      }
+      orientDB.drop("GraphAlgorithmsBenchmark");
+    }
+  }
+
+  private void generate(ODatabaseDocument db) {
+    Random random = new Random(42);
+    List<ORID> rids = new ArrayList<>(vertices);
+    long begin = System.currentTimeMillis();
+    db.begin();
+    for (int i = 0; i < vertices; i++) {
+      OVertex v = db.newVertex();
+      v.setProperty("id", i);
+      v.save();
+      rids.add(v.getIdentity());
+      if (i % 10_000 == 0) {
+        db.commit();
+        db.begin();
+      }
+    }
+    db.commit();
+    // the RIDs are final only after the commit
+    for (int i = 0; i < rids.size(); i++) {
+      rids.set(i, rids.get(i).getIdentity());
+    }
+
+    // every edge adds both its ends, so picking a random element picks a vertex proportionally to its degree
+    int[] ends = new int[2 * vertices * degree];
+    int endCount = 0;
+    int edges = 0;
+    db.begin();
+    for (int i = 1; i < vertices; i++) {
+      OVertex from = db.load(rids.get(i));
+      for (int j = 0; j < Math.min(i, degree); j++) {
+        int target = endCount == 0 || random.nextInt(4) == 0 ? random.nextInt(i) : ends[random.nextInt(endCount)];
+        db.newEdge(from, db.load(rids.get(target))).save();
+        ends[endCount++] = i;
+        ends[endCount++] = target;
+        if (++edges % 10_000 == 0) {
+          db.commit();
+          db.begin();
+        }
+      }
+    }
+    db.commit();
+    System.out.println(
+        "Graph of " + vertices + " vertices and " + edges + " edges created in " + (System.currentTimeMillis() - begin) + " ms");
+  }
+
+  private void run(String name, OGraphAlgorithms algorithms, Consumer<OGraphAlgorithms> algorithm) {
+    // warm up
+    algorithm.accept(algorithms);
+    long begin = System.nanoTime();
+    algorithm.accept(algorithms);
+    System.out.println(String.format("  %-20s %10.2f ms", name, (System.nanoTime() - begin) / 1_000_000.0));
+  }
+}
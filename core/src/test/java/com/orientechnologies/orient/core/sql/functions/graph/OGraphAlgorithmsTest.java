@@ -0,0 +1,283 @@
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class OGraphAlgorithmsTest {
+
+  private OrientDB          orientDB;
+  private ODatabaseDocument db;
+
+  @Before
+  public void setUp() {
+    orientDB = new OrientDB("embedded:", OrientDBConfig.defaultConfig());
+    orientDB.create("OGraphAlgorithmsTest", ODatabaseType.MEMORY);
+    db = orientDB.open("OGraphAlgorithmsTest", "admin", "admin");
+  }
+
+  @After
+  public void tearDown() {
+    db.close();
+    orientDB.drop("OGraphAlgorithmsTest");
+    orientDB.close();
+  }
+
+  private List<OVertex> createVertices(int count) {
+    List<OVertex> result = new ArrayList<>();
+    db.begin();
+    for (int i = 0; i < count; i++) {
+      OVertex v = db.newVertex();
+      v.setProperty("id", i);
+      v.save();
+      result.add(v);
+    }
+    db.commit();
+    return result;
+  }
+
+  private void link(List<OVertex> vertices, int from, int to) {
+    db.newEdge(vertices.get(from), vertices.get(to)).save();
+  }
+
+  private OGraphProjection project() {
+    return OGraphProjectionManager.getInstance((ODatabaseDocumentInternal) db)
+        .create((ODatabaseDocumentInternal) db, "g", null, null, null);
+  }
+
+  @Test
+  public void testConnectedComponents() {
+    List<OVertex> vertices = createVertices(7);
+    link(vertices, 0, 1);
+    link(vertices, 2, 1);
+    link(vertices, 3, 4);
+    link(vertices, 5, 4);
+    link(vertices, 5, 5);
+
+    OGraphProjection projection = project();
+    try (OGraphAlgorithms algorithms = new OGraphAlgorithms(projection, 4)) {
+      int[] components = algorithms.weaklyConnectedComponents();
+      int first = components[projection.indexOf(vertices.get(0).getIdentity())];
+      int second = components[projection.indexOf(vertices.get(3).getIdentity())];
+      int isolated = components[projection.indexOf(vertices.get(6).getIdentity())];
+      Assert.assertNotEquals(first, second);
+      Assert.assertNotEquals(first, isolated);
+      Assert.assertNotEquals(second, isolated);
+      for (int i : new int[] { 1, 2 }) {
+        Assert.assertEquals(first, components[projection.indexOf(vertices.get(i).getIdentity())]);
+      }
+      for (int i : new int[] { 4, 5 }) {
+        Assert.assertEquals(second, components[projection.indexOf(vertices.get(i).getIdentity())]);
+      }
+    }
+  }
+
+  @Test
+  public void testTriangleCount() {
+    // a complete graph of 4 vertices, with a duplicate edge, an edge in the opposite direction and a self loop, plus a tail
+    List<OVertex> vertices = createVertices(5);
+    for (int i = 0; i < 4; i++) {
+      for (int j = i + 1; j < 4; j++) {
+        link(vertices, i, j);
+      }
+    }
+    link(vertices, 0, 1);
+    link(vertices, 2, 0);
+    link(vertices, 3, 3);
+    link(vertices, 3, 4);
+
+    OGraphProjection projection = project();
+    try (OGraphAlgorithms algorithms = new OGraphAlgorithms(projection, 4)) {
+      int[] triangles = algorithms.triangleCount();
+      for (int i = 0; i < 4; i++) {
+        Assert.assertEquals(3, triangles[projection.indexOf(vertices.get(i).getIdentity())]);
+      }
+      Assert.assertEquals(0, triangles[projection.indexOf(vertices.get(4).getIdentity())]);
+    }
+  }
+
+  @Test
+  public void testPageRank() {
+    int n = 500;
+    List<OVertex> vertices = createVertices(n);
+    Random random = new Random(42);
+    int[][] edges = new int[3000][];
+    db.begin();
+    for (int i = 0; i < edges.length; i++) {
+      edges[i] = new int[] { random.nextInt(n), random.nextInt(n / 2) };
+      link(vertices, edges[i][0], edges[i][1]);
+    }
+    db.commit();
+
+    OGraphProjection projection = project();
+    double[] ranks;
+    try (OGraphAlgorithms algorithms = new OGraphAlgorithms(projection, 4)) {
+      ranks = algorithms.pageRank(0.85, 30, 0);
+    }
+
+    // sequential power iteration, on the vertex numbers of the test
+    int[] outDegrees = new int[n];
+    for (int[] edge : edges) {
+      outDegrees[edge[0]]++;
+    }
+    double[] expected = new double[n];
+    java.util.Arrays.fill(expected, 1.0 / n);
+    for (int iteration = 0; iteration < 30; iteration++) {
+      double dangling = 0;
+      for (int v = 0; v < n; v++) {
+        if (outDegrees[v] == 0) {
+          dangling += expected[v];
+        }
+      }
+      double[] next = new double[n];
+      java.util.Arrays.fill(next, 0.15 / n + 0.85 * dangling / n);
+      for (int[] edge : edges) {
+        next[edge[1]] += 0.85 * expected[edge[0]] / outDegrees[edge[0]];
+      }
+      expected = next;
+    }
+
+    double sum = 0;
+    for (int v = 0; v < n; v++) {
+      double rank = ranks[projection.indexOf(vertices.get(v).getIdentity())];
+      Assert.assertEquals(expected[v], rank, 1e-9);
+      sum += rank;
+    }
+    Assert.assertEquals(1.0, sum, 1e-9);
+  }
+
+  @Test
+  public void testLabelPropagation() {
+    // two cliques joined by a single edge
+    List<OVertex> vertices = createVertices(10);
+    db.begin();
+    for (int base : new int[] { 0, 5 }) {
+      for (int i = base; i < base + 5; i++) {
+        for (int j = i + 1; j < base + 5; j++) {
+          link(vertices, i, j);
+        }
+      }
+    }
+    link(vertices, 4, 5);
+    db.commit();
+
+    OGraphProjection projection = project();
+    try (OGraphAlgorithms algorithms = new OGraphAlgorithms(projection, 2)) {
+      int[] labels = algorithms.labelPropagation(20);
+      int first = labels[projection.indexOf(vertices.get(0).getIdentity())];
+      int second = labels[projection.indexOf(vertices.get(9).getIdentity())];
+      Assert.assertNotEquals(first, second);
+      for (int i = 0; i < 10; i++) {
+        Assert.assertEquals(i < 5 ? first : second, labels[projection.indexOf(vertices.get(i).getIdentity())]);
+      }
+    }
+  }
+
+  @Test
+  public void testDegreeCentrality() {
+    List<OVertex> vertices = createVertices(5);
+    for (int i = 1; i < 5; i++) {
+      link(vertices, 0, i);
+    }
+    OGraphProjection projection = project();
+    try (OGraphAlgorithms algorithms = new OGraphAlgorithms(projection)) {
+      int hub = projection.indexOf(vertices.get(0).getIdentity());
+      int leaf = projection.indexOf(vertices.get(1).getIdentity());
+      double[] out = algorithms.degreeCentrality(ODirection.OUT, false);
+      Assert.assertEquals(4, out[hub], 0);
+      Assert.assertEquals(0, out[leaf], 0);
+      double[] both = algorithms.degreeCentrality(ODirection.BOTH, true);
+      Assert.assertEquals(1, both[hub], 0);
+      Assert.assertEquals(0.25, both[leaf], 0);
+    }
+  }
+
+  @Test
+  public void testWriteBackFailure() {
+    List<OVertex> vertices = createVertices(5);
+    OGraphProjection projection = project();
+
+    Object batchSize = OGlobalConfiguration.GRAPH_ALGORITHMS_WRITE_BATCH_SIZE.getValue();
+    OGlobalConfiguration.GRAPH_ALGORITHMS_WRITE_BATCH_SIZE.setValue(2);
+    try (OGraphAlgorithms algorithms = new OGraphAlgorithms(projection, 4)) {
+      algorithms.writeBack((ODatabaseDocumentInternal) db, "score", v -> {
+        if (v == 3) {
+          throw new IllegalStateException("test");
+        }
+        return v;
+      });
+      Assert.fail();
+    } catch (OCommandExecutionException e) {
+      Assert.assertTrue(e.getMessage().contains("vertices 2-3"));
+    } finally {
+      OGlobalConfiguration.GRAPH_ALGORITHMS_WRITE_BATCH_SIZE.setValue(batchSize);
+    }
+
+    Assert.assertFalse(db.getTransaction().isActive());
+    ((ODatabaseDocumentInternal) db).getLocalCache().clear();
+    for (OVertex vertex : vertices) {
+      int v = projection.indexOf(vertex.getIdentity());
+      OVertex reloaded = db.load(vertex.getIdentity());
+      if (v < 2) {
+        Assert.assertEquals((Integer) v, reloaded.getProperty("score"));
+      } else {
+        Assert.assertNull(reloaded.getProperty("score"));
+      }
+    }
+  }
+
+  @Test
+  public void testSqlFunctions() {
+    List<OVertex> vertices = createVertices(4);
+    link(vertices, 0, 1);
+    link(vertices, 1, 2);
+    link(vertices, 2, 0);
+    db.command("select createGraphProjection('g')").close();
+
+    int rows = 0;
+    try (OResultSet rs = db.query("select expand(pageRank('g', {maxIterations: 50}))")) {
+      while (rs.hasNext()) {
+        OResult item = rs.next();
+        Assert.assertTrue(item.getProperty("rid") instanceof ORID);
+        Assert.assertTrue(((Number) item.getProperty("pageRank")).doubleValue() > 0);
+        rows++;
+      }
+    }
+    Assert.assertEquals(4, rows);
+
+    try (OResultSet rs = db.command("select triangleCount('g', {writeProperty: 'triangles'}) as summary")) {
+      Map<String, Object> summary = rs.next().getProperty("summary");
+      Assert.assertEquals(1L, summary.get("triangles"));
+      Assert.assertEquals(4L, summary.get("written"));
+    }
+    try (OResultSet rs = db.query("select from V where triangles = 1")) {
+      Assert.assertEquals(3, rs.stream().count());
+    }
+
+    try (OResultSet rs = db.command("select connectedComponents('g', {writeProperty: 'component'}) as summary")) {
+      Map<String, Object> summary = rs.next().getProperty("summary");
+      Assert.assertEquals(2, summary.get("components"));
+    }
+    try (OResultSet rs = db.query("select component from V where id = 3")) {
+      Assert.assertEquals(vertices.get(3).getIdentity(), rs.next().getProperty("component"));
+    }
+  }
+}
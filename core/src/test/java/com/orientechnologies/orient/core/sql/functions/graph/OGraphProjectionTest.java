@@ -0,0 +1,226 @@
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.OEdge;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+public class OGraphProjectionTest {
+
+  private OrientDB          orientDB;
+  private ODatabaseDocument db;
+  private List<OVertex>     vertices;
+
+  @Before
+  public void setUp() {
+    orientDB = new OrientDB("embedded:", OrientDBConfig.defaultConfig());
+    orientDB.create("OGraphProjectionTest", ODatabaseType.MEMORY);
+    db = orientDB.open("OGraphProjectionTest", "admin", "admin");
+
+    db.createVertexClass("City");
+    db.createEdgeClass("Road");
+    db.createEdgeClass("Rail");
+
+    Random random = new Random(42);
+    vertices = new ArrayList<>();
+    db.begin();
+    for (int i = 0; i < 300; i++) {
+      OVertex v = db.newVertex("City");
+      v.setProperty("id", i);
+      v.save();
+      vertices.add(v);
+    }
+    for (int i = 0; i < 1500; i++) {
+      OEdge e = db.newEdge(vertices.get(random.nextInt(300)), vertices.get(random.nextInt(300)), i % 3 == 0 ? "Rail" : "Road");
+      e.setProperty("weight", 1 + random.nextInt(20));
+      e.save();
+    }
+    db.commit();
+  }
+
+  @After
+  public void tearDown() {
+    db.close();
+    orientDB.drop("OGraphProjectionTest");
+    orientDB.close();
+  }
+
+  @Test
+  public void testAdjacency() {
+    OGraphProjection projection = OGraphProjectionManager.getInstance((ODatabaseDocumentInternal) db)
+        .create((ODatabaseDocumentInternal) db, "cities", Collections.singletonList("City"), Arrays.asList("Road", "Rail"), "weight");
+
+    Assert.assertEquals(300, projection.getVertexCount());
+    Assert.assertEquals(1500, projection.getEdgeCount());
+
+    BitSet roads = projection.resolveEdgeClasses(new String[] { "Road" }, db.getMetadata().getSchema());
+    for (OVertex vertex : vertices) {
+      int node = projection.indexOf(vertex.getIdentity());
+      Assert.assertEquals(vertex.getIdentity(), projection.getRid(node));
+
+      for (ODirection direction : ODirection.values()) {
+        List<ORID> expected = new ArrayList<>();
+        for (OVertex neighbor : vertex.getVertices(direction, "Road")) {
+          expected.add(neighbor.getIdentity());
+        }
+        List<ORID> actual = new ArrayList<>();
+        projection.forEachNeighbor(node, direction, roads, (neighbor, edge) -> {
+          Assert.assertEquals("Road", projection.getEdgeClass(edge));
+          actual.add(projection.getRid(neighbor));
+          return true;
+        });
+        expected.sort(Comparator.naturalOrder());
+        actual.sort(Comparator.naturalOrder());
+        Assert.assertEquals(expected, actual);
+      }
+    }
+    Assert.assertEquals(-1, projection.indexOf(db.newVertex().save().getIdentity()));
+  }
+
+  @Test
+  public void testPathsOnProjection() {
+    db.query("select createGraphProjection('cities', 'City', ['Road', 'Rail'], 'weight')").close();
+
+    OBasicCommandContext ctx = new OBasicCommandContext();
+    ctx.setDatabase((ODatabaseDocumentInternal) db);
+    Map<String, Object> options = new HashMap<>();
+    options.put("projection", "cities");
+
+    Random random = new Random(7);
+    for (int i = 0; i < 20; i++) {
+      OVertex from = vertices.get(random.nextInt(300));
+      OVertex to = vertices.get(random.nextInt(300));
+
+      List<OVertex> live = new OSQLFunctionDijkstra().execute(null, null, null, new Object[] { from, to, "weight", "OUT" }, ctx);
+      List<OVertex> projected = new OSQLFunctionDijkstra()
+          .execute(null, null, null, new Object[] { from, to, "weight", "OUT", options }, ctx);
+      Assert.assertEquals(live.isEmpty(), projected.isEmpty());
+      if (!live.isEmpty()) {
+        Assert.assertEquals(cost(live), cost(projected), 0.0);
+      }
+
+      List<ORID> shortest = new OSQLFunctionShortestPath().execute(null, null, null, new Object[] { from, to, "BOTH", null }, ctx);
+      List<ORID> shortestProjected = new OSQLFunctionShortestPath()
+          .execute(null, null, null, new Object[] { from, to, "BOTH", null, options }, ctx);
+      Assert.assertEquals(shortest.size(), shortestProjected.size());
+    }
+  }
+
+  @Test
+  public void testShortestPathThroughHighNode() {
+    db.createVertexClass("Stop");
+    db.createEdgeClass("Link");
+    db.begin();
+    List<OVertex> stops = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      stops.add(db.newVertex("Stop").save());
+    }
+    db.commit();
+
+    OGraphProjectionManager manager = OGraphProjectionManager.getInstance((ODatabaseDocumentInternal) db);
+    OGraphProjection numbering = manager
+        .create((ODatabaseDocumentInternal) db, "numbering", Collections.singletonList("Stop"), null, null);
+    stops.sort(Comparator.comparingInt(stop -> numbering.indexOf(stop.getIdentity())));
+    OVertex from = stops.get(0);
+    OVertex to = stops.get(1);
+    OVertex middle = stops.get(stops.size() - 1);
+    Assert.assertTrue(numbering.indexOf(middle.getIdentity()) > 64);
+
+    db.begin();
+    db.newEdge(from, middle, "Link").save();
+    db.newEdge(middle, to, "Link").save();
+    db.commit();
+    db.query("select createGraphProjection('stops', 'Stop', 'Link')").close();
+
+    OBasicCommandContext ctx = new OBasicCommandContext();
+    ctx.setDatabase((ODatabaseDocumentInternal) db);
+    Map<String, Object> options = new HashMap<>();
+    options.put("projection", "stops");
+    List<ORID> path = new OSQLFunctionShortestPath()
+        .execute(null, null, null, new Object[] { from, to, "OUT", null, options }, ctx);
+    Assert.assertEquals(Arrays.asList(from.getIdentity(), middle.getIdentity(), to.getIdentity()), path);
+  }
+
+  @Test
+  public void testStaleRefreshDrop() {
+    OGraphProjectionManager manager = OGraphProjectionManager.getInstance((ODatabaseDocumentInternal) db);
+    OGraphProjection projection = manager.create((ODatabaseDocumentInternal) db, "cities", null, null, null);
+    Assert.assertFalse(projection.isStale());
+
+    db.newEdge(vertices.get(0), vertices.get(1), "Road").save();
+    OGraphProjection stale = manager.acquire("cities");
+    Assert.assertTrue(stale.isStale());
+    Assert.assertEquals(1500, stale.getEdgeCount());
+
+    try (OResultSet rs = db.query("select refreshGraphProjection('cities') as p")) {
+      OResult item = rs.next();
+      Map<String, Object> description = item.getProperty("p");
+      Assert.assertEquals(1501, description.get("edges"));
+    }
+    OGraphProjection refreshed = manager.acquire("cities");
+    Assert.assertFalse(refreshed.isStale());
+    Assert.assertEquals(1501, refreshed.getEdgeCount());
+    // the old projection is still readable by the search that acquired it
+    Assert.assertEquals(1500, stale.getEdgeCount());
+    stale.release();
+    refreshed.release();
+
+    try (OResultSet rs = db.query("select dropGraphProjection('cities') as dropped")) {
+      Assert.assertEquals(true, rs.next().getProperty("dropped"));
+    }
+    Assert.assertNull(manager.acquire("cities"));
+  }
+
+  @Test
+  public void testStaleNotAllowed() {
+    OGraphProjectionManager manager = OGraphProjectionManager.getInstance((ODatabaseDocumentInternal) db);
+    manager.create((ODatabaseDocumentInternal) db, "cities", null, null, null);
+    db.newEdge(vertices.get(0), vertices.get(1), "Road").save();
+
+    boolean oldValue = OGlobalConfiguration.GRAPH_PROJECTION_ALLOW_STALE.getValueAsBoolean();
+    OGlobalConfiguration.GRAPH_PROJECTION_ALLOW_STALE.setValue(false);
+    try {
+      manager.acquire("cities");
+      Assert.fail("A stale projection should not be acquired");
+    } catch (OCommandExecutionException e) {
+      // expected
+    } finally {
+      OGlobalConfiguration.GRAPH_PROJECTION_ALLOW_STALE.setValue(oldValue);
+    }
+
+    manager.refresh((ODatabaseDocumentInternal) db, "cities");
+    OGraphProjection refreshed = manager.acquire("cities");
+    Assert.assertFalse(refreshed.isStale());
+    refreshed.release();
+  }
+
+  private double cost(List<OVertex> path) {
+    double result = 0;
+    for (int i = 0; i < path.size() - 1; i++) {
+      double min = Double.MAX_VALUE;
+      for (OEdge edge : path.get(i).getEdges(ODirection.OUT)) {
+        if (edge.getTo().equals(path.get(i + 1))) {
+          min = Math.min(min, ((Number) edge.getProperty("weight")).doubleValue());
+        }
+      }
+      result += min;
+    }
+    return result;
+  }
+}
@@ -0,0 +1,53 @@
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import com.orientechnologies.orient.core.id.ORecordId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class OIndexedMinHeapTest {
+
+  @Test
+  public void testPollInPriorityOrder() {
+    Random random = new Random(7);
+    OIndexedMinHeap heap = new OIndexedMinHeap(4);
+    Map<Integer, Double> priorities = new HashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      int element = random.nextInt(300);
+      double priority = random.nextDouble();
+      heap.push(element, priority);
+      priorities.put(element, priority);
+    }
+    Assert.assertEquals(priorities.size(), heap.size());
+
+    double last = -1;
+    while (!heap.isEmpty()) {
+      double priority = heap.peekPriority();
+      int element = heap.poll();
+      Assert.assertFalse(heap.contains(element));
+      Assert.assertEquals(priorities.remove(element), priority, 0.0);
+      Assert.assertTrue(priority >= last);
+      last = priority;
+    }
+    Assert.assertTrue(priorities.isEmpty());
+  }
+
+  @Test
+  public void testRidIndex() {
+    ORidIndex index = new ORidIndex(2);
+    for (int i = 0; i < 5000; i++) {
+      Assert.assertEquals(i, index.add(new ORecordId(i % 7, i)));
+    }
+    Assert.assertEquals(5000, index.size());
+    for (int i = 0; i < 5000; i++) {
+      Assert.assertEquals(i, index.add(new ORecordId(i % 7, i)));
+      Assert.assertEquals(i, index.indexOf(new ORecordId(i % 7, i)));
+      Assert.assertEquals(new ORecordId(i % 7, i), index.get(i));
+    }
+    Assert.assertEquals(-1, index.indexOf(new ORecordId(8, 1)));
+    Assert.assertEquals(5000, index.size());
+  }
+}
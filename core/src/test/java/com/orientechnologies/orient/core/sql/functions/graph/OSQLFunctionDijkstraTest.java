@@ -5,13 +5,18 @@ import com.orientechnologies.orient.core.db.ODatabaseType;
 import com.orientechnologies.orient.core.db.OrientDB;
 import com.orientechnologies.orient.core.db.OrientDBConfig;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.record.ODirection;
 import com.orientechnologies.orient.core.record.OEdge;
 import com.orientechnologies.orient.core.record.OVertex;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 
@@ -84,4 +89,87 @@ public class OSQLFunctionDijkstraTest {
     assertEquals(v3, result.get(2));
     assertEquals(v4, result.get(3));
   }
+
+  @Test
+  public void testExecuteBidirectional() throws Exception {
+    Map<String, Object> options = new HashMap<>();
+    options.put("bidirectional", true);
+    final List<OVertex> result = functionDijkstra
+        .execute(null, null, null, new Object[] { v1, v4, "'weight'", "OUT", options }, new OBasicCommandContext());
+
+    assertEquals(4, result.size());
+    assertEquals(v1, result.get(0));
+    assertEquals(v2, result.get(1));
+    assertEquals(v3, result.get(2));
+    assertEquals(v4, result.get(3));
+  }
+
+  @Test
+  public void testExecuteIn() throws Exception {
+    final List<OVertex> result = functionDijkstra
+        .execute(null, null, null, new Object[] { v4, v1, "'weight'", "IN" }, new OBasicCommandContext());
+
+    assertEquals(4, result.size());
+    assertEquals(v4, result.get(0));
+    assertEquals(v3, result.get(1));
+    assertEquals(v2, result.get(2));
+    assertEquals(v1, result.get(3));
+  }
+
+  @Test
+  public void testNoPath() throws Exception {
+    final List<OVertex> result = functionDijkstra
+        .execute(null, null, null, new Object[] { v4, v1, "'weight'" }, new OBasicCommandContext());
+
+    assertEquals(0, result.size());
+  }
+
+  @Test
+  public void testBidirectionalOnRandomGraph() throws Exception {
+    Random random = new Random(42);
+    List<OVertex> vertices = new ArrayList<>();
+    graph.begin();
+    for (int i = 0; i < 200; i++) {
+      OVertex v = graph.newVertex();
+      v.save();
+      vertices.add(v);
+    }
+    for (int i = 0; i < 1000; i++) {
+      OEdge e = graph.newEdge(vertices.get(random.nextInt(200)), vertices.get(random.nextInt(200)), "weight");
+      e.setProperty("weight", 1 + random.nextInt(20));
+      e.save();
+    }
+    graph.commit();
+
+    Map<String, Object> options = new HashMap<>();
+    options.put("bidirectional", true);
+    for (int i = 0; i < 20; i++) {
+      OVertex from = vertices.get(random.nextInt(200));
+      OVertex to = vertices.get(random.nextInt(200));
+      List<OVertex> forward = functionDijkstra
+          .execute(null, null, null, new Object[] { from, to, "'weight'", "OUT" }, new OBasicCommandContext());
+      List<OVertex> bidirectional = functionDijkstra
+          .execute(null, null, null, new Object[] { from, to, "'weight'", "OUT", options }, new OBasicCommandContext());
+      assertEquals(forward.isEmpty(), bidirectional.isEmpty());
+      if (!forward.isEmpty()) {
+        assertEquals(from, bidirectional.get(0));
+        assertEquals(to, bidirectional.get(bidirectional.size() - 1));
+        assertEquals(cost(forward), cost(bidirectional), 0.0);
+      }
+    }
+  }
+
+  private double cost(List<OVertex> path) {
+    double result = 0;
+    for (int i = 0; i < path.size() - 1; i++) {
+      double min = Double.MAX_VALUE;
+      for (OEdge edge : path.get(i).getEdges(ODirection.OUT, "weight")) {
+        if (edge.getTo().equals(path.get(i + 1))) {
+          min = Math.min(min, ((Number) edge.getProperty("weight")).doubleValue());
+        }
+      }
+      result += min;
+    }
+    return result;
+  }
 }
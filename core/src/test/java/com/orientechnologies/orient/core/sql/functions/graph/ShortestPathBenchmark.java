@@ -0,0 +1,125 @@
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.OEdge;
+import com.orientechnologies.orient.core.record.OVertex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the path finding functions on a random graph: the boxed, whole-vertex A* search (used by dijkstra() before), the
+ * primitive Dijkstra search, forward and bidirectional, and the bidirectional BFS of shortestPath().
+ * <p>
+ * The size of the graph is set with the system properties <code>vertices</code> (default 100000) and <code>degree</code> (the
+ * average number of outgoing edges, default 8), the number of searches with <code>searches</code> (default 50).
+ */
+public class ShortestPathBenchmark {
+  private final int vertices = Integer.getInteger("vertices", 100_000);
+  private final int degree   = Integer.getInteger("degree", 8);
+  private final int searches = Integer.getInteger("searches", 50);
+
+  public static void main(String[] args) {
+    new ShortestPathBenchmark().benchmark();
+  }
+
+  public void benchmark() {
+    try (OrientDB orientDB = new OrientDB("embedded:", OrientDBConfig.defaultConfig())) {
+      orientDB.create("ShortestPathBenchmark", ODatabaseType.MEMORY);
+      try (ODatabaseDocument db = orientDB.open("ShortestPathBenchmark", "admin", "admin")) {
+        db.createEdgeClass("Road");
+        List<ORID> rids = generate(db);
+
+        Random random = new Random(17);
+        List<ORID[]> pairs = new ArrayList<>();
+        for (int i = 0; i < searches; i++) {
+          pairs.add(new ORID[] { rids.get(random.nextInt(rids.size())), rids.get(random.nextInt(rids.size())) });
+        }
+
+        Map<String, Object> astarOptions = new HashMap<>();
+        astarOptions.put("direction", "OUT");
+        Map<String, Object> bidirectional = new HashMap<>();
+        bidirectional.put("bidirectional", true);
+
+        run(db, "astar (boxed maps)", pairs, (from, to) -> new OSQLFunctionAstar()
+            .execute(null, null, null, new Object[] { from, to, "weight", astarOptions }, new OBasicCommandContext()).size());
+        run(db, "dijkstra", pairs, (from, to) -> new OSQLFunctionDijkstra()
+            .execute(null, null, null, new Object[] { from, to, "weight", "OUT" }, new OBasicCommandContext()).size());
+        run(db, "dijkstra bidirectional", pairs, (from, to) -> new OSQLFunctionDijkstra()
+            .execute(null, null, null, new Object[] { from, to, "weight", "OUT", bidirectional }, new OBasicCommandContext())
+            .size());
+        run(db, "shortestPath", pairs, (from, to) -> new OSQLFunctionShortestPath()
+            .execute(null, null, null, new Object[] { from, to, "OUT" }, new OBasicCommandContext()).size());
+      }
+      orientDB.drop("ShortestPathBenchmark");
+    }
+  }
+
+  private List<ORID> generate(ODatabaseDocument db) {
+    Random random = new Random(42);
+    List<OVertex> created = new ArrayList<>(vertices);
+    long begin = System.currentTimeMillis();
+    db.begin();
+    for (int i = 0; i < vertices; i++) {
+      OVertex v = db.newVertex();
+      v.setProperty("id", i);
+      v.save();
+      created.add(v);
+      if (i % 10_000 == 0) {
+        db.commit();
+        db.begin();
+      }
+    }
+    db.commit();
+
+    List<ORID> rids = new ArrayList<>(vertices);
+    for (OVertex v : created) {
+      rids.add(v.getIdentity());
+    }
+
+    db.begin();
+    for (int i = 0; i < vertices * degree; i++) {
+      OVertex from = db.load(rids.get(random.nextInt(vertices)));
+      OVertex to = db.load(rids.get(random.nextInt(vertices)));
+      OEdge edge = db.newEdge(from, to, "Road");
+      edge.setProperty("weight", 1 + random.nextInt(100));
+      edge.save();
+      if (i % 10_000 == 0) {
+        db.commit();
+        db.begin();
+      }
+    }
+    db.commit();
+    System.out.println(
+        "Graph of " + vertices + " vertices and " + (vertices * degree) + " edges created in " + (System.currentTimeMillis() - begin)
+            + " ms");
+    return rids;
+  }
+
+  private interface Search {
+    int find(OVertex from, OVertex to);
+  }
+
+  private void run(ODatabaseDocument db, String name, List<ORID[]> pairs, Search search) {
+    // warm up
+    for (int i = 0; i < Math.min(5, pairs.size()); i++) {
+      search.find(db.load(pairs.get(i)[0]), db.load(pairs.get(i)[1]));
+    }
+    long totalLength = 0;
+    long begin = System.nanoTime();
+    for (ORID[] pair : pairs) {
+      totalLength += search.find(db.load(pair[0]), db.load(pair[1]));
+    }
+    long elapsed = System.nanoTime() - begin;
+    System.out.println(
+        String.format("%-25s %8.2f ms/search, %d vertices on the paths", name, elapsed / 1_000_000.0 / pairs.size(), totalLength));
+  }
+}
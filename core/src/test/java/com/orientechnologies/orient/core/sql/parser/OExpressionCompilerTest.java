@@ -0,0 +1,82 @@
+package com.orientechnologies.orient.core.sql.parser;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultInternal;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class OExpressionCompilerTest {
+
+  @Test
+  public void testConditions() throws ParseException {
+    String[] conditions = new String[] { "a = 3", "a > 3 and name = 'foo'", "a < 2 or name = 'bar'", "not (a = 1)",
+        "a + 1 = 4", "a = :a", "name = ?", "name is null", "name in ['foo', 'bar'] and a <> 5", "(a = 1 or a = 2) and b > 1.5",
+        "$var = 1 or a = 0", "a = b" };
+
+    List<OResult> rows = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      OResultInternal row = new OResultInternal();
+      row.setProperty("a", i);
+      row.setProperty("b", i / 2.0);
+      if (i % 3 != 0) {
+        row.setProperty("name", i % 2 == 0 ? "foo" : "bar");
+      }
+      rows.add(row);
+    }
+
+    OBasicCommandContext ctx = new OBasicCommandContext();
+    Map<Object, Object> params = new HashMap<>();
+    params.put("a", 4);
+    params.put(0, "foo");
+    ctx.setInputParameters(params);
+
+    for (String condition : conditions) {
+      OWhereClause where = ((OSelectStatement) getParserFor("select from V where " + condition).parse()).getWhereClause();
+      OCompiledCondition compiled = OExpressionCompiler.compile(where);
+      Assert.assertNotNull(compiled);
+      for (OResult row : rows) {
+        Assert.assertEquals(condition, where.matchesFilters(row, ctx), compiled.evaluate(row, ctx));
+      }
+    }
+  }
+
+  @Test
+  public void testProjection() throws ParseException {
+    OProjection projection = ((OSelectStatement) getParserFor("select a, name as n, 'x' as c, a + 1 as d from V").parse())
+        .getProjection();
+    OCompiledProjection compiled = OExpressionCompiler.compile(projection);
+    Assert.assertNotNull(compiled);
+
+    OResultInternal row = new OResultInternal();
+    row.setProperty("a", 1);
+    row.setProperty("name", "foo");
+    row.setMetadata("meta", "value");
+
+    OBasicCommandContext ctx = new OBasicCommandContext();
+    OResult expected = projection.calculateSingle(ctx, row);
+    OResult actual = compiled.calculateSingle(ctx, row);
+    Assert.assertEquals(expected.getPropertyNames(), actual.getPropertyNames());
+    for (String name : expected.getPropertyNames()) {
+      Assert.assertEquals(expected.<Object>getProperty(name), actual.getProperty(name));
+    }
+    Assert.assertEquals("value", actual.getMetadata("meta"));
+  }
+
+  @Test
+  public void testNotCompilableProjection() throws ParseException {
+    Assert.assertNull(OExpressionCompiler.compile(((OSelectStatement) getParserFor("select * from V").parse()).getProjection()));
+    Assert.assertNull(
+        OExpressionCompiler.compile(((OSelectStatement) getParserFor("select expand(foo) from V").parse()).getProjection()));
+  }
+
+  protected OrientSql getParserFor(String string) {
+    return new OrientSql(new ByteArrayInputStream(string.getBytes()));
+  }
+}
@@ -0,0 +1,141 @@
+package com.orientechnologies.orient.core.sql.parser;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.OElement;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OQueryResultCacheTest {
+
+  private ODatabaseDocumentInternal db;
+  private Integer                   oldCacheSize;
+
+  @Before
+  public void before() {
+    oldCacheSize = OGlobalConfiguration.QUERY_RESULT_CACHE_SIZE.getValueAsInteger();
+    OGlobalConfiguration.QUERY_RESULT_CACHE_SIZE.setValue(10);
+    db = new ODatabaseDocumentTx("memory:OQueryResultCacheTest");
+    db.create();
+    db.createClass("Foo");
+    db.createClass("Bar");
+    for (int i = 0; i < 10; i++) {
+      OElement elem = db.newElement("Foo");
+      elem.setProperty("val", i);
+      elem.save();
+    }
+  }
+
+  @After
+  public void after() {
+    db.drop();
+    OGlobalConfiguration.QUERY_RESULT_CACHE_SIZE.setValue(oldCacheSize);
+  }
+
+  @Test
+  public void testCachedAggregate() {
+    OQueryResultCache cache = db.getSharedContext().getQueryResultCache();
+    Assert.assertEquals(0, cache.size());
+
+    Assert.assertEquals(10L, count("select count(*) as count from Foo where val >= ?", 0));
+    Assert.assertEquals(1, cache.size());
+    Assert.assertEquals(10L, count("select count(*) as count from Foo where val >= ?", 0));
+    Assert.assertEquals(1, cache.size());
+
+    // different parameters are different entries
+    Assert.assertEquals(5L, count("select count(*) as count from Foo where val >= ?", 5));
+    Assert.assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testInvalidationOnCommit() {
+    OQueryResultCache cache = db.getSharedContext().getQueryResultCache();
+    Assert.assertEquals(10L, count("select count(*) as count from Foo where val >= ?", 0));
+    Assert.assertEquals(0L, count("select count(*) as count from Bar where val >= ?", 0));
+    Assert.assertEquals(2, cache.size());
+
+    OElement elem = db.newElement("Foo");
+    elem.setProperty("val", 100);
+    elem.save();
+
+    // only the entry that reads Foo is invalidated
+    Assert.assertEquals(1, cache.size());
+    Assert.assertEquals(11L, count("select count(*) as count from Foo where val >= ?", 0));
+
+    db.begin();
+    elem = db.newElement("Bar");
+    elem.setProperty("val", 100);
+    elem.save();
+    Assert.assertEquals(2, cache.size());
+    // queries in a transaction see the transaction changes and bypass the cache
+    Assert.assertEquals(1L, count("select count(*) as count from Bar where val >= ?", 0));
+    db.commit();
+
+    Assert.assertEquals(1, cache.size());
+    Assert.assertEquals(1L, count("select count(*) as count from Bar where val >= ?", 0));
+  }
+
+  @Test
+  public void testInvalidationOnSchemaChange() {
+    OQueryResultCache cache = db.getSharedContext().getQueryResultCache();
+    Assert.assertEquals(10L, count("select count(*) as count from Foo where val >= ?", 0));
+    Assert.assertEquals(1, cache.size());
+    db.createClass("Baz");
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testRecordsAreNotCached() {
+    OQueryResultCache cache = db.getSharedContext().getQueryResultCache();
+    try (OResultSet result = db.query("select from Foo")) {
+      Assert.assertEquals(10, result.stream().count());
+    }
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testNonDeterministicFunctionsAreNotCached() {
+    OQueryResultCache cache = db.getSharedContext().getQueryResultCache();
+    try (OResultSet result = db.query("select uuid() as id, count(*) as count from Foo")) {
+      Assert.assertTrue(result.hasNext());
+      result.next();
+    }
+    try (OResultSet result = db.query("select sysdate() as now, count(*) as count from Foo")) {
+      Assert.assertTrue(result.hasNext());
+      result.next();
+    }
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testQueriesWithoutClustersAreNotCached() {
+    OQueryResultCache cache = db.getSharedContext().getQueryResultCache();
+    try (OResultSet result = db.query("select 1 as count")) {
+      Assert.assertTrue(result.hasNext());
+      result.next();
+    }
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testInvalidationOnTruncate() {
+    OQueryResultCache cache = db.getSharedContext().getQueryResultCache();
+    Assert.assertEquals(10L, count("select count(*) as count from Foo where val >= ?", 0));
+    Assert.assertEquals(1, cache.size());
+
+    db.command("truncate class Foo").close();
+    Assert.assertEquals(0, cache.size());
+    Assert.assertEquals(0L, count("select count(*) as count from Foo where val >= ?", 0));
+  }
+
+  private long count(String query, Object... args) {
+    try (OResultSet result = db.query(query, args)) {
+      Assert.assertTrue(result.hasNext());
+      return ((Number) result.next().getProperty("count")).longValue();
+    }
+  }
+}
@@ -783,6 +783,29 @@ public class OSelectStatementTest {
     checkWrongSyntax("select from V order by foo asc collate ");
   }
 
+  @Test
+  public void testReadsOnlyTargetRecords() {
+    Assert.assertTrue(readsOnlyTargetRecords("select name, val * 2 as twice from V where val >= 5"));
+    Assert.assertTrue(readsOnlyTargetRecords("select grp, count(*) as cnt, sum(val) as total from V group by grp"));
+    Assert.assertTrue(readsOnlyTargetRecords("select name.toUpperCase() as upper from V where ifnull(val, 0) > 1"));
+    Assert.assertFalse(readsOnlyTargetRecords("select owner.name as ownerName from V"));
+    Assert.assertFalse(readsOnlyTargetRecords("select name from V where owner.name = 'foo'"));
+    Assert.assertFalse(readsOnlyTargetRecords("select out('E').size() as degree from V"));
+    Assert.assertFalse(readsOnlyTargetRecords("select name from V where both().size() > 0"));
+    Assert.assertFalse(readsOnlyTargetRecords("select name.out() as friends from V"));
+    Assert.assertFalse(readsOnlyTargetRecords("select name from V where friends[name = 'foo'].size() > 0"));
+    Assert.assertFalse(readsOnlyTargetRecords("select name, date() as now from V"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testReadsOnlyTargetRecordsOnCopy() {
+    ((OSelectStatement) checkRightSyntax("select name from V")).copy().readsOnlyTargetRecords();
+  }
+
+  private boolean readsOnlyTargetRecords(String query) {
+    return ((OSelectStatement) checkRightSyntax(query)).readsOnlyTargetRecords();
+  }
+
   protected OrientSql getParserFor(String string) {
     InputStream is = new ByteArrayInputStream(string.getBytes());
     OrientSql osql = new OrientSql(is);
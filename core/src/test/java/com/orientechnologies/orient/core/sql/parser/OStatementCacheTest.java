@@ -1,5 +1,6 @@
 package com.orientechnologies.orient.core.sql.parser;
 
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import org.junit.Assert; import org.junit.Test;
 
 public class OStatementCacheTest {
@@ -26,5 +27,42 @@ public class OStatementCacheTest {
 
   }
 
+  @Test
+  public void testLiteralsShareTemplate() {
+    OStatementCache cache = new OStatementCache(10);
+    String first = "select from foo where name = 'John' and age > 18 limit 10";
+    String second = "select from foo where name = 'Jane' and age > -21 limit 20";
+    OStatement firstStm = cache.get(first);
+    OStatement secondStm = cache.get(second);
+
+    Assert.assertEquals(1, cache.templates.size());
+    Assert.assertTrue(cache.templates.values().iterator().next() instanceof OSelectStatement);
+    Assert.assertEquals(first, firstStm.getOriginalStatement());
+    Assert.assertEquals(second, secondStm.getOriginalStatement());
+    Assert.assertEquals(OStatementCache.parse(first).toString(), firstStm.toString());
+    Assert.assertEquals(OStatementCache.parse(second).toString(), secondStm.toString());
+    Assert.assertEquals(10, ((OSelectStatement) firstStm).getLimit().getValue(new OBasicCommandContext()));
+    Assert.assertEquals(20, ((OSelectStatement) secondStm).getLimit().getValue(new OBasicCommandContext()));
+    Assert.assertSame(secondStm, cache.get(second));
+  }
+
+  @Test
+  public void testInvalidTemplate() {
+    OStatementCache cache = new OStatementCache(10);
+    String first = "select from foo where name = 'John' timeout 100";
+    String second = "select from foo where name = 'Jane' timeout 200";
+    OStatement firstStm = cache.get(first);
+    OStatement secondStm = cache.get(second);
 
+    Assert.assertEquals(1, cache.templates.size());
+    Assert.assertFalse(cache.templates.values().iterator().next() instanceof OSelectStatement);
+    Assert.assertEquals(OStatementCache.parse(first).toString(), firstStm.toString());
+    Assert.assertEquals(OStatementCache.parse(second).toString(), secondStm.toString());
+  }
+
+  @Test
+  public void testUnicodeEscapes() {
+    OStatement stm = OStatementCache.parse("select from foo where name = '\\u0041bc'");
+    Assert.assertTrue(stm.toString().contains("'Abc'"));
+  }
 }
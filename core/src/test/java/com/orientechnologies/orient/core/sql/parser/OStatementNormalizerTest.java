@@ -0,0 +1,67 @@
+package com.orientechnologies.orient.core.sql.parser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OStatementNormalizerTest {
+
+  @Test
+  public void testNormalize() {
+    OStatementNormalizer.NormalizedStatement result = OStatementNormalizer
+        .normalize("select name, 'x' from Foo where name = 'John' and age > 18 and tags contains \"a\" limit 10");
+    Assert.assertEquals("select name, :__lit0 from Foo where name = :__lit1 and age > :__lit2 and tags contains :__lit3 limit :__lit4",
+        result.getKey());
+    Assert.assertArrayEquals(new Object[] { "x", "John", 18, "a", 10 }, result.getValues());
+    Assert.assertArrayEquals(new String[] { "'x'", "'John'", "18", "\"a\"", "10" }, result.getImages());
+  }
+
+  @Test
+  public void testNumbers() {
+    OStatementNormalizer.NormalizedStatement result = OStatementNormalizer
+        .normalize("select from Foo where a = -3 and b = 5000000000 and c - 2 = 1.5 and d = 0x1F and e = 10L and f = 017 and g = 0");
+    Assert.assertEquals(
+        "select from Foo where a = :__lit0 and b = :__lit1 and c - :__lit2 = 1.5 and d = 0x1F and e = 10L and f = 017 and g = :__lit3",
+        result.getKey());
+    Assert.assertArrayEquals(new Object[] { -3, 5000000000L, 2, 0 }, result.getValues());
+  }
+
+  @Test
+  public void testUnchangedTokens() {
+    OStatementNormalizer.NormalizedStatement result = OStatementNormalizer
+        .normalize("select `a1`, b2 /* 'c' 3 */ from cluster:5 where @rid = #12:3 and name = 'a\\'b' and x = 1");
+    Assert.assertEquals("select `a1`, b2 /* 'c' 3 */ from cluster:5 where @rid = #12:3 and name = 'a\\'b' and x = :__lit0",
+        result.getKey());
+
+    result = OStatementNormalizer.normalize("insert into Foo content {\"name\": \"John\", \"age\": 20}");
+    Assert.assertEquals("insert into Foo content {\"name\": :__lit0, \"age\": :__lit1}", result.getKey());
+  }
+
+  @Test
+  public void testNotNormalized() {
+    Assert.assertNull(OStatementNormalizer.normalize("select from Foo where name = ?"));
+    Assert.assertNull(OStatementNormalizer.normalize("select from Foo where name = :name and age = 10"));
+    Assert.assertNull(OStatementNormalizer.normalize("select from Foo"));
+    Assert.assertNull(OStatementNormalizer.normalize("create class Foo cluster 12"));
+    Assert.assertNull(OStatementNormalizer.normalize("match {class: Foo, as: a, where: (age = 10)} return a"));
+    Assert.assertNull(OStatementNormalizer.normalize("select from Foo where name = 'unterminated"));
+    Assert.assertNotNull(OStatementNormalizer.normalize("select from index:Foo.name where key = 10"));
+  }
+
+  @Test
+  public void testBind() {
+    OStatementNormalizer.NormalizedStatement first = OStatementNormalizer.normalize("select from Foo where name = 'John' limit 10");
+    OStatementNormalizer.NormalizedStatement second = OStatementNormalizer.normalize("select from Foo where name = 'Jane' limit 20");
+    Assert.assertEquals(first.getKey(), second.getKey());
+
+    OStatement template = OStatementCache.parse(first.getKey());
+    OStatement bound = OStatementNormalizer.bind(template, second);
+    Assert.assertNotNull(bound);
+    Assert.assertEquals(OStatementCache.parse("select from Foo where name = 'Jane' limit 20").toString(), bound.toString());
+    // the template is not changed
+    Assert.assertEquals(OStatementCache.parse(first.getKey()).toString(), template.toString());
+
+    ONamedParameter param = (ONamedParameter) ((OSelectStatement) bound).getLimit().inputParam;
+    Assert.assertEquals(20, param.getValue(null));
+    Assert.assertEquals(param, param.copy());
+  }
+}
@@ -0,0 +1,43 @@
+package com.orientechnologies.orient.core.sql.parser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+
+public class OStringCharStreamTest {
+
+  @Test
+  public void testSameTokensAsJavaCharStream() {
+    String statement = "select name,\n\tsurname from Foo\r\nwhere name = 'John' /* comment */\r  and age > 10";
+    OrientSqlTokenManager expected = new OrientSqlTokenManager(new JavaCharStream(new StringReader(statement)));
+    OrientSqlTokenManager actual = new OrientSqlTokenManager(new OStringCharStream(statement));
+    while (true) {
+      Token expectedToken = expected.getNextToken();
+      Token actualToken = actual.getNextToken();
+      Assert.assertEquals(expectedToken.kind, actualToken.kind);
+      Assert.assertEquals(expectedToken.image, actualToken.image);
+      Assert.assertEquals(expectedToken.beginLine, actualToken.beginLine);
+      Assert.assertEquals(expectedToken.beginColumn, actualToken.beginColumn);
+      Assert.assertEquals(expectedToken.endLine, actualToken.endLine);
+      Assert.assertEquals(expectedToken.endColumn, actualToken.endColumn);
+      if (expectedToken.kind == OrientSqlConstants.EOF) {
+        break;
+      }
+    }
+  }
+
+  @Test
+  public void testParse() throws ParseException {
+    String statement = "SELECT name, out('Friend').size() AS friends FROM Person WHERE name = 'John' ORDER BY name LIMIT 10";
+    OStatement expected = new OrientSql(new JavaCharStream(new StringReader(statement))).parse();
+    OStatement actual = new OrientSql(new OStringCharStream(statement)).parse();
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testCanRead() {
+    Assert.assertTrue(OStringCharStream.canRead("select from Foo where name = 'a'"));
+    Assert.assertFalse(OStringCharStream.canRead("select from Foo where name = '\\u0041'"));
+  }
+}
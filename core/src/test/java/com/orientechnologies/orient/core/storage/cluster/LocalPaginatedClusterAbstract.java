@@ -1343,4 +1343,53 @@ public abstract class LocalPaginatedClusterAbstract {
       }
     }
   }
+
+  @Test
+  public void testReadRecords() throws IOException {
+    final int records = 1000;
+
+    long seed = System.currentTimeMillis();
+    Random mersenneTwisterFast = new Random(seed);
+    System.out.println("testReadRecords seed : " + seed);
+
+    List<Long> positions = new ArrayList<>();
+    for (int i = 0; i < records; i++) {
+      // mostly small records, a few of them span more pages
+      int recordSize = mersenneTwisterFast.nextInt(10) == 0 ?
+          mersenneTwisterFast.nextInt(2 * OClusterPage.MAX_RECORD_SIZE) + 1 :
+          mersenneTwisterFast.nextInt(200) + 1;
+      byte[] record = new byte[recordSize];
+      mersenneTwisterFast.nextBytes(record);
+
+      positions.add(paginatedCluster.createRecord(record, i + 1, (byte) 1, null).clusterPosition);
+    }
+
+    for (int i = 0; i < records; i += 3) {
+      paginatedCluster.deleteRecord(positions.get(i));
+    }
+    positions.add(positions.get(records - 1) + 1);
+    positions.add(positions.get(records - 1) + 100000);
+
+    long[] clusterPositions = new long[positions.size()];
+    for (int i = 0; i < clusterPositions.length; i++) {
+      clusterPositions[i] = positions.get(i);
+    }
+
+    ORawBuffer[] rawBuffers = paginatedCluster.readRecords(clusterPositions);
+    Assert.assertEquals(clusterPositions.length, rawBuffers.length);
+
+    for (int i = 0; i < clusterPositions.length; i++) {
+      ORawBuffer expected = paginatedCluster.readRecord(clusterPositions[i], false);
+      if (expected == null) {
+        Assert.assertNull(rawBuffers[i]);
+      } else {
+        Assert.assertNotNull(rawBuffers[i]);
+        Assert.assertEquals(expected.version, rawBuffers[i].version);
+        Assert.assertEquals(expected.recordType, rawBuffers[i].recordType);
+        Assertions.assertThat(rawBuffers[i].buffer).isEqualTo(expected.buffer);
+      }
+    }
+    Assert.assertNull(rawBuffers[0]);
+    Assert.assertNotNull(rawBuffers[1]);
+  }
 }
@@ -254,6 +254,55 @@ public class OSBTreeBonsaiLocalTestIT {
     }
   }
 
+  @Test
+  public void testPutAll() throws Exception {
+    for (int i = 0; i < KEYS_COUNT; i += 2) {
+      sbTree.put(i, new ORecordId(i % 32000, i));
+    }
+
+    final SortedMap<Integer, OIdentifiable> entries = new TreeMap<Integer, OIdentifiable>();
+    for (int i = 0; i < KEYS_COUNT; i++) {
+      if (i % 2 == 1 || i % 3 == 0)
+        entries.put(i, new ORecordId((i + 1) % 32000, i));
+    }
+    sbTree.putAll(entries);
+
+    Assert.assertEquals(KEYS_COUNT, sbTree.size());
+    Assert.assertEquals(0, (int) sbTree.firstKey());
+    Assert.assertEquals(KEYS_COUNT - 1, (int) sbTree.lastKey());
+
+    for (int i = 0; i < KEYS_COUNT; i++) {
+      if (i % 2 == 1 || i % 3 == 0)
+        Assert.assertEquals(sbTree.get(i), new ORecordId((i + 1) % 32000, i));
+      else
+        Assert.assertEquals(sbTree.get(i), new ORecordId(i % 32000, i));
+    }
+  }
+
+  @Test
+  public void testRemoveAll() throws Exception {
+    for (int i = 0; i < KEYS_COUNT; i++) {
+      sbTree.put(i, new ORecordId(i % 32000, i));
+    }
+
+    final SortedSet<Integer> keys = new TreeSet<Integer>();
+    for (int i = 0; i < 2 * KEYS_COUNT; i++) {
+      if (i % 3 == 0)
+        keys.add(i);
+    }
+    sbTree.removeAll(keys);
+
+    Assert.assertEquals(KEYS_COUNT - (KEYS_COUNT + 2) / 3, sbTree.size());
+    Assert.assertEquals(1, (int) sbTree.firstKey());
+
+    for (int i = 0; i < KEYS_COUNT; i++) {
+      if (i % 3 == 0)
+        Assert.assertNull(sbTree.get(i));
+      else
+        Assert.assertEquals(sbTree.get(i), new ORecordId(i % 32000, i));
+    }
+  }
+
   @Test
   public void testValuesMajor() throws Exception {
     NavigableMap<Integer, ORID> keyValues = new TreeMap<Integer, ORID>();
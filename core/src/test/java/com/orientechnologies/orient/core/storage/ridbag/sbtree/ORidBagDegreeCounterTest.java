@@ -0,0 +1,213 @@
+package com.orientechnologies.orient.core.storage.ridbag.sbtree;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseSession;
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ODirection;
+import com.orientechnologies.orient.core.record.OEdge;
+import com.orientechnologies.orient.core.record.OVertex;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class ORidBagDegreeCounterTest {
+  private int              topThreshold;
+  private int              bottomThreshold;
+  private OrientDB         orientDB;
+  private ODatabaseSession db;
+
+  @Before
+  public void setUp() {
+    topThreshold = OGlobalConfiguration.RID_BAG_EMBEDDED_TO_SBTREEBONSAI_THRESHOLD.getValueAsInteger();
+    bottomThreshold = OGlobalConfiguration.RID_BAG_SBTREEBONSAI_TO_EMBEDDED_THRESHOLD.getValueAsInteger();
+    OGlobalConfiguration.RID_BAG_EMBEDDED_TO_SBTREEBONSAI_THRESHOLD.setValue(-1);
+    OGlobalConfiguration.RID_BAG_SBTREEBONSAI_TO_EMBEDDED_THRESHOLD.setValue(-1);
+
+    orientDB = new OrientDB("embedded:", OrientDBConfig.defaultConfig());
+    orientDB.create("ORidBagDegreeCounterTest", ODatabaseType.MEMORY);
+    db = orientDB.open("ORidBagDegreeCounterTest", "admin", "admin");
+    db.createVertexClass("Person");
+    db.createEdgeClass("Follows");
+  }
+
+  @After
+  public void tearDown() {
+    db.close();
+    orientDB.drop("ORidBagDegreeCounterTest");
+    orientDB.close();
+
+    OGlobalConfiguration.RID_BAG_EMBEDDED_TO_SBTREEBONSAI_THRESHOLD.setValue(topThreshold);
+    OGlobalConfiguration.RID_BAG_SBTREEBONSAI_TO_EMBEDDED_THRESHOLD.setValue(bottomThreshold);
+  }
+
+  @Test
+  public void testSizeIsStored() {
+    ORID hub = createHub("hub", 50);
+
+    ORidBag bag = reload(hub).field("out_Follows");
+    Assert.assertFalse(bag.isEmbedded());
+    // the size is known before the tree is loaded
+    Assert.assertEquals("[size=50]", bag.getDelegate().toString());
+    Assert.assertEquals(50, bag.size());
+  }
+
+  @Test
+  public void testSizeAfterEdgeDelete() {
+    ORID hub = createHub("hub", 50);
+
+    db.begin();
+    List<OEdge> edges = new ArrayList<>();
+    reload(hub).asVertex().get().getEdges(ODirection.OUT, "Follows").forEach(edges::add);
+    for (int i = 0; i < 10; i++) {
+      edges.get(i * 5).delete();
+    }
+    db.commit();
+
+    ORidBag bag = reload(hub).field("out_Follows");
+    Assert.assertEquals("[size=40]", bag.getDelegate().toString());
+    Assert.assertEquals(40, bag.size());
+    int count = 0;
+    for (OIdentifiable ignored : bag) {
+      count++;
+    }
+    Assert.assertEquals(40, count);
+
+    db.begin();
+    reload(hub).asVertex().get().getEdges(ODirection.OUT, "Follows").iterator().next().delete();
+    db.rollback();
+    Assert.assertEquals(40, ((ORidBag) reload(hub).field("out_Follows")).size());
+  }
+
+  @Test
+  public void testRemoveMissingEntry() {
+    ORID hub = createHub("hub", 10);
+    ORID other = createHub("other", 1);
+
+    ODocument doc = reload(hub);
+    ORidBag bag = doc.field("out_Follows");
+    bag.remove(other);
+    // the removal is verified against the tree when the size is needed
+    Assert.assertEquals(10, bag.size());
+    doc.save();
+
+    Assert.assertEquals(10, ((ORidBag) reload(hub).field("out_Follows")).size());
+  }
+
+  @Test
+  public void testRemoveExistingAndMissingEntries() {
+    ORID hub = createHub("hub", 10);
+    ORID other = createHub("other", 1);
+
+    ODocument doc = reload(hub);
+    ORidBag bag = doc.field("out_Follows");
+    List<OIdentifiable> entries = new ArrayList<>();
+    bag.forEach(entries::add);
+
+    bag.remove(other);
+    bag.remove(entries.get(0));
+    bag.remove(entries.get(0));
+    bag.remove(entries.get(1));
+    bag.remove(other);
+    bag.add(other);
+    Assert.assertEquals(9, bag.size());
+    bag.remove(entries.get(2));
+    doc.save();
+
+    Assert.assertEquals(8, ((ORidBag) reload(hub).field("out_Follows")).size());
+  }
+
+  @Test
+  public void testDegreeQuery() {
+    createHub("hub0", 5);
+    createHub("hub1", 20);
+    createHub("hub2", 12);
+
+    String query = "select name, out('Follows').size() as degree from Person where name like 'hub%' order by degree desc";
+    String[] names = { "hub1", "hub2", "hub0" };
+    int[] degrees = { 20, 12, 5 };
+    try (OResultSet rs = db.query(query)) {
+      for (int i = 0; i < names.length; i++) {
+        OResult item = rs.next();
+        Assert.assertEquals(names[i], item.getProperty("name"));
+        Assert.assertEquals(degrees[i], ((Number) item.getProperty("degree")).intValue());
+      }
+      Assert.assertFalse(rs.hasNext());
+    }
+  }
+
+  @Test
+  public void testLargeTransactionOnHub() {
+    ORID hub = createHub("hub", 3000);
+
+    Set<ORID> expected = new HashSet<>();
+    db.begin();
+    OVertex vertex = reload(hub).asVertex().get();
+    List<OEdge> edges = new ArrayList<>();
+    vertex.getEdges(ODirection.OUT, "Follows").forEach(edges::add);
+    for (int i = 0; i < edges.size(); i++) {
+      if (i % 2 == 0) {
+        edges.get(i).delete();
+      } else {
+        expected.add(edges.get(i).getTo().getIdentity());
+      }
+    }
+    for (int j = 0; j < 2000; j++) {
+      OVertex follower = db.newVertex("Person");
+      follower.setProperty("name", "follower of hub");
+      follower.save();
+      vertex.addEdge(follower, "Follows").save();
+    }
+    vertex.save();
+    db.commit();
+
+    for (OVertex follower : reload(hub).asVertex().get().getVertices(ODirection.OUT, "Follows")) {
+      if (!expected.remove(follower.getIdentity())) {
+        expected.add(follower.getIdentity());
+      }
+    }
+    Assert.assertEquals(2000, expected.size());
+
+    ORidBag bag = reload(hub).field("out_Follows");
+    Assert.assertEquals(3500, bag.size());
+    int count = 0;
+    for (OIdentifiable ignored : bag) {
+      count++;
+    }
+    Assert.assertEquals(3500, count);
+  }
+
+  private ORID createHub(String name, int followers) {
+    db.begin();
+    OVertex hub = db.newVertex("Person");
+    hub.setProperty("name", name);
+    hub.save();
+    for (int i = 0; i < followers; i++) {
+      OVertex follower = db.newVertex("Person");
+      follower.setProperty("name", "follower of " + name);
+      follower.save();
+      hub.addEdge(follower, "Follows").save();
+    }
+    hub.save();
+    db.commit();
+    return hub.getIdentity();
+  }
+
+  private ODocument reload(ORID rid) {
+    db.getLocalCache().clear();
+    return db.load(rid);
+  }
+}
@@ -15,7 +15,10 @@ import com.orientechnologies.orient.core.query.live.OLiveQueryHookV2;
 import com.orientechnologies.orient.core.schedule.OSchedulerImpl;
 import com.orientechnologies.orient.core.security.OSecurityManager;
 import com.orientechnologies.orient.core.sql.executor.OQueryStats;
+import com.orientechnologies.orient.core.sql.executor.OSlowQueryLog;
+import com.orientechnologies.orient.core.sql.functions.graph.OGraphProjectionManager;
 import com.orientechnologies.orient.core.sql.parser.OExecutionPlanCache;
+import com.orientechnologies.orient.core.sql.parser.OQueryResultCache;
 import com.orientechnologies.orient.core.sql.parser.OStatementCache;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.server.distributed.impl.ViewManagerDistributed;
@@ -46,8 +49,16 @@ public class OSharedContextDistributed extends OSharedContext {
         storage.getConfiguration().getContextConfiguration().getValueAsInteger(OGlobalConfiguration.STATEMENT_CACHE_SIZE));
     this.registerListener(executionPlanCache);
 
+    queryResultCache = new OQueryResultCache();
+    this.registerListener(queryResultCache);
+
+    slowQueryLog = new OSlowQueryLog();
+
     queryStats = new OQueryStats();
 
+    graphProjectionManager = new OGraphProjectionManager();
+    this.registerListener(graphProjectionManager);
+
     this.viewManager = new ViewManagerDistributed(orientDB, storage.getName());
 
   }
@@ -90,6 +101,9 @@ public class OSharedContextDistributed extends OSharedContext {
     commandCache.shutdown();
     statementCache.clear();
     executionPlanCache.invalidate();
+    queryResultCache.invalidate();
+    slowQueryLog.clear();
+    graphProjectionManager.close();
     liveQueryOps.close();
     liveQueryOpsV2.close();
   }
@@ -73,6 +73,9 @@ import java.util.concurrent.atomic.AtomicInteger;
  * </code>
  * <p>
  * batch.createVertex(Long) is needed only if you want to create unconnected vertices
+ * <p>
+ * To load graphs with multiple vertex and edge classes, or with string keys, use {@link
+ * com.orientechnologies.orient.core.db.tool.OGraphBulkLoader}
  *
  * @author Luigi Dell'Aquila (l.dellaquila-(at)-orientdb.com) (l.dellaquila-at-orientdb.com)
  * @since 2.0 M3
@@ -92,6 +92,11 @@ public final class OConnectionBinaryExecutor implements OBinaryRequestExecutor {
   private final OServer           server;
   private final HandshakeInfo     handshakeInfo;
 
+  /**
+   * errors on the production of the pages streamed to the client, returned on the next request for the query
+   */
+  private final Map<String, RuntimeException> queryPageErrors = new HashMap<>();
+
   public OConnectionBinaryExecutor(OClientConnection connection, OServer server) {
     this(connection, server, null);
   }
@@ -1162,6 +1167,7 @@ public final class OConnectionBinaryExecutor implements OBinaryRequestExecutor {
     if (query != null) {
       query.close();
     }
+    queryPageErrors.remove(queryId);
     return new OCloseQueryResponse();
   }
 
@@ -1186,6 +1192,26 @@ public final class OConnectionBinaryExecutor implements OBinaryRequestExecutor {
     return new OQueryResponse(rs.getQueryId(), false, rsCopy, rs.getExecutionPlan(), hasNext, rs.getQueryStats(), false);
   }
 
+  @Override
+  public OBinaryResponse executeQueryNextPages(OQueryNextPagesRequest request) {
+    RuntimeException error = queryPageErrors.remove(request.getQueryId());
+    if (error != null) {
+      throw error;
+    }
+    OLocalResultSetLifecycleDecorator rs = (OLocalResultSetLifecycleDecorator) connection.getDatabase()
+        .getActiveQuery(request.getQueryId());
+
+    if (rs == null) {
+      throw new ODatabaseException(String.format("No query with id '%s' found probably expired session", request.getQueryId()));
+    }
+
+    int maxPages = connection.getDatabase().getConfiguration()
+        .getValueAsInteger(OGlobalConfiguration.QUERY_REMOTE_RESULTSET_MAX_PREFETCH_PAGES);
+    int pages = Math.min(request.getPages(), Math.max(1, maxPages));
+    return new OQueryPagesResponse(rs.getQueryId(),
+        new OQueryResultPageWindow(rs, request.getRecordsPerPage(), pages, e -> queryPageErrors.put(request.getQueryId(), e)));
+  }
+
   @Override
   public OBinaryResponse executeBeginTransaction(OBeginTransactionRequest request) {
     final OTransactionOptimisticServer tx = new OTransactionOptimisticServer(connection.getDatabase(), request.getTxId(),
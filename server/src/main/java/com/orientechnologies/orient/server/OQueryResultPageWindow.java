@@ -0,0 +1,85 @@
+package com.orientechnologies.orient.server;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.client.remote.message.OQueryPageWindow;
+import com.orientechnologies.orient.core.sql.executor.OResultInternal;
+import com.orientechnologies.orient.core.sql.parser.OLocalResultSetLifecycleDecorator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Produces the pages of an active query streamed back to a client, up to the number of pages requested by the client. The first
+ * page is produced when the window is created, so that an error is returned as the response of the request; an error on a later
+ * page, that is produced while the response is being written, ends the window and is passed to a handler, that returns it on the
+ * next request of the client.
+ */
+public class OQueryResultPageWindow implements OQueryPageWindow {
+
+  private final OLocalResultSetLifecycleDecorator rs;
+  private final int                               recordsPerPage;
+  private final Consumer<RuntimeException>        errorHandler;
+  private       int                               pagesToProduce;
+  private       List<OResultInternal>             firstPage;
+  private       boolean                           failed = false;
+
+  /**
+   * @param rs             the active query
+   * @param recordsPerPage the maximum number of records of a page
+   * @param pages          the number of pages requested by the client
+   * @param errorHandler   receives the error on the production of a page after the first one
+   */
+  public OQueryResultPageWindow(OLocalResultSetLifecycleDecorator rs, int recordsPerPage, int pages,
+      Consumer<RuntimeException> errorHandler) {
+    this.rs = rs;
+    this.recordsPerPage = recordsPerPage;
+    this.errorHandler = errorHandler;
+    this.firstPage = readPage();
+    this.pagesToProduce = Math.max(1, pages) - 1;
+  }
+
+  @Override
+  public List<OResultInternal> nextPage() {
+    if (firstPage != null) {
+      List<OResultInternal> page = firstPage;
+      firstPage = null;
+      return page;
+    }
+    if (failed || pagesToProduce <= 0 || !rs.hasNext()) {
+      return null;
+    }
+    pagesToProduce--;
+    try {
+      return readPage();
+    } catch (RuntimeException e) {
+      OLogManager.instance().debug(this, "Error on producing a page of query %s", e, rs.getQueryId());
+      failed = true;
+      errorHandler.accept(e);
+      return null;
+    }
+  }
+
+  private List<OResultInternal> readPage() {
+    List<OResultInternal> page = new ArrayList<>(recordsPerPage);
+    int i = 0;
+    //if it's OInternalResultSet it means that it's a Command, not a Query, so the result has to be sent as it is, not streamed
+    while (rs.hasNext() && (rs.isDetached() || i < recordsPerPage)) {
+      page.add((OResultInternal) rs.next());
+      i++;
+    }
+    return page;
+  }
+
+  @Override
+  public boolean hasNextPage() {
+    // after an error the client asks the next page anyway, and receives the error
+    return failed || rs.hasNext();
+  }
+
+  @Override
+  public Map<String, Long> getQueryStats() {
+    return rs.getQueryStats();
+  }
+}
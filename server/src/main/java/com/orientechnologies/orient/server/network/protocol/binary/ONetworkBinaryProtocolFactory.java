@@ -153,6 +153,9 @@ public class ONetworkBinaryProtocolFactory {
     case OChannelBinaryProtocol.REQUEST_QUERY_NEXT_PAGE:
       return new OQueryNextPageRequest();
 
+    case OChannelBinaryProtocol.REQUEST_QUERY_NEXT_PAGES:
+      return new OQueryNextPagesRequest();
+
     case OChannelBinaryProtocol.REQUEST_TX_COMMIT:
       return new OCommitRequest();
 
@@ -333,6 +336,9 @@ public class ONetworkBinaryProtocolFactory {
     case OChannelBinaryProtocol.REQUEST_QUERY_NEXT_PAGE:
       return new OQueryNextPageRequest();
 
+    case OChannelBinaryProtocol.REQUEST_QUERY_NEXT_PAGES:
+      return new OQueryNextPagesRequest();
+
     case OChannelBinaryProtocol.REQUEST_CONFIG_GET:
       return new OGetGlobalConfigurationRequest();
 
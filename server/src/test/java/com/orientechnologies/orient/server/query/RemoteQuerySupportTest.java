@@ -31,7 +31,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static com.orientechnologies.orient.core.config.OGlobalConfiguration.QUERY_REMOTE_RESULTSET_MAX_PREFETCH_PAGES;
 import static com.orientechnologies.orient.core.config.OGlobalConfiguration.QUERY_REMOTE_RESULTSET_PAGE_SIZE;
+import static com.orientechnologies.orient.core.config.OGlobalConfiguration.QUERY_REMOTE_RESULTSET_PREFETCH_PAGES;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -78,6 +80,60 @@ public class RemoteQuerySupportTest {
     }
   }
 
+  @Test
+  public void testQueryPrefetchPages() {
+    for (int i = 0; i < 155; i++) {
+      ODocument doc = new ODocument("Some");
+      doc.setProperty("prop", "value");
+      doc.setProperty("num", i);
+      session.save(doc);
+    }
+    int oldPrefetchPages = QUERY_REMOTE_RESULTSET_PREFETCH_PAGES.getValueAsInteger();
+    QUERY_REMOTE_RESULTSET_PREFETCH_PAGES.setValue(4);
+    try {
+      OResultSet res = session.query("select from Some order by num");
+      for (int i = 0; i < 155; i++) {
+        assertTrue(res.hasNext());
+        OResult item = res.next();
+        assertEquals((Integer) i, item.getProperty("num"));
+      }
+      Assert.assertFalse(res.hasNext());
+      res.close();
+
+      res = session.query("select from Some");
+      assertTrue(res.hasNext());
+      res.next();
+      res.close();
+    } finally {
+      QUERY_REMOTE_RESULTSET_PREFETCH_PAGES.setValue(oldPrefetchPages);
+    }
+  }
+
+  @Test
+  public void testQueryPrefetchPagesCappedByServer() {
+    for (int i = 0; i < 155; i++) {
+      ODocument doc = new ODocument("Some");
+      doc.setProperty("num", i);
+      session.save(doc);
+    }
+    int oldPrefetchPages = QUERY_REMOTE_RESULTSET_PREFETCH_PAGES.getValueAsInteger();
+    int oldMaxPrefetchPages = QUERY_REMOTE_RESULTSET_MAX_PREFETCH_PAGES.getValueAsInteger();
+    QUERY_REMOTE_RESULTSET_PREFETCH_PAGES.setValue(Integer.MAX_VALUE);
+    QUERY_REMOTE_RESULTSET_MAX_PREFETCH_PAGES.setValue(2);
+    try {
+      OResultSet res = session.query("select from Some order by num");
+      for (int i = 0; i < 155; i++) {
+        assertTrue(res.hasNext());
+        assertEquals((Integer) i, res.next().getProperty("num"));
+      }
+      Assert.assertFalse(res.hasNext());
+      res.close();
+    } finally {
+      QUERY_REMOTE_RESULTSET_PREFETCH_PAGES.setValue(oldPrefetchPages);
+      QUERY_REMOTE_RESULTSET_MAX_PREFETCH_PAGES.setValue(oldMaxPrefetchPages);
+    }
+  }
+
   @Test
   public void testCommandSelect() {
     for (int i = 0; i < 150; i++) {
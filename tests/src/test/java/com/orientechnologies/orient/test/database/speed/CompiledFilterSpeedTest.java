@@ -0,0 +1,104 @@
+package com.orientechnologies.orient.test.database.speed;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultInternal;
+import com.orientechnologies.orient.core.sql.parser.OCompiledCondition;
+import com.orientechnologies.orient.core.sql.parser.OExpressionCompiler;
+import com.orientechnologies.orient.core.sql.parser.OSelectStatement;
+import com.orientechnologies.orient.core.sql.parser.OWhereClause;
+import com.orientechnologies.orient.core.sql.parser.OrientSql;
+import com.orientechnologies.orient.core.sql.parser.ParseException;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compares the filter throughput (records per second, single thread) of interpreted and compiled WHERE conditions.
+ */
+@Test
+public class CompiledFilterSpeedTest {
+  private static final int ROWS       = 100_000;
+  private static final int ITERATIONS = 50;
+
+  private static final String[] CONDITIONS = new String[] { "age > 30 and name = 'name15'", "age = :age or surname = 'foo'",
+      "(age > 10 and age < 50) or (name = 'bar' and surname = 'baz')" };
+
+  @Test(enabled = false)
+  public static void main(String[] args) throws ParseException {
+    new CompiledFilterSpeedTest().testFilterThroughput();
+  }
+
+  @Test(enabled = false)
+  public void testFilterThroughput() throws ParseException {
+    OResult[] rows = new OResult[ROWS];
+    for (int i = 0; i < ROWS; i++) {
+      OResultInternal row = new OResultInternal();
+      row.setProperty("name", "name" + (i % 100));
+      row.setProperty("surname", "surname" + (i % 1000));
+      row.setProperty("age", i % 80);
+      rows[i] = row;
+    }
+    OBasicCommandContext ctx = new OBasicCommandContext();
+    Map<Object, Object> params = new HashMap<>();
+    params.put("age", 40);
+    ctx.setInputParameters(params);
+
+    for (String condition : CONDITIONS) {
+      OWhereClause where = ((OSelectStatement) new OrientSql(
+          new ByteArrayInputStream(("select from V where " + condition).getBytes())).parse()).getWhereClause();
+
+      // compiled once, as the execution planner does
+      OCompiledCondition compiled = OExpressionCompiler.compile(where);
+
+      long matches = 0;
+      // warm-up
+      for (int i = 0; i < ITERATIONS; i++) {
+        matches += interpreted(where, rows, ctx);
+        matches += compiled(compiled, rows, ctx);
+      }
+
+      long begin = System.nanoTime();
+      for (int i = 0; i < ITERATIONS; i++) {
+        matches += interpreted(where, rows, ctx);
+      }
+      long interpretedTime = System.nanoTime() - begin;
+
+      begin = System.nanoTime();
+      for (int i = 0; i < ITERATIONS; i++) {
+        matches += compiled(compiled, rows, ctx);
+      }
+      long compiledTime = System.nanoTime() - begin;
+
+      System.out.println(condition + " (" + matches + " matches)");
+      System.out.println("  interpreted: " + throughput(interpretedTime) + " records/s");
+      System.out.println("  compiled:    " + throughput(compiledTime) + " records/s");
+    }
+  }
+
+  private static long interpreted(OWhereClause where, OResult[] rows, OBasicCommandContext ctx) {
+    long result = 0;
+    for (OResult row : rows) {
+      if (where.matchesFilters(row, ctx)) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  private static long compiled(OCompiledCondition condition, OResult[] rows, OBasicCommandContext ctx) {
+    long result = 0;
+    for (OResult row : rows) {
+      if (condition.evaluate(row, ctx)) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  private static long throughput(long nanos) {
+    return (long) ROWS * ITERATIONS * 1_000_000_000L / Math.max(nanos, 1);
+  }
+}
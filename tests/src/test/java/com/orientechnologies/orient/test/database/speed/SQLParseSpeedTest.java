@@ -0,0 +1,113 @@
+package com.orientechnologies.orient.test.database.speed;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.sql.parser.OStatementCache;
+import com.orientechnologies.orient.core.sql.parser.OStringCharStream;
+import com.orientechnologies.orient.core.sql.parser.OrientSql;
+import com.orientechnologies.orient.core.sql.parser.ParseException;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * Compares the parsing throughput (statements per second, single thread) of unique generated statements: parsing from an
+ * InputStream, parsing directly from the String and getting the statements from the statement cache, with and without literal
+ * normalization.
+ */
+@Test
+public class SQLParseSpeedTest {
+  private static final int STATEMENTS = 20_000;
+  private static final int ITERATIONS = 5;
+
+  private static final String[] CORPUS = new String[] { "SELECT FROM Person WHERE name = 'name%d' AND age > %d",
+      "SELECT name, surname, out('Friend').size() AS friends FROM Person WHERE city = 'city%d' ORDER BY name LIMIT %d",
+      "SELECT count(*) AS cnt, city FROM Person WHERE age BETWEEN %d AND 99 GROUP BY city",
+      "SELECT FROM Order WHERE customer.id = %d AND status IN ['open', 'shipped'] AND total >= %d.5 ORDER BY date DESC SKIP 0 LIMIT 20",
+      "SELECT expand(out('Bought')) FROM Customer WHERE id = %d",
+      "INSERT INTO Person SET name = 'name%d', surname = 'surname', age = %d",
+      "INSERT INTO Event (type, ts, payload) VALUES ('click', %d, 'p%d')",
+      "UPDATE Person SET age = %d, lastLogin = sysdate() WHERE id = %d",
+      "UPDATE Counter INCREMENT value = %d WHERE name = 'c%d'",
+      "DELETE FROM Session WHERE expire < %d AND user = 'u%d'" };
+
+  @Test(enabled = false)
+  public static void main(String[] args) throws ParseException {
+    new SQLParseSpeedTest().testParseThroughput();
+  }
+
+  @Test(enabled = false)
+  public void testParseThroughput() throws ParseException {
+    String[] statements = new String[STATEMENTS];
+    for (int i = 0; i < STATEMENTS; i++) {
+      statements[i] = String.format(CORPUS[i % CORPUS.length], i, i * 7 % 1000);
+    }
+
+    // warm-up
+    for (int i = 0; i < ITERATIONS; i++) {
+      parseInputStream(statements);
+      parseString(statements);
+      parseCached(statements, true);
+      parseCached(statements, false);
+    }
+
+    long begin = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      parseInputStream(statements);
+    }
+    long inputStreamTime = System.nanoTime() - begin;
+
+    begin = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      parseString(statements);
+    }
+    long stringTime = System.nanoTime() - begin;
+
+    begin = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      parseCached(statements, false);
+    }
+    long cachedTime = System.nanoTime() - begin;
+
+    begin = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      parseCached(statements, true);
+    }
+    long normalizedTime = System.nanoTime() - begin;
+
+    System.out.println(STATEMENTS + " unique statements, " + CORPUS.length + " shapes");
+    System.out.println("  InputStream:              " + throughput(inputStreamTime) + " statements/s");
+    System.out.println("  String:                   " + throughput(stringTime) + " statements/s");
+    System.out.println("  cache:                    " + throughput(cachedTime) + " statements/s");
+    System.out.println("  cache, normalized:        " + throughput(normalizedTime) + " statements/s");
+  }
+
+  private static void parseInputStream(String[] statements) throws ParseException {
+    for (String statement : statements) {
+      new OrientSql(new ByteArrayInputStream(statement.getBytes())).parse();
+    }
+  }
+
+  private static void parseString(String[] statements) throws ParseException {
+    for (String statement : statements) {
+      new OrientSql(new OStringCharStream(statement)).parse();
+    }
+  }
+
+  private static void parseCached(String[] statements, boolean normalize) {
+    Object previous = OGlobalConfiguration.STATEMENT_CACHE_NORMALIZE_LITERALS.getValue();
+    OGlobalConfiguration.STATEMENT_CACHE_NORMALIZE_LITERALS.setValue(normalize);
+    try {
+      // all the statements are unique, so they always miss the cache
+      OStatementCache cache = new OStatementCache(100);
+      for (String statement : statements) {
+        cache.get(statement);
+      }
+    } finally {
+      OGlobalConfiguration.STATEMENT_CACHE_NORMALIZE_LITERALS.setValue(previous);
+    }
+  }
+
+  private static long throughput(long nanos) {
+    return (long) STATEMENTS * ITERATIONS * 1_000_000_000L / Math.max(nanos, 1);
+  }
+}